@@ -0,0 +1,108 @@
+package com.rmn.gdxtend;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces frames to a fixed rate, like vsync would, and keeps track of the frames
+ * that overran their budget. A rate of zero means frames run back to back as
+ * fast as possible, with no budget to miss.
+ * <p>
+ * Not thread-safe: a clock belongs to one thread at a time.
+ */
+class FrameClock {
+
+	private final long budget;
+
+	private long start;
+	private long next = -1;
+
+	private int frames = 0;
+	private int missed = 0;
+
+	/**
+	 * @param hz
+	 *          frames per second, or 0 for unpaced
+	 */
+	FrameClock( double hz ) {
+		if( hz < 0 || Double.isNaN( hz ) ) {
+			throw new IllegalArgumentException( "Bad frame rate " + hz );
+		}
+		budget = hz == 0 ? 0 : (long) ( TimeUnit.SECONDS.toNanos( 1 ) / hz );
+	}
+
+	/**
+	 * @return <code>true</code> if frames are paced to a budget
+	 */
+	boolean paced() {
+		return budget > 0;
+	}
+
+	/**
+	 * @return the frame budget in nanoseconds, or 0 if unpaced
+	 */
+	long budget() {
+		return budget;
+	}
+
+	/**
+	 * Waits for the next frame to start. The first frame starts immediately
+	 *
+	 * @return the time that the frame started, as per {@link System#nanoTime()}
+	 */
+	long begin() {
+		long now = System.nanoTime();
+		if( budget > 0 && next >= 0 ) {
+			while( now - next < 0 ) {
+				LockSupport.parkNanos( next - now );
+				now = System.nanoTime();
+			}
+		}
+		start = now;
+		return start;
+	}
+
+	/**
+	 * Ends the current frame. If it overran its budget then the next frame is
+	 * pushed back to the next deadline that hasn't passed, as a display would
+	 * drop to the next vsync
+	 *
+	 * @return the duration of the frame, in nanoseconds
+	 */
+	long end() {
+		long now = System.nanoTime();
+		long elapsed = now - start;
+		frames++;
+		if( budget > 0 ) {
+			if( elapsed > budget ) {
+				missed++;
+			}
+			// align to the grid of deadlines, whether or not we overran
+			next = start + ( elapsed / budget + 1 ) * budget;
+		}
+		return elapsed;
+	}
+
+	/**
+	 * @param elapsed
+	 *          a frame duration, as returned from {@link #end()}
+	 * @return <code>true</code> if that duration overran the budget
+	 */
+	boolean overran( long elapsed ) {
+		return budget > 0 && elapsed > budget;
+	}
+
+	/**
+	 * @return The number of frames ended so far
+	 */
+	int frames() {
+		return frames;
+	}
+
+	/**
+	 * @return The number of frames that overran the budget
+	 */
+	int missed() {
+		return missed;
+	}
+}
@@ -0,0 +1,109 @@
+package com.rmn.gdxtend;
+
+/**
+ * A log-linear histogram of frame times. Each power-of-two range is split into
+ * {@value #SUB_BUCKETS} equal buckets, so a recorded value is never more than
+ * about 3% away from the bucket it lands in, however large it is. Recording is
+ * constant-time and never allocates.
+ */
+class FrameHistogram {
+
+	private static final int SUB_BITS = 5;
+
+	/**
+	 * Buckets per power of two
+	 */
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final long[] counts =
+			new long[ SUB_BUCKETS + ( 64 - SUB_BITS ) * SUB_BUCKETS ];
+
+	private long count = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	/**
+	 * @param nanos
+	 *          a frame time
+	 */
+	void record( long nanos ) {
+		long v = Math.max( 0, nanos );
+		counts[ index( v ) ]++;
+		count++;
+		min = Math.min( min, v );
+		max = Math.max( max, v );
+	}
+
+	/**
+	 * @return The number of values recorded
+	 */
+	long count() {
+		return count;
+	}
+
+	/**
+	 * @return The largest value recorded, or 0 if there are none
+	 */
+	long max() {
+		return max;
+	}
+
+	/**
+	 * @param p
+	 *          a percentile, from 0 to 100
+	 * @return An upper bound on the value at that percentile, accurate to the
+	 *         width of a bucket. 0 if nothing has been recorded
+	 */
+	long percentile( double p ) {
+		if( count == 0 ) {
+			return 0;
+		}
+		long rank = Math.max( 1, (long) Math.ceil( p / 100 * count ) );
+		long seen = 0;
+		for( int i = 0; i < counts.length; i++ ) {
+			seen += counts[ i ];
+			if( seen >= rank ) {
+				return Math.max( min, Math.min( max, highest( i ) ) );
+			}
+		}
+		return max;
+	}
+
+	private static int index( long v ) {
+		if( v < SUB_BUCKETS ) {
+			return (int) v;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros( v );
+		int sub = (int) ( v >>> ( magnitude - SUB_BITS ) ) - SUB_BUCKETS;
+		return SUB_BUCKETS + ( magnitude - SUB_BITS ) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return The highest value that falls in a bucket
+	 */
+	private static long highest( int index ) {
+		if( index < SUB_BUCKETS ) {
+			return index;
+		}
+		int shift = ( index - SUB_BUCKETS ) / SUB_BUCKETS;
+		int sub = ( index - SUB_BUCKETS ) % SUB_BUCKETS;
+		long lowest = (long) ( SUB_BUCKETS + sub ) << shift;
+		return lowest + ( 1L << shift ) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format( "%d frames: p50 %.3fms, p99 %.3fms, max %.3fms",
+				count, millis( percentile( 50 ) ), millis( percentile( 99 ) ),
+				millis( max ) );
+	}
+
+	/**
+	 * @param nanos
+	 *          a duration
+	 * @return that duration in milliseconds
+	 */
+	static double millis( long nanos ) {
+		return nanos / 1000000.0;
+	}
+}
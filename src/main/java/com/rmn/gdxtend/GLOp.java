@@ -0,0 +1,159 @@
+package com.rmn.gdxtend;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * The entry points of {@link GL20}, as recorded by {@link RecordingGL}.
+ * Overloaded methods share a constant.
+ */
+public enum GLOp {
+	glActiveTexture,
+	glBindTexture,
+	glBlendFunc,
+	glClear,
+	glClearColor,
+	glClearDepthf,
+	glClearStencil,
+	glColorMask,
+	glCompressedTexImage2D,
+	glCompressedTexSubImage2D,
+	glCopyTexImage2D,
+	glCopyTexSubImage2D,
+	glCullFace,
+	glDeleteTextures,
+	glDeleteTexture,
+	glDepthFunc,
+	glDepthMask,
+	glDepthRangef,
+	glDisable,
+	glDrawArrays,
+	glDrawElements,
+	glEnable,
+	glFinish,
+	glFlush,
+	glFrontFace,
+	glGenTextures,
+	glGenTexture,
+	glGetError,
+	glGetIntegerv,
+	glGetString,
+	glHint,
+	glLineWidth,
+	glPixelStorei,
+	glPolygonOffset,
+	glReadPixels,
+	glScissor,
+	glStencilFunc,
+	glStencilMask,
+	glStencilOp,
+	glTexImage2D,
+	glTexParameterf,
+	glTexSubImage2D,
+	glViewport,
+	glAttachShader,
+	glBindAttribLocation,
+	glBindBuffer,
+	glBindFramebuffer,
+	glBindRenderbuffer,
+	glBlendColor,
+	glBlendEquation,
+	glBlendEquationSeparate,
+	glBlendFuncSeparate,
+	glBufferData,
+	glBufferSubData,
+	glCheckFramebufferStatus,
+	glCompileShader,
+	glCreateProgram,
+	glCreateShader,
+	glDeleteBuffer,
+	glDeleteBuffers,
+	glDeleteFramebuffer,
+	glDeleteFramebuffers,
+	glDeleteProgram,
+	glDeleteRenderbuffer,
+	glDeleteRenderbuffers,
+	glDeleteShader,
+	glDetachShader,
+	glDisableVertexAttribArray,
+	glEnableVertexAttribArray,
+	glFramebufferRenderbuffer,
+	glFramebufferTexture2D,
+	glGenBuffer,
+	glGenBuffers,
+	glGenerateMipmap,
+	glGenFramebuffer,
+	glGenFramebuffers,
+	glGenRenderbuffer,
+	glGenRenderbuffers,
+	glGetActiveAttrib,
+	glGetActiveUniform,
+	glGetAttachedShaders,
+	glGetAttribLocation,
+	glGetBooleanv,
+	glGetBufferParameteriv,
+	glGetFloatv,
+	glGetFramebufferAttachmentParameteriv,
+	glGetProgramiv,
+	glGetProgramInfoLog,
+	glGetRenderbufferParameteriv,
+	glGetShaderiv,
+	glGetShaderInfoLog,
+	glGetShaderPrecisionFormat,
+	glGetTexParameterfv,
+	glGetTexParameteriv,
+	glGetUniformfv,
+	glGetUniformiv,
+	glGetUniformLocation,
+	glGetVertexAttribfv,
+	glGetVertexAttribiv,
+	glGetVertexAttribPointerv,
+	glIsBuffer,
+	glIsEnabled,
+	glIsFramebuffer,
+	glIsProgram,
+	glIsRenderbuffer,
+	glIsShader,
+	glIsTexture,
+	glLinkProgram,
+	glReleaseShaderCompiler,
+	glRenderbufferStorage,
+	glSampleCoverage,
+	glShaderBinary,
+	glShaderSource,
+	glStencilFuncSeparate,
+	glStencilMaskSeparate,
+	glStencilOpSeparate,
+	glTexParameterfv,
+	glTexParameteri,
+	glTexParameteriv,
+	glUniform1f,
+	glUniform1fv,
+	glUniform1i,
+	glUniform1iv,
+	glUniform2f,
+	glUniform2fv,
+	glUniform2i,
+	glUniform2iv,
+	glUniform3f,
+	glUniform3fv,
+	glUniform3i,
+	glUniform3iv,
+	glUniform4f,
+	glUniform4fv,
+	glUniform4i,
+	glUniform4iv,
+	glUniformMatrix2fv,
+	glUniformMatrix3fv,
+	glUniformMatrix4fv,
+	glUseProgram,
+	glValidateProgram,
+	glVertexAttrib1f,
+	glVertexAttrib1fv,
+	glVertexAttrib2f,
+	glVertexAttrib2fv,
+	glVertexAttrib3f,
+	glVertexAttrib3fv,
+	glVertexAttrib4f,
+	glVertexAttrib4fv,
+	glVertexAttribPointer;
+}
@@ -0,0 +1,550 @@
+package com.rmn.gdxtend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * Counts the calls in a {@link RecordingGL} by category and frame, and spots
+ * calls that set a piece of gl state to the value that it already held.
+ * <p>
+ * The recording is analysed after the fact, so gathering stats costs nothing
+ * while the calls are being made. State that has not been set during the
+ * recording is treated as unknown, so the first call to set it is never
+ * considered redundant.
+ */
+public class GLStats {
+
+	/**
+	 * Broad groupings of gl calls
+	 */
+	public enum Category {
+		/**
+		 * glEnable and glDisable
+		 */
+		CAPABILITY,
+		/**
+		 * Blend function, equation and colour
+		 */
+		BLEND,
+		/**
+		 * Depth function, mask and range
+		 */
+		DEPTH,
+		/**
+		 * Stencil function, mask and operations
+		 */
+		STENCIL,
+		/**
+		 * Polygon offset, face culling, viewport, scissor and the like
+		 */
+		RASTER,
+		/**
+		 * Active texture unit and texture binding
+		 */
+		TEXTURE_BIND,
+		/**
+		 * Texture parameters
+		 */
+		TEXTURE_PARAMETER,
+		/**
+		 * Clear values and clearing
+		 */
+		CLEAR,
+		/**
+		 * Program use and uniforms
+		 */
+		SHADER,
+		/**
+		 * Buffer binding and data
+		 */
+		BUFFER,
+		/**
+		 * Vertex attribute arrays and pointers
+		 */
+		VERTEX_ATTRIBUTE,
+		/**
+		 * glDrawArrays and glDrawElements
+		 */
+		DRAW,
+		/**
+		 * Everything else
+		 */
+		OTHER;
+	}
+
+	private static final Category[] CATEGORIES = Category.values();
+
+	private static final int NOT_STATE = 0, CHANGED = 1, REDUNDANT = 2;
+
+	/**
+	 * Stand in for all the calls that set a texture parameter or a uniform, so
+	 * that the state is shadowed once whichever variant set it
+	 */
+	private static final GLOp TEX_PARAMETER = GLOp.glTexParameteri,
+			UNIFORM = GLOp.glUniform1i;
+
+	/**
+	 * Analyses a recording
+	 *
+	 * @param gl
+	 *          the recorded calls
+	 * @return the stats
+	 */
+	public static GLStats of( RecordingGL gl ) {
+		return new GLStats( gl );
+	}
+
+	private final int[][] calls;
+	private final int[][] redundant;
+	private final int[] stateChanges;
+	private final List<Integer> redundantCalls = new ArrayList<>();
+
+	// analysis state
+	private final RecordingGL gl;
+	private final Map<Key, int[]> shadow = new HashMap<>();
+	private int activeTexture = GL20.GL_TEXTURE0;
+	private int program = -1;
+
+	private GLStats( RecordingGL gl ) {
+		this.gl = gl;
+
+		int frames = gl.frames();
+		calls = new int[ frames ][ CATEGORIES.length ];
+		redundant = new int[ frames ][ CATEGORIES.length ];
+		stateChanges = new int[ frames ];
+
+		int frame = 0;
+		for( int i = 0; i < gl.calls(); i++ ) {
+			while( frame < frames - 1 && i >= gl.frameEnd( frame ) ) {
+				frame++;
+			}
+
+			int c = category( gl.op( i ) ).ordinal();
+			calls[ frame ][ c ]++;
+
+			int s = state( i );
+			if( s != NOT_STATE ) {
+				stateChanges[ frame ]++;
+			}
+			if( s == REDUNDANT ) {
+				redundant[ frame ][ c ]++;
+				redundantCalls.add( i );
+			}
+		}
+	}
+
+	/**
+	 * @return The number of frames in the recording
+	 */
+	public int frames() {
+		return calls.length;
+	}
+
+	/**
+	 * @param c
+	 *          a category
+	 * @return The number of calls in that category over the whole recording
+	 */
+	public int calls( Category c ) {
+		int n = 0;
+		for( int f = 0; f < frames(); f++ ) {
+			n += calls( f, c );
+		}
+		return n;
+	}
+
+	/**
+	 * @param frame
+	 *          a frame index
+	 * @param c
+	 *          a category
+	 * @return The number of calls in that category during the frame
+	 */
+	public int calls( int frame, Category c ) {
+		return calls[ frame ][ c.ordinal() ];
+	}
+
+	/**
+	 * @param c
+	 *          a category
+	 * @return The number of redundant calls in that category over the whole
+	 *         recording
+	 */
+	public int redundant( Category c ) {
+		int n = 0;
+		for( int f = 0; f < frames(); f++ ) {
+			n += redundant( f, c );
+		}
+		return n;
+	}
+
+	/**
+	 * @param frame
+	 *          a frame index
+	 * @param c
+	 *          a category
+	 * @return The number of redundant calls in that category during the frame
+	 */
+	public int redundant( int frame, Category c ) {
+		return redundant[ frame ][ c.ordinal() ];
+	}
+
+	/**
+	 * @return The number of redundant calls over the whole recording
+	 */
+	public int redundant() {
+		return redundantCalls.size();
+	}
+
+	/**
+	 * @return The indices of the redundant calls in the recording
+	 */
+	public List<Integer> redundantCalls() {
+		return Collections.unmodifiableList( redundantCalls );
+	}
+
+	/**
+	 * @return The number of calls that set state, redundantly or otherwise, over
+	 *         the whole recording
+	 */
+	public int stateChanges() {
+		int n = 0;
+		for( int f = 0; f < frames(); f++ ) {
+			n += stateChanges[ f ];
+		}
+		return n;
+	}
+
+	/**
+	 * @param frame
+	 *          a frame index
+	 * @return The number of calls that set state during the frame
+	 */
+	public int stateChanges( int frame ) {
+		return stateChanges[ frame ];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append( String.format( "%-18s", "frame" ) );
+		for( int f = 0; f < frames(); f++ ) {
+			sb.append( String.format( " %9d", f ) );
+		}
+		sb.append( "\n" );
+		for( Category c : CATEGORIES ) {
+			sb.append( String.format( "%-18s", c ) );
+			for( int f = 0; f < frames(); f++ ) {
+				sb.append( String.format( " %4d/%-4d",
+						calls( f, c ), redundant( f, c ) ) );
+			}
+			sb.append( "\n" );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param op
+	 *          a gl method
+	 * @return its category
+	 */
+	public static Category category( GLOp op ) {
+		switch( op ){
+			case glEnable:
+			case glDisable:
+				return Category.CAPABILITY;
+			case glBlendFunc:
+			case glBlendFuncSeparate:
+			case glBlendEquation:
+			case glBlendEquationSeparate:
+			case glBlendColor:
+				return Category.BLEND;
+			case glDepthFunc:
+			case glDepthMask:
+			case glDepthRangef:
+				return Category.DEPTH;
+			case glStencilFunc:
+			case glStencilFuncSeparate:
+			case glStencilMask:
+			case glStencilMaskSeparate:
+			case glStencilOp:
+			case glStencilOpSeparate:
+				return Category.STENCIL;
+			case glPolygonOffset:
+			case glCullFace:
+			case glFrontFace:
+			case glLineWidth:
+			case glColorMask:
+			case glViewport:
+			case glScissor:
+				return Category.RASTER;
+			case glActiveTexture:
+			case glBindTexture:
+				return Category.TEXTURE_BIND;
+			case glTexParameterf:
+			case glTexParameterfv:
+			case glTexParameteri:
+			case glTexParameteriv:
+				return Category.TEXTURE_PARAMETER;
+			case glClear:
+			case glClearColor:
+			case glClearDepthf:
+			case glClearStencil:
+				return Category.CLEAR;
+			case glUseProgram:
+			case glUniform1f:
+			case glUniform1fv:
+			case glUniform1i:
+			case glUniform1iv:
+			case glUniform2f:
+			case glUniform2fv:
+			case glUniform2i:
+			case glUniform2iv:
+			case glUniform3f:
+			case glUniform3fv:
+			case glUniform3i:
+			case glUniform3iv:
+			case glUniform4f:
+			case glUniform4fv:
+			case glUniform4i:
+			case glUniform4iv:
+			case glUniformMatrix2fv:
+			case glUniformMatrix3fv:
+			case glUniformMatrix4fv:
+				return Category.SHADER;
+			case glBindBuffer:
+			case glBufferData:
+			case glBufferSubData:
+				return Category.BUFFER;
+			case glEnableVertexAttribArray:
+			case glDisableVertexAttribArray:
+			case glVertexAttribPointer:
+			case glVertexAttrib1f:
+			case glVertexAttrib1fv:
+			case glVertexAttrib2f:
+			case glVertexAttrib2fv:
+			case glVertexAttrib3f:
+			case glVertexAttrib3fv:
+			case glVertexAttrib4f:
+			case glVertexAttrib4fv:
+				return Category.VERTEX_ATTRIBUTE;
+			case glDrawArrays:
+			case glDrawElements:
+				return Category.DRAW;
+			default:
+				return Category.OTHER;
+		}
+	}
+
+	/**
+	 * Updates the shadow state with a call
+	 *
+	 * @param i
+	 *          call index
+	 * @return {@link #NOT_STATE} if the call does not set state that we track,
+	 *         otherwise {@link #CHANGED} or {@link #REDUNDANT}
+	 */
+	private int state( int i ) {
+		GLOp op = gl.op( i );
+		switch( op ){
+			case glEnable:
+				return set( new Key( GLOp.glEnable, arg( i, 0 ) ), 1 );
+			case glDisable:
+				return set( new Key( GLOp.glEnable, arg( i, 0 ) ), 0 );
+			case glEnableVertexAttribArray:
+				return set( new Key( GLOp.glEnableVertexAttribArray, arg( i, 0 ) ), 1 );
+			case glDisableVertexAttribArray:
+				return set( new Key( GLOp.glEnableVertexAttribArray, arg( i, 0 ) ), 0 );
+
+			case glActiveTexture:
+				activeTexture = arg( i, 0 );
+				return set( new Key( op ), activeTexture );
+			case glBindTexture:
+				return set( new Key( op, activeTexture, arg( i, 0 ) ), arg( i, 1 ) );
+			case glTexParameterf:
+			case glTexParameteri:
+			case glTexParameterfv:
+			case glTexParameteriv: {
+				int[] bound = shadow.get( new Key( GLOp.glBindTexture, activeTexture,
+						arg( i, 0 ) ) );
+				if( bound == null ) {
+					// we don't know which texture is being altered
+					return CHANGED;
+				}
+				Key k = new Key( TEX_PARAMETER, bound[ 0 ], arg( i, 0 ), arg( i, 1 ) );
+				if( op == GLOp.glTexParameterfv || op == GLOp.glTexParameteriv ) {
+					// the value is in a buffer that we didn't keep
+					shadow.remove( k );
+					return CHANGED;
+				}
+				return set( k, values( i, 2 ) );
+			}
+
+			case glUseProgram:
+				program = arg( i, 0 );
+				return set( new Key( op ), program );
+			case glUniform1f:
+			case glUniform1i:
+			case glUniform2f:
+			case glUniform2i:
+			case glUniform3f:
+			case glUniform3i:
+			case glUniform4f:
+			case glUniform4i:
+				if( program == -1 ) {
+					// we don't know which program is being altered
+					return CHANGED;
+				}
+				return set( new Key( UNIFORM, program, arg( i, 0 ) ), values( i, 1 ) );
+
+			case glUniform1fv:
+			case glUniform1iv:
+			case glUniform2fv:
+			case glUniform2iv:
+			case glUniform3fv:
+			case glUniform3iv:
+			case glUniform4fv:
+			case glUniform4iv:
+			case glUniformMatrix2fv:
+			case glUniformMatrix3fv:
+			case glUniformMatrix4fv:
+				// the values are in a buffer that we didn't keep, so all we know is
+				// that the locations from here on have changed
+				for( int l = 0; l < arg( i, 1 ); l++ ) {
+					shadow.remove( new Key( UNIFORM, program, arg( i, 0 ) + l ) );
+				}
+				return CHANGED;
+
+			case glBindBuffer:
+			case glPixelStorei:
+			case glHint:
+				return set( new Key( op, arg( i, 0 ) ), arg( i, 1 ) );
+
+			case glBlendFunc:
+				return set( new Key( GLOp.glBlendFuncSeparate ),
+						arg( i, 0 ), arg( i, 1 ), arg( i, 0 ), arg( i, 1 ) );
+			case glBlendFuncSeparate:
+				return set( new Key( op ), args( i, 0 ) );
+			case glBlendEquation:
+				return set( new Key( GLOp.glBlendEquationSeparate ),
+						arg( i, 0 ), arg( i, 0 ) );
+			case glBlendEquationSeparate:
+				return set( new Key( op ), args( i, 0 ) );
+
+			case glStencilFunc:
+				return faces( GLOp.glStencilFuncSeparate, GL20.GL_FRONT_AND_BACK,
+						args( i, 0 ) );
+			case glStencilMask:
+				return faces( GLOp.glStencilMaskSeparate, GL20.GL_FRONT_AND_BACK,
+						args( i, 0 ) );
+			case glStencilOp:
+				return faces( GLOp.glStencilOpSeparate, GL20.GL_FRONT_AND_BACK,
+						args( i, 0 ) );
+			case glStencilFuncSeparate:
+			case glStencilMaskSeparate:
+			case glStencilOpSeparate:
+				return faces( op, arg( i, 0 ), args( i, 1 ) );
+
+			case glBlendColor:
+			case glDepthFunc:
+			case glDepthMask:
+			case glDepthRangef:
+			case glPolygonOffset:
+			case glCullFace:
+			case glFrontFace:
+			case glLineWidth:
+			case glColorMask:
+			case glViewport:
+			case glScissor:
+			case glClearColor:
+			case glClearDepthf:
+			case glClearStencil:
+				return set( new Key( op ), args( i, 0 ) );
+
+			default:
+				return NOT_STATE;
+		}
+	}
+
+	/**
+	 * Sets state that is held separately for front and back faces
+	 */
+	private int faces( GLOp op, int face, int... value ) {
+		boolean redundant = true;
+		if( face == GL20.GL_FRONT || face == GL20.GL_FRONT_AND_BACK ) {
+			redundant &= set( new Key( op, GL20.GL_FRONT ), value ) == REDUNDANT;
+		}
+		if( face == GL20.GL_BACK || face == GL20.GL_FRONT_AND_BACK ) {
+			redundant &= set( new Key( op, GL20.GL_BACK ), value ) == REDUNDANT;
+		}
+		return redundant ? REDUNDANT : CHANGED;
+	}
+
+	private int set( Key key, int... value ) {
+		int[] held = shadow.put( key, value );
+		return Arrays.equals( held, value ) ? REDUNDANT : CHANGED;
+	}
+
+	private int arg( int call, int arg ) {
+		return gl.rawArg( call, arg );
+	}
+
+	/**
+	 * @return the numeric arguments from an index on, in a form that compares
+	 *         equal for the same value whether it was passed as an int or a
+	 *         float: two ints of double bits apiece
+	 */
+	private int[] values( int call, int from ) {
+		int[] v = new int[ ( gl.args( call ) - from ) * 2 ];
+		for( int a = 0; a < v.length / 2; a++ ) {
+			long bits = Double.doubleToLongBits(
+					( (Number) gl.arg( call, from + a ) ).doubleValue() );
+			v[ a * 2 ] = (int) ( bits >>> 32 );
+			v[ a * 2 + 1 ] = (int) bits;
+		}
+		return v;
+	}
+
+	private int[] args( int call, int from ) {
+		int[] a = new int[ gl.args( call ) - from ];
+		for( int i = 0; i < a.length; i++ ) {
+			a[ i ] = gl.rawArg( call, from + i );
+		}
+		return a;
+	}
+
+	/**
+	 * Identifies a piece of gl state
+	 */
+	private static class Key {
+		private final GLOp op;
+		private final int a, b, c;
+
+		private Key( GLOp op, int... args ) {
+			this.op = op;
+			a = args.length > 0 ? args[ 0 ] : 0;
+			b = args.length > 1 ? args[ 1 ] : 0;
+			c = args.length > 2 ? args[ 2 ] : 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return ( ( op.hashCode() * 31 + a ) * 31 + b ) * 31 + c;
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			if( !( obj instanceof Key ) ) {
+				return false;
+			}
+			Key k = (Key) obj;
+			return op == k.op && a == k.a && b == k.b && c == k.c;
+		}
+	}
+}
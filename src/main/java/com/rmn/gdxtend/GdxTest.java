@@ -2,11 +2,8 @@ package com.rmn.gdxtend;
 
 import org.junit.Before;
 import org.junit.runner.RunWith;
-import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.GL20;
 
 /**
  * Allows test that require opengl
@@ -15,19 +12,27 @@ import com.badlogic.gdx.graphics.GL20;
 public abstract class GdxTest {
 
 	/**
-	 * Mock gl context
+	 * Each thread reuses the same recorder from test to test
 	 */
-	@Mock
-	public GL20 gl;
+	private static final ThreadLocal<RecordingGL> RECORDERS =
+			new ThreadLocal<RecordingGL>() {
+				@Override
+				protected RecordingGL initialValue() {
+					return new RecordingGL();
+				}
+			};
 
 	/**
-	 * Initialises the mock and injects it into {@link Gdx}
+	 * Recording gl context
+	 */
+	public RecordingGL gl;
+
+	/**
+	 * Resets the recorder and injects it into {@link Gdx} for the current thread
 	 */
 	@Before
 	public void before() {
-
-		MockitoAnnotations.initMocks( this );
-		Gdx.gl20 = gl;
-		Gdx.gl = gl;
+		gl = RECORDERS.get().reset();
+		ThreadLocalGL.bind( gl );
 	}
 }
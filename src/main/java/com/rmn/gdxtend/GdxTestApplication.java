@@ -0,0 +1,155 @@
+package com.rmn.gdxtend;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.badlogic.gdx.ApplicationListener;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+/**
+ * The single headless application that all {@link GdxTestRunner}s share. It is
+ * started when first needed and exited when the JVM shuts down.
+ * <p>
+ * The headless loop runs unthrottled and blocks on the queue of work instead,
+ * so work starts as soon as it is submitted. Pacing tests to a frame rate is
+ * the job of each runner's {@link FrameClock}.
+ */
+class GdxTestApplication implements ApplicationListener {
+
+	private static GdxTestApplication instance;
+
+	/**
+	 * How long an idle render call waits for work before returning to the main
+	 * loop, which needs to check if it should exit
+	 */
+	private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos( 100 );
+
+	/**
+	 * Wakes an idle render thread
+	 */
+	private static final Runnable NOOP = new Runnable() {
+		@Override
+		public void run() {
+		}
+	};
+
+	/**
+	 * @return The shared application, started if need be
+	 */
+	static synchronized GdxTestApplication get() {
+		if( instance == null ) {
+			HeadlessApplicationConfiguration conf =
+					new HeadlessApplicationConfiguration();
+			conf.renderInterval = 0;
+			instance = new GdxTestApplication( conf );
+		}
+		return instance;
+	}
+
+	private final BlockingQueue<Runnable> invokeInRender =
+			new LinkedBlockingQueue<>();
+
+	private final CountDownLatch disposed = new CountDownLatch( 1 );
+
+	private HeadlessApplication app;
+
+	private GdxTestApplication( final HeadlessApplicationConfiguration conf ) {
+		// The main loop thread inherits daemon status from whatever creates it, so
+		// do so from a daemon thread. That way it can never hold the JVM open
+		final RuntimeException[] failure = new RuntimeException[ 1 ];
+		Thread starter = new Thread( "gdxtest-start" ) {
+			@Override
+			public void run() {
+				try {
+					app = new HeadlessApplication( GdxTestApplication.this, conf );
+				}
+				catch( RuntimeException e ) {
+					failure[ 0 ] = e;
+				}
+			}
+		};
+		starter.setDaemon( true );
+		starter.start();
+		try {
+			starter.join();
+		}
+		catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+		if( failure[ 0 ] != null ) {
+			throw new IllegalStateException( "Failed to start headless application",
+					failure[ 0 ] );
+		}
+
+		Runtime.getRuntime().addShutdownHook( new Thread( "gdxtest-stop" ) {
+			@Override
+			public void run() {
+				shutdown();
+			}
+		} );
+	}
+
+	/**
+	 * @param r
+	 *          Something to run on the render thread, where the gl context is
+	 *          available
+	 */
+	void invoke( Runnable r ) {
+		invokeInRender.add( r );
+	}
+
+	/**
+	 * Exits the application and waits briefly for it to be disposed
+	 */
+	private void shutdown() {
+		if( app != null ) {
+			app.exit();
+			invoke( NOOP );
+			try {
+				disposed.await( 1, TimeUnit.SECONDS );
+			}
+			catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public void create() {
+	}
+
+	@Override
+	public void resume() {
+	}
+
+	@Override
+	public void render() {
+		try {
+			// Wait for work, then run everything that's waiting
+			Runnable r = invokeInRender.poll( IDLE_WAIT, TimeUnit.NANOSECONDS );
+			while( r != null ) {
+				r.run();
+				r = invokeInRender.poll();
+			}
+		}
+		catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void resize( int width, int height ) {
+	}
+
+	@Override
+	public void pause() {
+	}
+
+	@Override
+	public void dispose() {
+		disposed.countDown();
+	}
+}
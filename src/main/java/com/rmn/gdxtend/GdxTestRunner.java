@@ -1,24 +1,68 @@
 package com.rmn.gdxtend;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.junit.internal.AssumptionViolatedException;
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
+import org.junit.runners.model.Statement;
 
-import com.badlogic.gdx.ApplicationListener;
-import com.badlogic.gdx.backends.headless.HeadlessApplication;
-import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.rmn.gdxtend.Timings.Phase;
 
 /**
  * Shamelessly nicked from https://bitbucket.org/TomGrill/libgdx-testing-sample
+ * <p>
+ * Tests are run on the render thread of a headless application that is shared
+ * by every instance of this runner, unless the class is marked as
+ * {@link Parallel}. On the render thread, each test gets a frame of its own,
+ * paced as per {@link FrameRate}
+ * <p>
+ * If {@link Verification} is deferred, tests that hand over verdicts aren't
+ * reported as finished until the rest of the class has run and the verdicts
+ * are in
  */
-public class GdxTestRunner extends BlockJUnit4ClassRunner implements
-		ApplicationListener {
+public class GdxTestRunner extends BlockJUnit4ClassRunner {
 
-	private Map<FrameworkMethod, RunNotifier> invokeInRender = new HashMap<>();
+	/**
+	 * Set this property to a frame rate in Hz to pace the tests of classes that
+	 * aren't annotated with {@link FrameRate}
+	 */
+	private static final String FRAME_RATE_PROPERTY = "frameRate";
+
+	private final GdxTestApplication app;
+
+	private final boolean parallel;
+
+	private final double frameRate;
+
+	private final FrameClock clock;
+
+	private final List<String> overruns = new ArrayList<>();
+
+	private final List<Invocation> completed =
+			Collections.synchronizedList( new ArrayList<Invocation>() );
+
+	private final List<Held> held =
+			Collections.synchronizedList( new ArrayList<Held>() );
 
 	/**
 	 * @param c
@@ -28,70 +72,469 @@ public class GdxTestRunner extends BlockJUnit4ClassRunner implements
 	 */
 	public GdxTestRunner( Class<?> c ) throws InitializationError {
 		super( c );
-		HeadlessApplicationConfiguration conf =
-				new HeadlessApplicationConfiguration();
+		try {
+			app = GdxTestApplication.get();
+		}
+		catch( IllegalStateException e ) {
+			throw new InitializationError( e );
+		}
+
+		Parallel p = c.getAnnotation( Parallel.class );
+		parallel = p != null;
+		if( parallel ) {
+			setScheduler( new WorkerPool( p.threads() > 0 ? p.threads()
+					: Runtime.getRuntime().availableProcessors() ) );
+		}
 
-		new HeadlessApplication( this, conf );
+		try {
+			FrameRate r = c.getAnnotation( FrameRate.class );
+			frameRate = r != null ? r.value() : Double.parseDouble(
+					System.getProperty( FRAME_RATE_PROPERTY, "0" ) );
+			clock = new FrameClock( frameRate );
+		}
+		catch( IllegalArgumentException e ) {
+			throw new InitializationError( e );
+		}
 	}
 
 	@Override
-	public void create() {
+	public void run( RunNotifier notifier ) {
+		super.run( notifier );
+
+		if( Timings.enabled() ) {
+			report();
+		}
+		if( clock.paced() && !parallel ) {
+			reportFrames();
+		}
 	}
 
 	@Override
-	public void resume() {
+	protected Statement childrenInvoker( final RunNotifier notifier ) {
+		final Statement children = super.childrenInvoker( notifier );
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				try {
+					children.evaluate();
+				}
+				finally {
+					settle();
+				}
+			}
+		};
 	}
 
 	@Override
-	public void render() {
-		synchronized( invokeInRender ) {
-			for( Map.Entry<FrameworkMethod, RunNotifier> each : invokeInRender
-					.entrySet() ) {
-				super.runChild( each.getKey(), each.getValue() );
+	protected void collectInitializationErrors( List<Throwable> errors ) {
+		super.collectInitializationErrors( errors );
+
+		for( FrameworkMethod m : getTestClass()
+				.getAnnotatedMethods( Frames.class ) ) {
+			if( m.getAnnotation( Frames.class ).value() < 1 ) {
+				errors.add( new Exception( "Method " + m.getName()
+						+ " should run for at least one frame" ) );
 			}
-			invokeInRender.clear();
 		}
 	}
 
 	@Override
-	public void resize( int width, int height ) {
+	protected Statement methodInvoker( FrameworkMethod method, Object test ) {
+		Frames f = method.getAnnotation( Frames.class );
+		if( f == null ) {
+			return super.methodInvoker( method, test );
+		}
+		return new FrameLoop( method, test, f );
 	}
 
 	@Override
-	public void pause() {
+	protected void runChild( FrameworkMethod method, RunNotifier notifier ) {
+		Invocation i = new Invocation( method,
+				Verification.deferred() ? new Deferring( notifier ) : notifier );
+
+		if( parallel ) {
+			// we're already on a worker thread
+			i.run();
+		}
+		else {
+			// add for invoking in render phase, where gl context is available
+			app.invoke( i );
+
+			// wait until that test was invoked
+			try {
+				i.done.await();
+			}
+			catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if( Timings.enabled() ) {
+			completed.add( i );
+		}
 	}
 
-	@Override
-	public void dispose() {
+	/**
+	 * Reaches the verdicts of the tests that deferred them, in the order that
+	 * the tests finished, and reports those tests as finished
+	 */
+	private void settle() {
+		synchronized( held ) {
+			for( Held h : held ) {
+				h.settle();
+			}
+			held.clear();
+		}
 	}
 
-	@Override
-	protected void runChild( FrameworkMethod method, RunNotifier notifier ) {
-		synchronized( invokeInRender ) {
-			// add for invoking in render phase, where gl context is available
-			invokeInRender.put( method, notifier );
+	/**
+	 * Prints how long each test waited for the render thread and how long it ran
+	 * for. The full breakdown goes in the {@link Timings} report
+	 */
+	private void report() {
+		StringBuilder sb = new StringBuilder( "Test timing for " )
+				.append( getName() ).append( "\n" );
+
+		long queued = 0, ran = 0;
+		synchronized( completed ) {
+			for( Invocation i : completed ) {
+				long q = i.timing.nanos( Phase.QUEUED );
+				long r = i.timing.nanos( Phase.RUN );
+				sb.append( String.format( "  %-40s queued %8.3fms ran %8.3fms\n",
+						i.method.getName(), millis( q ), millis( r ) ) );
+				queued += q;
+				ran += r;
+			}
 		}
-		// wait until that test was invoked
-		waitUntilInvokedInRenderMethod();
+
+		// queued is the measured handoff from the runner to the render thread
+		sb.append( String.format( "  %d tests: %.3fms queued, %.3fms running\n",
+				completed.size(), millis( queued ), millis( ran ) ) );
+
+		System.out.print( sb );
 	}
 
 	/**
-	    *
-	    */
-	private void waitUntilInvokedInRenderMethod() {
-		try {
-			while( true ) {
-				Thread.sleep( 10 );
-				synchronized( invokeInRender ) {
-					if( invokeInRender.isEmpty() ) {
-						break;
+	 * Prints how many frames missed the budget, and which tests they were
+	 */
+	private void reportFrames() {
+		StringBuilder sb = new StringBuilder( "Frame pacing for " )
+				.append( getName() )
+				.append( String.format( ": %.3fms budget, %d of %d frames missed\n",
+						millis( clock.budget() ), clock.missed(), clock.frames() ) );
+		for( String s : overruns ) {
+			sb.append( "  " ).append( s ).append( "\n" );
+		}
+		System.out.print( sb );
+	}
+
+	private static double millis( long nanos ) {
+		return nanos / 1000000.0;
+	}
+
+	/**
+	 * A test that is waiting to be run on the render thread
+	 */
+	private class Invocation implements Runnable {
+		private final FrameworkMethod method;
+		private final RunNotifier notifier;
+		private final CountDownLatch done = new CountDownLatch( 1 );
+
+		private final long submitted = Timings.start();
+		private Timings.Test timing;
+
+		private Invocation( FrameworkMethod method, RunNotifier notifier ) {
+			this.method = method;
+			this.notifier = notifier;
+		}
+
+		@Override
+		public void run() {
+			// multi-frame tests pace their own frames
+			boolean paced = !parallel && method.getAnnotation( Frames.class ) == null;
+			if( paced ) {
+				clock.begin();
+			}
+			if( Timings.enabled() ) {
+				timing = Timings.begin( getTestClass().getName(), method.getName() );
+				Timings.stop( Phase.QUEUED, submitted );
+			}
+			long started = Timings.start();
+			if( Verification.deferred() ) {
+				Verification.begin();
+			}
+			try {
+				GdxTestRunner.super.runChild( method, notifier );
+			}
+			finally {
+				Verification.end();
+				Timings.stop( Phase.RUN, started );
+				Timings.end();
+				if( paced ) {
+					long elapsed = clock.end();
+					if( clock.overran( elapsed ) ) {
+						overruns.add( String.format( "%-40s took %8.3fms",
+								method.getName(), millis( elapsed ) ) );
 					}
 				}
+				done.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Holds back the end of tests that have deferred verdicts
+	 */
+	private class Deferring extends RunNotifier {
+		private final RunNotifier notifier;
+
+		private Deferring( RunNotifier notifier ) {
+			this.notifier = notifier;
+		}
+
+		@Override
+		public void fireTestStarted( Description description ) {
+			notifier.fireTestStarted( description );
+		}
+
+		@Override
+		public void fireTestFailure( Failure failure ) {
+			notifier.fireTestFailure( failure );
+		}
+
+		@Override
+		public void fireTestAssumptionFailed( Failure failure ) {
+			notifier.fireTestAssumptionFailed( failure );
+		}
+
+		@Override
+		public void fireTestIgnored( Description description ) {
+			notifier.fireTestIgnored( description );
+		}
+
+		@Override
+		public void fireTestFinished( Description description ) {
+			// we're on the thread that ran the test
+			List<Callable<?>> verdicts = Verification.end();
+			if( verdicts.isEmpty() ) {
+				notifier.fireTestFinished( description );
+			}
+			else {
+				held.add( new Held( notifier, description, verdicts ) );
+			}
+		}
+
+		@Override
+		public void pleaseStop() {
+			notifier.pleaseStop();
+		}
+	}
+
+	/**
+	 * A test that has finished running, but not been reported as finished
+	 */
+	private static class Held {
+		private final RunNotifier notifier;
+		private final Description description;
+		private final List<Callable<?>> verdicts;
+
+		private Held( RunNotifier notifier, Description description,
+				List<Callable<?>> verdicts ) {
+			this.notifier = notifier;
+			this.description = description;
+			this.verdicts = verdicts;
+		}
+
+		private void settle() {
+			for( Callable<?> v : verdicts ) {
+				try {
+					v.call();
+				}
+				catch( AssumptionViolatedException e ) {
+					notifier.fireTestAssumptionFailed( new Failure( description, e ) );
+				}
+				catch( Throwable t ) {
+					notifier.fireTestFailure( new Failure( description, t ) );
+				}
+			}
+			notifier.fireTestFinished( description );
+		}
+	}
+
+	/**
+	 * Invokes a test method once per frame, keeping a histogram of frame times
+	 * that is checked against the method's budgets. The gl calls of a
+	 * {@link GdxTest} are recorded afresh each frame and summarised with
+	 * {@link GLStats}, so state set in an earlier frame is treated as unknown
+	 */
+	private class FrameLoop extends Statement {
+		private final FrameworkMethod method;
+		private final Object test;
+		private final Frames frames;
+
+		private FrameLoop( FrameworkMethod method, Object test, Frames frames ) {
+			this.method = method;
+			this.test = test;
+			this.frames = frames;
+		}
+
+		@Override
+		public void evaluate() throws Throwable {
+			// a clock of our own, as parallel tests can run concurrently
+			FrameClock fc = new FrameClock( frameRate );
+			FrameHistogram h = new FrameHistogram();
+			RecordingGL gl = test instanceof GdxTest ? ( (GdxTest) test ).gl : null;
+			long calls = 0, changes = 0, redundant = 0;
+			for( int i = 0; i < frames.value(); i++ ) {
+				// outside the timed region, and so that the recording doesn't grow
+				// from frame to frame
+				if( gl != null ) {
+					gl.reset();
+				}
+				fc.begin();
+				method.invokeExplosively( test );
+				h.record( fc.end() );
+				if( gl != null ) {
+					GLStats stats = GLStats.of( gl.frame() );
+					calls += gl.calls();
+					changes += stats.stateChanges();
+					redundant += stats.redundant();
+				}
+			}
+
+			String summary = method.getName() + ": " + h
+					+ ( fc.paced() ? ", " + fc.missed() + " missed the budget" : "" );
+			if( gl != null ) {
+				double n = frames.value();
+				summary += String.format( ", per frame %.1f gl calls, "
+						+ "%.1f state changes, %.1f redundant", calls / n, changes / n,
+						redundant / n );
+			}
+			if( Timings.enabled() ) {
+				System.out.println( summary );
+			}
+
+			StringBuilder exceeded = new StringBuilder();
+			budget( "p50", h.percentile( 50 ), frames.p50(), exceeded );
+			budget( "p99", h.percentile( 99 ), frames.p99(), exceeded );
+			budget( "max", h.max(), frames.max(), exceeded );
+			if( exceeded.length() > 0 ) {
+				throw new AssertionError( "Frame time budget exceeded:" + exceeded
+						+ " (" + summary + ")" );
+			}
+		}
+
+		private void budget( String name, long actual, double budgetMillis,
+				StringBuilder exceeded ) {
+			if( budgetMillis > 0 && FrameHistogram.millis( actual ) > budgetMillis ) {
+				exceeded.append( String.format( " %s %.3fms > %.3fms", name,
+						FrameHistogram.millis( actual ), budgetMillis ) );
 			}
 		}
-		catch( InterruptedException e ) {
-			e.printStackTrace();
+	}
+
+	/**
+	 * Runs tests on a fixed pool of worker threads
+	 */
+	private static class WorkerPool implements RunnerScheduler {
+		private final ExecutorService workers;
+
+		private WorkerPool( int threads ) {
+			workers = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread( Runnable r ) {
+					Thread t = new Thread( r, "gdxtest-worker-" + count.incrementAndGet() );
+					t.setDaemon( true );
+					return t;
+				}
+			} );
+		}
+
+		@Override
+		public void schedule( Runnable childStatement ) {
+			workers.execute( childStatement );
+		}
+
+		@Override
+		public void finished() {
+			workers.shutdown();
+			try {
+				workers.awaitTermination( Long.MAX_VALUE, TimeUnit.DAYS );
+			}
+			catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 
+	/**
+	 * Apply this to a test class to have its tests run concurrently on a pool of
+	 * worker threads rather than one at a time on the render thread. Only suitable
+	 * for tests that need nothing more than the per-test gl context that
+	 * {@link GdxTest} binds via {@link ThreadLocalGL}
+	 */
+	@Retention( RetentionPolicy.RUNTIME )
+	@Target( ElementType.TYPE )
+	@Inherited
+	public static @interface Parallel {
+		/**
+		 * @return The number of worker threads. Defaults to the number of available
+		 *         processors
+		 */
+		int threads() default 0;
+	}
+
+	/**
+	 * Apply this to a test class to pace its tests as if each were a frame
+	 * rendered at a fixed rate, starting on a deadline and expected to finish
+	 * before the next one. The frames that overran are reported once the class
+	 * has run. Has no effect on {@link Parallel} classes
+	 */
+	@Retention( RetentionPolicy.RUNTIME )
+	@Target( ElementType.TYPE )
+	@Inherited
+	public static @interface FrameRate {
+		/**
+		 * @return Frames per second, e.g. 60 or 144. 0 runs tests back to back as
+		 *         fast as possible
+		 */
+		double value();
+	}
+
+	/**
+	 * Apply this to a test method to have it invoked once per frame for a number
+	 * of consecutive frames, paced as per {@link FrameRate}. Before and after
+	 * methods run once, around all the frames. The test fails if frame time
+	 * percentiles exceed the budgets. The percentiles and, for a
+	 * {@link GdxTest}, gl call counts are given in the failure, and are printed
+	 * regardless when {@link Timings} are enabled
+	 */
+	@Retention( RetentionPolicy.RUNTIME )
+	@Target( ElementType.METHOD )
+	public static @interface Frames {
+		/**
+		 * @return The number of frames to run for
+		 */
+		int value();
+
+		/**
+		 * @return Budget for the median frame time, in milliseconds. 0 for no
+		 *         budget
+		 */
+		double p50() default 0;
+
+		/**
+		 * @return Budget for the 99th percentile frame time, in milliseconds. 0 for
+		 *         no budget
+		 */
+		double p99() default 0;
+
+		/**
+		 * @return Budget for the longest frame time, in milliseconds. 0 for no
+		 *         budget
+		 */
+		double max() default 0;
+	}
 }
@@ -0,0 +1,1505 @@
+package com.rmn.gdxtend;
+
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * A {@link GL20} that records the calls made on it. Calls are held as an opcode
+ * and a run of arguments in primitive arrays, so recording doesn't allocate
+ * once the arrays have grown to fit and {@link #reset()} just rewinds them.
+ * Methods return zero, false or null.
+ * <p>
+ * Buffer, array and string arguments are recorded by reference, so their
+ * contents at the time of the call are not preserved.
+ */
+public class RecordingGL implements GL20 {
+
+	private static final byte INT = 0, FLOAT = 1, BOOLEAN = 2, OBJECT = 3;
+
+	private static final GLOp[] OPS = GLOp.values();
+
+	/**
+	 * The names of the {@link GL20} constants, by value. Values up to
+	 * {@link GL20#GL_TRIANGLE_FAN} are primitive modes or shared by several
+	 * constants, so they're left out and named by context
+	 */
+	private static final Map<Integer, String> NAMES = new HashMap<>();
+
+	private static final String[] MODES = { "GL_POINTS", "GL_LINES",
+			"GL_LINE_LOOP", "GL_LINE_STRIP", "GL_TRIANGLES", "GL_TRIANGLE_STRIP",
+			"GL_TRIANGLE_FAN" };
+
+	private static final int CLEAR_BITS = GL20.GL_COLOR_BUFFER_BIT
+			| GL20.GL_DEPTH_BUFFER_BIT | GL20.GL_STENCIL_BUFFER_BIT;
+
+	static {
+		for( Field f : GL20.class.getFields() ) {
+			if( f.getType() != int.class ) {
+				continue;
+			}
+			try {
+				int v = f.getInt( null );
+				String held = NAMES.get( v );
+				// the shorter name of any pair, so that traces don't depend on the
+				// order of reflection
+				if( v > GL20.GL_TRIANGLE_FAN && ( held == null
+						|| held.length() > f.getName().length() ) ) {
+					NAMES.put( v, f.getName() );
+				}
+			}
+			catch( IllegalAccessException e ) {
+				throw new IllegalStateException( e );
+			}
+		}
+	}
+
+	private int calls = 0;
+	private int[] ops = new int[ 64 ];
+	private int[] argStart = new int[ 64 ];
+
+	private int argCount = 0;
+	private int[] args = new int[ 256 ];
+	private byte[] kinds = new byte[ 256 ];
+
+	private int refCount = 0;
+	private Object[] refs = new Object[ 16 ];
+
+	private int frameCount = 0;
+	private int[] frameEnds = new int[ 16 ];
+
+	/**
+	 * Forgets all recorded calls
+	 *
+	 * @return this
+	 */
+	public RecordingGL reset() {
+		Arrays.fill( refs, 0, refCount, null );
+		calls = 0;
+		argCount = 0;
+		refCount = 0;
+		frameCount = 0;
+		return this;
+	}
+
+	/**
+	 * Marks the end of a frame. Calls recorded from now on belong to the next
+	 * frame
+	 *
+	 * @return this
+	 */
+	public RecordingGL frame() {
+		if( frameCount == frameEnds.length ) {
+			frameEnds = Arrays.copyOf( frameEnds, frameCount * 2 );
+		}
+		frameEnds[ frameCount++ ] = calls;
+		return this;
+	}
+
+	/**
+	 * @return The number of frames recorded: those ended by {@link #frame()},
+	 *         plus the current one if it has any calls
+	 */
+	public int frames() {
+		if( frameCount == 0 ) {
+			return 1;
+		}
+		return frameEnds[ frameCount - 1 ] < calls ? frameCount + 1 : frameCount;
+	}
+
+	/**
+	 * @param frame
+	 *          frame index
+	 * @return The index of the first call after that frame
+	 */
+	public int frameEnd( int frame ) {
+		return frame < frameCount ? frameEnds[ frame ] : calls;
+	}
+
+	/**
+	 * @return The number of calls recorded since the last {@link #reset()}
+	 */
+	public int calls() {
+		return calls;
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @return The method that was called
+	 */
+	public GLOp op( int call ) {
+		return OPS[ ops[ call ] ];
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @return The number of arguments passed to the call
+	 */
+	public int args( int call ) {
+		return ( call + 1 < calls ? argStart[ call + 1 ] : argCount )
+				- argStart[ call ];
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @param arg
+	 *          argument index
+	 * @return The argument value
+	 */
+	public int intArg( int call, int arg ) {
+		return args[ slot( call, arg, INT ) ];
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @param arg
+	 *          argument index
+	 * @return The argument value
+	 */
+	public float floatArg( int call, int arg ) {
+		return Float.intBitsToFloat( args[ slot( call, arg, FLOAT ) ] );
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @param arg
+	 *          argument index
+	 * @return The argument value
+	 */
+	public boolean booleanArg( int call, int arg ) {
+		return args[ slot( call, arg, BOOLEAN ) ] != 0;
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @param arg
+	 *          argument index
+	 * @return The argument value
+	 */
+	public Object objectArg( int call, int arg ) {
+		return refs[ args[ slot( call, arg, OBJECT ) ] ];
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @param arg
+	 *          argument index
+	 * @return The argument value, boxed
+	 */
+	public Object arg( int call, int arg ) {
+		int s = argStart[ call ] + arg;
+		switch( kinds[ s ] ){
+			case INT:
+				return Integer.valueOf( args[ s ] );
+			case FLOAT:
+				return Float.valueOf( Float.intBitsToFloat( args[ s ] ) );
+			case BOOLEAN:
+				return Boolean.valueOf( args[ s ] != 0 );
+			default:
+				return refs[ args[ s ] ];
+		}
+	}
+
+	/**
+	 * @param call
+	 *          call index
+	 * @param arg
+	 *          argument index
+	 * @return The argument as it is held: the value of integer and boolean
+	 *         arguments, the bits of float arguments and a reference index for
+	 *         anything else
+	 */
+	int rawArg( int call, int arg ) {
+		return args[ argStart[ call ] + arg ];
+	}
+
+	/**
+	 * Counts calls to a method, regardless of arguments
+	 *
+	 * @param op
+	 *          the method
+	 * @return the number of times it was called
+	 */
+	public int count( GLOp op ) {
+		int n = 0;
+		for( int i = 0; i < calls; i++ ) {
+			if( ops[ i ] == op.ordinal() ) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Counts calls to a method with particular arguments
+	 *
+	 * @param op
+	 *          the method
+	 * @param expected
+	 *          the leading arguments to match. {@link Integer}, {@link Float} and
+	 *          {@link Boolean} values are compared against primitive arguments,
+	 *          anything else is compared with {@link Object#equals(Object)}
+	 * @return the number of times it was called with those arguments
+	 */
+	public int count( GLOp op, Object... expected ) {
+		int n = 0;
+		for( int i = 0; i < calls; i++ ) {
+			if( ops[ i ] == op.ordinal() && matches( i, expected ) ) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	private boolean matches( int call, Object[] expected ) {
+		if( expected.length > args( call ) ) {
+			return false;
+		}
+		for( int a = 0; a < expected.length; a++ ) {
+			int s = argStart[ call ] + a;
+			Object e = expected[ a ];
+			switch( kinds[ s ] ){
+				case INT:
+					if( !( e instanceof Integer && (Integer) e == args[ s ] ) ) {
+						return false;
+					}
+					break;
+				case FLOAT:
+					if( !( e instanceof Number && Float.compare( ( (Number) e )
+							.floatValue(), Float.intBitsToFloat( args[ s ] ) ) == 0 ) ) {
+						return false;
+					}
+					break;
+				case BOOLEAN:
+					if( !( e instanceof Boolean && (Boolean) e == ( args[ s ] != 0 ) ) ) {
+						return false;
+					}
+					break;
+				default:
+					Object r = refs[ args[ s ] ];
+					if( e == null ? r != null : !e.equals( r ) ) {
+						return false;
+					}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Describes the recorded calls, one per line. Primitive arguments are written
+	 * as values, buffers and arrays as their type and size. Arguments that take
+	 * gl constants are written as the names of those constants, e.g.
+	 * <code>GL_BLEND</code>, where the value has one.
+	 *
+	 * @return The trace of recorded calls
+	 */
+	public String trace() {
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < calls; i++ ) {
+			GLOp op = op( i );
+			String constants = constants( op );
+			sb.append( op );
+			for( int a = 0; a < args( i ); a++ ) {
+				sb.append( ' ' );
+				int s = argStart[ i ] + a;
+				char c = a < constants.length() ? constants.charAt( a ) : '-';
+				switch( kinds[ s ] ){
+					case INT:
+						name( c, args[ s ], sb );
+						break;
+					case FLOAT:
+						float f = Float.intBitsToFloat( args[ s ] );
+						if( c == 'e' && f == (int) f && NAMES.containsKey( (int) f ) ) {
+							sb.append( NAMES.get( (int) f ) );
+						}
+						else {
+							sb.append( f );
+						}
+						break;
+					case BOOLEAN:
+						sb.append( args[ s ] != 0 );
+						break;
+					default:
+						describe( refs[ args[ s ] ], sb );
+				}
+			}
+			sb.append( '\n' );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes an integer argument
+	 *
+	 * @param c
+	 *          what the argument is, as per {@link #constants(GLOp)}
+	 * @param v
+	 *          the argument
+	 * @param sb
+	 *          where to write it
+	 */
+	private static void name( char c, int v, StringBuilder sb ) {
+		String n = null;
+		switch( c ){
+			case 'e':
+				n = NAMES.get( v );
+				break;
+			case 'f':
+				n = v == GL20.GL_ZERO ? "GL_ZERO"
+						: v == GL20.GL_ONE ? "GL_ONE" : NAMES.get( v );
+				break;
+			case 'm':
+				n = v >= 0 && v < MODES.length ? MODES[ v ] : null;
+				break;
+			case 'c':
+				if( v != 0 && ( v & ~CLEAR_BITS ) == 0 ) {
+					int start = sb.length();
+					for( int bit : new int[] { GL20.GL_COLOR_BUFFER_BIT,
+							GL20.GL_DEPTH_BUFFER_BIT, GL20.GL_STENCIL_BUFFER_BIT } ) {
+						if( ( v & bit ) != 0 ) {
+							sb.append( sb.length() > start ? "|" : "" )
+									.append( NAMES.get( bit ) );
+						}
+					}
+					return;
+				}
+				break;
+			default:
+		}
+		if( n != null ) {
+			sb.append( n );
+		}
+		else {
+			sb.append( v );
+		}
+	}
+
+	/**
+	 * @param op
+	 *          a gl method
+	 * @return What each of its arguments is, in order: 'e' for a gl constant,
+	 *         'f' for a constant that may be {@link GL20#GL_ZERO} or
+	 *         {@link GL20#GL_ONE}, 'm' for a primitive mode, 'c' for
+	 *         {@link GL20#glClear(int)} bits and '-' for anything else. Missing
+	 *         trailing arguments are '-'
+	 */
+	private static String constants( GLOp op ) {
+		switch( op ){
+			case glActiveTexture:
+			case glBlendEquation:
+			case glCheckFramebufferStatus:
+			case glCreateShader:
+			case glCullFace:
+			case glDepthFunc:
+			case glDisable:
+			case glEnable:
+			case glFrontFace:
+			case glGenerateMipmap:
+			case glGetBooleanv:
+			case glGetFloatv:
+			case glGetIntegerv:
+			case glGetString:
+			case glIsEnabled:
+			case glBindBuffer:
+			case glBindFramebuffer:
+			case glBindRenderbuffer:
+			case glBindTexture:
+			case glBufferSubData:
+			case glCopyTexSubImage2D:
+			case glPixelStorei:
+			case glStencilFunc:
+			case glStencilMaskSeparate:
+				return "e";
+			case glBlendEquationSeparate:
+			case glGetBufferParameteriv:
+			case glGetRenderbufferParameteriv:
+			case glGetShaderPrecisionFormat:
+			case glGetTexParameterfv:
+			case glGetTexParameteriv:
+			case glHint:
+			case glRenderbufferStorage:
+			case glStencilFuncSeparate:
+			case glTexParameterfv:
+			case glTexParameteriv:
+				return "ee";
+			case glFramebufferRenderbuffer:
+			case glFramebufferTexture2D:
+			case glGetFramebufferAttachmentParameteriv:
+			case glTexParameterf:
+			case glTexParameteri:
+				return "eee";
+			case glGetProgramiv:
+			case glGetShaderiv:
+			case glGetVertexAttribfv:
+			case glGetVertexAttribiv:
+			case glGetVertexAttribPointerv:
+				return "-e";
+			case glBlendFunc:
+			case glBlendFuncSeparate:
+				return "ffff";
+			case glStencilOp:
+				return "fff";
+			case glStencilOpSeparate:
+				return "efff";
+			case glBufferData:
+				return "e--e";
+			case glClear:
+				return "c";
+			case glDrawArrays:
+				return "m";
+			case glDrawElements:
+				return "m-e";
+			case glCompressedTexImage2D:
+			case glCopyTexImage2D:
+				return "e-e";
+			case glCompressedTexSubImage2D:
+				return "e-----e";
+			case glTexImage2D:
+				return "e-e---ee";
+			case glTexSubImage2D:
+				return "e-----ee";
+			case glReadPixels:
+				return "----ee";
+			case glVertexAttribPointer:
+				return "--e";
+			default:
+				return "";
+		}
+	}
+
+	private static void describe( Object o, StringBuilder sb ) {
+		if( o instanceof String ) {
+			sb.append( '"' ).append( o ).append( '"' );
+		}
+		else if( o instanceof Buffer ) {
+			sb.append( bufferType( (Buffer) o ) )
+					.append( '[' ).append( ( (Buffer) o ).remaining() ).append( ']' );
+		}
+		else if( o instanceof int[] ) {
+			sb.append( "int[" ).append( ( (int[]) o ).length ).append( ']' );
+		}
+		else if( o instanceof float[] ) {
+			sb.append( "float[" ).append( ( (float[]) o ).length ).append( ']' );
+		}
+		else {
+			sb.append( o );
+		}
+	}
+
+	/**
+	 * Buffers tend to be private implementation classes, so name them by their
+	 * public type instead
+	 */
+	private static String bufferType( Buffer b ) {
+		if( b instanceof ByteBuffer ) {
+			return "ByteBuffer";
+		}
+		if( b instanceof ShortBuffer ) {
+			return "ShortBuffer";
+		}
+		if( b instanceof IntBuffer ) {
+			return "IntBuffer";
+		}
+		if( b instanceof FloatBuffer ) {
+			return "FloatBuffer";
+		}
+		if( b instanceof LongBuffer ) {
+			return "LongBuffer";
+		}
+		if( b instanceof DoubleBuffer ) {
+			return "DoubleBuffer";
+		}
+		if( b instanceof CharBuffer ) {
+			return "CharBuffer";
+		}
+		return b.getClass().getSimpleName();
+	}
+
+	private int slot( int call, int arg, byte kind ) {
+		if( call < 0 || call >= calls || arg < 0 || arg >= args( call ) ) {
+			throw new IndexOutOfBoundsException( "No argument " + arg + " for call "
+					+ call );
+		}
+		int s = argStart[ call ] + arg;
+		if( kinds[ s ] != kind ) {
+			throw new IllegalArgumentException( "Argument " + arg + " of "
+					+ op( call ) + " is not of the requested type" );
+		}
+		return s;
+	}
+
+	private RecordingGL record( GLOp op ) {
+		if( calls == ops.length ) {
+			ops = Arrays.copyOf( ops, calls * 2 );
+			argStart = Arrays.copyOf( argStart, calls * 2 );
+		}
+		ops[ calls ] = op.ordinal();
+		argStart[ calls ] = argCount;
+		calls++;
+		return this;
+	}
+
+	private RecordingGL arg( byte kind, int value ) {
+		if( argCount == args.length ) {
+			args = Arrays.copyOf( args, argCount * 2 );
+			kinds = Arrays.copyOf( kinds, argCount * 2 );
+		}
+		kinds[ argCount ] = kind;
+		args[ argCount ] = value;
+		argCount++;
+		return this;
+	}
+
+	private RecordingGL arg( int value ) {
+		return arg( INT, value );
+	}
+
+	private RecordingGL arg( float value ) {
+		return arg( FLOAT, Float.floatToRawIntBits( value ) );
+	}
+
+	private RecordingGL arg( boolean value ) {
+		return arg( BOOLEAN, value ? 1 : 0 );
+	}
+
+	private RecordingGL arg( Object value ) {
+		if( refCount == refs.length ) {
+			refs = Arrays.copyOf( refs, refCount * 2 );
+		}
+		refs[ refCount ] = value;
+		return arg( OBJECT, refCount++ );
+	}
+
+	@Override
+	public void glActiveTexture( int texture ) {
+		record( GLOp.glActiveTexture ).arg( texture );
+	}
+
+	@Override
+	public void glBindTexture( int target, int texture ) {
+		record( GLOp.glBindTexture ).arg( target ).arg( texture );
+	}
+
+	@Override
+	public void glBlendFunc( int sfactor, int dfactor ) {
+		record( GLOp.glBlendFunc ).arg( sfactor ).arg( dfactor );
+	}
+
+	@Override
+	public void glClear( int mask ) {
+		record( GLOp.glClear ).arg( mask );
+	}
+
+	@Override
+	public void glClearColor( float red, float green, float blue, float alpha ) {
+		record( GLOp.glClearColor ).arg( red ).arg( green ).arg( blue )
+				.arg( alpha );
+	}
+
+	@Override
+	public void glClearDepthf( float depth ) {
+		record( GLOp.glClearDepthf ).arg( depth );
+	}
+
+	@Override
+	public void glClearStencil( int s ) {
+		record( GLOp.glClearStencil ).arg( s );
+	}
+
+	@Override
+	public void glColorMask( boolean red, boolean green, boolean blue,
+			boolean alpha ) {
+		record( GLOp.glColorMask ).arg( red ).arg( green ).arg( blue ).arg( alpha );
+	}
+
+	@Override
+	public void glCompressedTexImage2D( int target, int level,
+			int internalformat, int width, int height, int border, int imageSize,
+			Buffer data ) {
+		record( GLOp.glCompressedTexImage2D ).arg( target ).arg( level )
+				.arg( internalformat ).arg( width ).arg( height ).arg( border )
+				.arg( imageSize ).arg( data );
+	}
+
+	@Override
+	public void glCompressedTexSubImage2D( int target, int level, int xoffset,
+			int yoffset, int width, int height, int format, int imageSize,
+			Buffer data ) {
+		record( GLOp.glCompressedTexSubImage2D ).arg( target ).arg( level )
+				.arg( xoffset ).arg( yoffset ).arg( width ).arg( height ).arg( format )
+				.arg( imageSize ).arg( data );
+	}
+
+	@Override
+	public void glCopyTexImage2D( int target, int level, int internalformat,
+			int x, int y, int width, int height, int border ) {
+		record( GLOp.glCopyTexImage2D ).arg( target ).arg( level )
+				.arg( internalformat ).arg( x ).arg( y ).arg( width ).arg( height )
+				.arg( border );
+	}
+
+	@Override
+	public void glCopyTexSubImage2D( int target, int level, int xoffset,
+			int yoffset, int x, int y, int width, int height ) {
+		record( GLOp.glCopyTexSubImage2D ).arg( target ).arg( level ).arg( xoffset )
+				.arg( yoffset ).arg( x ).arg( y ).arg( width ).arg( height );
+	}
+
+	@Override
+	public void glCullFace( int mode ) {
+		record( GLOp.glCullFace ).arg( mode );
+	}
+
+	@Override
+	public void glDeleteTextures( int n, IntBuffer textures ) {
+		record( GLOp.glDeleteTextures ).arg( n ).arg( textures );
+	}
+
+	@Override
+	public void glDeleteTexture( int texture ) {
+		record( GLOp.glDeleteTexture ).arg( texture );
+	}
+
+	@Override
+	public void glDepthFunc( int func ) {
+		record( GLOp.glDepthFunc ).arg( func );
+	}
+
+	@Override
+	public void glDepthMask( boolean flag ) {
+		record( GLOp.glDepthMask ).arg( flag );
+	}
+
+	@Override
+	public void glDepthRangef( float zNear, float zFar ) {
+		record( GLOp.glDepthRangef ).arg( zNear ).arg( zFar );
+	}
+
+	@Override
+	public void glDisable( int cap ) {
+		record( GLOp.glDisable ).arg( cap );
+	}
+
+	@Override
+	public void glDrawArrays( int mode, int first, int count ) {
+		record( GLOp.glDrawArrays ).arg( mode ).arg( first ).arg( count );
+	}
+
+	@Override
+	public void glDrawElements( int mode, int count, int type, Buffer indices ) {
+		record( GLOp.glDrawElements ).arg( mode ).arg( count ).arg( type )
+				.arg( indices );
+	}
+
+	@Override
+	public void glEnable( int cap ) {
+		record( GLOp.glEnable ).arg( cap );
+	}
+
+	@Override
+	public void glFinish() {
+		record( GLOp.glFinish );
+	}
+
+	@Override
+	public void glFlush() {
+		record( GLOp.glFlush );
+	}
+
+	@Override
+	public void glFrontFace( int mode ) {
+		record( GLOp.glFrontFace ).arg( mode );
+	}
+
+	@Override
+	public void glGenTextures( int n, IntBuffer textures ) {
+		record( GLOp.glGenTextures ).arg( n ).arg( textures );
+	}
+
+	@Override
+	public int glGenTexture() {
+		record( GLOp.glGenTexture );
+		return 0;
+	}
+
+	@Override
+	public int glGetError() {
+		record( GLOp.glGetError );
+		return 0;
+	}
+
+	@Override
+	public void glGetIntegerv( int pname, IntBuffer params ) {
+		record( GLOp.glGetIntegerv ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public String glGetString( int name ) {
+		record( GLOp.glGetString ).arg( name );
+		return null;
+	}
+
+	@Override
+	public void glHint( int target, int mode ) {
+		record( GLOp.glHint ).arg( target ).arg( mode );
+	}
+
+	@Override
+	public void glLineWidth( float width ) {
+		record( GLOp.glLineWidth ).arg( width );
+	}
+
+	@Override
+	public void glPixelStorei( int pname, int param ) {
+		record( GLOp.glPixelStorei ).arg( pname ).arg( param );
+	}
+
+	@Override
+	public void glPolygonOffset( float factor, float units ) {
+		record( GLOp.glPolygonOffset ).arg( factor ).arg( units );
+	}
+
+	@Override
+	public void glReadPixels( int x, int y, int width, int height, int format,
+			int type, Buffer pixels ) {
+		record( GLOp.glReadPixels ).arg( x ).arg( y ).arg( width ).arg( height )
+				.arg( format ).arg( type ).arg( pixels );
+	}
+
+	@Override
+	public void glScissor( int x, int y, int width, int height ) {
+		record( GLOp.glScissor ).arg( x ).arg( y ).arg( width ).arg( height );
+	}
+
+	@Override
+	public void glStencilFunc( int func, int ref, int mask ) {
+		record( GLOp.glStencilFunc ).arg( func ).arg( ref ).arg( mask );
+	}
+
+	@Override
+	public void glStencilMask( int mask ) {
+		record( GLOp.glStencilMask ).arg( mask );
+	}
+
+	@Override
+	public void glStencilOp( int fail, int zfail, int zpass ) {
+		record( GLOp.glStencilOp ).arg( fail ).arg( zfail ).arg( zpass );
+	}
+
+	@Override
+	public void glTexImage2D( int target, int level, int internalformat,
+			int width, int height, int border, int format, int type, Buffer pixels ) {
+		record( GLOp.glTexImage2D ).arg( target ).arg( level ).arg( internalformat )
+				.arg( width ).arg( height ).arg( border ).arg( format ).arg( type )
+				.arg( pixels );
+	}
+
+	@Override
+	public void glTexParameterf( int target, int pname, float param ) {
+		record( GLOp.glTexParameterf ).arg( target ).arg( pname ).arg( param );
+	}
+
+	@Override
+	public void glTexSubImage2D( int target, int level, int xoffset, int yoffset,
+			int width, int height, int format, int type, Buffer pixels ) {
+		record( GLOp.glTexSubImage2D ).arg( target ).arg( level ).arg( xoffset )
+				.arg( yoffset ).arg( width ).arg( height ).arg( format ).arg( type )
+				.arg( pixels );
+	}
+
+	@Override
+	public void glViewport( int x, int y, int width, int height ) {
+		record( GLOp.glViewport ).arg( x ).arg( y ).arg( width ).arg( height );
+	}
+
+	@Override
+	public void glAttachShader( int program, int shader ) {
+		record( GLOp.glAttachShader ).arg( program ).arg( shader );
+	}
+
+	@Override
+	public void glBindAttribLocation( int program, int index, String name ) {
+		record( GLOp.glBindAttribLocation ).arg( program ).arg( index ).arg( name );
+	}
+
+	@Override
+	public void glBindBuffer( int target, int buffer ) {
+		record( GLOp.glBindBuffer ).arg( target ).arg( buffer );
+	}
+
+	@Override
+	public void glBindFramebuffer( int target, int framebuffer ) {
+		record( GLOp.glBindFramebuffer ).arg( target ).arg( framebuffer );
+	}
+
+	@Override
+	public void glBindRenderbuffer( int target, int renderbuffer ) {
+		record( GLOp.glBindRenderbuffer ).arg( target ).arg( renderbuffer );
+	}
+
+	@Override
+	public void glBlendColor( float red, float green, float blue, float alpha ) {
+		record( GLOp.glBlendColor ).arg( red ).arg( green ).arg( blue )
+				.arg( alpha );
+	}
+
+	@Override
+	public void glBlendEquation( int mode ) {
+		record( GLOp.glBlendEquation ).arg( mode );
+	}
+
+	@Override
+	public void glBlendEquationSeparate( int modeRGB, int modeAlpha ) {
+		record( GLOp.glBlendEquationSeparate ).arg( modeRGB ).arg( modeAlpha );
+	}
+
+	@Override
+	public void glBlendFuncSeparate( int srcRGB, int dstRGB, int srcAlpha,
+			int dstAlpha ) {
+		record( GLOp.glBlendFuncSeparate ).arg( srcRGB ).arg( dstRGB )
+				.arg( srcAlpha ).arg( dstAlpha );
+	}
+
+	@Override
+	public void glBufferData( int target, int size, Buffer data, int usage ) {
+		record( GLOp.glBufferData ).arg( target ).arg( size ).arg( data )
+				.arg( usage );
+	}
+
+	@Override
+	public void glBufferSubData( int target, int offset, int size, Buffer data ) {
+		record( GLOp.glBufferSubData ).arg( target ).arg( offset ).arg( size )
+				.arg( data );
+	}
+
+	@Override
+	public int glCheckFramebufferStatus( int target ) {
+		record( GLOp.glCheckFramebufferStatus ).arg( target );
+		return 0;
+	}
+
+	@Override
+	public void glCompileShader( int shader ) {
+		record( GLOp.glCompileShader ).arg( shader );
+	}
+
+	@Override
+	public int glCreateProgram() {
+		record( GLOp.glCreateProgram );
+		return 0;
+	}
+
+	@Override
+	public int glCreateShader( int type ) {
+		record( GLOp.glCreateShader ).arg( type );
+		return 0;
+	}
+
+	@Override
+	public void glDeleteBuffer( int buffer ) {
+		record( GLOp.glDeleteBuffer ).arg( buffer );
+	}
+
+	@Override
+	public void glDeleteBuffers( int n, IntBuffer buffers ) {
+		record( GLOp.glDeleteBuffers ).arg( n ).arg( buffers );
+	}
+
+	@Override
+	public void glDeleteFramebuffer( int framebuffer ) {
+		record( GLOp.glDeleteFramebuffer ).arg( framebuffer );
+	}
+
+	@Override
+	public void glDeleteFramebuffers( int n, IntBuffer framebuffers ) {
+		record( GLOp.glDeleteFramebuffers ).arg( n ).arg( framebuffers );
+	}
+
+	@Override
+	public void glDeleteProgram( int program ) {
+		record( GLOp.glDeleteProgram ).arg( program );
+	}
+
+	@Override
+	public void glDeleteRenderbuffer( int renderbuffer ) {
+		record( GLOp.glDeleteRenderbuffer ).arg( renderbuffer );
+	}
+
+	@Override
+	public void glDeleteRenderbuffers( int n, IntBuffer renderbuffers ) {
+		record( GLOp.glDeleteRenderbuffers ).arg( n ).arg( renderbuffers );
+	}
+
+	@Override
+	public void glDeleteShader( int shader ) {
+		record( GLOp.glDeleteShader ).arg( shader );
+	}
+
+	@Override
+	public void glDetachShader( int program, int shader ) {
+		record( GLOp.glDetachShader ).arg( program ).arg( shader );
+	}
+
+	@Override
+	public void glDisableVertexAttribArray( int index ) {
+		record( GLOp.glDisableVertexAttribArray ).arg( index );
+	}
+
+	@Override
+	public void glDrawElements( int mode, int count, int type, int indices ) {
+		record( GLOp.glDrawElements ).arg( mode ).arg( count ).arg( type )
+				.arg( indices );
+	}
+
+	@Override
+	public void glEnableVertexAttribArray( int index ) {
+		record( GLOp.glEnableVertexAttribArray ).arg( index );
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer( int target, int attachment,
+			int renderbuffertarget, int renderbuffer ) {
+		record( GLOp.glFramebufferRenderbuffer ).arg( target ).arg( attachment )
+				.arg( renderbuffertarget ).arg( renderbuffer );
+	}
+
+	@Override
+	public void glFramebufferTexture2D( int target, int attachment,
+			int textarget, int texture, int level ) {
+		record( GLOp.glFramebufferTexture2D ).arg( target ).arg( attachment )
+				.arg( textarget ).arg( texture ).arg( level );
+	}
+
+	@Override
+	public int glGenBuffer() {
+		record( GLOp.glGenBuffer );
+		return 0;
+	}
+
+	@Override
+	public void glGenBuffers( int n, IntBuffer buffers ) {
+		record( GLOp.glGenBuffers ).arg( n ).arg( buffers );
+	}
+
+	@Override
+	public void glGenerateMipmap( int target ) {
+		record( GLOp.glGenerateMipmap ).arg( target );
+	}
+
+	@Override
+	public int glGenFramebuffer() {
+		record( GLOp.glGenFramebuffer );
+		return 0;
+	}
+
+	@Override
+	public void glGenFramebuffers( int n, IntBuffer framebuffers ) {
+		record( GLOp.glGenFramebuffers ).arg( n ).arg( framebuffers );
+	}
+
+	@Override
+	public int glGenRenderbuffer() {
+		record( GLOp.glGenRenderbuffer );
+		return 0;
+	}
+
+	@Override
+	public void glGenRenderbuffers( int n, IntBuffer renderbuffers ) {
+		record( GLOp.glGenRenderbuffers ).arg( n ).arg( renderbuffers );
+	}
+
+	@Override
+	public String glGetActiveAttrib( int program, int index, IntBuffer size,
+			Buffer type ) {
+		record( GLOp.glGetActiveAttrib ).arg( program ).arg( index ).arg( size )
+				.arg( type );
+		return null;
+	}
+
+	@Override
+	public String glGetActiveUniform( int program, int index, IntBuffer size,
+			Buffer type ) {
+		record( GLOp.glGetActiveUniform ).arg( program ).arg( index ).arg( size )
+				.arg( type );
+		return null;
+	}
+
+	@Override
+	public void glGetAttachedShaders( int program, int maxcount, Buffer count,
+			IntBuffer shaders ) {
+		record( GLOp.glGetAttachedShaders ).arg( program ).arg( maxcount )
+				.arg( count ).arg( shaders );
+	}
+
+	@Override
+	public int glGetAttribLocation( int program, String name ) {
+		record( GLOp.glGetAttribLocation ).arg( program ).arg( name );
+		return 0;
+	}
+
+	@Override
+	public void glGetBooleanv( int pname, Buffer params ) {
+		record( GLOp.glGetBooleanv ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glGetBufferParameteriv( int target, int pname,
+			IntBuffer params ) {
+		record( GLOp.glGetBufferParameteriv ).arg( target ).arg( pname )
+				.arg( params );
+	}
+
+	@Override
+	public void glGetFloatv( int pname, FloatBuffer params ) {
+		record( GLOp.glGetFloatv ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glGetFramebufferAttachmentParameteriv( int target,
+			int attachment, int pname, IntBuffer params ) {
+		record( GLOp.glGetFramebufferAttachmentParameteriv ).arg( target )
+				.arg( attachment ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glGetProgramiv( int program, int pname, IntBuffer params ) {
+		record( GLOp.glGetProgramiv ).arg( program ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public String glGetProgramInfoLog( int program ) {
+		record( GLOp.glGetProgramInfoLog ).arg( program );
+		return null;
+	}
+
+	@Override
+	public void glGetRenderbufferParameteriv( int target, int pname,
+			IntBuffer params ) {
+		record( GLOp.glGetRenderbufferParameteriv ).arg( target ).arg( pname )
+				.arg( params );
+	}
+
+	@Override
+	public void glGetShaderiv( int shader, int pname, IntBuffer params ) {
+		record( GLOp.glGetShaderiv ).arg( shader ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public String glGetShaderInfoLog( int shader ) {
+		record( GLOp.glGetShaderInfoLog ).arg( shader );
+		return null;
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat( int shadertype, int precisiontype,
+			IntBuffer range, IntBuffer precision ) {
+		record( GLOp.glGetShaderPrecisionFormat ).arg( shadertype )
+				.arg( precisiontype ).arg( range ).arg( precision );
+	}
+
+	@Override
+	public void glGetTexParameterfv( int target, int pname, FloatBuffer params ) {
+		record( GLOp.glGetTexParameterfv ).arg( target ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glGetTexParameteriv( int target, int pname, IntBuffer params ) {
+		record( GLOp.glGetTexParameteriv ).arg( target ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glGetUniformfv( int program, int location, FloatBuffer params ) {
+		record( GLOp.glGetUniformfv ).arg( program ).arg( location ).arg( params );
+	}
+
+	@Override
+	public void glGetUniformiv( int program, int location, IntBuffer params ) {
+		record( GLOp.glGetUniformiv ).arg( program ).arg( location ).arg( params );
+	}
+
+	@Override
+	public int glGetUniformLocation( int program, String name ) {
+		record( GLOp.glGetUniformLocation ).arg( program ).arg( name );
+		return 0;
+	}
+
+	@Override
+	public void glGetVertexAttribfv( int index, int pname, FloatBuffer params ) {
+		record( GLOp.glGetVertexAttribfv ).arg( index ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glGetVertexAttribiv( int index, int pname, IntBuffer params ) {
+		record( GLOp.glGetVertexAttribiv ).arg( index ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glGetVertexAttribPointerv( int index, int pname,
+			Buffer pointer ) {
+		record( GLOp.glGetVertexAttribPointerv ).arg( index ).arg( pname )
+				.arg( pointer );
+	}
+
+	@Override
+	public boolean glIsBuffer( int buffer ) {
+		record( GLOp.glIsBuffer ).arg( buffer );
+		return false;
+	}
+
+	@Override
+	public boolean glIsEnabled( int cap ) {
+		record( GLOp.glIsEnabled ).arg( cap );
+		return false;
+	}
+
+	@Override
+	public boolean glIsFramebuffer( int framebuffer ) {
+		record( GLOp.glIsFramebuffer ).arg( framebuffer );
+		return false;
+	}
+
+	@Override
+	public boolean glIsProgram( int program ) {
+		record( GLOp.glIsProgram ).arg( program );
+		return false;
+	}
+
+	@Override
+	public boolean glIsRenderbuffer( int renderbuffer ) {
+		record( GLOp.glIsRenderbuffer ).arg( renderbuffer );
+		return false;
+	}
+
+	@Override
+	public boolean glIsShader( int shader ) {
+		record( GLOp.glIsShader ).arg( shader );
+		return false;
+	}
+
+	@Override
+	public boolean glIsTexture( int texture ) {
+		record( GLOp.glIsTexture ).arg( texture );
+		return false;
+	}
+
+	@Override
+	public void glLinkProgram( int program ) {
+		record( GLOp.glLinkProgram ).arg( program );
+	}
+
+	@Override
+	public void glReleaseShaderCompiler() {
+		record( GLOp.glReleaseShaderCompiler );
+	}
+
+	@Override
+	public void glRenderbufferStorage( int target, int internalformat, int width,
+			int height ) {
+		record( GLOp.glRenderbufferStorage ).arg( target ).arg( internalformat )
+				.arg( width ).arg( height );
+	}
+
+	@Override
+	public void glSampleCoverage( float value, boolean invert ) {
+		record( GLOp.glSampleCoverage ).arg( value ).arg( invert );
+	}
+
+	@Override
+	public void glShaderBinary( int n, IntBuffer shaders, int binaryformat,
+			Buffer binary, int length ) {
+		record( GLOp.glShaderBinary ).arg( n ).arg( shaders ).arg( binaryformat )
+				.arg( binary ).arg( length );
+	}
+
+	@Override
+	public void glShaderSource( int shader, String string ) {
+		record( GLOp.glShaderSource ).arg( shader ).arg( string );
+	}
+
+	@Override
+	public void glStencilFuncSeparate( int face, int func, int ref, int mask ) {
+		record( GLOp.glStencilFuncSeparate ).arg( face ).arg( func ).arg( ref )
+				.arg( mask );
+	}
+
+	@Override
+	public void glStencilMaskSeparate( int face, int mask ) {
+		record( GLOp.glStencilMaskSeparate ).arg( face ).arg( mask );
+	}
+
+	@Override
+	public void glStencilOpSeparate( int face, int fail, int zfail, int zpass ) {
+		record( GLOp.glStencilOpSeparate ).arg( face ).arg( fail ).arg( zfail )
+				.arg( zpass );
+	}
+
+	@Override
+	public void glTexParameterfv( int target, int pname, FloatBuffer params ) {
+		record( GLOp.glTexParameterfv ).arg( target ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glTexParameteri( int target, int pname, int param ) {
+		record( GLOp.glTexParameteri ).arg( target ).arg( pname ).arg( param );
+	}
+
+	@Override
+	public void glTexParameteriv( int target, int pname, IntBuffer params ) {
+		record( GLOp.glTexParameteriv ).arg( target ).arg( pname ).arg( params );
+	}
+
+	@Override
+	public void glUniform1f( int location, float x ) {
+		record( GLOp.glUniform1f ).arg( location ).arg( x );
+	}
+
+	@Override
+	public void glUniform1fv( int location, int count, FloatBuffer v ) {
+		record( GLOp.glUniform1fv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform1fv( int location, int count, float[] v, int offset ) {
+		record( GLOp.glUniform1fv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniform1i( int location, int x ) {
+		record( GLOp.glUniform1i ).arg( location ).arg( x );
+	}
+
+	@Override
+	public void glUniform1iv( int location, int count, IntBuffer v ) {
+		record( GLOp.glUniform1iv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform1iv( int location, int count, int[] v, int offset ) {
+		record( GLOp.glUniform1iv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniform2f( int location, float x, float y ) {
+		record( GLOp.glUniform2f ).arg( location ).arg( x ).arg( y );
+	}
+
+	@Override
+	public void glUniform2fv( int location, int count, FloatBuffer v ) {
+		record( GLOp.glUniform2fv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform2fv( int location, int count, float[] v, int offset ) {
+		record( GLOp.glUniform2fv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniform2i( int location, int x, int y ) {
+		record( GLOp.glUniform2i ).arg( location ).arg( x ).arg( y );
+	}
+
+	@Override
+	public void glUniform2iv( int location, int count, IntBuffer v ) {
+		record( GLOp.glUniform2iv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform2iv( int location, int count, int[] v, int offset ) {
+		record( GLOp.glUniform2iv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniform3f( int location, float x, float y, float z ) {
+		record( GLOp.glUniform3f ).arg( location ).arg( x ).arg( y ).arg( z );
+	}
+
+	@Override
+	public void glUniform3fv( int location, int count, FloatBuffer v ) {
+		record( GLOp.glUniform3fv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform3fv( int location, int count, float[] v, int offset ) {
+		record( GLOp.glUniform3fv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniform3i( int location, int x, int y, int z ) {
+		record( GLOp.glUniform3i ).arg( location ).arg( x ).arg( y ).arg( z );
+	}
+
+	@Override
+	public void glUniform3iv( int location, int count, IntBuffer v ) {
+		record( GLOp.glUniform3iv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform3iv( int location, int count, int[] v, int offset ) {
+		record( GLOp.glUniform3iv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniform4f( int location, float x, float y, float z, float w ) {
+		record( GLOp.glUniform4f ).arg( location ).arg( x ).arg( y ).arg( z )
+				.arg( w );
+	}
+
+	@Override
+	public void glUniform4fv( int location, int count, FloatBuffer v ) {
+		record( GLOp.glUniform4fv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform4fv( int location, int count, float[] v, int offset ) {
+		record( GLOp.glUniform4fv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniform4i( int location, int x, int y, int z, int w ) {
+		record( GLOp.glUniform4i ).arg( location ).arg( x ).arg( y ).arg( z )
+				.arg( w );
+	}
+
+	@Override
+	public void glUniform4iv( int location, int count, IntBuffer v ) {
+		record( GLOp.glUniform4iv ).arg( location ).arg( count ).arg( v );
+	}
+
+	@Override
+	public void glUniform4iv( int location, int count, int[] v, int offset ) {
+		record( GLOp.glUniform4iv ).arg( location ).arg( count ).arg( v )
+				.arg( offset );
+	}
+
+	@Override
+	public void glUniformMatrix2fv( int location, int count, boolean transpose,
+			FloatBuffer value ) {
+		record( GLOp.glUniformMatrix2fv ).arg( location ).arg( count )
+				.arg( transpose ).arg( value );
+	}
+
+	@Override
+	public void glUniformMatrix2fv( int location, int count, boolean transpose,
+			float[] value, int offset ) {
+		record( GLOp.glUniformMatrix2fv ).arg( location ).arg( count )
+				.arg( transpose ).arg( value ).arg( offset );
+	}
+
+	@Override
+	public void glUniformMatrix3fv( int location, int count, boolean transpose,
+			FloatBuffer value ) {
+		record( GLOp.glUniformMatrix3fv ).arg( location ).arg( count )
+				.arg( transpose ).arg( value );
+	}
+
+	@Override
+	public void glUniformMatrix3fv( int location, int count, boolean transpose,
+			float[] value, int offset ) {
+		record( GLOp.glUniformMatrix3fv ).arg( location ).arg( count )
+				.arg( transpose ).arg( value ).arg( offset );
+	}
+
+	@Override
+	public void glUniformMatrix4fv( int location, int count, boolean transpose,
+			FloatBuffer value ) {
+		record( GLOp.glUniformMatrix4fv ).arg( location ).arg( count )
+				.arg( transpose ).arg( value );
+	}
+
+	@Override
+	public void glUniformMatrix4fv( int location, int count, boolean transpose,
+			float[] value, int offset ) {
+		record( GLOp.glUniformMatrix4fv ).arg( location ).arg( count )
+				.arg( transpose ).arg( value ).arg( offset );
+	}
+
+	@Override
+	public void glUseProgram( int program ) {
+		record( GLOp.glUseProgram ).arg( program );
+	}
+
+	@Override
+	public void glValidateProgram( int program ) {
+		record( GLOp.glValidateProgram ).arg( program );
+	}
+
+	@Override
+	public void glVertexAttrib1f( int indx, float x ) {
+		record( GLOp.glVertexAttrib1f ).arg( indx ).arg( x );
+	}
+
+	@Override
+	public void glVertexAttrib1fv( int indx, FloatBuffer values ) {
+		record( GLOp.glVertexAttrib1fv ).arg( indx ).arg( values );
+	}
+
+	@Override
+	public void glVertexAttrib2f( int indx, float x, float y ) {
+		record( GLOp.glVertexAttrib2f ).arg( indx ).arg( x ).arg( y );
+	}
+
+	@Override
+	public void glVertexAttrib2fv( int indx, FloatBuffer values ) {
+		record( GLOp.glVertexAttrib2fv ).arg( indx ).arg( values );
+	}
+
+	@Override
+	public void glVertexAttrib3f( int indx, float x, float y, float z ) {
+		record( GLOp.glVertexAttrib3f ).arg( indx ).arg( x ).arg( y ).arg( z );
+	}
+
+	@Override
+	public void glVertexAttrib3fv( int indx, FloatBuffer values ) {
+		record( GLOp.glVertexAttrib3fv ).arg( indx ).arg( values );
+	}
+
+	@Override
+	public void glVertexAttrib4f( int indx, float x, float y, float z, float w ) {
+		record( GLOp.glVertexAttrib4f ).arg( indx ).arg( x ).arg( y ).arg( z )
+				.arg( w );
+	}
+
+	@Override
+	public void glVertexAttrib4fv( int indx, FloatBuffer values ) {
+		record( GLOp.glVertexAttrib4fv ).arg( indx ).arg( values );
+	}
+
+	@Override
+	public void glVertexAttribPointer( int indx, int size, int type,
+			boolean normalized, int stride, Buffer ptr ) {
+		record( GLOp.glVertexAttribPointer ).arg( indx ).arg( size ).arg( type )
+				.arg( normalized ).arg( stride ).arg( ptr );
+	}
+
+	@Override
+	public void glVertexAttribPointer( int indx, int size, int type,
+			boolean normalized, int stride, int ptr ) {
+		record( GLOp.glVertexAttribPointer ).arg( indx ).arg( size ).arg( type )
+				.arg( normalized ).arg( stride ).arg( ptr );
+	}
+}
@@ -0,0 +1,297 @@
+package com.rmn.gdxtend;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records where test time goes. Run the tests with the "timing" property set to
+ * "true" and {@link GdxTestRunner} will attribute time to each test as it runs,
+ * as will the expectation rules under any other runner. A JSON report of every
+ * test's timings will be written when the JVM exits. The report goes to
+ * <code>build/gdxtest-timing.json</code> unless the "timing.report" property
+ * names another file.
+ * <p>
+ * Harness code brackets the interesting phases with {@link #start()} and
+ * {@link #stop(Phase, long)}. Time is attributed to the test running on the
+ * calling thread, and is dropped if there isn't one.
+ */
+public final class Timings {
+
+	/**
+	 * Set this property to "true" to enable timing
+	 */
+	static final String PROPERTY = "timing";
+
+	/**
+	 * Set this property to change where the report is written
+	 */
+	static final String REPORT_PROPERTY = "timing.report";
+
+	private static final String DEFAULT_REPORT = "build/gdxtest-timing.json";
+
+	private static final boolean ENABLED =
+			"true".equals( System.getProperty( PROPERTY ) );
+
+	private static final ThreadLocal<Test> CURRENT = new ThreadLocal<>();
+
+	private static final Queue<Test> TESTS = new ConcurrentLinkedQueue<>();
+
+	static {
+		if( ENABLED ) {
+			Runtime.getRuntime().addShutdownHook( new Thread( "gdxtest-timing" ) {
+				@Override
+				public void run() {
+					File f = new File( System.getProperty( REPORT_PROPERTY,
+							DEFAULT_REPORT ) );
+					if( f.getAbsoluteFile().getParentFile() != null ) {
+						f.getAbsoluteFile().getParentFile().mkdirs();
+					}
+					try( Writer w = Files.newBufferedWriter( f.toPath(),
+							StandardCharsets.UTF_8 ) ) {
+						write( w );
+					}
+					catch( IOException e ) {
+						System.err.println( "Failed to write timing report to " + f );
+						e.printStackTrace();
+					}
+				}
+			} );
+		}
+	}
+
+	private Timings() {
+		// no instances
+	}
+
+	/**
+	 * The phases of a test that we keep track of. {@link #RUN} includes the
+	 * others, aside from {@link #QUEUED}
+	 */
+	public static enum Phase {
+		/**
+		 * Waiting for the render thread
+		 */
+		QUEUED( "queued" ),
+		/**
+		 * Running the test, including its rules
+		 */
+		RUN( "run" ),
+		/**
+		 * Reading and writing result files
+		 */
+		EXPECT_IO( "expectIo" ),
+		/**
+		 * Comparing results against expectations. This includes producing any
+		 * result that is streamed into the comparison
+		 */
+		EXPECT_COMPARE( "expectCompare" ),
+		/**
+		 * Drawing charts and pretty-printing svg
+		 */
+		SVG( "svg" );
+
+		/**
+		 * The name used in the report
+		 */
+		public final String key;
+
+		private Phase( String key ) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * The timings of one test
+	 */
+	public static final class Test {
+		/**
+		 * Test class name
+		 */
+		public final String className;
+
+		/**
+		 * Test method name
+		 */
+		public final String methodName;
+
+		private final long[] nanos = new long[ Phase.values().length ];
+
+		private Test( String className, String methodName ) {
+			this.className = className;
+			this.methodName = methodName;
+		}
+
+		/**
+		 * @param p
+		 *          a phase
+		 * @return nanoseconds spent in that phase
+		 */
+		public synchronized long nanos( Phase p ) {
+			return nanos[ p.ordinal() ];
+		}
+
+		/**
+		 * @param p
+		 *          a phase
+		 * @param n
+		 *          nanoseconds to add to that phase
+		 */
+		synchronized void add( Phase p, long n ) {
+			nanos[ p.ordinal() ] += n;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the timing property is set
+	 */
+	public static boolean enabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Starts recording a test and attributes time on this thread to it
+	 *
+	 * @param className
+	 *          test class name
+	 * @param methodName
+	 *          test method name
+	 * @return the test's timings
+	 */
+	static Test begin( String className, String methodName ) {
+		Test t = new Test( className, methodName );
+		TESTS.add( t );
+		CURRENT.set( t );
+		return t;
+	}
+
+	/**
+	 * Stops attributing time on this thread to a test
+	 */
+	static void end() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Starts recording a test on this thread, unless one is being recorded
+	 * already. This is for harness code that may run without
+	 * {@link GdxTestRunner}
+	 *
+	 * @param className
+	 *          test class name
+	 * @param methodName
+	 *          test method name
+	 * @return the test's timings, to pass to {@link #detach(Test)}, or
+	 *         <code>null</code> if timing is disabled or a test is already being
+	 *         recorded
+	 */
+	public static Test attach( String className, String methodName ) {
+		if( !ENABLED || CURRENT.get() != null ) {
+			return null;
+		}
+		return begin( className, methodName );
+	}
+
+	/**
+	 * Stops attributing time on this thread to a test started by
+	 * {@link #attach(String, String)}
+	 *
+	 * @param t
+	 *          the return value of {@link #attach(String, String)}
+	 */
+	public static void detach( Test t ) {
+		if( t != null && CURRENT.get() == t ) {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * @return the start time of a phase, to pass to {@link #stop(Phase, long)}
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Attributes the time since a call to {@link #start()} to the test running on
+	 * this thread
+	 *
+	 * @param p
+	 *          the phase that has just finished
+	 * @param start
+	 *          the return value of {@link #start()}
+	 */
+	public static void stop( Phase p, long start ) {
+		Test t = CURRENT.get();
+		if( t != null ) {
+			t.add( p, System.nanoTime() - start );
+		}
+	}
+
+	/**
+	 * @return every test recorded so far, in the order they started
+	 */
+	static List<Test> tests() {
+		return new ArrayList<>( TESTS );
+	}
+
+	/**
+	 * Writes the JSON report
+	 *
+	 * @param out
+	 *          destination
+	 * @throws IOException
+	 *           if writing fails
+	 */
+	static void write( Appendable out ) throws IOException {
+		List<Test> tests = tests();
+		long[] totals = new long[ Phase.values().length ];
+
+		out.append( "{\n  \"unit\": \"ns\",\n  \"tests\": [" );
+		String separator = "\n";
+		for( Test t : tests ) {
+			out.append( separator ).append( "    { \"class\": " );
+			string( t.className, out );
+			out.append( ", \"method\": " );
+			string( t.methodName, out );
+			for( Phase p : Phase.values() ) {
+				long n = t.nanos( p );
+				totals[ p.ordinal() ] += n;
+				out.append( ", \"" ).append( p.key ).append( "\": " )
+						.append( String.valueOf( n ) );
+			}
+			out.append( " }" );
+			separator = ",\n";
+		}
+		out.append( "\n  ],\n  \"totals\": { \"tests\": " )
+				.append( String.valueOf( tests.size() ) );
+		for( Phase p : Phase.values() ) {
+			out.append( ", \"" ).append( p.key ).append( "\": " )
+					.append( String.valueOf( totals[ p.ordinal() ] ) );
+		}
+		out.append( " }\n}\n" );
+	}
+
+	private static void string( String s, Appendable out ) throws IOException {
+		out.append( '"' );
+		for( int i = 0; i < s.length(); i++ ) {
+			char c = s.charAt( i );
+			if( c == '"' || c == '\\' ) {
+				out.append( '\\' ).append( c );
+			}
+			else if( c < 0x20 ) {
+				out.append( String.format( "\\u%04x", (int) c ) );
+			}
+			else {
+				out.append( c );
+			}
+		}
+		out.append( '"' );
+	}
+}
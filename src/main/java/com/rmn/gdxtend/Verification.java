@@ -0,0 +1,119 @@
+package com.rmn.gdxtend;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets results be verified after the test that produced them has moved on.
+ * Run the tests with the "verify.deferred" property set to "true" and result
+ * checks record the actual result and compare it on a pool of worker threads,
+ * so that the test thread - the render thread, for most tests - isn't kept
+ * waiting on comparisons and file reads.
+ * <p>
+ * When a test finishes it hands over its verdicts with
+ * {@link #defer(Callable)}. {@link GdxTestRunner} holds back the end of that
+ * test until every test in the class has run, then waits for the verdicts and
+ * reports any failure against the test that they belong to. Elsewhere there is
+ * nobody to hand verdicts to, and each test waits for its own.
+ * <p>
+ * Time spent on the pool is not attributed to tests in the {@link Timings}
+ * report.
+ */
+public final class Verification {
+
+	/**
+	 * Set this property to "true" to defer verification
+	 */
+	static final String PROPERTY = "verify.deferred";
+
+	private static final boolean DEFERRED =
+			"true".equals( System.getProperty( PROPERTY ) );
+
+	/**
+	 * Verdicts handed over by the test running on this thread
+	 */
+	private static final ThreadLocal<List<Callable<?>>> CURRENT =
+			new ThreadLocal<>();
+
+	private Verification() {
+		// no instances
+	}
+
+	/**
+	 * The worker threads, started when first needed
+	 */
+	private static final class Pool {
+		private static final ExecutorService WORKERS = Executors
+				.newFixedThreadPool( Runtime.getRuntime().availableProcessors(),
+						new ThreadFactory() {
+							private final AtomicInteger count = new AtomicInteger();
+
+							@Override
+							public Thread newThread( Runnable r ) {
+								Thread t = new Thread( r,
+										"gdxtest-verifier-" + count.incrementAndGet() );
+								t.setDaemon( true );
+								return t;
+							}
+						} );
+	}
+
+	/**
+	 * @return <code>true</code> if the deferral property is set
+	 */
+	public static boolean deferred() {
+		return DEFERRED;
+	}
+
+	/**
+	 * @param check
+	 *          a comparison to run on the pool
+	 * @return the outcome of the comparison
+	 */
+	public static <V> Future<V> submit( Callable<V> check ) {
+		return Pool.WORKERS.submit( check );
+	}
+
+	/**
+	 * Hands over the verdict of the test running on this thread, to be reached
+	 * once the test has finished
+	 *
+	 * @param verdict
+	 *          throws if the test failed. What it returns is ignored
+	 * @return <code>true</code> if the verdict was taken, <code>false</code> if
+	 *         there's nobody to take it and the caller should reach it now
+	 */
+	public static boolean defer( Callable<?> verdict ) {
+		List<Callable<?>> l = CURRENT.get();
+		if( l == null ) {
+			return false;
+		}
+		l.add( verdict );
+		return true;
+	}
+
+	/**
+	 * Starts taking verdicts from the test on this thread
+	 */
+	static void begin() {
+		CURRENT.set( new ArrayList<Callable<?>>() );
+	}
+
+	/**
+	 * Stops taking verdicts from the test on this thread
+	 *
+	 * @return the verdicts that were handed over
+	 */
+	static List<Callable<?>> end() {
+		List<Callable<?>> l = CURRENT.get();
+		CURRENT.remove();
+		return l == null ? Collections.<Callable<?>> emptyList() : l;
+	}
+}
@@ -3,14 +3,25 @@ package com.rmn.gdxtend.expect;
 import static org.assertj.core.api.Assertions.fail;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.Method;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.assertj.core.api.Fail;
 import org.assertj.core.api.SoftAssertions;
@@ -18,6 +29,10 @@ import org.junit.Rule;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 
+import com.rmn.gdxtend.Timings;
+import com.rmn.gdxtend.Timings.Phase;
+import com.rmn.gdxtend.Verification;
+
 /**
  * A {@link Rule} to allow convenient assertion of expected results held in
  * files
@@ -33,7 +48,31 @@ public abstract class AbstractExpect<T extends AbstractExpect<T>> extends
 	 */
 	private static final String REGEN_PROPERTY = "regenerate";
 
-	private static enum Dir {
+	private static final boolean REGENERATE_ALL =
+			"true".equals( System.getProperty( REGEN_PROPERTY ) );
+
+	/**
+	 * Whether {@link Regenerate} applies, by class
+	 */
+	private static final Map<Class<?>, Boolean> REGEN_CLASSES =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Whether {@link Regenerate} applies, by "class#method"
+	 */
+	private static final Map<String, Boolean> REGEN_TESTS =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Set this property to a comma-separated list of suffixes, such as
+	 * ".svg,.trace", to store those results compressed
+	 */
+	static final String COMPRESS_PROPERTY = "golden.compress";
+
+	private static final List<String> COMPRESSED_SUFFIXES = Arrays.asList(
+			System.getProperty( COMPRESS_PROPERTY, "" ).split( "\\s*,\\s*" ) );
+
+	static enum Dir {
 		/**
 		 * Test expectations
 		 */
@@ -50,20 +89,69 @@ public abstract class AbstractExpect<T extends AbstractExpect<T>> extends
 		}
 	};
 
+	private static final GoldenStore GOLDENS =
+			GoldenStore.open( new File( Dir.EXPECT.path ) );
+
+	private static final ActualTree ACTUALS =
+			ActualTree.open( new File( Dir.ACTUAL.path ) );
+
+	/**
+	 * Test class name to result directory, relative to a {@link Dir}
+	 */
+	private static final Map<String, String> CLASS_DIRS =
+			new ConcurrentHashMap<>();
+
 	private final String suffix;
+	private boolean compress;
 	private String testClass, testMethod;
+
+	/**
+	 * The timings of the current test, if this rule started recording them, and
+	 * when the test started
+	 */
+	private Timings.Test timing;
+	private long started;
+
 	private boolean regenerate = false;
 
 	private String name = "";
 
 	private SoftAssertions softly = new SoftAssertions();
 
+	/**
+	 * Result files being written in the background. Deferred comparisons add to
+	 * this from other threads
+	 */
+	private final List<Future<?>> pending =
+			Collections.synchronizedList( new ArrayList<Future<?>>() );
+
+	/**
+	 * Deferred comparisons, each of which completes with a failure or
+	 * <code>null</code>
+	 */
+	private final List<Future<String>> checks = new ArrayList<>();
+
 	protected AbstractExpect() {
 		this( ".expect" );
 	}
 
 	protected AbstractExpect( String suffix ) {
 		this.suffix = suffix;
+		compress = COMPRESSED_SUFFIXES.contains( suffix );
+	}
+
+	/**
+	 * Results are read whether or not they are compressed, this controls how
+	 * they are written when regenerated. The default is set by the
+	 * {@value #COMPRESS_PROPERTY} property
+	 *
+	 * @param compress
+	 *          <code>true</code> to store regenerated results compressed
+	 * @return this
+	 */
+	public T compressed( boolean compress ) {
+		this.compress = compress;
+		return self();
 	}
 
 	protected T reset() {
@@ -75,43 +163,79 @@ public abstract class AbstractExpect<T extends AbstractExpect<T>> extends
 	protected void starting( Description description ) {
 		testClass = description.getClassName();
 		testMethod = description.getMethodName();
-		regenerate = false;
 
-		if( getTestDir( Dir.ACTUAL ).exists() ) {
-			// clear out any actual results for this test that may be hanging around
-			// from the last run
-			for( File f : getTestDir( Dir.ACTUAL ).listFiles( new FilenameFilter() {
+		// the test runner may not be recording the test
+		timing = Timings.attach( testClass, testMethod );
+		started = Timings.start();
+
+		// clear out any actual results for this test that may be hanging around
+		// from the last run
+		ACTUALS.clean( classDir(), testMethod );
+
+		regenerate = regenerate( description );
+	}
+
+	@Override
+	protected void finished( Description description ) {
+		try {
+			if( checks.isEmpty() || !Verification.defer( new Callable<Void>() {
 				@Override
-				public boolean accept( File dir, String name ) {
-					return name.startsWith( testMethod );
+				public Void call() {
+					verify();
+					return null;
 				}
 			} ) ) {
-				f.delete();
+				verify();
 			}
 		}
-
-		try {
-			Class<?> c = Class.forName( description.getClassName() );
-
-			// this'll go to bollocks if test methods ever accept argument.
-			// we'll just ignore that for now.
-			Method m = c.getMethod( description.getMethodName() );
-
-			regenerate = m.isAnnotationPresent( Regenerate.class )
-					|| "true".equals( System.getProperty( REGEN_PROPERTY ) )
-					|| c.isAnnotationPresent( Regenerate.class )
-					|| c.getPackage().isAnnotationPresent( Regenerate.class );
-		}
-		catch( Exception e ) {
-			e.printStackTrace();
+		finally {
+			if( timing != null ) {
+				Timings.stop( Phase.RUN, started );
+				Timings.detach( timing );
+				timing = null;
+			}
 		}
 	}
 
-	@Override
-	protected void finished( Description description ) {
+	/**
+	 * Waits for deferred comparisons and for results to be written, and fails
+	 * if anything went wrong
+	 */
+	private void verify() {
+		boolean interrupted = false;
+		for( Future<String> c : checks ) {
+			while( true ) {
+				try {
+					String failure = c.get();
+					if( failure != null ) {
+						softly.assertThat( failure ).isEqualTo( "Files matched" );
+					}
+					break;
+				}
+				catch( InterruptedException ie ) {
+					interrupted = true;
+				}
+				catch( ExecutionException ee ) {
+					fail( "error checking result", ee.getCause() );
+				}
+			}
+		}
+		checks.clear();
+		if( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
 
-		// clean up empty dirs in the actual tree
-		deleteEmptyDirs( new File( Dir.ACTUAL.path ) );
+		// make sure our results have made it to disk
+		long start = Timings.start();
+		try {
+			ResultWriter.await( pending );
+		}
+		catch( IOException ioe ) {
+			fail( "Could not write results", ioe );
+		}
+		finally {
+			Timings.stop( Phase.EXPECT_IO, start );
+		}
 
 		if( regenerate ) {
 			// don't let tests pass if they're just regenerating the results
@@ -136,47 +260,122 @@ public abstract class AbstractExpect<T extends AbstractExpect<T>> extends
 	 * Compares an actual result against an expected result in a file. If the expect
 	 * file does not exist or if the regenerate property is set or the
 	 * {@link Regenerate} annotation is present, then the expected result file will
-	 * be overwritten with the actual result
+	 * be overwritten with the actual result. Files are written in the background,
+	 * and any failure to write them is reported when the test finishes
 	 *
 	 * @param actual
 	 *          the result
 	 */
-	public void check( String actual ) {
+	public void check( final String actual ) {
+		check( new Content() {
+			@Override
+			public void write( Appendable out ) throws IOException {
+				out.append( actual );
+			}
+		} );
+	}
+
+	/**
+	 * As {@link #check(String)}, but parts of the result that change from run to
+	 * run are masked as they are compared. The mask is applied a chunk at a time
+	 * on the way into the comparison, so a masked copy of the whole result is
+	 * only assembled if it has to be written out
+	 *
+	 * @param actual
+	 *          the result, unmasked
+	 * @param mask
+	 *          the parts of the result to ignore
+	 */
+	public void check( final CharSequence actual, final CompiledMask mask ) {
+		check( new Content() {
+			@Override
+			public void write( Appendable out ) throws IOException {
+				mask.apply( actual, out );
+			}
+		} );
+	}
+
+	/**
+	 * As {@link #check(Content)}, but parts of the result that change from run
+	 * to run are masked as it is produced
+	 *
+	 * @param actual
+	 *          produces the result, unmasked
+	 * @param mask
+	 *          the parts of the result to ignore
+	 */
+	public void check( final Content actual, final CompiledMask mask ) {
+		check( new Content() {
+			@Override
+			public void write( Appendable out ) throws IOException {
+				try( Writer w = mask.writer( out ) ) {
+					actual.write( w );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * As {@link #check(String)}, but the result is streamed into the comparison
+	 * as it is produced and the comparison stops at the first difference. The
+	 * complete result is only assembled if it has to be written out.
+	 * <p>
+	 * If the result is listed in the {@link Manifest} then it is first hashed
+	 * and compared against that, and the expected result file is only read if
+	 * the hashes differ. Results that match in full are added to the manifest.
+	 * <p>
+	 * If {@link Verification} is deferred then the result is recorded and
+	 * compared on another thread, and any failure is reported once the test's
+	 * verdict is reached
+	 *
+	 * @param actual
+	 *          produces the result
+	 */
+	public void check( Content actual ) {
 
-		File expectFile = getFile( Dir.EXPECT );
+		final String dir = classDir();
+		final String file = resultName() + suffix;
+		final File actualFile = getFile( Dir.ACTUAL );
 
 		if( regenerate ) {
 			// write the file
-			expectFile.getParentFile().mkdirs();
 			try {
-				Files.write( expectFile.toPath(), actual.getBytes() );
+				StringBuilder sb = new StringBuilder();
+				actual.write( sb );
+				regenerated( sb.toString().getBytes() );
 			}
 			catch( IOException ioe ) {
-				fail( "Could not write " + expectFile, ioe );
+				fail( "Could not write " + getFile( Dir.EXPECT ), ioe );
 			}
 		}
-		else {
-			// compare the file
+		else if( Verification.deferred() ) {
+			// record the result and compare it elsewhere
 			try {
-				String expected =
-						new String( Files.readAllBytes( expectFile.toPath() ) );
-
-				if( !expected.equals( actual ) ) {
-					// an expectation has been broken - save the actual result for manual
-					// analysis
-					getFile( Dir.ACTUAL ).getParentFile().mkdirs();
-					Files.write( getFile( Dir.ACTUAL ).toPath(), actual.getBytes() );
-
-					// signal failure. SoftAssertions doesn't have a fail method
-					softly.assertThat(
-							"diff " + expectFile + " " + getFile( Dir.ACTUAL ) )
-							.isEqualTo( "Files matched" );
-
-					if( !expected.contains( "\n" ) && !actual.contains( "\n" ) ) {
-						// if there are no newlines then there's a chance that the diff is
-						// useful in the failure report
-						softly.assertThat( actual ).isEqualTo( expected );
+				long start = Timings.start();
+				final Snapshot s = Snapshot.of( actual );
+				Timings.stop( Phase.EXPECT_COMPARE, start );
+
+				checks.add( Verification.submit( new Callable<String>() {
+					@Override
+					public String call() throws IOException {
+						try {
+							return compare( dir, file, s, actualFile );
+						}
+						finally {
+							s.dispose();
+						}
 					}
+				} ) );
+			}
+			catch( IOException ioe ) {
+				fail( "error checking result", ioe );
+			}
+		}
+		else {
+			try {
+				String failure = compare( dir, file, actual, actualFile );
+				if( failure != null ) {
+					softly.assertThat( failure ).isEqualTo( "Files matched" );
 				}
 			}
 			catch( IOException ioe ) {
@@ -187,15 +386,221 @@ public abstract class AbstractExpect<T extends AbstractExpect<T>> extends
 		reset();
 	}
 
-	private File getTestDir( Dir type ) {
-		StringBuilder path = new StringBuilder( type.path );
+	/**
+	 * Compares a result against the expectation. This may be called on any
+	 * thread, so everything it needs is passed in
+	 *
+	 * @param dir
+	 *          the result directory of the test class
+	 * @param file
+	 *          the name of the expected result file, without any
+	 *          {@value GoldenStore#GZ} suffix
+	 * @param actual
+	 *          produces the result
+	 * @param actualFile
+	 *          where to save the result if it doesn't match
+	 * @return <code>null</code> if the result matched, otherwise the failure
+	 * @throws IOException
+	 *           if the expectation is missing or can't be read
+	 */
+	private String compare( final String dir, String file, Content actual,
+			File actualFile ) throws IOException {
+		long start = Timings.start();
+		final String stored = GOLDENS.stored( dir, file );
+		if( stored == null ) {
+			throw new NoSuchFileException(
+					new File( new File( Dir.EXPECT.path, dir ), file ).getPath() );
+		}
+		Manifest.Entry known = GOLDENS.manifest( dir ).get( stored );
+		Timings.stop( Phase.EXPECT_IO, start );
+
+		// compare against the manifest first, to save reading the file
+		if( known != null ) {
+			start = Timings.start();
+			HashingWriter hw = new HashingWriter();
+			actual.write( hw );
+			hw.close();
+			Timings.stop( Phase.EXPECT_COMPARE, start );
+
+			if( known.matches( hw ) ) {
+				return null;
+			}
+		}
+
+		// compare the file
+		start = Timings.start();
+		ComparingWriter cmp;
+		if( stored.endsWith( GoldenStore.GZ ) ) {
+			cmp = new ComparingWriter( new ComparingWriter.Source() {
+				@Override
+				public InputStream open() throws IOException {
+					return GOLDENS.open( dir, stored );
+				}
+			} );
+		}
+		else {
+			cmp = new ComparingWriter( GOLDENS.buffer( dir, stored ) );
+		}
+		Timings.stop( Phase.EXPECT_IO, start );
+
+		start = Timings.start();
+		try {
+			actual.write( cmp );
+		}
+		finally {
+			cmp.close();
+		}
+		Timings.stop( Phase.EXPECT_COMPARE, start );
+
+		if( cmp.matched() ) {
+			if( known == null ) {
+				// so that next time we needn't read the file
+				start = Timings.start();
+				GOLDENS.remember( dir, stored,
+						Manifest.Entry.of( GOLDENS.content( dir, stored ) ) );
+				Timings.stop( Phase.EXPECT_IO, start );
+			}
+			return null;
+		}
+
+		// an expectation has been broken - save the actual result for manual
+		// analysis
+		byte[] result = cmp.actual();
+		ByteBuffer golden = GOLDENS.content( dir, stored );
+
+		start = Timings.start();
+		String diff = LineDiff.unified( golden, ByteBuffer.wrap( result ) );
+		Timings.stop( Phase.EXPECT_COMPARE, start );
+
+		return failure( dir, file, actualFile, result, diff, true );
+	}
+
+	/**
+	 * @return <code>true</code> if results are being regenerated rather than
+	 *         checked
+	 */
+	protected boolean regenerating() {
+		return regenerate;
+	}
 
+	/**
+	 * Writes a new expected result, under the current result name
+	 *
+	 * @param content
+	 *          the result
+	 * @throws IOException
+	 *           if the existing manifest can't be read
+	 */
+	protected void regenerated( byte[] content ) throws IOException {
+		long start = Timings.start();
+		try {
+			pending.add( GOLDENS.write( classDir(), resultName() + suffix, content,
+					compress ) );
+		}
+		finally {
+			Timings.stop( Phase.EXPECT_IO, start );
+		}
+	}
+
+	/**
+	 * @return the expected result under the current result name, decompressed
+	 *         if need be
+	 * @throws NoSuchFileException
+	 *           if there is no such result
+	 * @throws IOException
+	 *           if the result can't be read
+	 */
+	protected ByteBuffer expected() throws IOException {
+		long start = Timings.start();
+		try {
+			String stored = GOLDENS.stored( classDir(), resultName() + suffix );
+			if( stored == null ) {
+				throw new NoSuchFileException( getFile( Dir.EXPECT ).getPath() );
+			}
+			return GOLDENS.content( classDir(), stored );
+		}
+		finally {
+			Timings.stop( Phase.EXPECT_IO, start );
+		}
+	}
+
+	/**
+	 * Records a broken expectation. The actual result is saved for manual
+	 * analysis, and the test will fail when it finishes
+	 *
+	 * @param actual
+	 *          the actual result
+	 * @param diff
+	 *          a readable description of the differences, to be saved next to
+	 *          the actual result with a ".diff" suffix, or <code>null</code>
+	 */
+	protected void broken( byte[] actual, String diff ) {
+		broken( actual, diff, false );
+	}
+
+	/**
+	 * As {@link #broken(byte[], String)}
+	 *
+	 * @param actual
+	 *          the actual result
+	 * @param diff
+	 *          a readable description of the differences, or <code>null</code>
+	 * @param report
+	 *          <code>true</code> to include the differences in the failure
+	 *          message as well. They should be reasonably short
+	 */
+	protected void broken( byte[] actual, String diff, boolean report ) {
+		// signal failure. SoftAssertions doesn't have a fail method
+		softly.assertThat( failure( classDir(), resultName() + suffix,
+				getFile( Dir.ACTUAL ), actual, diff, report ) )
+				.isEqualTo( "Files matched" );
+	}
+
+	/**
+	 * Saves a broken result, and its differences, in the background
+	 *
+	 * @return a description of the failure
+	 */
+	private String failure( String dir, String file, File f, byte[] actual,
+			String diff, boolean report ) {
+		String stored = GOLDENS.stored( dir, file );
+		File expect = new File( new File( Dir.EXPECT.path, dir ),
+				stored == null ? file : stored );
+		// zdiff copes with the expectation being compressed
+		String failure = ( stored != null && stored.endsWith( GoldenStore.GZ )
+				? "zdiff "
+				: "diff " ) + expect + " " + f;
+
+		long start = Timings.start();
+		pending.add( ResultWriter.shared().write( f, actual ) );
+		if( diff != null ) {
+			File d = new File( f.getPath() + ".diff" );
+			pending.add( ResultWriter.shared().write( d, diff.getBytes() ) );
+			failure += " (differences in " + d + ")";
+			if( report ) {
+				failure += "\n" + diff;
+			}
+		}
+		Timings.stop( Phase.EXPECT_IO, start );
+
+		return failure;
+	}
+
+	/**
+	 * @return the result directory of the test class, relative to a {@link Dir}
+	 */
+	private String classDir() {
 		assert testClass != null : "You've failed to @Rule the Expect object";
-		for( String s : testClass.split( "\\." ) ) {
-			path.append( "/" ).append( s );
+		String dir = CLASS_DIRS.get( testClass );
+		if( dir == null ) {
+			dir = testClass.replace( '.', '/' );
+			CLASS_DIRS.put( testClass, dir );
 		}
+		return dir;
+	}
 
-		return new File( path.toString() );
+	private File getTestDir( Dir type ) {
+		return new File( type.path, classDir() );
 	}
 
 	private File getFile( Dir type ) {
@@ -214,17 +619,101 @@ public abstract class AbstractExpect<T extends AbstractExpect<T>> extends
 		return (T) this;
 	}
 
-	private static boolean deleteEmptyDirs( File f ) {
-		if( f.isDirectory() ) {
-			boolean success = true;
-			for( File g : f.listFiles() ) {
-				success &= deleteEmptyDirs( g );
+	/**
+	 * @param d
+	 *          a test
+	 * @return <code>true</code> if the test's results should be regenerated
+	 */
+	static boolean regenerate( Description d ) {
+		if( REGENERATE_ALL ) {
+			return true;
+		}
+		String key = d.getClassName() + "#" + d.getMethodName();
+		Boolean r = REGEN_TESTS.get( key );
+		if( r == null ) {
+			r = Boolean.valueOf( lookup( d ) );
+			REGEN_TESTS.put( key, r );
+		}
+		return r.booleanValue();
+	}
+
+	private static boolean lookup( Description d ) {
+		Class<?> c = d.getTestClass();
+		if( c == null ) {
+			try {
+				c = Class.forName( d.getClassName() );
+			}
+			catch( ClassNotFoundException e ) {
+				e.printStackTrace();
+				return false;
 			}
-			return success && f.delete();
 		}
-		else {
-			return false;
+
+		Boolean r = REGEN_CLASSES.get( c );
+		if( r == null ) {
+			r = Boolean.valueOf( c.isAnnotationPresent( Regenerate.class )
+					|| c.getPackage() != null
+					&& c.getPackage().isAnnotationPresent( Regenerate.class ) );
+			REGEN_CLASSES.put( c, r );
+		}
+		if( r.booleanValue() || d.getAnnotation( Regenerate.class ) != null ) {
+			return true;
+		}
+
+		if( d.getAnnotations().isEmpty() && d.getMethodName() != null ) {
+			// the runner didn't tell us about the method's annotations, so go and
+			// look. Parameterised tests are named "method[parameters]"
+			String name = d.getMethodName();
+			if( name.indexOf( '[' ) > 0 ) {
+				name = name.substring( 0, name.indexOf( '[' ) );
+			}
+			Method m = method( c, name );
+			return m != null && m.isAnnotationPresent( Regenerate.class );
 		}
+		return false;
+	}
+
+	/**
+	 * @param c
+	 *          a test class
+	 * @param name
+	 *          the name of a test method
+	 * @return the method that JUnit would run: the nearest one without
+	 *         parameters, or else the only one with that name.
+	 *         <code>null</code> if there is none, or if the name is overloaded
+	 *         and we can't tell which is meant
+	 */
+	private static Method method( Class<?> c, String name ) {
+		Method only = null;
+		for( Class<?> k = c; k != null; k = k.getSuperclass() ) {
+			for( Method m : k.getDeclaredMethods() ) {
+				if( !m.getName().equals( name ) || m.isBridge() ) {
+					continue;
+				}
+				if( m.getParameterTypes().length == 0 ) {
+					return m;
+				}
+				if( only != null ) {
+					return null;
+				}
+				only = m;
+			}
+		}
+		return only;
+	}
+
+	/**
+	 * Produces a result, so that it can be compared as it is written. The result
+	 * may be asked for more than once, and must be the same each time
+	 */
+	public static interface Content {
+		/**
+		 * @param out
+		 *          where to write the result
+		 * @throws IOException
+		 *           if writing fails
+		 */
+		public void write( Appendable out ) throws IOException;
 	}
 
 	/**
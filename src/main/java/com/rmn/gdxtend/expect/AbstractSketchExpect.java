@@ -1,9 +1,15 @@
 package com.rmn.gdxtend.expect;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.jfree.graphics2d.svg.SVGGraphics2D;
 
+import com.rmn.gdxtend.Timings;
+import com.rmn.gdxtend.Timings.Phase;
+
 /**
  * Supports tests where the result is a drawing
  *
@@ -38,7 +44,15 @@ public class AbstractSketchExpect<T extends AbstractSketchExpect<T>> extends
 	 *          the sketch
 	 */
 	public void check( SVGGraphics2D g ) {
-		super.check( pretty( g.getSVGDocument() ) );
+		long start = Timings.start();
+		final String svg = g.getSVGDocument();
+		Timings.stop( Phase.SVG, start );
+		check( new Content() {
+			@Override
+			public void write( Appendable out ) throws IOException {
+				pretty( svg, out );
+			}
+		} );
 	}
 
 	/**
@@ -49,41 +63,195 @@ public class AbstractSketchExpect<T extends AbstractSketchExpect<T>> extends
 	 * @return indented xml
 	 */
 	protected static String pretty( String xml ) {
-		// strip comments
-		xml = xml.replaceAll( "<!--.*-->", "" );
-		// add newlines between adjacent tags
-		xml = xml.replaceAll( "><", ">\n<" );
-		// indent
 		StringBuilder sb = new StringBuilder();
-		int indent = 0;
-		for( String line : xml.split( "\n" ) ) {
-			if( line.endsWith( "/>" )
-					|| line.startsWith( "<!" ) || line.startsWith( "<?" )
-					|| line.matches( "<(.*?)\\s.*?>.*?</\\1>" ) ) {
-				// standalone tag, declarations, element
-				indent( indent, sb );
-				sb.append( line ).append( "\n" );
+		try {
+			pretty( xml, sb );
+		}
+		catch( IOException ioe ) {
+			// StringBuilder doesn't do that
+			throw new IllegalStateException( ioe );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * As {@link #pretty(String)}, but the indented xml is written out line by
+	 * line as the input is scanned, rather than being built up in full
+	 *
+	 * @param xml
+	 *          unindented xml
+	 * @param out
+	 *          destination for the indented xml
+	 * @throws IOException
+	 *           if writing fails
+	 */
+	protected static void pretty( CharSequence xml, Appendable out )
+			throws IOException {
+		Indenter in = new Indenter( out );
+		int from = 0;
+		while( from <= xml.length() ) {
+			int eol = from;
+			while( eol < xml.length() && !terminates( xml.charAt( eol ) ) ) {
+				eol++;
+			}
+
+			// strip comments: from the first opening to the last close
+			int open = indexOf( xml, "<!--", from, eol );
+			int close = open < 0 ? -1 : lastIndexOf( xml, "-->", open + 4, eol );
+			if( close < 0 ) {
+				in.scan( xml, from, eol );
+			}
+			else {
+				in.scan( xml, from, open );
+				in.scan( xml, close + 3, eol );
+			}
+
+			if( eol == xml.length() || xml.charAt( eol ) == '\n' ) {
+				in.line();
+			}
+			else {
+				// a comment can't span it, but it doesn't break the line
+				in.scan( xml, eol, eol + 1 );
+			}
+			from = eol + 1;
+		}
+		in.finish();
+	}
+
+	/**
+	 * @return <code>true</code> for the characters that <code>.</code> doesn't
+	 *         match in a regular expression
+	 */
+	private static boolean terminates( char c ) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+				|| c == '\u2029';
+	}
+
+	private static int indexOf( CharSequence cs, String s, int from, int to ) {
+		for( int i = from; i + s.length() <= to; i++ ) {
+			if( startsWith( cs, s, i ) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf( CharSequence cs, String s, int from,
+			int to ) {
+		for( int i = to - s.length(); i >= from; i-- ) {
+			if( startsWith( cs, s, i ) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean startsWith( CharSequence cs, String s, int at ) {
+		if( at < 0 || at + s.length() > cs.length() ) {
+			return false;
+		}
+		for( int i = 0; i < s.length(); i++ ) {
+			if( cs.charAt( at + i ) != s.charAt( i ) ) {
+				return false;
 			}
-			else if( line.startsWith( "</" ) ) {
+		}
+		return true;
+	}
+
+	/**
+	 * Breaks xml into lines between adjacent tags, and indents each line as it
+	 * is completed
+	 */
+	private static final class Indenter {
+		private static final Pattern ELEMENT =
+				Pattern.compile( "<(.*?)\\s.*?>.*?</\\1>" );
+
+		private final Appendable out;
+		private final StringBuilder line = new StringBuilder();
+		private final Matcher element = ELEMENT.matcher( line );
+		private int indent = 0;
+		private char last = 0;
+
+		/**
+		 * Empty lines held back, as trailing ones are dropped
+		 */
+		private int empty = 0;
+		private int lines = 0;
+
+		private Indenter( Appendable out ) {
+			this.out = out;
+		}
+
+		private void scan( CharSequence xml, int from, int to )
+				throws IOException {
+			for( int i = from; i < to; i++ ) {
+				char c = xml.charAt( i );
+				if( c == '<' && last == '>' ) {
+					line();
+				}
+				line.append( c );
+				last = c;
+			}
+		}
+
+		/**
+		 * Ends the current line
+		 */
+		private void line() throws IOException {
+			lines++;
+			last = 0;
+			if( line.length() == 0 ) {
+				empty++;
+				return;
+			}
+			for( ; empty > 0; empty-- ) {
+				write( "", false );
+			}
+			write( line, endsWith( line, "/>" )
+					|| startsWith( line, "<!", 0 ) || startsWith( line, "<?", 0 )
+					|| element.reset().matches() );
+			line.setLength( 0 );
+		}
+
+		/**
+		 * @param standalone
+		 *          <code>true</code> for a standalone tag, declaration or
+		 *          element, <code>false</code> to open or close a block
+		 */
+		private void write( CharSequence text, boolean standalone )
+				throws IOException {
+			if( !standalone && startsWith( text, "</", 0 ) ) {
 				// block close
 				indent--;
-				indent( indent, sb );
-				sb.append( line ).append( "\n" );
+				indent( indent, out );
+				out.append( text ).append( "\n" );
 			}
 			else {
-				// block open
-				indent( indent, sb );
-				sb.append( line ).append( "\n" );
-				indent++;
+				indent( indent, out );
+				out.append( text ).append( "\n" );
+				if( !standalone ) {
+					// block open
+					indent++;
+				}
 			}
 		}
 
-		return sb.toString();
+		private void finish() throws IOException {
+			if( lines == 1 && empty == 1 ) {
+				// empty xml is one empty line, but otherwise empty lines at the
+				// end are dropped
+				write( "", false );
+			}
+		}
+
+		private static boolean endsWith( CharSequence cs, String s ) {
+			return startsWith( cs, s, cs.length() - s.length() );
+		}
 	}
 
-	private static void indent( int d, StringBuilder sb ) {
+	private static void indent( int d, Appendable out ) throws IOException {
 		for( int i = 0; i < d; i++ ) {
-			sb.append( "  " );
+			out.append( "  " );
 		}
 	}
 }
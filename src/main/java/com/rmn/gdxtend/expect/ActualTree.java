@@ -0,0 +1,121 @@
+package com.rmn.gdxtend.expect;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the actual results left over from previous runs. Each
+ * directory is listed once, the first time a test in it starts, and a test's
+ * leftovers are deleted from that listing as it starts, so results written
+ * during this run are never mistaken for leftovers. Empty directories are
+ * pruned once, when the JVM exits and results are no longer being written.
+ * <p>
+ * Thread-safe.
+ */
+final class ActualTree {
+
+	private final File root;
+
+	private final ConcurrentHashMap<String, Set<String>> leftovers =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * @param root
+	 *          the directory of actual results
+	 */
+	ActualTree( File root ) {
+		this.root = root;
+	}
+
+	/**
+	 * Builds a tree whose empty directories are pruned when the JVM exits, once
+	 * the {@link ResultWriter} has finished writing results into them
+	 *
+	 * @param root
+	 *          the directory of actual results
+	 * @return the tree
+	 */
+	static ActualTree open( File root ) {
+		final ActualTree at = new ActualTree( root );
+		ResultWriter.shared().atExit( new Runnable() {
+			@Override
+			public void run() {
+				at.prune();
+			}
+		} );
+		return at;
+	}
+
+	/**
+	 * Deletes leftover results
+	 *
+	 * @param dir
+	 *          the directory of the results, relative to the root, with '/'
+	 *          separators
+	 * @param prefix
+	 *          the leading part of the names of the results to delete
+	 * @return the number of results deleted
+	 */
+	int clean( String dir, String prefix ) {
+		Set<String> s = leftovers( dir );
+		int deleted = 0;
+		if( !s.isEmpty() ) {
+			for( Iterator<String> it = s.iterator(); it.hasNext(); ) {
+				String name = it.next();
+				if( name.startsWith( prefix ) ) {
+					it.remove();
+					if( new File( root, dir + "/" + name ).delete() ) {
+						deleted++;
+					}
+				}
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * Deletes every empty directory in the tree, including the root
+	 */
+	void prune() {
+		deleteEmptyDirs( root );
+	}
+
+	private Set<String> leftovers( String dir ) {
+		Set<String> s = leftovers.get( dir );
+		if( s == null ) {
+			s = ConcurrentHashMap.newKeySet();
+			File[] files = new File( root, dir ).listFiles();
+			if( files != null ) {
+				for( File f : files ) {
+					if( f.isFile() ) {
+						s.add( f.getName() );
+					}
+				}
+			}
+			if( s.isEmpty() ) {
+				s = Collections.emptySet();
+			}
+			Set<String> race = leftovers.putIfAbsent( dir, s );
+			if( race != null ) {
+				s = race;
+			}
+		}
+		return s;
+	}
+
+	private static boolean deleteEmptyDirs( File f ) {
+		if( f.isDirectory() ) {
+			boolean success = true;
+			for( File g : f.listFiles() ) {
+				success &= deleteEmptyDirs( g );
+			}
+			return success && f.delete();
+		}
+		else {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,415 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+
+import com.rmn.gdxtend.Timings;
+import com.rmn.gdxtend.Timings.Phase;
+
+/**
+ * A {@link Rule} for checking numeric arrays, such as vertex and index data,
+ * without turning them into text first. Results are stored in a compact binary
+ * form in files with ".array" suffix, and can be compared within a tolerance.
+ * When a result doesn't match, a readable list of the differing elements is
+ * saved next to the actual result.
+ */
+public class ArrayExpect extends AbstractExpect<ArrayExpect> {
+
+	/**
+	 * "GDXA"
+	 */
+	static final int MAGIC = 0x47445841;
+
+	/**
+	 * Magic, element type, element count
+	 */
+	static final int HEADER = 9;
+
+	/**
+	 * We list no more than this many differences
+	 */
+	static final int MAX_DIFFERENCES = 1000;
+
+	private int ulps = 0;
+	private double absolute = 0;
+
+	/**
+	 * Constructs a new {@link ArrayExpect} {@link Rule}
+	 */
+	public ArrayExpect() {
+		super( ".array" );
+	}
+
+	/**
+	 * @param ulps
+	 *          The number of representable floats that the next check may
+	 *          differ by for each element
+	 * @return this
+	 */
+	public ArrayExpect ulps( int ulps ) {
+		this.ulps = ulps;
+		return self();
+	}
+
+	/**
+	 * @param absolute
+	 *          The amount that the next check may differ by for each element
+	 * @return this
+	 */
+	public ArrayExpect within( double absolute ) {
+		this.absolute = absolute;
+		return self();
+	}
+
+	@Override
+	protected ArrayExpect reset() {
+		ulps = 0;
+		absolute = 0;
+		return super.reset();
+	}
+
+	/**
+	 * @param actual
+	 *          the result
+	 */
+	public void check( float[] actual ) {
+		check( Elements.of( actual ) );
+	}
+
+	/**
+	 * @param actual
+	 *          the result
+	 */
+	public void check( short[] actual ) {
+		check( Elements.of( actual ) );
+	}
+
+	/**
+	 * @param actual
+	 *          the result, from position to limit. The buffer is not modified
+	 */
+	public void check( ByteBuffer actual ) {
+		check( Elements.of( actual ) );
+	}
+
+	private void check( Elements actual ) {
+		try {
+			if( regenerating() ) {
+				regenerated( actual.encode() );
+			}
+			else {
+				ByteBuffer golden = expected();
+
+				long start = Timings.start();
+				String diff = differences( actual, golden );
+				Timings.stop( Phase.EXPECT_COMPARE, start );
+
+				if( diff != null ) {
+					broken( actual.encode(), diff );
+				}
+			}
+		}
+		catch( IOException ioe ) {
+			fail( "error checking result", ioe );
+		}
+
+		reset();
+	}
+
+	/**
+	 * @param actual
+	 *          a result
+	 * @param golden
+	 *          an encoded result, from position to limit
+	 * @return <code>null</code> if they match to within the tolerance, otherwise
+	 *         a readable description of the differences
+	 */
+	String differences( Elements actual, ByteBuffer golden ) {
+		ByteBuffer g = golden.slice();
+		if( g.remaining() < HEADER || g.getInt( 0 ) != MAGIC ) {
+			return "# expected result is not an array\n";
+		}
+		Elements.Type type = Elements.Type.of( g.get( 4 ) );
+		int count = g.getInt( 5 );
+		if( type == null || g.remaining() < HEADER + (long) count * type.width ) {
+			return "# expected result is truncated\n";
+		}
+
+		StringBuilder sb = new StringBuilder();
+		boolean matched = true;
+		if( type != actual.type || count != actual.count ) {
+			sb.append( "# expected " ).append( count ).append( ' ' )
+					.append( type ).append( ", actual " ).append( actual.count )
+					.append( ' ' ).append( actual.type ).append( '\n' );
+			matched = false;
+		}
+
+		int differing = 0;
+		double worst = 0;
+		if( type == actual.type ) {
+			sb.append( "# index\texpected\tactual\tdifference\n" );
+			for( int i = 0; i < Math.min( count, actual.count ); i++ ) {
+				double e = type.get( g, HEADER, i );
+				double a = actual.get( i );
+				if( !close( type, e, a ) ) {
+					boolean nan = Double.isNaN( a - e );
+					differing++;
+					if( !nan ) {
+						worst = Math.max( worst, Math.abs( a - e ) );
+					}
+					if( differing <= MAX_DIFFERENCES ) {
+						sb.append( i ).append( '\t' ).append( type.format( e ) )
+								.append( '\t' ).append( type.format( a ) ).append( '\t' )
+								.append( a - e );
+						if( type == Elements.Type.FLOAT && !nan ) {
+							sb.append( " (" ).append( ulps( (float) e, (float) a ) )
+									.append( " ulps)" );
+						}
+						sb.append( '\n' );
+					}
+				}
+			}
+		}
+
+		if( differing > 0 ) {
+			if( differing > MAX_DIFFERENCES ) {
+				sb.append( "# ... and " ).append( differing - MAX_DIFFERENCES )
+						.append( " more\n" );
+			}
+			sb.append( "# " ).append( differing ).append( " of " )
+					.append( Math.min( count, actual.count ) )
+					.append( " elements differ by more than " ).append( ulps )
+					.append( " ulps and " ).append( absolute )
+					.append( ", by up to " ).append( worst ).append( '\n' );
+			matched = false;
+		}
+
+		return matched ? null : sb.toString();
+	}
+
+	private boolean close( Elements.Type type, double e, double a ) {
+		if( e == a ) {
+			return true;
+		}
+		if( type == Elements.Type.FLOAT ) {
+			float fe = (float) e, fa = (float) a;
+			if( Float.isNaN( fe ) || Float.isNaN( fa ) ) {
+				return Float.isNaN( fe ) && Float.isNaN( fa );
+			}
+			if( ulps( fe, fa ) <= ulps ) {
+				return true;
+			}
+		}
+		return Math.abs( a - e ) <= absolute;
+	}
+
+	/**
+	 * @param a
+	 *          a float
+	 * @param b
+	 *          another float
+	 * @return The number of representable floats between them
+	 */
+	static long ulps( float a, float b ) {
+		return Math.abs( ordered( a ) - ordered( b ) );
+	}
+
+	/**
+	 * @return float bits mapped so that they sort in the same order as the floats
+	 */
+	private static long ordered( float f ) {
+		int bits = Float.floatToIntBits( f );
+		return bits < 0 ? (long) Integer.MIN_VALUE - bits : bits;
+	}
+
+	/**
+	 * A typed sequence of numbers
+	 */
+	static abstract class Elements {
+
+		/**
+		 * The types of element that we can store
+		 */
+		static enum Type {
+			/**
+			 * 32-bit floats
+			 */
+			FLOAT( 1, 4 ) {
+				@Override
+				double get( ByteBuffer bb, int offset, int i ) {
+					return bb.getFloat( offset + 4 * i );
+				}
+
+				@Override
+				String format( double d ) {
+					return String.valueOf( (float) d );
+				}
+			},
+			/**
+			 * Signed 16-bit integers
+			 */
+			SHORT( 2, 2 ) {
+				@Override
+				double get( ByteBuffer bb, int offset, int i ) {
+					return bb.getShort( offset + 2 * i );
+				}
+			},
+			/**
+			 * Bytes, compared as unsigned
+			 */
+			BYTE( 3, 1 ) {
+				@Override
+				double get( ByteBuffer bb, int offset, int i ) {
+					return bb.get( offset + i ) & 0xff;
+				}
+			};
+
+			/**
+			 * Stored in the header
+			 */
+			final byte id;
+
+			/**
+			 * Bytes per element
+			 */
+			final int width;
+
+			private Type( int id, int width ) {
+				this.id = (byte) id;
+				this.width = width;
+			}
+
+			/**
+			 * @param bb
+			 *          encoded elements
+			 * @param offset
+			 *          the index of the first element
+			 * @param i
+			 *          an element index
+			 * @return the element
+			 */
+			abstract double get( ByteBuffer bb, int offset, int i );
+
+			/**
+			 * @param d
+			 *          an element
+			 * @return a readable form of the element
+			 */
+			String format( double d ) {
+				return String.valueOf( (long) d );
+			}
+
+			/**
+			 * @param id
+			 *          a type id
+			 * @return the type, or <code>null</code> if it is unknown
+			 */
+			static Type of( byte id ) {
+				for( Type t : values() ) {
+					if( t.id == id ) {
+						return t;
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public String toString() {
+				return name().toLowerCase();
+			}
+		}
+
+		final Type type;
+		final int count;
+
+		Elements( Type type, int count ) {
+			this.type = type;
+			this.count = count;
+		}
+
+		/**
+		 * @param i
+		 *          an element index
+		 * @return that element
+		 */
+		abstract double get( int i );
+
+		/**
+		 * @param bb
+		 *          where to put every element, big-endian
+		 */
+		abstract void put( ByteBuffer bb );
+
+		/**
+		 * @return the elements in the stored form
+		 */
+		byte[] encode() {
+			ByteBuffer bb = ByteBuffer.allocate( HEADER + count * type.width );
+			bb.putInt( MAGIC ).put( type.id ).putInt( count );
+			put( bb );
+			return bb.array();
+		}
+
+		/**
+		 * @param f
+		 *          floats
+		 * @return those elements
+		 */
+		static Elements of( final float[] f ) {
+			return new Elements( Type.FLOAT, f.length ) {
+				@Override
+				double get( int i ) {
+					return f[ i ];
+				}
+
+				@Override
+				void put( ByteBuffer bb ) {
+					bb.asFloatBuffer().put( f );
+				}
+			};
+		}
+
+		/**
+		 * @param s
+		 *          shorts
+		 * @return those elements
+		 */
+		static Elements of( final short[] s ) {
+			return new Elements( Type.SHORT, s.length ) {
+				@Override
+				double get( int i ) {
+					return s[ i ];
+				}
+
+				@Override
+				void put( ByteBuffer bb ) {
+					bb.asShortBuffer().put( s );
+				}
+			};
+		}
+
+		/**
+		 * @param b
+		 *          bytes, from position to limit
+		 * @return those elements
+		 */
+		static Elements of( ByteBuffer b ) {
+			final ByteBuffer d = b.slice();
+			return new Elements( Type.BYTE, d.remaining() ) {
+				@Override
+				double get( int i ) {
+					return d.get( i ) & 0xff;
+				}
+
+				@Override
+				void put( ByteBuffer bb ) {
+					bb.put( d.duplicate() );
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.rmn.gdxtend.expect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares the characters written to it against expected bytes as they
+ * arrive, so the actual result never needs to be held in full. Comparison
+ * stops at the first differing byte: from then on the remaining output is
+ * buffered, so that the actual result can be reconstructed from the matching
+ * prefix of the expectation and the buffered remainder.
+ * <p>
+ * The expected bytes can be held in a buffer or read from a stream, such as
+ * that of a compressed file.
+ */
+class ComparingWriter extends EncodingWriter {
+
+	/**
+	 * Somewhere that expected bytes can be read from, as often as needed
+	 */
+	static interface Source {
+		/**
+		 * @return a new stream of the expected bytes
+		 * @throws IOException
+		 *           if the stream can't be opened
+		 */
+		InputStream open() throws IOException;
+	}
+
+	/**
+	 * Expected bytes held in full, or <code>null</code> if we're streaming
+	 */
+	private final ByteBuffer origin;
+
+	private final Source source;
+	private InputStream in;
+
+	/**
+	 * The expected bytes that are yet to be compared
+	 */
+	private ByteBuffer window;
+
+	private long matched = 0;
+
+	/**
+	 * The number of bytes that matched, or -1 if we haven't found a mismatch
+	 */
+	private long mismatch = -1;
+
+	/**
+	 * Output after the mismatch
+	 */
+	private ByteArrayOutputStream rest;
+
+	/**
+	 * @param expected
+	 *          the expected bytes, from the current position to the limit, or
+	 *          <code>null</code> if there are none. This buffer is not modified
+	 */
+	ComparingWriter( ByteBuffer expected ) {
+		source = null;
+		if( expected == null ) {
+			origin = ByteBuffer.allocate( 0 );
+			mismatch = 0;
+			rest = new ByteArrayOutputStream();
+		}
+		else {
+			origin = expected.slice();
+		}
+		window = origin.duplicate();
+	}
+
+	/**
+	 * @param expected
+	 *          the expected bytes. A stream is opened straight away, and again
+	 *          if the actual result has to be reconstructed
+	 * @throws IOException
+	 *           if the stream can't be opened
+	 */
+	ComparingWriter( Source expected ) throws IOException {
+		origin = null;
+		source = expected;
+		in = expected.open();
+		window = ByteBuffer.allocate( BUFFER );
+		window.limit( 0 );
+	}
+
+	/**
+	 * @return <code>true</code> if everything written so far matches the
+	 *         expectation. Once closed, <code>true</code> if the whole result
+	 *         matched
+	 */
+	boolean matched() {
+		return mismatch < 0;
+	}
+
+	/**
+	 * @return the offset of the first differing byte, or -1 if everything
+	 *         matched
+	 */
+	long mismatch() {
+		return mismatch;
+	}
+
+	/**
+	 * @return the complete actual result
+	 * @throws IOException
+	 *           if the expected bytes have to be read again, and can't be
+	 */
+	byte[] actual() throws IOException {
+		long prefix = mismatch < 0 ? matched : mismatch;
+		int restSize = rest == null ? 0 : rest.size();
+		if( prefix + restSize > Integer.MAX_VALUE ) {
+			throw new IOException( "Result too large" );
+		}
+
+		byte[] b = new byte[ (int) prefix + restSize ];
+		if( origin != null ) {
+			ByteBuffer e = origin.duplicate();
+			e.get( b, 0, (int) prefix );
+		}
+		else {
+			try( InputStream again = source.open() ) {
+				int read = 0;
+				while( read < prefix ) {
+					int n = again.read( b, read, (int) prefix - read );
+					if( n < 0 ) {
+						throw new EOFException( "Expected result has changed" );
+					}
+					read += n;
+				}
+			}
+		}
+		if( rest != null ) {
+			byte[] r = rest.toByteArray();
+			System.arraycopy( r, 0, b, (int) prefix, r.length );
+		}
+		return b;
+	}
+
+	@Override
+	protected void consume( ByteBuffer encoded ) throws IOException {
+		while( mismatch < 0 && encoded.hasRemaining() ) {
+			if( !window.hasRemaining() && !refill() ) {
+				// the actual result is longer than the expectation
+				mismatched();
+				break;
+			}
+			int e = window.position();
+			int p = encoded.position();
+			int n = Math.min( encoded.remaining(), window.remaining() );
+			int i = 0;
+			while( i < n && window.get( e + i ) == encoded.get( p + i ) ) {
+				i++;
+			}
+			window.position( e + i );
+			encoded.position( p + i );
+			matched += i;
+			if( i < n ) {
+				mismatched();
+			}
+		}
+		if( encoded.hasRemaining() ) {
+			rest.write( encoded.array(), encoded.arrayOffset() + encoded.position(),
+					encoded.remaining() );
+		}
+	}
+
+	@Override
+	protected void finish() throws IOException {
+		try {
+			if( mismatch < 0 && ( window.hasRemaining() || refill() ) ) {
+				// the actual result is a prefix of the expectation
+				mismatched();
+			}
+		}
+		finally {
+			if( in != null ) {
+				in.close();
+				in = null;
+			}
+		}
+	}
+
+	private void mismatched() {
+		mismatch = matched;
+		rest = new ByteArrayOutputStream();
+	}
+
+	/**
+	 * @return <code>true</code> if there are more expected bytes in the window
+	 */
+	private boolean refill() throws IOException {
+		if( in == null ) {
+			return false;
+		}
+		int n;
+		do {
+			n = in.read( window.array(), 0, window.capacity() );
+		} while( n == 0 );
+		window.clear();
+		window.limit( Math.max( n, 0 ) );
+		return n > 0;
+	}
+}
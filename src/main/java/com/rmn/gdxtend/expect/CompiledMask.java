@@ -0,0 +1,902 @@
+package com.rmn.gdxtend.expect;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.rmn.gdxtend.expect.Mask.CaptureReplacement;
+import com.rmn.gdxtend.expect.Mask.Op;
+import com.rmn.gdxtend.expect.Mask.Replacement;
+
+/**
+ * A set of masking operations, compiled by {@link Mask#compile()}. It can't be
+ * changed, and can be shared between threads: strings captured while masking
+ * are kept apart for each input, and are not masked in later inputs.
+ */
+public final class CompiledMask {
+
+	/**
+	 * How many characters to read and mask at a time when streaming
+	 */
+	static final int CHUNK = 1 << 16;
+
+	/**
+	 * How many characters that have been passed on are kept for look-behinds
+	 * and word boundaries to see when streaming
+	 */
+	static final int CONTEXT = 1 << 8;
+
+	/**
+	 * The operations, grouped into passes
+	 */
+	private final List<Pass> passes;
+
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	CompiledMask( List<Op> operations ) {
+		passes = Collections.unmodifiableList( passes( operations ) );
+	}
+
+	/**
+	 * @return the number of passes made over the input
+	 */
+	int passes() {
+		return passes.size();
+	}
+
+	/**
+	 * Applies the masks
+	 *
+	 * @param in
+	 *          unmasked string
+	 * @return masked string
+	 */
+	public String apply( String in ) {
+		Scratch s = scratch.get();
+		try {
+			return apply( in, s );
+		}
+		finally {
+			s.forget( 0 );
+		}
+	}
+
+	/**
+	 * Applies the masks
+	 *
+	 * @param in
+	 *          unmasked string
+	 * @param s
+	 *          the strings captured so far, to which new captures are added
+	 * @return masked string
+	 */
+	String apply( String in, Scratch s ) {
+		String masked = in;
+		for( Pass p : passes ) {
+			if( p.single != null ) {
+				masked = p.single.apply( masked );
+				continue;
+			}
+
+			// find any new captures, and mask them from now on
+			for( CaptureReplacement c : p.captures ) {
+				c.discover( masked, s );
+			}
+			masked = p.rewrite( masked, s );
+		}
+		return masked;
+	}
+
+	/**
+	 * Applies the masks to text of any size, a chunk at a time. Masked text is
+	 * written as soon as more input can't change it, so little more than a
+	 * chunk is held at once unless a mask needs to look a long way ahead.
+	 * Matches that cross from one chunk to the next are masked as if the text
+	 * were whole, but a string captured in one chunk is only masked from that
+	 * chunk on, and look-behinds see no more than {@value #CONTEXT} characters
+	 * before a chunk.
+	 *
+	 * @param in
+	 *          unmasked text
+	 * @param out
+	 *          where to write the masked text
+	 * @throws IOException
+	 *           if the masked text can't be written
+	 */
+	public void apply( CharSequence in, Appendable out ) throws IOException {
+		Scratch s = scratch.get();
+		try {
+			apply( in, out, s );
+		}
+		finally {
+			s.forget( 0 );
+		}
+	}
+
+	/**
+	 * Applies the masks to text of any size, a chunk at a time - see
+	 * {@link #apply(CharSequence, Appendable)}
+	 *
+	 * @param in
+	 *          unmasked text
+	 * @param out
+	 *          where to write the masked text
+	 * @throws IOException
+	 *           if the text can't be read or written
+	 */
+	public void apply( Reader in, Appendable out ) throws IOException {
+		Scratch s = scratch.get();
+		try {
+			apply( in, out, s );
+		}
+		finally {
+			s.forget( 0 );
+		}
+	}
+
+	/**
+	 * Applies the masks to text as it is written, a chunk at a time - see
+	 * {@link #apply(CharSequence, Appendable)}. The masked text is complete
+	 * once the writer is closed. The writer must be used and closed on the
+	 * thread that asked for it
+	 *
+	 * @param out
+	 *          where to write the masked text
+	 * @return takes the unmasked text
+	 */
+	public Writer writer( Appendable out ) {
+		final Scratch s = scratch.get();
+		final Stage first = stages( out, s );
+		return new Writer() {
+			private boolean closed = false;
+
+			@Override
+			public void write( char[] cbuf, int off, int len ) throws IOException {
+				first.write( CharBuffer.wrap( cbuf ), off, off + len );
+			}
+
+			@Override
+			public void write( String str, int off, int len ) throws IOException {
+				first.write( str, off, off + len );
+			}
+
+			@Override
+			public Writer append( CharSequence csq ) throws IOException {
+				CharSequence c = csq == null ? "null" : csq;
+				first.write( c, 0, c.length() );
+				return this;
+			}
+
+			@Override
+			public Writer append( CharSequence csq, int start, int end )
+					throws IOException {
+				first.write( csq == null ? "null" : csq, start, end );
+				return this;
+			}
+
+			@Override
+			public void flush() {
+				// text is held until more can't change how it's masked
+			}
+
+			@Override
+			public void close() throws IOException {
+				if( !closed ) {
+					closed = true;
+					try {
+						first.finish();
+					}
+					finally {
+						s.forget( 0 );
+					}
+				}
+			}
+		};
+	}
+
+	void apply( CharSequence in, Appendable out, Scratch s )
+			throws IOException {
+		Stage first = stages( out, s );
+		for( int i = 0; i < in.length(); i += CHUNK ) {
+			first.write( in, i, Math.min( in.length(), i + CHUNK ) );
+		}
+		first.finish();
+	}
+
+	void apply( Reader in, Appendable out, Scratch s ) throws IOException {
+		Stage first = stages( out, s );
+		char[] b = new char[ CHUNK ];
+		int n;
+		while( ( n = in.read( b ) ) >= 0 ) {
+			first.write( CharBuffer.wrap( b ), 0, n );
+		}
+		first.finish();
+	}
+
+	/**
+	 * @return a stage for each pass, each feeding the next
+	 */
+	private Stage stages( Appendable out, Scratch s ) {
+		Stage next = null;
+		for( int i = passes.size() - 1; i >= 0; i-- ) {
+			next = new Stage( passes.get( i ), s, next, out );
+		}
+		return next != null ? next : new Stage( null, s, null, out );
+	}
+
+	/**
+	 * One pass over text that arrives a chunk at a time
+	 */
+	private static final class Stage {
+		private final Pass pass;
+		private final Scratch scratch;
+
+		/**
+		 * Where the masked text goes: the next stage, or the output if there
+		 * isn't one
+		 */
+		private final Stage next;
+		private final Appendable out;
+
+		private final StringBuilder buffer = new StringBuilder();
+		private final Matcher matcher;
+		private final Matcher[] capturers;
+		private final String[] captureStarts;
+
+		/**
+		 * Where each capture pattern carries on from, and how many matches it
+		 * has had
+		 */
+		private final int[] resume, counts;
+
+		/**
+		 * Where the text that hasn't been passed on starts
+		 */
+		private int pos = 0;
+
+		/**
+		 * Text from here on might be masked differently once there's more
+		 */
+		private int stop;
+
+		/**
+		 * How much unmasked text to gather before looking at it again
+		 */
+		private int threshold = CHUNK;
+
+		Stage( Pass pass, Scratch scratch, Stage next, Appendable out ) {
+			this.pass = pass;
+			this.scratch = scratch;
+			this.next = next;
+			this.out = out;
+
+			Pattern p = pass == null ? null
+					: pass.single != null ? pass.single.pattern : pass.combined;
+			matcher = p == null ? null : bounded( p.matcher( buffer ) );
+			int n = pass == null ? 0 : pass.captures.size();
+			capturers = new Matcher[ n ];
+			captureStarts = new String[ n ];
+			for( int i = 0; i < n; i++ ) {
+				Pattern c = pass.captures.get( i ).pattern;
+				capturers[ i ] = bounded( c.matcher( buffer ) );
+				captureStarts[ i ] = starts( c );
+			}
+			resume = new int[ n ];
+			counts = new int[ n ];
+		}
+
+		/**
+		 * Lets matches see the text either side of the region being searched,
+		 * which is what it would be if the text were whole
+		 */
+		private static Matcher bounded( Matcher m ) {
+			return m.useTransparentBounds( true ).useAnchoringBounds( false );
+		}
+
+		void write( CharSequence s, int start, int end ) throws IOException {
+			buffer.append( s, start, end );
+			if( buffer.length() - pos >= threshold ) {
+				process( false );
+				// don't search the same held-back text over and over
+				threshold = Math.max( CHUNK, 2 * ( buffer.length() - pos ) );
+			}
+		}
+
+		void finish() throws IOException {
+			process( true );
+			if( next != null ) {
+				next.finish();
+			}
+		}
+
+		/**
+		 * Masks and passes on as much of the text as can be
+		 *
+		 * @param end
+		 *          <code>true</code> if there's no more text to come
+		 */
+		private void process( boolean end ) throws IOException {
+			StringBuilder sb = new StringBuilder( buffer.length() - pos + 16 );
+			stop = buffer.length();
+			if( pass == null ) {
+				sb.append( buffer, pos, stop );
+				pos = stop;
+			}
+			else if( pass.single != null ) {
+				pos = single( end, sb );
+			}
+			else {
+				pos = combined( end, sb );
+			}
+
+			if( next != null ) {
+				next.write( sb, 0, sb.length() );
+			}
+			else {
+				out.append( sb );
+			}
+
+			int keep = pos;
+			for( int r : resume ) {
+				keep = Math.min( keep, r );
+			}
+			keep = Math.max( 0, keep - CONTEXT );
+			if( keep > 0 ) {
+				buffer.delete( 0, keep );
+				pos -= keep;
+				for( int i = 0; i < resume.length; i++ ) {
+					resume[ i ] -= keep;
+				}
+			}
+		}
+
+		/**
+		 * @return where the text that hasn't been passed on now starts
+		 */
+		private int single( boolean end, StringBuilder sb ) {
+			Matcher m = matcher;
+			m.region( pos, buffer.length() );
+			StringBuffer replaced = new StringBuffer();
+			int last = pos;
+			boolean found, any = false;
+			while( ( found = m.find() ) && ( end || !m.hitEnd() ) ) {
+				pass.single.append( m, replaced );
+				last = m.end();
+				any = true;
+			}
+			if( !end && m.hitEnd() ) {
+				stop = earliest( m, last, found ? m.start() : stop, pass.starts );
+			}
+
+			// the replacements were appended to all the text before them
+			if( any ) {
+				sb.append( replaced, pos, replaced.length() );
+			}
+			if( last < stop ) {
+				sb.append( buffer, last, stop );
+				last = stop;
+			}
+			return last;
+		}
+
+		/**
+		 * @return where the text that hasn't been passed on now starts
+		 */
+		private int combined( boolean end, StringBuilder sb ) {
+			int length = buffer.length();
+
+			// find any new captures, and mask them from now on
+			for( int i = 0; i < capturers.length; i++ ) {
+				Matcher c = capturers[ i ];
+				c.region( resume[ i ], length );
+				boolean found;
+				while( ( found = c.find() ) && ( end || !c.hitEnd() ) ) {
+					pass.captures.get( i ).capture( c, ++counts[ i ], scratch );
+					resume[ i ] = Math.min( length, c.end() > c.start() ? c.end()
+							: c.end() + 1 );
+				}
+				if( !end && c.hitEnd() ) {
+					resume[ i ] = earliest( c, resume[ i ], found ? c.start() : length,
+							captureStarts[ i ] );
+				}
+				else {
+					resume[ i ] = length;
+				}
+				stop = Math.min( stop, resume[ i ] );
+			}
+
+			Matcher m = matcher;
+			Literals.Scanner l = !pass.literals || scratch.literals.size() == 0
+					? null : scratch.literals.scanner( buffer );
+			int last = pos;
+			boolean mf = false, lf = false;
+			if( m != null ) {
+				m.region( last, length );
+				mf = safe( m, m.find(), last, end );
+			}
+			if( l != null ) {
+				lf = safe( l, last, end );
+			}
+
+			while( true ) {
+				boolean literal = lf && l.start() < stop
+						&& ( !mf || l.start() <= m.start() );
+				if( !literal && !( mf && m.start() < stop ) ) {
+					break;
+				}
+
+				if( literal ) {
+					sb.append( buffer, last, l.start() ).append( l.replacement() );
+					last = l.end();
+					// seen again, so it's remembered for longer
+					scratch.captured.get( l.key() );
+					lf = safe( l, last, end );
+					if( mf && m.start() < last ) {
+						m.region( last, length );
+						mf = safe( m, m.find(), last, end );
+					}
+					continue;
+				}
+
+				sb.append( buffer, last, m.start() );
+				int group = pass.first;
+				for( Replacement r : pass.alternatives ) {
+					if( m.start( group ) != -1 ) {
+						r.append( m, group, sb );
+						break;
+					}
+					group += r.groups;
+				}
+				last = m.end();
+				if( lf && l.start() < last ) {
+					lf = safe( l, last, end );
+				}
+				mf = safe( m, m.find(), last, end );
+			}
+
+			if( last < stop ) {
+				sb.append( buffer, last, stop );
+				last = stop;
+			}
+			return last;
+		}
+
+		/**
+		 * Checks that more text can't change what a matcher found
+		 *
+		 * @param m
+		 *          a matcher that has just searched
+		 * @param found
+		 *          what the search returned
+		 * @param from
+		 *          where the search started
+		 * @param end
+		 *          <code>true</code> if there's no more text to come
+		 * @return <code>true</code> if a match was found, and it's final
+		 */
+		private boolean safe( Matcher m, boolean found, int from, boolean end ) {
+			if( end || !m.hitEnd() ) {
+				return found;
+			}
+			stop = Math.min( stop, earliest( m, from,
+					found ? m.start() : buffer.length(), pass.starts ) );
+			return false;
+		}
+
+		/**
+		 * Looks for a captured string that more text can't change
+		 *
+		 * @return <code>true</code> if one was found
+		 */
+		private boolean safe( Literals.Scanner l, int from, boolean end ) {
+			boolean found = l.find( from );
+			if( !end && l.partial() != -1 ) {
+				stop = Math.min( stop, l.partial() );
+			}
+			return found;
+		}
+
+		/**
+		 * Finds where text that is held back should start. The matcher is reset
+		 *
+		 * @return the first position from which an attempt to match reads to the
+		 *         end of the text, and so might turn out differently with more of
+		 *         it, or <code>to</code> if there's none before that
+		 */
+		private int earliest( Matcher m, int from, int to, String starts ) {
+			int length = buffer.length();
+			for( int i = from; i < to; i++ ) {
+				if( starts != null && starts.indexOf( buffer.charAt( i ) ) == -1 ) {
+					continue;
+				}
+				m.region( i, length );
+				m.lookingAt();
+				if( m.hitEnd() ) {
+					return i;
+				}
+			}
+			return to;
+		}
+	}
+
+	/**
+	 * Strings that have been captured, with their replacements
+	 */
+	static final class Scratch {
+		/**
+		 * Least recently seen first
+		 */
+		final LinkedHashMap<String, String> captured =
+				new LinkedHashMap<>( 16, 0.75f, true );
+
+		/**
+		 * Finds the captured strings
+		 */
+		final Literals literals = new Literals();
+
+		boolean contains( String key ) {
+			return captured.get( key ) != null;
+		}
+
+		void put( String key, String replacement ) {
+			captured.put( key, replacement );
+			literals.put( key, replacement );
+		}
+
+		/**
+		 * Drops the least recently seen captures until there are few enough
+		 *
+		 * @param remembered
+		 *          how many to keep
+		 */
+		void forget( int remembered ) {
+			if( captured.size() > remembered ) {
+				Iterator<String> it = captured.keySet().iterator();
+				for( int n = captured.size() - remembered; n > 0; n-- ) {
+					literals.remove( it.next() );
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the operations, with runs of those that can be combined grouped
+	 *         into one pass
+	 */
+	private static List<Pass> passes( List<Op> operations ) {
+		// what strings captured by any of the operations can be, and what they
+		// are masked with
+		List<Language> capturing = new ArrayList<>();
+		List<String> replacements = new ArrayList<>();
+		for( Op op : operations ) {
+			if( op instanceof CaptureReplacement ) {
+				capturing.add( Language.of( op.pattern ) );
+				replacements.addAll( ( (CaptureReplacement) op ).replacements() );
+			}
+		}
+		Language captured = Language.captured( capturing );
+		Language numbered = Language.numbered( replacements );
+
+		List<Pass> l = new ArrayList<>();
+		Run run = new Run();
+		if( !capturing.isEmpty()
+				&& !( operations.get( 0 ) instanceof CaptureReplacement ) ) {
+			// strings captured from earlier inputs are masked first
+			run.add( null, numbered, captured );
+		}
+		for( Op op : operations ) {
+			if( op instanceof Replacement && !( (Replacement) op ).combinable() ) {
+				if( !run.isEmpty() ) {
+					l.add( run.pass() );
+					run = new Run();
+				}
+				l.add( new Pass( (Replacement) op ) );
+				continue;
+			}
+
+			Language matched = Language.of( op.pattern );
+			Language[] read;
+			Language written;
+			if( op instanceof CaptureReplacement ) {
+				read = new Language[] { matched, captured };
+				written = numbered;
+			}
+			else {
+				read = new Language[] { matched };
+				written = ( (Replacement) op ).written( matched );
+			}
+			if( !run.admits( read ) ) {
+				l.add( run.pass() );
+				run = new Run();
+			}
+			run.add( op, written, read );
+		}
+		if( !run.isEmpty() ) {
+			l.add( run.pass() );
+		}
+		return l;
+	}
+
+	/**
+	 * Operations that are gathered into one pass. They're only gathered where
+	 * that gives the same result as applying them one after another: none can
+	 * match where one before it matches, or in what one before it writes
+	 */
+	private static final class Run {
+		private final List<Op> ops = new ArrayList<>();
+		private final List<Language> read = new ArrayList<>();
+		private final List<Language> written = new ArrayList<>();
+
+		/**
+		 * Whether captured strings are masked in this pass
+		 */
+		private boolean literals;
+
+		boolean isEmpty() {
+			return written.isEmpty();
+		}
+
+		/**
+		 * @param matches
+		 *          the strings that an operation can match, with nulls for those
+		 *          that can't be told
+		 * @return <code>true</code> if the operation can be applied in this pass
+		 */
+		boolean admits( Language... matches ) {
+			if( isEmpty() ) {
+				return true;
+			}
+			for( Language m : matches ) {
+				if( m == null ) {
+					return false;
+				}
+				for( Language r : read ) {
+					if( r == null || m.overlaps( r ) ) {
+						return false;
+					}
+				}
+				for( Language w : written ) {
+					// writing nothing would bring text either side together
+					if( w == null || w.empty() || m.overlaps( w ) ) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @param op
+		 *          an operation, or null for the captured strings alone
+		 */
+		void add( Op op, Language writes, Language... matches ) {
+			if( op != null ) {
+				ops.add( op );
+			}
+			if( op == null || op instanceof CaptureReplacement ) {
+				literals = true;
+			}
+			written.add( writes );
+			for( Language m : matches ) {
+				read.add( m );
+			}
+		}
+
+		Pass pass() {
+			return new Pass( ops, literals );
+		}
+	}
+
+	/**
+	 * One pass over the input
+	 */
+	private static final class Pass {
+		/**
+		 * An operation that has a pass to itself, or null if this pass is
+		 * combined
+		 */
+		private final Replacement single;
+
+		private final List<CaptureReplacement> captures = new ArrayList<>();
+		private final List<Replacement> alternatives = new ArrayList<>();
+		private final Pattern combined;
+
+		/**
+		 * The characters that a match of {@link #combined}, or of the single
+		 * operation, can start with. Null if they can't be told
+		 */
+		private final String starts;
+
+		/**
+		 * The group that wraps the first alternative. A lone alternative isn't
+		 * wrapped, so that its literal prefix can still be searched for quickly
+		 */
+		private final int first;
+
+		/**
+		 * Whether captured strings are masked in this pass
+		 */
+		private final boolean literals;
+
+		Pass( Replacement single ) {
+			this.single = single;
+			literals = false;
+			combined = null;
+			starts = starts( single.pattern );
+			first = 0;
+		}
+
+		Pass( List<Op> ops, boolean literals ) {
+			single = null;
+			this.literals = literals;
+			for( Op op : ops ) {
+				if( op instanceof CaptureReplacement ) {
+					captures.add( (CaptureReplacement) op );
+				}
+				else {
+					alternatives.add( (Replacement) op );
+				}
+			}
+			starts = starts( alternatives );
+			if( alternatives.size() == 1 ) {
+				combined = alternatives.get( 0 ).pattern;
+				first = 0;
+			}
+			else {
+				combined = combine( alternatives, starts );
+				first = 1;
+			}
+		}
+
+		String rewrite( String input, Scratch scratch ) {
+			Matcher m = combined == null ? null : combined.matcher( input );
+			Literals.Scanner l = !literals || scratch.literals.size() == 0 ? null
+					: scratch.literals.scanner( input );
+			boolean mf = m != null && m.find();
+			boolean lf = l != null && l.find( 0 );
+			if( !mf && !lf ) {
+				return input;
+			}
+
+			StringBuilder sb = new StringBuilder( input.length() + 16 );
+			int last = 0;
+			do {
+				if( lf && ( !mf || l.start() <= m.start() ) ) {
+					sb.append( input, last, l.start() ).append( l.replacement() );
+					last = l.end();
+					// seen again, so it's remembered for longer
+					scratch.captured.get( l.key() );
+					lf = l.find( last );
+					if( mf && m.start() < last ) {
+						mf = m.find( last );
+					}
+					continue;
+				}
+
+				sb.append( input, last, m.start() );
+				int group = first;
+				for( Replacement r : alternatives ) {
+					if( m.start( group ) != -1 ) {
+						r.append( m, group, sb );
+						break;
+					}
+					group += r.groups;
+				}
+				last = m.end();
+				if( lf && l.start() < last ) {
+					lf = l.find( last );
+				}
+				mf = m.find();
+			} while( mf || lf );
+			sb.append( input, last, input.length() );
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * @param alternatives
+	 *          some replacements
+	 * @param starts
+	 *          the characters their matches can start with, or null
+	 * @return a pattern that matches any of the alternatives, or null if there
+	 *         are none
+	 */
+	private static Pattern combine( List<Replacement> alternatives,
+			String starts ) {
+		if( alternatives.isEmpty() ) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		for( Replacement r : alternatives ) {
+			if( sb.length() > 0 ) {
+				sb.append( '|' );
+			}
+			sb.append( r.alternative );
+		}
+		if( starts != null ) {
+			// saves trying every alternative at every position
+			StringBuilder c = new StringBuilder( "(?=[" );
+			for( int i = 0; i < starts.length(); i++ ) {
+				if( !Character.isLetterOrDigit( starts.charAt( i ) ) ) {
+					c.append( '\\' );
+				}
+				c.append( starts.charAt( i ) );
+			}
+			sb.insert( 0, c.append( "])(?:" ) ).append( ')' );
+		}
+		return Pattern.compile( sb.toString() );
+	}
+
+	/**
+	 * @return the characters that a match of any of the alternatives can start
+	 *         with, or null if they can't be told
+	 */
+	private static String starts( List<Replacement> alternatives ) {
+		StringBuilder sb = new StringBuilder();
+		for( Replacement r : alternatives ) {
+			String s = starts( r.pattern );
+			if( s == null ) {
+				return null;
+			}
+			sb.append( s );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Finds the characters that a match of a pattern can start with. Only
+	 * patterns that start with a plain character are understood
+	 *
+	 * @param p
+	 *          a pattern
+	 * @return the characters, or null if they can't be told
+	 */
+	private static String starts( Pattern p ) {
+		String s = p.pattern();
+		int flags = p.flags();
+		boolean literal = ( flags & Pattern.LITERAL ) != 0;
+		if( s.isEmpty() || !literal && ( ( flags & Pattern.COMMENTS ) != 0
+				|| s.indexOf( '|' ) != -1 ) ) {
+			return null;
+		}
+		// unicode case folding has more cases than these
+		int ci = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+		if( ( flags & ci ) == ci ) {
+			return null;
+		}
+		char c = s.charAt( 0 );
+		if( !literal ) {
+			if( c == '\\' && s.length() > 1
+					&& !Character.isLetterOrDigit( s.charAt( 1 ) ) ) {
+				c = s.charAt( 1 );
+				s = s.substring( 1 );
+			}
+			else if( "\\[](){}.*+?^$|".indexOf( c ) != -1 ) {
+				return null;
+			}
+			// the first character might be optional
+			if( s.length() > 1 && "?*{".indexOf( s.charAt( 1 ) ) != -1 ) {
+				return null;
+			}
+		}
+		if( Character.isSurrogate( c ) ) {
+			return null;
+		}
+		return new String( new char[] { c, Character.toLowerCase( c ),
+				Character.toUpperCase( c ), Character.toTitleCase( c ) } );
+	}
+}
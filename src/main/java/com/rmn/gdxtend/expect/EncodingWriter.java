@@ -0,0 +1,189 @@
+package com.rmn.gdxtend.expect;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A {@link Writer} that encodes characters as {@link String#getBytes()} would
+ * and hands the bytes to a subclass a buffer at a time, so that a result can
+ * be examined as it is produced without ever being held in full
+ */
+abstract class EncodingWriter extends Writer {
+
+	/**
+	 * The size of the encoding buffer
+	 */
+	static final int BUFFER = 8192;
+
+	private final CharsetEncoder encoder = Charset.defaultCharset()
+			.newEncoder()
+			.onMalformedInput( CodingErrorAction.REPLACE )
+			.onUnmappableCharacter( CodingErrorAction.REPLACE );
+	private final ByteBuffer encoded = ByteBuffer.allocate( BUFFER );
+
+	/**
+	 * A high surrogate left over from the last write
+	 */
+	private char carry = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * Called with each buffer of encoded bytes
+	 *
+	 * @param bytes
+	 *          the bytes, from position to limit. Anything left unconsumed is
+	 *          discarded
+	 * @throws IOException
+	 *           if the bytes can't be dealt with
+	 */
+	protected abstract void consume( ByteBuffer bytes ) throws IOException;
+
+	/**
+	 * Called once all bytes have been consumed
+	 *
+	 * @throws IOException
+	 *           if finishing fails
+	 */
+	protected abstract void finish() throws IOException;
+
+	@Override
+	public void write( char[] cbuf, int off, int len ) throws IOException {
+		if( closed ) {
+			throw new IOException( "Closed" );
+		}
+		CharBuffer in;
+		if( carry != 0 ) {
+			char[] c = new char[ len + 1 ];
+			c[ 0 ] = carry;
+			System.arraycopy( cbuf, off, c, 1, len );
+			in = CharBuffer.wrap( c );
+			carry = 0;
+		}
+		else {
+			in = CharBuffer.wrap( cbuf, off, len );
+		}
+		encode( in, false );
+		if( in.hasRemaining() ) {
+			// half of a surrogate pair, the rest is still to come
+			carry = in.get();
+		}
+	}
+
+	@Override
+	public void write( String str, int off, int len ) throws IOException {
+		int end = off + len;
+		char[] c = new char[ Math.min( len, BUFFER ) ];
+		while( off < end ) {
+			int n = Math.min( c.length, end - off );
+			str.getChars( off, off + n, c, 0 );
+			write( c, 0, n );
+			off += n;
+		}
+	}
+
+	@Override
+	public Writer append( CharSequence csq ) throws IOException {
+		return append( csq, 0, csq == null ? 4 : csq.length() );
+	}
+
+	@Override
+	public Writer append( CharSequence csq, int start, int end )
+			throws IOException {
+		if( csq == null ) {
+			csq = "null";
+		}
+		if( csq instanceof String ) {
+			write( (String) csq, start, end - start );
+		}
+		else {
+			char[] c = new char[ Math.min( end - start, BUFFER ) ];
+			while( start < end ) {
+				int n = Math.min( c.length, end - start );
+				for( int i = 0; i < n; i++ ) {
+					c[ i ] = csq.charAt( start + i );
+				}
+				write( c, 0, n );
+				start += n;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Passes bytes that have already been encoded straight through
+	 *
+	 * @param bytes
+	 *          the bytes, from position to limit. They are all consumed
+	 * @throws IOException
+	 *           if the bytes can't be dealt with, or we're part way through a
+	 *           character
+	 */
+	void feed( ByteBuffer bytes ) throws IOException {
+		if( closed || carry != 0 ) {
+			throw new IOException(
+					closed ? "Closed" : "Part way through a character" );
+		}
+		while( bytes.hasRemaining() ) {
+			int n = Math.min( bytes.remaining(), encoded.remaining() );
+			ByteBuffer chunk = bytes.duplicate();
+			chunk.limit( chunk.position() + n );
+			encoded.put( chunk );
+			bytes.position( bytes.position() + n );
+			drain();
+		}
+	}
+
+	@Override
+	public void flush() {
+		// nothing to do, we hold at most a buffer's worth
+	}
+
+	/**
+	 * Encodes anything outstanding and finishes. Anything written after this is
+	 * an error
+	 */
+	@Override
+	public void close() throws IOException {
+		if( closed ) {
+			return;
+		}
+		CharBuffer in = carry != 0
+				? CharBuffer.wrap( new char[] { carry } )
+				: CharBuffer.allocate( 0 );
+		carry = 0;
+		encode( in, true );
+		CoderResult cr;
+		do {
+			cr = encoder.flush( encoded );
+			drain();
+		} while( cr.isOverflow() );
+		closed = true;
+		finish();
+	}
+
+	private void encode( CharBuffer in, boolean end ) throws IOException {
+		CoderResult cr;
+		do {
+			cr = encoder.encode( in, encoded, end );
+			if( cr.isError() ) {
+				cr.throwException();
+			}
+			drain();
+		} while( cr.isOverflow() );
+	}
+
+	private void drain() throws IOException {
+		encoded.flip();
+		if( encoded.hasRemaining() ) {
+			consume( encoded );
+		}
+		encoded.clear();
+	}
+}
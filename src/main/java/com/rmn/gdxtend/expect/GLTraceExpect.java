@@ -0,0 +1,30 @@
+package com.rmn.gdxtend.expect;
+
+import org.junit.Rule;
+
+import com.rmn.gdxtend.RecordingGL;
+
+/**
+ * A {@link Rule} for checking the complete, ordered stream of gl calls that a
+ * test makes. Results are stored in files with ".trace" suffix, one call per
+ * line, so an unexpected extra call shows up as a one-line diff.
+ */
+public class GLTraceExpect extends AbstractExpect<GLTraceExpect> {
+
+	/**
+	 * Constructs a new {@link GLTraceExpect} {@link Rule}
+	 */
+	public GLTraceExpect() {
+		super( ".trace" );
+	}
+
+	/**
+	 * Checks the calls recorded so far against the expected trace
+	 *
+	 * @param gl
+	 *          the recorded gl calls
+	 */
+	public void check( RecordingGL gl ) {
+		check( gl.trace() );
+	}
+}
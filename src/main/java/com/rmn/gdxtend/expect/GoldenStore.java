@@ -0,0 +1,766 @@
+package com.rmn.gdxtend.expect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds expected results. Each directory of results is listed once, the first
+ * time it is asked about, so checking for a result that doesn't exist costs
+ * nothing. Results are read when first asked for and are then held in a cache
+ * of bounded size, least recently used results being evicted first. Large
+ * results are not cached: they're memory-mapped when asked for with
+ * {@link #buffer(String, String)}, so that they can be compared in place.
+ * <p>
+ * Results can also be packed into a single archive, which is memory-mapped and
+ * read from directly. Loose files take precedence over packed entries, so
+ * regenerated results are picked up without rebuilding the archive, but
+ * deleting a loose file will expose any packed entry beneath it. Build the
+ * archive with {@link #main(String[])}.
+ * <p>
+ * Each directory also has a {@link Manifest} of its results, which is kept up
+ * to date as results are written and as they are found to match. Manifest
+ * entries for loose results that have been modified since the manifest was
+ * written, or whose length doesn't match, are ignored, as are those for loose
+ * results that override a packed manifest. Manifests are local to a working
+ * copy and aren't committed.
+ * <p>
+ * Results may be stored compressed, with a {@value #GZ} suffix, and are
+ * decompressed as they are read.
+ * <p>
+ * Thread-safe.
+ */
+public final class GoldenStore {
+
+	/**
+	 * Set this property to the number of megabytes of results to cache
+	 */
+	static final String CACHE_PROPERTY = "golden.cache";
+
+	/**
+	 * Set this property to the path of the packed archive
+	 */
+	static final String PACK_PROPERTY = "golden.pack";
+
+	/**
+	 * Where we look for the packed archive if the property isn't set
+	 */
+	static final String DEFAULT_PACK = "src/test/resources/expect.pack";
+
+	private static final int DEFAULT_CACHE_MB = 64;
+
+	/**
+	 * Loose results larger than this are mapped rather than read
+	 */
+	static final int MAP_THRESHOLD = 256 * 1024;
+
+	/**
+	 * The suffix of compressed results
+	 */
+	static final String GZ = ".gz";
+
+	private static final int MAGIC = 0x47445850; // "GDXP"
+	private static final int VERSION = 1;
+
+	private final File root;
+
+	private final ConcurrentHashMap<String, Set<String>> listings =
+			new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<String, Manifest> manifests =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * The pending writes of manifests that have had entries added
+	 */
+	private final Map<String, Future<?>> unwritten = new HashMap<>();
+
+	private final Map<String, byte[]> cache = new LinkedHashMap<>( 16, 0.75f,
+			true );
+	private final long capacity;
+	private long cached = 0;
+
+	private final ByteBuffer pack;
+	private final Map<String, Entry> packed;
+
+	/**
+	 * The position of one packed result
+	 */
+	private static final class Entry {
+		final int offset, length;
+
+		Entry( int offset, int length ) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * @param root
+	 *          the directory of loose results
+	 * @param archive
+	 *          the packed archive, or <code>null</code> for none
+	 * @param capacity
+	 *          the number of bytes of results to cache
+	 * @throws IOException
+	 *           if the archive can't be read
+	 */
+	GoldenStore( File root, File archive, long capacity ) throws IOException {
+		this.root = root;
+		this.capacity = capacity;
+
+		if( archive != null && archive.isFile() ) {
+			try( FileChannel fc =
+					FileChannel.open( archive.toPath(), StandardOpenOption.READ ) ) {
+				MappedByteBuffer mbb =
+						fc.map( FileChannel.MapMode.READ_ONLY, 0, fc.size() );
+				packed = readIndex( mbb, archive );
+				pack = mbb.slice();
+			}
+		}
+		else {
+			pack = null;
+			packed = Collections.emptyMap();
+		}
+	}
+
+	/**
+	 * Builds a store with the configuration in the system properties. A missing
+	 * or broken archive is reported and ignored
+	 *
+	 * @param root
+	 *          the directory of loose results
+	 * @return the store
+	 */
+	static GoldenStore open( File root ) {
+		File archive =
+				new File( System.getProperty( PACK_PROPERTY, DEFAULT_PACK ) );
+		long capacity = DEFAULT_CACHE_MB;
+		try {
+			capacity = Long.parseLong( System.getProperty( CACHE_PROPERTY,
+					String.valueOf( DEFAULT_CACHE_MB ) ) );
+		}
+		catch( NumberFormatException nfe ) {
+			System.err.println( "Bad " + CACHE_PROPERTY + " value, using "
+					+ DEFAULT_CACHE_MB + "MB" );
+		}
+		capacity <<= 20;
+
+		try {
+			return new GoldenStore( root, archive, capacity );
+		}
+		catch( IOException ioe ) {
+			System.err.println( "Ignoring unreadable result archive " + archive );
+			ioe.printStackTrace();
+			try {
+				return new GoldenStore( root, null, capacity );
+			}
+			catch( IOException impossible ) {
+				throw new IllegalStateException( impossible );
+			}
+		}
+	}
+
+	/**
+	 * @param dir
+	 *          the directory of a result, relative to the root, with '/'
+	 *          separators
+	 * @param name
+	 *          the name of the result file
+	 * @return <code>true</code> if that result exists
+	 */
+	boolean exists( String dir, String name ) {
+		return listing( dir ).contains( name )
+				|| packed.containsKey( key( dir, name ) );
+	}
+
+	/**
+	 * @param dir
+	 *          the directory of a result, relative to the root, with '/'
+	 *          separators
+	 * @param name
+	 *          the name of the result file
+	 * @return the contents of that result, or <code>null</code> if it doesn't
+	 *         exist. Do not modify the array
+	 * @throws IOException
+	 *           if the result can't be read
+	 */
+	byte[] read( String dir, String name ) throws IOException {
+		String key = key( dir, name );
+
+		byte[] b = cached( key );
+		if( b != null ) {
+			return b;
+		}
+
+		if( listing( dir ).contains( name ) ) {
+			b = Files.readAllBytes( new File( root, key ).toPath() );
+		}
+		else {
+			Entry e = packed.get( key );
+			if( e == null ) {
+				return null;
+			}
+			b = new byte[ e.length ];
+			ByteBuffer bb = pack.duplicate();
+			bb.position( e.offset );
+			bb.get( b );
+		}
+
+		cache( key, b );
+		return b;
+	}
+
+	/**
+	 * @param dir
+	 *          the directory of a result, relative to the root, with '/'
+	 *          separators
+	 * @param name
+	 *          the name of the result file
+	 * @return the contents of that result, or <code>null</code> if it doesn't
+	 *         exist. Large loose results are memory-mapped rather than read
+	 *         into the cache
+	 * @throws IOException
+	 *           if the result can't be read
+	 */
+	ByteBuffer buffer( String dir, String name ) throws IOException {
+		String key = key( dir, name );
+
+		byte[] b = cached( key );
+		if( b == null && listing( dir ).contains( name ) ) {
+			File f = new File( root, key );
+			if( f.length() > MAP_THRESHOLD ) {
+				try( FileChannel fc =
+						FileChannel.open( f.toPath(), StandardOpenOption.READ ) ) {
+					return fc.map( FileChannel.MapMode.READ_ONLY, 0, fc.size() );
+				}
+			}
+			b = read( dir, name );
+		}
+		else if( b == null ) {
+			Entry e = packed.get( key );
+			if( e == null ) {
+				return null;
+			}
+			ByteBuffer bb = pack.duplicate();
+			bb.position( e.offset );
+			bb.limit( e.offset + e.length );
+			return bb.slice();
+		}
+
+		return ByteBuffer.wrap( b ).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @param dir
+	 *          the directory of a result, relative to the root, with '/'
+	 *          separators
+	 * @param name
+	 *          the name of the result file, without any {@value #GZ} suffix
+	 * @return the name that the result is stored under: compressed, if there
+	 *         is a compressed result, or as is. <code>null</code> if there is
+	 *         no such result
+	 */
+	String stored( String dir, String name ) {
+		if( exists( dir, name + GZ ) ) {
+			return name + GZ;
+		}
+		return exists( dir, name ) ? name : null;
+	}
+
+	/**
+	 * @param dir
+	 *          the directory of a result, relative to the root, with '/'
+	 *          separators
+	 * @param stored
+	 *          the name that the result is stored under
+	 * @return a stream of the result, decompressed if need be
+	 * @throws IOException
+	 *           if the result doesn't exist or can't be read
+	 */
+	InputStream open( String dir, String stored ) throws IOException {
+		ByteBuffer bb = buffer( dir, stored );
+		if( bb == null ) {
+			throw new NoSuchFileException( key( dir, stored ) );
+		}
+		InputStream in = new BufferInputStream( bb );
+		return stored.endsWith( GZ ) ? new GZIPInputStream( in, 8192 ) : in;
+	}
+
+	/**
+	 * @param dir
+	 *          the directory of a result, relative to the root, with '/'
+	 *          separators
+	 * @param stored
+	 *          the name that the result is stored under
+	 * @return the result, decompressed in full if need be
+	 * @throws IOException
+	 *           if the result doesn't exist or can't be read
+	 */
+	ByteBuffer content( String dir, String stored ) throws IOException {
+		if( !stored.endsWith( GZ ) ) {
+			ByteBuffer bb = buffer( dir, stored );
+			if( bb == null ) {
+				throw new NoSuchFileException( key( dir, stored ) );
+			}
+			return bb;
+		}
+		try( InputStream in = open( dir, stored ) ) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] b = new byte[ 8192 ];
+			int n;
+			while( ( n = in.read( b ) ) >= 0 ) {
+				out.write( b, 0, n );
+			}
+			return ByteBuffer.wrap( out.toByteArray() ).asReadOnlyBuffer();
+		}
+	}
+
+	/**
+	 * Writes a loose result, and its manifest entry, in the background. The
+	 * result can be read from this store straight away. Any result stored under
+	 * the other name, compressed or not, is deleted
+	 *
+	 * @param dir
+	 *          the directory of the result, relative to the root, with '/'
+	 *          separators
+	 * @param name
+	 *          the name of the result file, without any {@value #GZ} suffix
+	 * @param content
+	 *          the result
+	 * @param compress
+	 *          <code>true</code> to store the result compressed, under
+	 *          <code>name</code> with a {@value #GZ} suffix
+	 * @return completes when the files are written, with an
+	 *         {@link IOException} if that fails
+	 * @throws IOException
+	 *           if the manifest can't be read
+	 */
+	Future<?> write( final String dir, String name, byte[] content,
+			boolean compress ) throws IOException {
+		String stored = compress ? name + GZ : name;
+		String other = compress ? name : name + GZ;
+		final File f = new File( root, key( dir, stored ) );
+		final File o = new File( root, key( dir, other ) );
+		final byte[] b = compress ? gzip( content ) : content.clone();
+		final Manifest m = manifest( dir );
+
+		listing( dir ).add( stored );
+		listing( dir ).remove( other );
+		cache( key( dir, stored ), b );
+		uncache( key( dir, other ) );
+		// the manifest describes the result, not how it is stored
+		m.put( stored, Manifest.Entry.of( content ) );
+		m.remove( other );
+
+		return ResultWriter.shared().submit( new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				ResultWriter.atomicWrite( f, b );
+				Files.deleteIfExists( o.toPath() );
+
+				// after the result, so that the manifest is the more recent
+				writeManifest( dir, m );
+				return null;
+			}
+		} );
+	}
+
+	/**
+	 * Adds a loose result that has been found to match to its directory's
+	 * manifest, so that later checks of it needn't read the file. The manifest
+	 * is written in the background, once however many results are added while
+	 * it waits
+	 *
+	 * @param dir
+	 *          the directory of the result, relative to the root, with '/'
+	 *          separators
+	 * @param stored
+	 *          the name that the result is stored under
+	 * @param e
+	 *          the manifest entry for the result's content
+	 * @return completes when the manifest is written, with an
+	 *         {@link IOException} if that fails. <code>null</code> if the result
+	 *         isn't loose, as packed results are described by the pack's
+	 *         manifest
+	 * @throws IOException
+	 *           if the manifest can't be read
+	 */
+	Future<?> remember( final String dir, String stored, Manifest.Entry e )
+			throws IOException {
+		if( !listing( dir ).contains( stored ) ) {
+			return null;
+		}
+		final Manifest m = manifest( dir );
+		m.put( stored, e );
+		synchronized( unwritten ) {
+			Future<?> f = unwritten.get( dir );
+			if( f == null ) {
+				f = ResultWriter.shared().submit( new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						synchronized( unwritten ) {
+							unwritten.remove( dir );
+						}
+						writeManifest( dir, m );
+						return null;
+					}
+				} );
+				if( !f.isDone() ) {
+					unwritten.put( dir, f );
+				}
+			}
+			return f;
+		}
+	}
+
+	private void writeManifest( String dir, Manifest m ) throws IOException {
+		synchronized( m ) {
+			byte[] mb = m.format();
+			ResultWriter.atomicWrite( new File( root, key( dir, Manifest.NAME ) ),
+					mb );
+			listing( dir ).add( Manifest.NAME );
+			cache( key( dir, Manifest.NAME ), mb );
+		}
+	}
+
+	private static byte[] gzip( byte[] content ) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try( GZIPOutputStream gz = new GZIPOutputStream( out, 8192 ) ) {
+			gz.write( content );
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param dir
+	 *          the directory of some results, relative to the root, with '/'
+	 *          separators
+	 * @return the manifest of those results that can be trusted
+	 * @throws IOException
+	 *           if the manifest can't be read
+	 */
+	Manifest manifest( String dir ) throws IOException {
+		Manifest m = manifests.get( dir );
+		if( m == null ) {
+			m = loadManifest( dir );
+			Manifest race = manifests.putIfAbsent( dir, m );
+			if( race != null ) {
+				m = race;
+			}
+		}
+		return m;
+	}
+
+	private Manifest loadManifest( String dir ) throws IOException {
+		byte[] b = read( dir, Manifest.NAME );
+		if( b == null ) {
+			return new Manifest();
+		}
+
+		Manifest m = Manifest.parse( b );
+		Set<String> loose = listing( dir );
+		if( loose.contains( Manifest.NAME ) ) {
+			// distrust anything that has been touched since the manifest was
+			// written
+			long written =
+					new File( root, key( dir, Manifest.NAME ) ).lastModified();
+			for( String name : loose ) {
+				Manifest.Entry e = m.get( name );
+				File f = new File( root, key( dir, name ) );
+				if( e != null && ( f.lastModified() > written
+						|| storedLength( f ) != e.length ) ) {
+					m.remove( name );
+				}
+			}
+		}
+		else {
+			// loose files override the packed manifest's results
+			for( String name : loose ) {
+				m.remove( name );
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Checkouts don't preserve modification times, so we also check that a
+	 * result is as long as its manifest entry says
+	 *
+	 * @param f
+	 *          a loose result
+	 * @return the length of its content: decompressed, if it is compressed, as
+	 *         recorded modulo 2^32 in the gzip trailer. -1 if it can't be read
+	 */
+	private static long storedLength( File f ) {
+		if( !f.getName().endsWith( GZ ) ) {
+			return f.length();
+		}
+		try( FileChannel fc =
+				FileChannel.open( f.toPath(), StandardOpenOption.READ ) ) {
+			if( fc.size() < 4 ) {
+				return -1;
+			}
+			ByteBuffer bb = ByteBuffer.allocate( 4 )
+					.order( ByteOrder.LITTLE_ENDIAN );
+			while( bb.hasRemaining()
+					&& fc.read( bb, fc.size() - bb.remaining() ) > 0 ) {
+				// read the trailer
+			}
+			return bb.getInt( 0 ) & 0xffffffffL;
+		}
+		catch( IOException ioe ) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return the number of bytes currently cached
+	 */
+	synchronized long cachedBytes() {
+		return cached;
+	}
+
+	/**
+	 * @return the number of packed results
+	 */
+	int packedCount() {
+		return packed.size();
+	}
+
+	private Set<String> listing( String dir ) {
+		Set<String> s = listings.get( dir );
+		if( s == null ) {
+			s = ConcurrentHashMap.newKeySet();
+			String[] names = new File( root, dir ).list();
+			if( names != null ) {
+				Collections.addAll( s, names );
+			}
+			Set<String> race = listings.putIfAbsent( dir, s );
+			if( race != null ) {
+				s = race;
+			}
+		}
+		return s;
+	}
+
+	private synchronized byte[] cached( String key ) {
+		return cache.get( key );
+	}
+
+	private synchronized void uncache( String key ) {
+		byte[] old = cache.remove( key );
+		if( old != null ) {
+			cached -= old.length;
+		}
+	}
+
+	private synchronized void cache( String key, byte[] b ) {
+		byte[] old = cache.remove( key );
+		if( old != null ) {
+			cached -= old.length;
+		}
+		if( b.length > capacity ) {
+			return;
+		}
+
+		cache.put( key, b );
+		cached += b.length;
+
+		Iterator<byte[]> it = cache.values().iterator();
+		while( cached > capacity ) {
+			cached -= it.next().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Reads a buffer without copying it
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer bb;
+
+		BufferInputStream( ByteBuffer bb ) {
+			this.bb = bb.duplicate();
+		}
+
+		@Override
+		public int read() {
+			return bb.hasRemaining() ? bb.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read( byte[] b, int off, int len ) {
+			if( len == 0 ) {
+				return 0;
+			}
+			if( !bb.hasRemaining() ) {
+				return -1;
+			}
+			int n = Math.min( len, bb.remaining() );
+			bb.get( b, off, n );
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return bb.remaining();
+		}
+	}
+
+	private static String key( String dir, String name ) {
+		return dir.isEmpty() ? name : dir + "/" + name;
+	}
+
+	/**
+	 * The archive is laid out as:
+	 * <ul>
+	 * <li>int magic, int version, int entry count</li>
+	 * <li>for each entry: unsigned short name length, UTF-8 name, int offset,
+	 * int length. Names are relative to the root, with '/' separators. Offsets
+	 * are from the end of the index</li>
+	 * <li>the entries' contents</li>
+	 * </ul>
+	 * All values are big-endian
+	 */
+	private static Map<String, Entry> readIndex( ByteBuffer bb, File archive )
+			throws IOException {
+		try {
+			if( bb.getInt() != MAGIC || bb.getInt() != VERSION ) {
+				throw new IOException( archive + " is not a result archive" );
+			}
+			int count = bb.getInt();
+			Map<String, Entry> index = new HashMap<>( count * 2 );
+			for( int i = 0; i < count; i++ ) {
+				byte[] name = new byte[ bb.getShort() & 0xffff ];
+				bb.get( name );
+				index.put( new String( name, StandardCharsets.UTF_8 ),
+						new Entry( bb.getInt(), bb.getInt() ) );
+			}
+			for( Entry e : index.values() ) {
+				if( e.offset < 0 || e.length < 0
+						|| (long) e.offset + e.length > bb.remaining() ) {
+					throw new IOException( archive + " is truncated" );
+				}
+			}
+			return index;
+		}
+		catch( BufferUnderflowException bue ) {
+			throw new IOException( archive + " is truncated", bue );
+		}
+	}
+
+	/**
+	 * Packs every file under a directory into an archive
+	 *
+	 * @param root
+	 *          the directory of loose results
+	 * @param out
+	 *          where to write the archive
+	 * @return the number of results packed
+	 * @throws IOException
+	 *           if reading or writing fails
+	 */
+	static int pack( File root, OutputStream out ) throws IOException {
+		Map<String, File> files = new TreeMap<>();
+		collect( root, "", files );
+
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		DataOutputStream dos = new DataOutputStream( index );
+		dos.writeInt( MAGIC );
+		dos.writeInt( VERSION );
+		dos.writeInt( files.size() );
+
+		List<File> order = new ArrayList<>();
+		long offset = 0;
+		for( Map.Entry<String, File> e : files.entrySet() ) {
+			byte[] name = e.getKey().getBytes( StandardCharsets.UTF_8 );
+			long length = e.getValue().length();
+			if( name.length > 0xffff || offset + length > Integer.MAX_VALUE ) {
+				throw new IOException( "Too much to pack at " + e.getKey() );
+			}
+			dos.writeShort( name.length );
+			dos.write( name );
+			dos.writeInt( (int) offset );
+			dos.writeInt( (int) length );
+			order.add( e.getValue() );
+			offset += length;
+		}
+		dos.flush();
+
+		index.writeTo( out );
+		for( File f : order ) {
+			Files.copy( f.toPath(), out );
+		}
+		out.flush();
+		return order.size();
+	}
+
+	private static void collect( File dir, String prefix,
+			Map<String, File> files ) {
+		File[] children = dir.listFiles();
+		if( children != null ) {
+			for( File f : children ) {
+				String key = prefix + f.getName();
+				if( f.isDirectory() ) {
+					collect( f, key + "/", files );
+				}
+				else {
+					files.put( key, f );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builds a result archive
+	 *
+	 * @param args
+	 *          optionally, the directory of results and then the archive to
+	 *          write. These default to the expectation directory and
+	 *          {@value #DEFAULT_PACK}
+	 * @throws IOException
+	 *           if packing fails
+	 */
+	public static void main( String[] args ) throws IOException {
+		File root = new File( args.length > 0 ? args[ 0 ]
+				: AbstractExpect.Dir.EXPECT.path );
+		File archive = new File( args.length > 1 ? args[ 1 ] : DEFAULT_PACK );
+
+		File tmp = new File( archive.getPath() + ".tmp" );
+		try( OutputStream out = new FileOutputStream( tmp ) ) {
+			System.out.println( "Packed " + pack( root, out ) + " results into "
+					+ archive );
+		}
+		Files.move( tmp.toPath(), archive.toPath(),
+				StandardCopyOption.REPLACE_EXISTING );
+	}
+}
@@ -0,0 +1,44 @@
+package com.rmn.gdxtend.expect;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * Digests the characters written to it, as {@link Manifest} would digest the
+ * encoded result
+ */
+class HashingWriter extends EncodingWriter {
+
+	private final MessageDigest digest = Manifest.newDigest();
+	private long length = 0;
+	private String hex;
+
+	/**
+	 * @return the number of bytes written
+	 */
+	long length() {
+		return length;
+	}
+
+	/**
+	 * @return the digest of everything written, as hex. Only available once
+	 *         closed
+	 */
+	String digest() {
+		if( hex == null ) {
+			throw new IllegalStateException( "Not closed" );
+		}
+		return hex;
+	}
+
+	@Override
+	protected void consume( ByteBuffer bytes ) {
+		length += bytes.remaining();
+		digest.update( bytes );
+	}
+
+	@Override
+	protected void finish() {
+		hex = Manifest.hex( digest.digest() );
+	}
+}
@@ -0,0 +1,700 @@
+package com.rmn.gdxtend.expect;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The strings that a pattern can match, or that a replacement can write, as a
+ * small automaton. It's used to tell whether masks can be applied in the same
+ * pass: one that could match where another has matched, or in what the other
+ * wrote, has to wait until the other is done.
+ * <p>
+ * Only patterns whose matches don't depend on the text around them are
+ * understood - no anchors, boundaries, look-arounds, back-references, inline
+ * flags or possessive quantifiers. The strings are over-estimated where that's
+ * simpler, so two languages may be said to overlap when they can't, but never
+ * the other way round.
+ */
+final class Language {
+
+	private static final int CHARS = Character.MAX_VALUE + 1;
+
+	/**
+	 * Patterns with longer counted repeats are taken as repeating any number of
+	 * times
+	 */
+	private static final int REPEATS = 8;
+
+	private static final BitSet HIGH = range( Character.MIN_HIGH_SURROGATE,
+			Character.MAX_HIGH_SURROGATE );
+	private static final BitSet LOW = range( Character.MIN_LOW_SURROGATE,
+			Character.MAX_LOW_SURROGATE );
+
+	private final State start = new State();
+	private final State accept;
+
+	/**
+	 * Every character that can be in a string
+	 */
+	private final BitSet alphabet = new BitSet();
+
+	/**
+	 * Every state, and those that can be reached by reading at least one
+	 * character, once they're known
+	 */
+	private Set<State> all, inner;
+
+	/**
+	 * The whole pattern, then each of its groups in turn
+	 */
+	private final List<Node> groups = new ArrayList<>();
+
+	private Language( Node n ) {
+		accept = build( n, start );
+		groups.add( n );
+	}
+
+	/**
+	 * @param p
+	 *          a pattern
+	 * @return the strings it can match, or null if they can't be told or might
+	 *         be empty
+	 */
+	static Language of( Pattern p ) {
+		int flags = p.flags();
+		int ci = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+		if( ( flags & ( Pattern.COMMENTS | Pattern.CANON_EQ ) ) != 0
+				|| ( flags & ci ) == ci ) {
+			return null;
+		}
+		try {
+			if( ( flags & Pattern.LITERAL ) != 0 ) {
+				Language l = new Language( literal( p.pattern(), flags ) );
+				return l.empty() ? null : l;
+			}
+			Parser parser = new Parser( p.pattern(), flags );
+			Language l = new Language( parser.parse() );
+			l.groups.addAll( parser.groups );
+			return l.empty() ? null : l;
+		}
+		catch( Unknown u ) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param parts
+	 *          a replacement, as literal strings and group numbers
+	 * @param pattern
+	 *          the strings that the replaced pattern matches, or null if they
+	 *          can't be told
+	 * @return the strings that the replacement can write, or null if they
+	 *         can't be told
+	 */
+	static Language replacement( List<Object> parts, Language pattern ) {
+		List<Node> l = new ArrayList<>();
+		for( Object o : parts ) {
+			if( o instanceof String ) {
+				l.add( literal( (String) o, 0 ) );
+			}
+			else if( pattern == null ) {
+				return null;
+			}
+			else {
+				// a group that took no part in the match writes nothing
+				l.add( Node.repeat( pattern.groups.get( (Integer) o ), 0, 1 ) );
+			}
+		}
+		return new Language( Node.of( Node.SEQUENCE, l ) );
+	}
+
+	/**
+	 * @param patterns
+	 *          the strings that some patterns match
+	 * @return the strings that groups of those patterns can capture, or null if
+	 *         they can't be told
+	 */
+	static Language captured( List<Language> patterns ) {
+		BitSet chars = new BitSet();
+		for( Language p : patterns ) {
+			if( p == null ) {
+				return null;
+			}
+			chars.or( p.alphabet );
+		}
+		return new Language( Node.repeat( Node.chars( chars ), 1, -1 ) );
+	}
+
+	/**
+	 * @param replacements
+	 *          the replacements for captured strings
+	 * @return the strings that captured strings are masked with
+	 */
+	static Language numbered( List<String> replacements ) {
+		List<Node> l = new ArrayList<>();
+		for( String r : replacements ) {
+			l.add( Node.of( Node.SEQUENCE, literal( r + "_", 0 ),
+					Node.repeat( Node.chars( range( '0', '9' ) ), 1, -1 ) ) );
+		}
+		return new Language( Node.of( Node.ALTERNATION, l ) );
+	}
+
+	/**
+	 * @return <code>true</code> if the empty string is one of these
+	 */
+	boolean empty() {
+		return closure( start ).contains( accept );
+	}
+
+	/**
+	 * @param other
+	 *          some other strings
+	 * @return <code>true</code> if one of these strings and one of the others
+	 *         could share some characters, if they were both found in the same
+	 *         text
+	 */
+	boolean overlaps( Language other ) {
+		if( !alphabet.intersects( other.alphabet ) ) {
+			return false;
+		}
+		// the other starts somewhere in one of these, or one of these starts
+		// after the first character of the other
+		return meet( this, all(), other ) || meet( other, other.inner(), this );
+	}
+
+	/**
+	 * Looks for a string of <code>a</code>, begun in one of the given states,
+	 * that shares at least one character with a string of <code>b</code> begun
+	 * at the same place, up to where either of them ends
+	 */
+	private static boolean meet( Language a, Set<State> from, Language b ) {
+		Set<List<State>> seen = new HashSet<>();
+		Deque<State[]> queue = new ArrayDeque<>();
+		BitSet first = next( b.start );
+		for( State s : from ) {
+			if( next( s ).intersects( first ) ) {
+				queue.add( new State[] { s, b.start } );
+			}
+		}
+		while( !queue.isEmpty() ) {
+			State[] p = queue.poll();
+			for( State x : closure( p[ 0 ] ) ) {
+				for( State y : closure( p[ 1 ] ) ) {
+					for( int i = 0; i < x.labels.size(); i++ ) {
+						for( int j = 0; j < y.labels.size(); j++ ) {
+							if( !x.labels.get( i ).intersects( y.labels.get( j ) ) ) {
+								continue;
+							}
+							State nx = x.targets.get( i ), ny = y.targets.get( j );
+							if( closure( nx ).contains( a.accept )
+									|| closure( ny ).contains( b.accept ) ) {
+								return true;
+							}
+							if( next( nx ).intersects( next( ny ) )
+									&& seen.add( Arrays.asList( nx, ny ) ) ) {
+								queue.add( new State[] { nx, ny } );
+							}
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the characters that can be read from a state
+	 */
+	private static BitSet next( State s ) {
+		if( s.next == null ) {
+			BitSet b = new BitSet();
+			for( State c : closure( s ) ) {
+				for( BitSet l : c.labels ) {
+					b.or( l );
+				}
+			}
+			s.next = b;
+		}
+		return s.next;
+	}
+
+	/**
+	 * @return every state
+	 */
+	private Set<State> all() {
+		if( all != null ) {
+			return all;
+		}
+		Set<State> all = new HashSet<>( closure( start ) );
+		Deque<State> queue = new ArrayDeque<>( all );
+		while( !queue.isEmpty() ) {
+			for( State t : queue.poll().targets ) {
+				for( State s : closure( t ) ) {
+					if( all.add( s ) ) {
+						queue.add( s );
+					}
+				}
+			}
+		}
+		return this.all = all;
+	}
+
+	/**
+	 * @return the states that can be reached by reading at least one character
+	 */
+	private Set<State> inner() {
+		if( inner == null ) {
+			inner = new HashSet<>();
+			for( State s : all() ) {
+				inner.addAll( s.targets );
+			}
+		}
+		return inner;
+	}
+
+	/**
+	 * @return the states that can be reached from a state without reading
+	 */
+	private static Set<State> closure( State s ) {
+		if( s.closure != null ) {
+			return s.closure;
+		}
+		Set<State> c = new HashSet<>();
+		c.add( s );
+		Deque<State> queue = new ArrayDeque<>( c );
+		while( !queue.isEmpty() ) {
+			for( State e : queue.poll().empty ) {
+				if( c.add( e ) ) {
+					queue.add( e );
+				}
+			}
+		}
+		return s.closure = c;
+	}
+
+	/**
+	 * Adds the states for some strings
+	 *
+	 * @param n
+	 *          the strings
+	 * @param from
+	 *          the state to start from
+	 * @return the state they end in
+	 */
+	private State build( Node n, State from ) {
+		State to = new State();
+		switch( n.kind ) {
+			case Node.CHARS:
+				alphabet.or( n.chars );
+				from.read( n.chars, to );
+				if( n.chars.intersects( HIGH ) && n.chars.intersects( LOW ) ) {
+					// a pair of surrogates is matched as one character
+					State mid = new State();
+					from.read( HIGH, mid );
+					mid.read( LOW, to );
+				}
+				break;
+			case Node.SEQUENCE:
+				State s = from;
+				for( Node c : n.children ) {
+					s = build( c, s );
+				}
+				s.empty.add( to );
+				break;
+			case Node.ALTERNATION:
+				for( Node c : n.children ) {
+					State in = new State();
+					from.empty.add( in );
+					build( c, in ).empty.add( to );
+				}
+				break;
+			default:
+				Node c = n.children.get( 0 );
+				int min = n.min, max = n.max;
+				if( min > REPEATS || max > REPEATS ) {
+					min = Math.min( min, 1 );
+					max = -1;
+				}
+				s = from;
+				for( int i = 0; i < min; i++ ) {
+					s = build( c, s );
+				}
+				if( max == -1 ) {
+					State loop = new State();
+					s.empty.add( loop );
+					build( c, loop ).empty.add( loop );
+					s = loop;
+				}
+				else {
+					for( int i = min; i < max; i++ ) {
+						s.empty.add( to );
+						s = build( c, s );
+					}
+				}
+				s.empty.add( to );
+		}
+		return to;
+	}
+
+	private static Node literal( String s, int flags ) {
+		List<Node> l = new ArrayList<>();
+		for( int i = 0; i < s.length(); i++ ) {
+			l.add( Node.chars( fold( single( s.charAt( i ) ), flags ) ) );
+		}
+		return Node.of( Node.SEQUENCE, l );
+	}
+
+	private static BitSet single( char c ) {
+		BitSet b = new BitSet();
+		b.set( c );
+		return b;
+	}
+
+	private static BitSet range( char from, char to ) {
+		BitSet b = new BitSet();
+		b.set( from, to + 1 );
+		return b;
+	}
+
+	/**
+	 * @return the characters, with the other cases of each if matching ignores
+	 *         case
+	 */
+	private static BitSet fold( BitSet chars, int flags ) {
+		if( ( flags & Pattern.CASE_INSENSITIVE ) == 0 ) {
+			return chars;
+		}
+		BitSet b = (BitSet) chars.clone();
+		for( int c = chars.nextSetBit( 0 ); c >= 0;
+				c = chars.nextSetBit( c + 1 ) ) {
+			b.set( Character.toLowerCase( c ) );
+			b.set( Character.toUpperCase( c ) );
+		}
+		return b;
+	}
+
+	private static final class State {
+		private final List<BitSet> labels = new ArrayList<>();
+		private final List<State> targets = new ArrayList<>();
+		private final List<State> empty = new ArrayList<>();
+
+		/**
+		 * The states that can be reached from this without reading, once they're
+		 * known. States are only added to before then
+		 */
+		private Set<State> closure;
+
+		/**
+		 * The characters that can be read from this, once they're known
+		 */
+		private BitSet next;
+
+		void read( BitSet chars, State to ) {
+			labels.add( chars );
+			targets.add( to );
+		}
+	}
+
+	/**
+	 * A pattern, parsed
+	 */
+	private static final class Node {
+		static final int CHARS = 0, SEQUENCE = 1, ALTERNATION = 2, REPEAT = 3;
+
+		final int kind;
+		final BitSet chars;
+		final List<Node> children;
+		final int min, max;
+
+		private Node( int kind, BitSet chars, List<Node> children, int min,
+				int max ) {
+			this.kind = kind;
+			this.chars = chars;
+			this.children = children;
+			this.min = min;
+			this.max = max;
+		}
+
+		static Node chars( BitSet chars ) {
+			return new Node( CHARS, chars, null, 1, 1 );
+		}
+
+		static Node of( int kind, List<Node> children ) {
+			return new Node( kind, null, children, 1, 1 );
+		}
+
+		static Node of( int kind, Node... children ) {
+			List<Node> l = new ArrayList<>();
+			for( Node c : children ) {
+				l.add( c );
+			}
+			return of( kind, l );
+		}
+
+		/**
+		 * @param max
+		 *          the most repeats, or -1 for no limit
+		 */
+		static Node repeat( Node n, int min, int max ) {
+			List<Node> l = new ArrayList<>();
+			l.add( n );
+			return new Node( REPEAT, null, l, min, max );
+		}
+	}
+
+	/**
+	 * Thrown when a pattern isn't understood
+	 */
+	private static final class Unknown extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		Unknown() {
+			super( null, null, false, false );
+		}
+	}
+
+	private static final class Parser {
+		private final String s;
+		private final int flags;
+		private int i = 0;
+
+		/**
+		 * The capturing groups, in order
+		 */
+		private final List<Node> groups = new ArrayList<>();
+
+		Parser( String s, int flags ) {
+			this.s = s;
+			this.flags = flags;
+		}
+
+		Node parse() {
+			Node n = alternation();
+			if( i != s.length() ) {
+				throw new Unknown();
+			}
+			return n;
+		}
+
+		private boolean at( char c ) {
+			return i < s.length() && s.charAt( i ) == c;
+		}
+
+		private char next() {
+			if( i == s.length() ) {
+				throw new Unknown();
+			}
+			return s.charAt( i++ );
+		}
+
+		private Node alternation() {
+			List<Node> l = new ArrayList<>();
+			l.add( sequence() );
+			while( at( '|' ) ) {
+				i++;
+				l.add( sequence() );
+			}
+			return l.size() == 1 ? l.get( 0 ) : Node.of( Node.ALTERNATION, l );
+		}
+
+		private Node sequence() {
+			List<Node> l = new ArrayList<>();
+			while( i < s.length() && !at( '|' ) && !at( ')' ) ) {
+				l.add( quantified( atom() ) );
+			}
+			return Node.of( Node.SEQUENCE, l );
+		}
+
+		private Node atom() {
+			char c = next();
+			switch( c ) {
+				case '(':
+					int group = -1;
+					if( s.startsWith( "?:", i ) ) {
+						i += 2;
+					}
+					else if( at( '?' ) ) {
+						throw new Unknown();
+					}
+					else {
+						group = groups.size();
+						groups.add( null );
+					}
+					Node n = alternation();
+					if( next() != ')' ) {
+						throw new Unknown();
+					}
+					if( group != -1 ) {
+						groups.set( group, n );
+					}
+					return n;
+				case '[':
+					return chars( group() );
+				case '.':
+					return Node.chars( range( (char) 0, Character.MAX_VALUE ) );
+				case '\\':
+					return chars( escape() );
+				case '^':
+				case '$':
+				case '*':
+				case '+':
+				case '?':
+				case '{':
+					throw new Unknown();
+				default:
+					return chars( character( c ) );
+			}
+		}
+
+		private Node quantified( Node n ) {
+			int min, max;
+			if( at( '?' ) ) {
+				min = 0;
+				max = 1;
+			}
+			else if( at( '*' ) ) {
+				min = 0;
+				max = -1;
+			}
+			else if( at( '+' ) ) {
+				min = 1;
+				max = -1;
+			}
+			else if( at( '{' ) ) {
+				int close = s.indexOf( '}', i );
+				if( close == -1 ) {
+					throw new Unknown();
+				}
+				String[] bounds = s.substring( i + 1, close ).split( ",", -1 );
+				try {
+					min = Integer.parseInt( bounds[ 0 ] );
+					max = bounds.length == 1 ? min
+							: bounds[ 1 ].isEmpty() ? -1 : Integer.parseInt( bounds[ 1 ] );
+				}
+				catch( NumberFormatException nfe ) {
+					throw new Unknown();
+				}
+				if( bounds.length > 2 ) {
+					throw new Unknown();
+				}
+				i = close;
+			}
+			else {
+				return n;
+			}
+			i++;
+			if( at( '+' ) ) {
+				// possessive
+				throw new Unknown();
+			}
+			if( at( '?' ) ) {
+				// reluctant, which matches the same strings
+				i++;
+			}
+			return Node.repeat( n, min, max );
+		}
+
+		private Node chars( BitSet b ) {
+			return Node.chars( fold( b, flags ) );
+		}
+
+		/**
+		 * @return the characters in a [...] class
+		 */
+		private BitSet group() {
+			BitSet b = new BitSet();
+			boolean negated = at( '^' );
+			if( negated ) {
+				i++;
+			}
+			if( at( ']' ) ) {
+				throw new Unknown();
+			}
+			char c;
+			while( ( c = next() ) != ']' ) {
+				if( c == '[' || c == '&' && at( '&' ) ) {
+					throw new Unknown();
+				}
+				BitSet from = c == '\\' ? escape() : character( c );
+				if( at( '-' ) && i + 1 < s.length() && s.charAt( i + 1 ) != ']' ) {
+					i++;
+					char d = next();
+					BitSet to = d == '\\' ? escape() : character( d );
+					if( from.cardinality() != 1 || to.cardinality() != 1
+							|| to.nextSetBit( 0 ) < from.nextSetBit( 0 ) ) {
+						throw new Unknown();
+					}
+					b.set( from.nextSetBit( 0 ), to.nextSetBit( 0 ) + 1 );
+				}
+				else {
+					b.or( from );
+				}
+			}
+			if( negated ) {
+				b.flip( 0, CHARS );
+			}
+			return b;
+		}
+
+		private BitSet escape() {
+			char c = next();
+			BitSet b;
+			switch( c ) {
+				case 'd':
+				case 'D':
+					b = range( '0', '9' );
+					break;
+				case 'w':
+				case 'W':
+					b = range( 'a', 'z' );
+					b.set( 'A', 'Z' + 1 );
+					b.set( '0', '9' + 1 );
+					b.set( '_' );
+					break;
+				case 's':
+				case 'S':
+					b = range( '\t', '\r' );
+					b.set( ' ' );
+					break;
+				case 't':
+					return single( '\t' );
+				case 'n':
+					return single( '\n' );
+				case 'r':
+					return single( '\r' );
+				case 'f':
+					return single( '\f' );
+				case 'a':
+					return single( '\u0007' );
+				case 'e':
+					return single( '\u001B' );
+				default:
+					if( Character.isLetterOrDigit( c ) ) {
+						throw new Unknown();
+					}
+					return character( c );
+			}
+			if( ( flags & Pattern.UNICODE_CHARACTER_CLASS ) != 0 ) {
+				throw new Unknown();
+			}
+			if( Character.isUpperCase( c ) ) {
+				b.flip( 0, CHARS );
+			}
+			return b;
+		}
+
+		private BitSet character( char c ) {
+			if( Character.isSurrogate( c ) ) {
+				throw new Unknown();
+			}
+			return single( c );
+		}
+	}
+}
@@ -0,0 +1,422 @@
+package com.rmn.gdxtend.expect;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Describes the differences between two results as a unified diff. Lines are
+ * compared by hash and then by content, and the edit script is found with
+ * Myers' linear-space algorithm, so only a few ints are needed per line
+ * however large the results are. Lines common to the start and end are
+ * skipped before the search starts, and a search that becomes too expensive
+ * settles for a longer edit script rather than the shortest, so the time
+ * taken is bounded too.
+ * <p>
+ * The output is trimmed to keep it readable: long runs of changed lines, long
+ * lines and changes past the first couple of hundred lines are cut short.
+ */
+final class LineDiff {
+
+	/**
+	 * Unchanged lines shown around each change
+	 */
+	static final int CONTEXT = 3;
+
+	/**
+	 * Removed or added lines shown for each change
+	 */
+	static final int MAX_RUN = 20;
+
+	/**
+	 * Lines of output, after which remaining changes are only counted
+	 */
+	static final int MAX_LINES = 200;
+
+	/**
+	 * Characters shown of each line
+	 */
+	static final int MAX_LINE_LENGTH = 240;
+
+	/**
+	 * Edit steps that we'll search for the middle of a script before settling
+	 * for a longer one
+	 */
+	static final int MAX_COST = 256;
+
+	/**
+	 * Edit steps that we'll search for in total, after which whatever is left
+	 * is called a replacement
+	 */
+	static final long MAX_WORK = 1 << 24;
+
+	private final Lines a, b;
+	private final boolean[] removed, added;
+
+	/**
+	 * Furthest reaching paths forwards and backwards, indexed by diagonal
+	 */
+	private final int[] fd, bd;
+	private final int diagonal;
+
+	private int splitX, splitY;
+	private long work = 0;
+
+	private LineDiff( ByteBuffer expected, ByteBuffer actual ) {
+		a = new Lines( expected );
+		b = new Lines( actual );
+		removed = new boolean[ a.count ];
+		added = new boolean[ b.count ];
+		fd = new int[ a.count + b.count + 3 ];
+		bd = new int[ a.count + b.count + 3 ];
+		diagonal = b.count + 1;
+	}
+
+	/**
+	 * @param expected
+	 *          the expected result, from position to limit. Not modified
+	 * @param actual
+	 *          the actual result, from position to limit. Not modified
+	 * @return the differences as a unified diff, or <code>null</code> if there
+	 *         are none
+	 */
+	static String unified( ByteBuffer expected, ByteBuffer actual ) {
+		LineDiff ld = new LineDiff( expected, actual );
+		ld.compare();
+		return ld.format();
+	}
+
+	/**
+	 * Marks the lines that are removed from the expectation and added in the
+	 * actual result
+	 */
+	private void compare() {
+		// explicitly stacked, as heuristic splits can run deep
+		Deque<int[]> todo = new ArrayDeque<>();
+		todo.push( new int[] { 0, a.count, 0, b.count } );
+		while( !todo.isEmpty() ) {
+			int[] r = todo.pop();
+			int xoff = r[ 0 ], xlim = r[ 1 ], yoff = r[ 2 ], ylim = r[ 3 ];
+
+			while( xoff < xlim && yoff < ylim && same( xoff, yoff ) ) {
+				xoff++;
+				yoff++;
+			}
+			while( xoff < xlim && yoff < ylim && same( xlim - 1, ylim - 1 ) ) {
+				xlim--;
+				ylim--;
+			}
+
+			if( xoff == xlim || yoff == ylim || work > MAX_WORK ) {
+				mark( xoff, xlim, yoff, ylim );
+			}
+			else {
+				split( xoff, xlim, yoff, ylim );
+				int reached = splitX + splitY;
+				if( reached == xoff + yoff || reached == xlim + ylim ) {
+					// no progress, call it a replacement
+					mark( xoff, xlim, yoff, ylim );
+				}
+				else {
+					todo.push( new int[] { splitX, xlim, splitY, ylim } );
+					todo.push( new int[] { xoff, splitX, yoff, splitY } );
+				}
+			}
+		}
+	}
+
+	private void mark( int xoff, int xlim, int yoff, int ylim ) {
+		for( int x = xoff; x < xlim; x++ ) {
+			removed[ x ] = true;
+		}
+		for( int y = yoff; y < ylim; y++ ) {
+			added[ y ] = true;
+		}
+	}
+
+	/**
+	 * Finds where the shortest edit script between the ranges crosses its
+	 * middle, or somewhere reasonable if that is too expensive, and leaves it
+	 * in {@link #splitX} and {@link #splitY}
+	 */
+	private void split( int xoff, int xlim, int yoff, int ylim ) {
+		int dmin = xoff - ylim, dmax = xlim - yoff;
+		int fmid = xoff - yoff, bmid = xlim - ylim;
+		int fmin = fmid, fmax = fmid, bmin = bmid, bmax = bmid;
+		boolean odd = ( ( fmid - bmid ) & 1 ) != 0;
+
+		fd[ diagonal + fmid ] = xoff;
+		bd[ diagonal + bmid ] = xlim;
+
+		for( int cost = 1;; cost++ ) {
+			work += cost;
+
+			// extend the forward search by an edit step on each diagonal
+			if( fmin > dmin ) {
+				fd[ diagonal + --fmin - 1 ] = -1;
+			}
+			else {
+				++fmin;
+			}
+			if( fmax < dmax ) {
+				fd[ diagonal + ++fmax + 1 ] = -1;
+			}
+			else {
+				--fmax;
+			}
+			for( int d = fmax; d >= fmin; d -= 2 ) {
+				int lo = fd[ diagonal + d - 1 ], hi = fd[ diagonal + d + 1 ];
+				int x = lo < hi ? hi : lo + 1;
+				int y = x - d;
+				while( x < xlim && y < ylim && same( x, y ) ) {
+					x++;
+					y++;
+				}
+				fd[ diagonal + d ] = x;
+				if( odd && bmin <= d && d <= bmax && bd[ diagonal + d ] <= x ) {
+					splitX = x;
+					splitY = y;
+					return;
+				}
+			}
+
+			// and the backward search
+			if( bmin > dmin ) {
+				bd[ diagonal + --bmin - 1 ] = Integer.MAX_VALUE;
+			}
+			else {
+				++bmin;
+			}
+			if( bmax < dmax ) {
+				bd[ diagonal + ++bmax + 1 ] = Integer.MAX_VALUE;
+			}
+			else {
+				--bmax;
+			}
+			for( int d = bmax; d >= bmin; d -= 2 ) {
+				int lo = bd[ diagonal + d - 1 ], hi = bd[ diagonal + d + 1 ];
+				int x = lo < hi ? lo : hi - 1;
+				int y = x - d;
+				while( x > xoff && y > yoff && same( x - 1, y - 1 ) ) {
+					x--;
+					y--;
+				}
+				bd[ diagonal + d ] = x;
+				if( !odd && fmin <= d && d <= fmax && x <= fd[ diagonal + d ] ) {
+					splitX = x;
+					splitY = y;
+					return;
+				}
+			}
+
+			if( cost >= MAX_COST ) {
+				// settle for the forward path that has got furthest
+				int best = -1;
+				for( int d = fmax; d >= fmin; d -= 2 ) {
+					int x = Math.min( fd[ diagonal + d ], xlim );
+					int y = x - d;
+					if( y > ylim ) {
+						x = ylim + d;
+						y = ylim;
+					}
+					if( x + y > best ) {
+						best = x + y;
+						splitX = x;
+						splitY = y;
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	private boolean same( int x, int y ) {
+		return a.hash[ x ] == b.hash[ y ] && a.equal( x, b, y );
+	}
+
+	private String format() {
+		// runs of changes: removed from x0 to x1, added from y0 to y1
+		List<int[]> changes = new ArrayList<>();
+		int x = 0, y = 0;
+		while( x < a.count || y < b.count ) {
+			if( x < a.count && removed[ x ] || y < b.count && added[ y ] ) {
+				int x0 = x, y0 = y;
+				while( x < a.count && removed[ x ] ) {
+					x++;
+				}
+				while( y < b.count && added[ y ] ) {
+					y++;
+				}
+				changes.add( new int[] { x0, x, y0, y } );
+			}
+			else {
+				x++;
+				y++;
+			}
+		}
+		if( changes.isEmpty() ) {
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		int lines = 0;
+		int first = 0;
+		while( first < changes.size() ) {
+			int last = first;
+			while( last + 1 < changes.size()
+					&& changes.get( last + 1 )[ 0 ] - changes.get( last )[ 1 ]
+					<= 2 * CONTEXT ) {
+				last++;
+			}
+
+			int[] f = changes.get( first ), l = changes.get( last );
+			int xs = Math.max( 0, f[ 0 ] - CONTEXT );
+			int xe = Math.min( a.count, l[ 1 ] + CONTEXT );
+			int ys = f[ 2 ] - ( f[ 0 ] - xs );
+			int ye = l[ 3 ] + ( xe - l[ 1 ] );
+			sb.append( "@@ -" );
+			range( sb, xs, xe - xs );
+			sb.append( " +" );
+			range( sb, ys, ye - ys );
+			sb.append( " @@\n" );
+			lines++;
+
+			x = xs;
+			for( int c = first; c <= last; c++ ) {
+				if( lines >= MAX_LINES ) {
+					sb.append( "... and " ).append( changes.size() - c )
+							.append( " more changes\n" );
+					return sb.toString();
+				}
+				int[] ch = changes.get( c );
+				lines += run( sb, ' ', a, x, ch[ 0 ], Integer.MAX_VALUE );
+				lines += run( sb, '-', a, ch[ 0 ], ch[ 1 ], MAX_RUN );
+				lines += run( sb, '+', b, ch[ 2 ], ch[ 3 ], MAX_RUN );
+				x = ch[ 1 ];
+			}
+			lines += run( sb, ' ', a, x, xe, Integer.MAX_VALUE );
+
+			first = last + 1;
+		}
+		return sb.toString();
+	}
+
+	private static void range( StringBuilder sb, int start, int length ) {
+		// an empty range is numbered by the line before it
+		sb.append( length == 0 ? start : start + 1 );
+		if( length != 1 ) {
+			sb.append( ',' ).append( length );
+		}
+	}
+
+	/**
+	 * @return the number of lines written
+	 */
+	private static int run( StringBuilder sb, char prefix, Lines lines,
+			int from, int to, int max ) {
+		int shown = Math.min( to - from, max );
+		for( int i = from; i < from + shown; i++ ) {
+			sb.append( prefix );
+			lines.append( sb, i );
+		}
+		if( shown < to - from ) {
+			sb.append( "... " ).append( to - from - shown )
+					.append( " more lines\n" );
+			shown++;
+		}
+		return shown;
+	}
+
+	/**
+	 * The lines of a result, as offsets into it
+	 */
+	private static final class Lines {
+		private final ByteBuffer content;
+		private final int count;
+
+		/**
+		 * The offset of each line, and of the end
+		 */
+		private final int[] start;
+
+		private final int[] hash;
+
+		Lines( ByteBuffer bb ) {
+			content = bb.slice();
+			int n = 0;
+			for( int i = 0; i < content.limit(); i++ ) {
+				if( content.get( i ) == '\n' ) {
+					n++;
+				}
+			}
+			if( content.limit() > 0 && content.get( content.limit() - 1 ) != '\n' ) {
+				n++;
+			}
+			count = n;
+
+			start = new int[ count + 1 ];
+			hash = new int[ count ];
+			int line = 0, h = 1;
+			for( int i = 0; i < content.limit(); i++ ) {
+				byte c = content.get( i );
+				h = 31 * h + c;
+				if( c == '\n' ) {
+					hash[ line ] = h;
+					start[ ++line ] = i + 1;
+					h = 1;
+				}
+			}
+			if( line < count ) {
+				hash[ line ] = h;
+			}
+			start[ count ] = content.limit();
+		}
+
+		/**
+		 * @return <code>true</code> if line i is the same as line j of other,
+		 *         including the newline
+		 */
+		boolean equal( int i, Lines other, int j ) {
+			int length = start[ i + 1 ] - start[ i ];
+			if( length != other.start[ j + 1 ] - other.start[ j ] ) {
+				return false;
+			}
+			for( int k = 0; k < length; k++ ) {
+				if( content.get( start[ i ] + k ) != other.content
+						.get( other.start[ j ] + k ) ) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Appends line i, shortened if need be, with a newline
+		 */
+		void append( StringBuilder sb, int i ) {
+			int end = start[ i + 1 ];
+			boolean newline = end > start[ i ] && content.get( end - 1 ) == '\n';
+			if( newline ) {
+				end--;
+			}
+			byte[] b = new byte[ end - start[ i ] ];
+			ByteBuffer d = content.duplicate();
+			d.position( start[ i ] );
+			d.get( b );
+			String s = new String( b, Charset.defaultCharset() );
+			if( s.length() > MAX_LINE_LENGTH ) {
+				sb.append( s, 0, MAX_LINE_LENGTH ).append( "..." );
+			}
+			else {
+				sb.append( s );
+			}
+			sb.append( '\n' );
+			if( !newline ) {
+				sb.append( "\\ No newline at end of file\n" );
+			}
+		}
+	}
+}
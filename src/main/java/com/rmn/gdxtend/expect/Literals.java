@@ -0,0 +1,213 @@
+package com.rmn.gdxtend.expect;
+
+import java.util.Arrays;
+
+/**
+ * A trie of literal strings, each with a replacement. It finds the leftmost
+ * match in an input, the longest one where several start at the same place.
+ * Strings can be added and removed as they come and go without rebuilding
+ * anything, and looking at a position in the input costs no more than the
+ * longest string that starts there.
+ */
+final class Literals {
+
+	private static final char[] NO_LABELS = new char[ 0 ];
+	private static final Node[] NO_CHILDREN = new Node[ 0 ];
+
+	private final Node root = new Node();
+	private int size = 0;
+
+	private static final class Node {
+		/**
+		 * The labels on the branches out of this node, sorted
+		 */
+		private char[] labels = NO_LABELS;
+		private Node[] children = NO_CHILDREN;
+
+		/**
+		 * The string that ends here, or null
+		 */
+		private String key;
+		private String replacement;
+
+		Node child( char c ) {
+			int i = Arrays.binarySearch( labels, c );
+			return i < 0 ? null : children[ i ];
+		}
+
+		Node add( char c ) {
+			int i = Arrays.binarySearch( labels, c );
+			if( i >= 0 ) {
+				return children[ i ];
+			}
+			i = -i - 1;
+			char[] l = new char[ labels.length + 1 ];
+			Node[] n = new Node[ l.length ];
+			System.arraycopy( labels, 0, l, 0, i );
+			System.arraycopy( children, 0, n, 0, i );
+			System.arraycopy( labels, i, l, i + 1, labels.length - i );
+			System.arraycopy( children, i, n, i + 1, labels.length - i );
+			l[ i ] = c;
+			n[ i ] = new Node();
+			labels = l;
+			children = n;
+			return n[ i ];
+		}
+
+		void remove( char c ) {
+			int i = Arrays.binarySearch( labels, c );
+			char[] l = new char[ labels.length - 1 ];
+			Node[] n = new Node[ l.length ];
+			System.arraycopy( labels, 0, l, 0, i );
+			System.arraycopy( children, 0, n, 0, i );
+			System.arraycopy( labels, i + 1, l, i, l.length - i );
+			System.arraycopy( children, i + 1, n, i, l.length - i );
+			labels = l;
+			children = n;
+		}
+	}
+
+	/**
+	 * @param key
+	 *          a string to find, not empty
+	 * @param replacement
+	 *          what to replace it with
+	 */
+	void put( String key, String replacement ) {
+		if( key.isEmpty() ) {
+			throw new IllegalArgumentException( "Empty literal" );
+		}
+		Node n = root;
+		for( int i = 0; i < key.length(); i++ ) {
+			n = n.add( key.charAt( i ) );
+		}
+		if( n.key == null ) {
+			size++;
+		}
+		n.key = key;
+		n.replacement = replacement;
+	}
+
+	/**
+	 * @param key
+	 *          a string to stop finding
+	 */
+	void remove( String key ) {
+		if( remove( root, key, 0 ) ) {
+			size--;
+		}
+	}
+
+	private static boolean remove( Node n, String key, int i ) {
+		if( i == key.length() ) {
+			boolean found = n.key != null;
+			n.key = null;
+			n.replacement = null;
+			return found;
+		}
+		Node c = n.child( key.charAt( i ) );
+		if( c == null || !remove( c, key, i + 1 ) ) {
+			return false;
+		}
+		if( c.key == null && c.labels.length == 0 ) {
+			n.remove( key.charAt( i ) );
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of strings
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param input
+	 *          the text to search
+	 * @return something to find the strings in that text
+	 */
+	Scanner scanner( CharSequence input ) {
+		return new Scanner( input );
+	}
+
+	/**
+	 * Finds strings in one input
+	 */
+	final class Scanner {
+		private final CharSequence input;
+		private int start, partial;
+		private Node match;
+
+		private Scanner( CharSequence input ) {
+			this.input = input;
+		}
+
+		/**
+		 * @param from
+		 *          where to start looking
+		 * @return <code>true</code> if a string was found
+		 */
+		boolean find( int from ) {
+			int length = input.length();
+			partial = -1;
+			for( int i = from; i < length; i++ ) {
+				match = null;
+				Node n = root;
+				int j = i;
+				for( ; j < length
+						&& ( n = n.child( input.charAt( j ) ) ) != null; j++ ) {
+					if( n.key != null ) {
+						match = n;
+					}
+				}
+				if( j == length && partial == -1 ) {
+					partial = i;
+				}
+				if( match != null ) {
+					start = i;
+					return true;
+				}
+			}
+			match = null;
+			return false;
+		}
+
+		/**
+		 * @return where the first string that might carry on past the end of
+		 *         the input starts, or -1 if none might. Set by the last
+		 *         {@link #find(int)}, and no later than the string found
+		 */
+		int partial() {
+			return partial;
+		}
+
+		/**
+		 * @return where the string that was found starts
+		 */
+		int start() {
+			return start;
+		}
+
+		/**
+		 * @return where the string that was found ends
+		 */
+		int end() {
+			return start + match.key.length();
+		}
+
+		/**
+		 * @return the string that was found
+		 */
+		String key() {
+			return match.key;
+		}
+
+		/**
+		 * @return the replacement for the string that was found
+		 */
+		String replacement() {
+			return match.replacement;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.rmn.gdxtend.expect;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The length and SHA-256 digest of each result in a directory, so that a
+ * passing result can be recognised without reading the file it would be
+ * compared against. Stored alongside the results in a file called
+ * {@value #NAME}, one result per line as "digest length name". Compressed
+ * results are described by their decompressed content.
+ * <p>
+ * Thread-safe.
+ */
+final class Manifest {
+
+	/**
+	 * The name of the manifest file in each result directory
+	 */
+	static final String NAME = ".manifest";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * What we know of one result
+	 */
+	static final class Entry {
+		/**
+		 * Length in bytes
+		 */
+		final long length;
+
+		/**
+		 * SHA-256 digest as hex
+		 */
+		final String digest;
+
+		Entry( long length, String digest ) {
+			this.length = length;
+			this.digest = digest;
+		}
+
+		/**
+		 * @param content
+		 *          a result
+		 * @return the entry for that result
+		 */
+		static Entry of( byte[] content ) {
+			return new Entry( content.length,
+					hex( newDigest().digest( content ) ) );
+		}
+
+		/**
+		 * @param content
+		 *          a result, which is read from its position to its limit
+		 *          without being disturbed
+		 * @return the entry for that result
+		 */
+		static Entry of( ByteBuffer content ) {
+			MessageDigest md = newDigest();
+			md.update( content.duplicate() );
+			return new Entry( content.remaining(), hex( md.digest() ) );
+		}
+
+		/**
+		 * @param w
+		 *          a closed writer
+		 * @return <code>true</code> if the writer received this result
+		 */
+		boolean matches( HashingWriter w ) {
+			return length == w.length() && digest.equals( w.digest() );
+		}
+	}
+
+	private final Map<String, Entry> entries = new TreeMap<>();
+
+	/**
+	 * @param name
+	 *          the name of a result file
+	 * @return what we know of that result, or <code>null</code> if nothing
+	 */
+	synchronized Entry get( String name ) {
+		return entries.get( name );
+	}
+
+	/**
+	 * @param name
+	 *          the name of a result file
+	 * @param e
+	 *          what we now know of it
+	 */
+	synchronized void put( String name, Entry e ) {
+		entries.put( name, e );
+	}
+
+	/**
+	 * @param name
+	 *          the name of a result file that we should no longer trust
+	 */
+	synchronized void remove( String name ) {
+		entries.remove( name );
+	}
+
+	/**
+	 * @return the number of results
+	 */
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @param content
+	 *          a manifest file
+	 * @return the manifest. Malformed lines are ignored
+	 */
+	static Manifest parse( byte[] content ) {
+		Manifest m = new Manifest();
+		for( String line : new String( content, StandardCharsets.UTF_8 )
+				.split( "\n" ) ) {
+			String[] parts = line.split( " ", 3 );
+			if( parts.length == 3 ) {
+				try {
+					m.entries.put( parts[ 2 ],
+							new Entry( Long.parseLong( parts[ 1 ] ), parts[ 0 ] ) );
+				}
+				catch( NumberFormatException nfe ) {
+					// the result will just be compared in full
+				}
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * @return the manifest file contents
+	 */
+	synchronized byte[] format() {
+		StringBuilder sb = new StringBuilder();
+		for( Map.Entry<String, Entry> e : entries.entrySet() ) {
+			sb.append( e.getValue().digest ).append( ' ' )
+					.append( e.getValue().length ).append( ' ' )
+					.append( e.getKey() ).append( '\n' );
+		}
+		return sb.toString().getBytes( StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * @return a new SHA-256 digest
+	 */
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance( "SHA-256" );
+		}
+		catch( NoSuchAlgorithmException nsae ) {
+			// every JRE has to provide it
+			throw new IllegalStateException( nsae );
+		}
+	}
+
+	/**
+	 * @param b
+	 *          some bytes
+	 * @return those bytes in lower-case hex
+	 */
+	static String hex( byte[] b ) {
+		char[] c = new char[ b.length * 2 ];
+		for( int i = 0; i < b.length; i++ ) {
+			c[ 2 * i ] = HEX[ ( b[ i ] >> 4 ) & 0xf ];
+			c[ 2 * i + 1 ] = HEX[ b[ i ] & 0xf ];
+		}
+		return new String( c );
+	}
+}
@@ -1,14 +1,37 @@
 package com.rmn.gdxtend.expect;
 
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.rmn.gdxtend.expect.CompiledMask.Scratch;
 
 /**
- * A set of masking operations
+ * A set of masking operations.
+ * <p>
+ * The masks are applied in the order they were added, each to what the ones
+ * before it wrote. To save passes over the input, runs of masks are compiled
+ * into one pattern that alternates between them, where that can't change the
+ * result: where no mask in the run can match text that one before it matches
+ * or writes. Masks that can't be told apart that way - those using anchors,
+ * boundaries, look-arounds, back-references or inline flags, and those that
+ * can match an empty string - get a pass of their own, as do those using named
+ * groups or <code>\G</code> and those with named references in their
+ * replacements.
+ * <p>
+ * Captured strings are found in the input to the mask that captures them, and
+ * are masked as literal strings wherever they appear in it, the longest winning
+ * where several start at the same place. They're masked in later inputs too,
+ * before anything else, but only the most recently seen are remembered from one
+ * input to the next - see {@link #remember(int)}.
+ * <p>
+ * A mask is not safe to share between threads. Use {@link #compile()} for one
+ * that is.
  */
 public class Mask {
 
@@ -16,7 +39,24 @@ public class Mask {
 	private int pendingFlags;
 	private boolean captures;
 
-	private Deque<Op> operations = new ArrayDeque<>();
+	/**
+	 * The default number of captured strings to remember
+	 */
+	public static final int REMEMBERED = 1 << 12;
+
+	private final List<Op> operations = new ArrayList<>();
+
+	/**
+	 * Strings that have been captured and are masked from now on
+	 */
+	private final Scratch memory = new Scratch();
+
+	private int remembered = REMEMBERED;
+
+	/**
+	 * The operations as they stand. Rebuilt when they change
+	 */
+	private CompiledMask compiled;
 
 	/**
 	 * @param pattern
@@ -53,6 +93,21 @@ public class Mask {
 		return this;
 	}
 
+	/**
+	 * @param captures
+	 *          how many captured strings to keep masking in later inputs.
+	 *          Those seen least recently are forgotten first
+	 * @return this
+	 */
+	public Mask remember( int captures ) {
+		if( captures < 0 ) {
+			throw new IllegalArgumentException( "Negative capacity " + captures );
+		}
+		remembered = captures;
+		memory.forget( remembered );
+		return this;
+	}
+
 	/**
 	 * @param replacement
 	 *          the strings to use to replace masked input
@@ -72,89 +127,375 @@ public class Mask {
 			operations.add( new Replacement( pendingPattern, pendingFlags,
 					replacement[ 0 ] ) );
 		}
+		compiled = null;
 
 		pendingPattern = null;
 		pendingFlags = 0;
 		return this;
 	}
 
+	/**
+	 * @return the masks as they stand, compiled so that they can be shared
+	 *         between threads. Strings captured by the compiled masks are only
+	 *         masked in the input they were captured from
+	 */
+	public CompiledMask compile() {
+		if( compiled == null ) {
+			compiled = new CompiledMask( operations );
+		}
+		return compiled;
+	}
+
 	/**
 	 * Applies the masks
-	 * 
+	 *
 	 * @param in
 	 *          unmasked string
 	 * @return masked string
 	 */
 	public String apply( String in ) {
-		String masked = in;
-		List<Op> toRun = new ArrayList<>( operations );
-
-		for( Op op : toRun ) {
-			masked = op.apply( masked );
-		}
+		String masked = compile().apply( in, memory );
+		memory.forget( remembered );
 		return masked;
 	}
 
-	private abstract class Op {
-		protected final Pattern pattern;
+	/**
+	 * Applies the masks a chunk at a time - see
+	 * {@link CompiledMask#apply(CharSequence, Appendable)}
+	 *
+	 * @param in
+	 *          unmasked text
+	 * @param out
+	 *          where to write the masked text
+	 * @throws IOException
+	 *           if the masked text can't be written
+	 */
+	public void apply( CharSequence in, Appendable out ) throws IOException {
+		compile().apply( in, out, memory );
+		memory.forget( remembered );
+	}
+
+	/**
+	 * Applies the masks a chunk at a time - see
+	 * {@link CompiledMask#apply(CharSequence, Appendable)}
+	 *
+	 * @param in
+	 *          unmasked text
+	 * @param out
+	 *          where to write the masked text
+	 * @throws IOException
+	 *           if the text can't be read or written
+	 */
+	public void apply( Reader in, Appendable out ) throws IOException {
+		compile().apply( in, out, memory );
+		memory.forget( remembered );
+	}
+
+	abstract static class Op {
+		final Pattern pattern;
 
 		protected Op( String pattern, int flags ) {
 			this.pattern = Pattern.compile( pattern, flags );
 		}
-
-		public abstract String apply( String input );
 	}
 
-	private class Replacement extends Op {
+	/**
+	 * A pattern and its replacement
+	 */
+	static final class Replacement extends Op {
 		private final String replacement;
 
-		public Replacement( String pattern, int flags, String replacement ) {
+		/**
+		 * The replacement, split into literal strings and group numbers. Null if
+		 * it can't be used in a combined pattern
+		 */
+		private final List<Object> parts;
+
+		/**
+		 * The pattern wrapped up to be one alternative in a combined pattern, or
+		 * null if it can't be
+		 */
+		final String alternative;
+
+		/**
+		 * The number of groups in the alternative, including the one that wraps
+		 * it
+		 */
+		final int groups;
+
+		Replacement( String pattern, int flags, String replacement ) {
 			super( pattern, flags );
 			this.replacement = replacement;
+			int g = ( flags & Pattern.LITERAL ) != 0 ? 0
+					: this.pattern.matcher( "" ).groupCount();
+			parts = parse( replacement, g );
+			alternative = alternative( this.pattern );
+			groups = g + 1;
+		}
+
+		/**
+		 * @return <code>true</code> if this can be combined with others
+		 */
+		boolean combinable() {
+			return parts != null && alternative != null;
 		}
 
-		@Override
-		public String apply( String input ) {
+		/**
+		 * @param matched
+		 *          the strings that the pattern matches, or null if they can't be
+		 *          told
+		 * @return the strings that this can write, or null if they can't be told
+		 */
+		Language written( Language matched ) {
+			return Language.replacement( parts, matched );
+		}
+
+		String apply( String input ) {
 			Matcher m = pattern.matcher( input );
 			return m.replaceAll( replacement );
 		}
+
+		/**
+		 * Appends the replacement for a match of {@link #pattern}, as
+		 * {@link Matcher#appendReplacement(StringBuffer, String)} does
+		 */
+		void append( Matcher m, StringBuffer sb ) {
+			m.appendReplacement( sb, replacement );
+		}
+
+		/**
+		 * Appends the replacement for a match of the combined pattern
+		 *
+		 * @param m
+		 *          the combined matcher
+		 * @param group
+		 *          the group that wraps this alternative
+		 * @param sb
+		 *          where to append
+		 */
+		void append( Matcher m, int group, StringBuilder sb ) {
+			for( Object o : parts ) {
+				if( o instanceof Integer ) {
+					String g = m.group( group + (Integer) o );
+					if( g != null ) {
+						sb.append( g );
+					}
+				}
+				else {
+					sb.append( (String) o );
+				}
+			}
+		}
 	}
 
-	private class CaptureReplacement extends Op {
+	static final class CaptureReplacement extends Op {
 		private final String[] replacements;
 
-		public CaptureReplacement( String pattern, int flags,
+		CaptureReplacement( String pattern, int flags,
 				String... replacements ) {
 			super( pattern, flags );
 			this.replacements = replacements;
 		}
 
-		@Override
-		public String apply( String input ) {
+		/**
+		 * @return what the strings captured by each group are masked with
+		 */
+		List<String> replacements() {
+			return Arrays.asList( replacements );
+		}
 
-			// build a list of replacements from the captures that we find
-			List<Replacement> toRun = new ArrayList<>();
+		/**
+		 * Finds captured strings that aren't yet masked
+		 *
+		 * @param input
+		 *          the input
+		 * @param scratch
+		 *          where to keep the captured strings
+		 */
+		void discover( String input, Scratch scratch ) {
 			Matcher m = pattern.matcher( input );
 			int count = 0;
 			while( m.find() ) {
-				count++;
-				for( int i = 0; i < replacements.length && i < m.groupCount(); i++ ) {
-					// avoid masking stuff we've already masked
-					if( !m.group( i + 1 ).matches( replacements[ i ] + "_\\d+" ) ) {
-						toRun.add( new Replacement( m.group( i + 1 ), pattern.flags(),
-								replacements[ i ] + "_" + count ) );
-					}
+				capture( m, ++count, scratch );
+			}
+		}
+
+		/**
+		 * Keeps the strings captured by one match
+		 *
+		 * @param m
+		 *          a matcher of {@link #pattern} that has just matched
+		 * @param count
+		 *          the number of the match
+		 * @param scratch
+		 *          where to keep the captured strings
+		 */
+		void capture( Matcher m, int count, Scratch scratch ) {
+			for( int i = 0; i < replacements.length && i < m.groupCount(); i++ ) {
+				String g = m.group( i + 1 );
+				// avoid masking stuff we've already masked
+				if( g != null && !g.isEmpty() && !scratch.contains( g )
+						&& !masked( g, replacements[ i ] ) ) {
+					scratch.put( g, replacements[ i ] + "_" + count );
 				}
 			}
+		}
+	}
 
-			// ad them to this mask and run them
-			String masked = input;
-			for( Replacement r : toRun ) {
-				operations.addFirst( r );
-				masked = r.apply( masked );
+	/**
+	 * @return <code>true</code> if the string is a replacement made by a capture
+	 *         mask
+	 */
+	private static boolean masked( String s, String replacement ) {
+		int n = replacement.length() + 1;
+		if( s.length() <= n || !s.startsWith( replacement )
+				|| s.charAt( n - 1 ) != '_' ) {
+			return false;
+		}
+		for( int i = n; i < s.length(); i++ ) {
+			if( s.charAt( i ) < '0' || s.charAt( i ) > '9' ) {
+				return false;
 			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param p
+	 *          a pattern
+	 * @return the pattern wrapped in a group, with its flags inline, or null if
+	 *         it can't be used alongside other patterns
+	 */
+	private static String alternative( Pattern p ) {
+		int flags = p.flags();
+		if( ( flags & Pattern.LITERAL ) != 0 ) {
+			return "(" + flags( flags & ~Pattern.LITERAL )
+					+ Pattern.quote( p.pattern() ) + "))";
+		}
+		if( ( flags & Pattern.CANON_EQ ) != 0 ) {
+			return null;
+		}
+
+		// group numbers would change, or refer to another alternative
+		String s = p.pattern();
+		for( int i = 0; i < s.length() - 1; i++ ) {
+			if( s.charAt( i ) == '\\' ) {
+				char c = s.charAt( ++i );
+				if( c >= '1' && c <= '9' || c == 'k' || c == 'G' ) {
+					return null;
+				}
+			}
+			else if( s.startsWith( "(?<", i ) && i + 3 < s.length()
+					&& Character.isLetter( s.charAt( i + 3 ) ) ) {
+				return null;
+			}
+		}
+
+		// the newline ends any comment, should comments be allowed
+		String a = "(" + flags( flags ) + s
+				+ ( ( flags & Pattern.COMMENTS ) != 0 ? "\n" : "" ) + "))";
+		try {
+			if( Pattern.compile( a ).matcher( "" ).groupCount() != p.matcher( "" )
+					.groupCount() + 1 ) {
+				return null;
+			}
+		}
+		catch( PatternSyntaxException pse ) {
+			// it wasn't self-contained, e.g. an unterminated quote
+			return null;
+		}
+		return a;
+	}
 
-			return masked;
+	/**
+	 * @return the start of a non-capturing group with the flags inline
+	 */
+	private static String flags( int flags ) {
+		StringBuilder sb = new StringBuilder( "(?" );
+		if( ( flags & Pattern.UNIX_LINES ) != 0 ) {
+			sb.append( 'd' );
+		}
+		if( ( flags & Pattern.CASE_INSENSITIVE ) != 0 ) {
+			sb.append( 'i' );
+		}
+		if( ( flags & Pattern.COMMENTS ) != 0 ) {
+			sb.append( 'x' );
+		}
+		if( ( flags & Pattern.MULTILINE ) != 0 ) {
+			sb.append( 'm' );
+		}
+		if( ( flags & Pattern.DOTALL ) != 0 ) {
+			sb.append( 's' );
+		}
+		if( ( flags & Pattern.UNICODE_CASE ) != 0 ) {
+			sb.append( 'u' );
+		}
+		if( ( flags & Pattern.UNICODE_CHARACTER_CLASS ) != 0 ) {
+			sb.append( 'U' );
+		}
+		return sb.append( ':' ).toString();
+	}
+
+	/**
+	 * Splits a replacement string as {@link Matcher#appendReplacement} would
+	 *
+	 * @param replacement
+	 *          a replacement string
+	 * @param groups
+	 *          the number of groups in the pattern
+	 * @return literal strings and group numbers, or null if the replacement
+	 *         refers to named groups
+	 */
+	private static List<Object> parse( String replacement, int groups ) {
+		List<Object> parts = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int i = 0;
+		while( i < replacement.length() ) {
+			char c = replacement.charAt( i++ );
+			if( c == '\\' ) {
+				if( i == replacement.length() ) {
+					throw new IllegalArgumentException(
+							"character to be escaped is missing" );
+				}
+				literal.append( replacement.charAt( i++ ) );
+			}
+			else if( c == '$' ) {
+				if( i == replacement.length() ) {
+					throw new IllegalArgumentException(
+							"Illegal group reference: group index is missing" );
+				}
+				if( replacement.charAt( i ) == '{' ) {
+					return null;
+				}
+				int ref = replacement.charAt( i++ ) - '0';
+				if( ref < 0 || ref > 9 ) {
+					throw new IllegalArgumentException( "Illegal group reference" );
+				}
+				// take as many digits as make a group that exists
+				while( i < replacement.length() ) {
+					int d = replacement.charAt( i ) - '0';
+					if( d < 0 || d > 9 || ref * 10 + d > groups ) {
+						break;
+					}
+					ref = ref * 10 + d;
+					i++;
+				}
+				if( ref > groups ) {
+					throw new IndexOutOfBoundsException( "No group " + ref );
+				}
+				if( literal.length() > 0 ) {
+					parts.add( literal.toString() );
+					literal.setLength( 0 );
+				}
+				parts.add( ref );
+			}
+			else {
+				literal.append( c );
+			}
+		}
+		if( literal.length() > 0 ) {
+			parts.add( literal.toString() );
 		}
+		return parts;
 	}
 }
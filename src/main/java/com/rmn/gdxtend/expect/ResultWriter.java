@@ -0,0 +1,211 @@
+package com.rmn.gdxtend.expect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes result files in the background, so tests don't wait on the disk. The
+ * queue of writes is bounded: once it fills up, the test thread does the
+ * writing itself until it drains. Files are written to a temporary file and
+ * then renamed, so that a result file is never seen half-written.
+ * <p>
+ * Writes still queued when the JVM exits are finished before it does, and
+ * then any tasks registered with {@link #atExit(Runnable)} are run.
+ */
+final class ResultWriter {
+
+	private static final int THREADS = 2;
+	private static final int QUEUE = 64;
+
+	private static final ResultWriter SHARED = new ResultWriter();
+
+	private final ThreadPoolExecutor executor;
+
+	private final List<Runnable> exits = new CopyOnWriteArrayList<>();
+
+	private ResultWriter() {
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor( THREADS, THREADS, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>( QUEUE ),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread( Runnable r ) {
+						Thread t = new Thread( r,
+								"gdxtest-result-writer-" + count.incrementAndGet() );
+						t.setDaemon( true );
+						return t;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy() );
+
+		Runtime.getRuntime().addShutdownHook(
+				new Thread( "gdxtest-result-flush" ) {
+					@Override
+					public void run() {
+						executor.shutdown();
+						try {
+							if( !executor.awaitTermination( 1, TimeUnit.MINUTES ) ) {
+								System.err.println( "Gave up waiting to write results" );
+							}
+						}
+						catch( InterruptedException e ) {
+							Thread.currentThread().interrupt();
+						}
+						for( Runnable r : exits ) {
+							r.run();
+						}
+					}
+				} );
+	}
+
+	/**
+	 * Runs a task when the JVM exits, after the queued writes are finished
+	 *
+	 * @param task
+	 *          what to do
+	 */
+	void atExit( Runnable task ) {
+		exits.add( task );
+	}
+
+	/**
+	 * @return the writer that everything shares
+	 */
+	static ResultWriter shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Queues a write
+	 *
+	 * @param f
+	 *          the file to write. Its directory is created if need be
+	 * @param content
+	 *          what to write. This must not be modified afterwards
+	 * @return completes when the file is written, with an {@link IOException}
+	 *         if that fails
+	 */
+	Future<?> write( final File f, final byte[] content ) {
+		return submit( new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+				atomicWrite( f, content );
+				return null;
+			}
+		} );
+	}
+
+	/**
+	 * Queues some other work
+	 *
+	 * @param task
+	 *          what to do
+	 * @return completes when the task is done
+	 */
+	Future<?> submit( Callable<Void> task ) {
+		return executor.submit( task );
+	}
+
+	/**
+	 * Writes to a temporary file in the same directory and then renames it over
+	 * the target
+	 *
+	 * @param f
+	 *          the file to write. Its directory is created if need be
+	 * @param content
+	 *          what to write
+	 * @throws IOException
+	 *           if writing fails
+	 */
+	static void atomicWrite( File f, byte[] content ) throws IOException {
+		Path tmp;
+		try {
+			tmp = temp( f );
+		}
+		catch( NoSuchFileException nsfe ) {
+			// someone tidied up the directory under our feet, try once more
+			tmp = temp( f );
+		}
+		try {
+			Files.write( tmp, content );
+			try {
+				Files.move( tmp, f.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE );
+			}
+			catch( AtomicMoveNotSupportedException amnse ) {
+				Files.move( tmp, f.toPath(), StandardCopyOption.REPLACE_EXISTING );
+			}
+		}
+		finally {
+			Files.deleteIfExists( tmp );
+		}
+	}
+
+	private static Path temp( File f ) throws IOException {
+		File dir = f.getAbsoluteFile().getParentFile();
+		dir.mkdirs();
+		if( !dir.isDirectory() ) {
+			throw new NoSuchFileException( dir.getPath() );
+		}
+		// not Files.createTempFile, we want the usual permissions
+		return File.createTempFile( "." + f.getName() + "-", ".tmp", dir )
+				.toPath();
+	}
+
+	/**
+	 * Waits for writes to finish
+	 *
+	 * @param pending
+	 *          the writes. This is emptied
+	 * @throws IOException
+	 *           the first failure, with any others suppressed
+	 */
+	static void await( List<Future<?>> pending ) throws IOException {
+		IOException failure = null;
+		boolean interrupted = false;
+		for( Future<?> f : pending ) {
+			while( true ) {
+				try {
+					f.get();
+					break;
+				}
+				catch( InterruptedException ie ) {
+					interrupted = true;
+				}
+				catch( ExecutionException ee ) {
+					IOException ioe = ee.getCause() instanceof IOException
+							? (IOException) ee.getCause()
+							: new IOException( ee.getCause() );
+					if( failure == null ) {
+						failure = ioe;
+					}
+					else {
+						failure.addSuppressed( ioe );
+					}
+					break;
+				}
+			}
+		}
+		pending.clear();
+		if( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+		if( failure != null ) {
+			throw failure;
+		}
+	}
+}
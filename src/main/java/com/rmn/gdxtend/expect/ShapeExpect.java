@@ -4,6 +4,8 @@ import java.awt.Color;
 
 import org.jfree.graphics2d.svg.SVGGraphics2D;
 
+import com.rmn.gdxtend.Timings;
+import com.rmn.gdxtend.Timings.Phase;
 import com.rmn.gdxtend.geom.Shape;
 
 /**
@@ -49,6 +51,7 @@ public class ShapeExpect extends AbstractSketchExpect<ShapeExpect> {
 		int height = (int) ( maxY - minY );
 		int vMargin = (int) ( height * 0.125f );
 
+		long start = Timings.start();
 		SVGGraphics2D g = new SVGGraphics2D( width + 2 * hMargin,
 				height + 2 * vMargin );
 
@@ -80,6 +83,7 @@ public class ShapeExpect extends AbstractSketchExpect<ShapeExpect> {
 			g.drawLine( bx, by, cx, cy );
 			g.drawLine( cx, cy, ax, ay );
 		}
+		Timings.stop( Phase.SVG, start );
 
 		check( g );
 	}
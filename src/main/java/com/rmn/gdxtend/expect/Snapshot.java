@@ -0,0 +1,190 @@
+package com.rmn.gdxtend.expect;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+
+import com.rmn.gdxtend.expect.AbstractExpect.Content;
+
+/**
+ * A result recorded as it was written, so that it can be checked later on
+ * another thread. Small results are held in memory, larger ones are spilled to
+ * a temporary file, in a directory of spills that is cleared when the JVM
+ * exits. The recording can be replayed as often as needed until it is
+ * disposed of, which deletes any spill.
+ */
+final class Snapshot extends EncodingWriter implements Content {
+
+	/**
+	 * Results larger than this many bytes are spilled to disk
+	 */
+	static final int SPILL = 1 << 20;
+
+	/**
+	 * Where results are spilled, created when first needed
+	 */
+	private static File spills;
+
+	private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+	private File spill;
+	private OutputStream out;
+	private long size = 0;
+
+	private Snapshot() {
+	}
+
+	/**
+	 * @param c
+	 *          produces a result
+	 * @return a recording of that result
+	 * @throws IOException
+	 *           if the result can't be produced or spilled
+	 */
+	static Snapshot of( Content c ) throws IOException {
+		Snapshot s = new Snapshot();
+		try {
+			c.write( s );
+			s.close();
+		}
+		catch( IOException | RuntimeException e ) {
+			s.dispose();
+			throw e;
+		}
+		return s;
+	}
+
+	/**
+	 * @return the directory that results are spilled to. Anything in it that
+	 *         wasn't disposed of is deleted, along with the directory, when the
+	 *         JVM exits
+	 * @throws IOException
+	 *           if the directory can't be created
+	 */
+	private static synchronized File spills() throws IOException {
+		if( spills == null ) {
+			final File dir = Files.createTempDirectory( "gdxtest-" ).toFile();
+			Runtime.getRuntime().addShutdownHook( new Thread( "gdxtest-spills" ) {
+				@Override
+				public void run() {
+					File[] left = dir.listFiles();
+					if( left != null ) {
+						for( File f : left ) {
+							f.delete();
+						}
+					}
+					dir.delete();
+				}
+			} );
+			spills = dir;
+		}
+		return spills;
+	}
+
+	/**
+	 * @return the size of the result in bytes
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * @return <code>true</code> if the result has been spilled to disk
+	 */
+	boolean spilled() {
+		return spill != null;
+	}
+
+	/**
+	 * @return the file the result was spilled to, or <code>null</code> if it
+	 *         wasn't
+	 */
+	File spillFile() {
+		return spill;
+	}
+
+	@Override
+	protected void consume( ByteBuffer bytes ) throws IOException {
+		if( out == null && memory.size() + bytes.remaining() > SPILL ) {
+			spill = File.createTempFile( "gdxtest-", ".actual", spills() );
+			out = new BufferedOutputStream( new FileOutputStream( spill ) );
+			memory.writeTo( out );
+			memory = null;
+		}
+		int n = bytes.remaining();
+		( out != null ? out : memory ).write( bytes.array(),
+				bytes.arrayOffset() + bytes.position(), n );
+		bytes.position( bytes.limit() );
+		size += n;
+	}
+
+	@Override
+	protected void finish() throws IOException {
+		if( out != null ) {
+			out.close();
+		}
+	}
+
+	/**
+	 * Replays the result. Bytes go straight to an {@link EncodingWriter}, other
+	 * destinations get characters
+	 */
+	@Override
+	public void write( Appendable dest ) throws IOException {
+		if( dest instanceof EncodingWriter ) {
+			EncodingWriter w = (EncodingWriter) dest;
+			if( spill == null ) {
+				w.feed( ByteBuffer.wrap( memory.toByteArray() ) );
+			}
+			else {
+				try( InputStream in = new FileInputStream( spill ) ) {
+					byte[] b = new byte[ BUFFER ];
+					int n;
+					while( ( n = in.read( b ) ) >= 0 ) {
+						w.feed( ByteBuffer.wrap( b, 0, n ) );
+					}
+				}
+			}
+		}
+		else if( spill == null ) {
+			dest.append( new String( memory.toByteArray() ) );
+		}
+		else {
+			try( Reader in = new InputStreamReader( new FileInputStream( spill ) ) ) {
+				CharBuffer cb = CharBuffer.allocate( BUFFER );
+				while( in.read( cb ) >= 0 ) {
+					cb.flip();
+					dest.append( cb );
+					cb.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the spilled result, if there is one. A result that can't be
+	 * deleted now is left for the JVM's exit
+	 */
+	void dispose() {
+		if( out != null ) {
+			try {
+				out.close();
+			}
+			catch( IOException ioe ) {
+				// we're throwing it away anyway
+			}
+		}
+		if( spill != null ) {
+			spill.delete();
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.rmn.gdxtend.expect;
 
 import java.awt.Color;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -13,6 +14,8 @@ import org.jfree.data.xy.XYSeriesCollection;
 import org.jfree.graphics2d.svg.SVGGraphics2D;
 import org.junit.runner.Description;
 
+import com.rmn.gdxtend.Timings;
+import com.rmn.gdxtend.Timings.Phase;
 import com.rmn.gdxtend.math.Function;
 import com.rmn.gdxtend.math.RangeMap;
 
@@ -21,6 +24,14 @@ import com.rmn.gdxtend.math.RangeMap;
  */
 public class XYPlotExpect extends AbstractSketchExpect<XYPlotExpect> {
 
+	/**
+	 * clipPath ids change with every run, so we need to mask them
+	 */
+	private static final CompiledMask CLIP_PATHS = new Mask()
+			.maskCaptures( "<clipPath id=\"(.*?)\">" )
+			.with( "clip_path" )
+			.compile();
+
 	private static final XYPlotExpect BASE_DEFAULTS = new XYPlotExpect();
 
 	/**
@@ -220,16 +231,16 @@ public class XYPlotExpect extends AbstractSketchExpect<XYPlotExpect> {
 
 	@Override
 	public void check( SVGGraphics2D g ) {
-		String svg = g.getSVGDocument();
-		svg = pretty( svg );
-
-		// clipPath ids change with every run, so we need to mask them
-		svg = new Mask()
-				.maskCaptures( "<clipPath id=\"(.*?)\">" )
-				.with( "clip_path" )
-				.apply( svg );
-
-		super.check( svg );
+		long start = Timings.start();
+		final String svg = g.getSVGDocument();
+		Timings.stop( Phase.SVG, start );
+
+		check( new Content() {
+			@Override
+			public void write( Appendable out ) throws IOException {
+				pretty( svg, out );
+			}
+		}, CLIP_PATHS );
 	}
 
 	/**
@@ -246,8 +257,10 @@ public class XYPlotExpect extends AbstractSketchExpect<XYPlotExpect> {
 		jfc.getXYPlot().setRangeGridlinePaint( Color.GRAY );
 		// jfc.getXYPlot().setBackgroundAlpha( 0 );
 
+		long start = Timings.start();
 		SVGGraphics2D g = new SVGGraphics2D( width, height );
 		jfc.draw( g, new Rectangle2D.Float( 0, 0, width, height ) );
+		Timings.stop( Phase.SVG, start );
 
 		check( g );
 
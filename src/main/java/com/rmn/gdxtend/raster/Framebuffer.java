@@ -0,0 +1,85 @@
+package com.rmn.gdxtend.raster;
+
+import java.util.Arrays;
+
+/**
+ * The colour, depth and stencil planes that {@link SoftwareGL} renders into.
+ * As in gl, the origin is at the bottom left.
+ */
+public class Framebuffer {
+
+	/**
+	 * Width in pixels
+	 */
+	public final int width;
+
+	/**
+	 * Height in pixels
+	 */
+	public final int height;
+
+	/**
+	 * RGBA8888 colour values
+	 */
+	final int[] colour;
+
+	/**
+	 * Depth values, in the range 0 to 1
+	 */
+	final float[] depth;
+
+	/**
+	 * 8-bit stencil values
+	 */
+	final byte[] stencil;
+
+	Framebuffer( int width, int height ) {
+		this.width = width;
+		this.height = height;
+		colour = new int[ width * height ];
+		depth = new float[ width * height ];
+		stencil = new byte[ width * height ];
+		Arrays.fill( depth, 1 );
+	}
+
+	/**
+	 * @param x
+	 *          from the left
+	 * @param y
+	 *          from the bottom
+	 * @return The RGBA8888 colour of the pixel
+	 */
+	public int colour( int x, int y ) {
+		return colour[ index( x, y ) ];
+	}
+
+	/**
+	 * @param x
+	 *          from the left
+	 * @param y
+	 *          from the bottom
+	 * @return The depth of the pixel
+	 */
+	public float depth( int x, int y ) {
+		return depth[ index( x, y ) ];
+	}
+
+	/**
+	 * @param x
+	 *          from the left
+	 * @param y
+	 *          from the bottom
+	 * @return The stencil value of the pixel
+	 */
+	public int stencil( int x, int y ) {
+		return stencil[ index( x, y ) ] & 0xff;
+	}
+
+	private int index( int x, int y ) {
+		if( x < 0 || x >= width || y < 0 || y >= height ) {
+			throw new IndexOutOfBoundsException( x + "," + y + " is outside "
+					+ width + "x" + height );
+		}
+		return y * width + x;
+	}
+}
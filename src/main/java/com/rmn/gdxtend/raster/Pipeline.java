@@ -0,0 +1,75 @@
+package com.rmn.gdxtend.raster;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * The fixed-function state that governs how {@link SoftwareGL} turns triangles
+ * into pixels. Per-face stencil state is indexed by {@link #FRONT} and
+ * {@link #BACK}.
+ */
+class Pipeline {
+
+	static final int FRONT = 0, BACK = 1;
+
+	int viewportX, viewportY, viewportWidth, viewportHeight;
+	float depthNear = 0, depthFar = 1;
+
+	boolean scissorTest = false;
+	int scissorX, scissorY, scissorWidth, scissorHeight;
+
+	boolean cullFace = false;
+	int cullMode = GL20.GL_BACK;
+	int frontFace = GL20.GL_CCW;
+
+	boolean polygonOffsetFill = false;
+	float offsetFactor = 0, offsetUnits = 0;
+
+	boolean depthTest = false;
+	int depthFunc = GL20.GL_LESS;
+	boolean depthMask = true;
+
+	boolean stencilTest = false;
+	final int[] stencilFunc = { GL20.GL_ALWAYS, GL20.GL_ALWAYS };
+	final int[] stencilRef = { 0, 0 };
+	final int[] stencilValueMask = { 0xff, 0xff };
+	final int[] stencilWriteMask = { 0xff, 0xff };
+	final int[] stencilFail = { GL20.GL_KEEP, GL20.GL_KEEP };
+	final int[] stencilDepthFail = { GL20.GL_KEEP, GL20.GL_KEEP };
+	final int[] stencilPass = { GL20.GL_KEEP, GL20.GL_KEEP };
+
+	boolean blend = false;
+	int blendSrcRGB = GL20.GL_ONE, blendDstRGB = GL20.GL_ZERO;
+	int blendSrcAlpha = GL20.GL_ONE, blendDstAlpha = GL20.GL_ZERO;
+	int blendEquationRGB = GL20.GL_FUNC_ADD;
+	int blendEquationAlpha = GL20.GL_FUNC_ADD;
+	final float[] blendColour = new float[ 4 ];
+
+	final boolean[] colourMask = { true, true, true, true };
+
+	final float[] clearColour = new float[ 4 ];
+	float clearDepth = 1;
+	int clearStencil = 0;
+
+	Pipeline( int width, int height ) {
+		viewportWidth = scissorWidth = width;
+		viewportHeight = scissorHeight = height;
+	}
+
+	/**
+	 * @param face
+	 *          {@link GL20#GL_FRONT}, {@link GL20#GL_BACK} or
+	 *          {@link GL20#GL_FRONT_AND_BACK}
+	 * @param values
+	 *          per-face state
+	 * @param value
+	 *          the new value for the specified faces
+	 */
+	static void setFaces( int face, int[] values, int value ) {
+		if( face == GL20.GL_FRONT || face == GL20.GL_FRONT_AND_BACK ) {
+			values[ FRONT ] = value;
+		}
+		if( face == GL20.GL_BACK || face == GL20.GL_FRONT_AND_BACK ) {
+			values[ BACK ] = value;
+		}
+	}
+}
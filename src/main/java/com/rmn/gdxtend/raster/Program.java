@@ -0,0 +1,183 @@
+package com.rmn.gdxtend.raster;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * A linked shader program. The glsl is never executed: linking only extracts
+ * the attribute and uniform declarations so that locations can be handed out
+ * and uniform values stored for {@link SoftwareGL}'s fixed shading path.
+ */
+class Program {
+
+	private static final Pattern DECLARATION = Pattern.compile(
+			"\\b(attribute|uniform)\\s+(?:(?:lowp|mediump|highp)\\s+)?"
+					+ "(\\w+)\\s+(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*\\])?\\s*;" );
+
+	private static final Map<String, Integer> TYPES = new HashMap<>();
+	static {
+		TYPES.put( "float", GL20.GL_FLOAT );
+		TYPES.put( "vec2", GL20.GL_FLOAT_VEC2 );
+		TYPES.put( "vec3", GL20.GL_FLOAT_VEC3 );
+		TYPES.put( "vec4", GL20.GL_FLOAT_VEC4 );
+		TYPES.put( "int", GL20.GL_INT );
+		TYPES.put( "ivec2", GL20.GL_INT_VEC2 );
+		TYPES.put( "ivec3", GL20.GL_INT_VEC3 );
+		TYPES.put( "ivec4", GL20.GL_INT_VEC4 );
+		TYPES.put( "bool", GL20.GL_BOOL );
+		TYPES.put( "bvec2", GL20.GL_BOOL_VEC2 );
+		TYPES.put( "bvec3", GL20.GL_BOOL_VEC3 );
+		TYPES.put( "bvec4", GL20.GL_BOOL_VEC4 );
+		TYPES.put( "mat2", GL20.GL_FLOAT_MAT2 );
+		TYPES.put( "mat3", GL20.GL_FLOAT_MAT3 );
+		TYPES.put( "mat4", GL20.GL_FLOAT_MAT4 );
+		TYPES.put( "sampler2D", GL20.GL_SAMPLER_2D );
+		TYPES.put( "samplerCube", GL20.GL_SAMPLER_CUBE );
+	}
+
+	/**
+	 * A declared attribute or uniform
+	 */
+	static class Variable {
+		final String name;
+		final int type;
+		final int size;
+		int location;
+
+		Variable( String name, int type, int size ) {
+			this.name = name;
+			this.type = type;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * A shader object
+	 */
+	static class Shader {
+		final int type;
+		String source = "";
+
+		Shader( int type ) {
+			this.type = type;
+		}
+	}
+
+	final List<Shader> shaders = new ArrayList<>();
+
+	/**
+	 * Attribute locations requested before linking
+	 */
+	final Map<String, Integer> boundLocations = new HashMap<>();
+
+	final List<Variable> attributes = new ArrayList<>();
+	final List<Variable> uniforms = new ArrayList<>();
+
+	/**
+	 * Uniform values, indexed by location. Every location can hold a 4x4 matrix
+	 */
+	float[][] values = new float[ 0 ][];
+
+	boolean linked = false;
+
+	/**
+	 * Extracts declarations from the attached shaders and assigns locations
+	 */
+	void link() {
+		attributes.clear();
+		uniforms.clear();
+		Map<String, Variable> seen = new HashMap<>();
+		for( Shader s : shaders ) {
+			Matcher m = DECLARATION.matcher( s.source );
+			while( m.find() ) {
+				String name = m.group( 3 );
+				if( seen.containsKey( name ) ) {
+					continue;
+				}
+				Integer type = TYPES.get( m.group( 2 ) );
+				int size = m.group( 4 ) == null ? 1 : Integer.parseInt( m.group( 4 ) );
+				Variable v = new Variable( name,
+						type == null ? GL20.GL_FLOAT_VEC4 : type, size );
+				seen.put( name, v );
+				( "attribute".equals( m.group( 1 ) ) ? attributes : uniforms ).add( v );
+			}
+		}
+
+		int next = 0;
+		for( Variable a : attributes ) {
+			Integer bound = boundLocations.get( a.name );
+			if( bound != null ) {
+				a.location = bound;
+			}
+			else {
+				while( boundLocations.containsValue( next ) ) {
+					next++;
+				}
+				a.location = next++;
+			}
+		}
+
+		next = 0;
+		for( Variable u : uniforms ) {
+			u.location = next;
+			next += u.size;
+		}
+		values = new float[ next ][ 16 ];
+		linked = true;
+	}
+
+	/**
+	 * @param name
+	 *          an attribute name
+	 * @return the attribute, or null
+	 */
+	Variable attribute( String name ) {
+		for( Variable a : attributes ) {
+			if( a.name.equals( name ) ) {
+				return a;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param name
+	 *          a uniform name, optionally with an array index
+	 * @return the uniform location, or -1
+	 */
+	int uniformLocation( String name ) {
+		int index = 0;
+		int bracket = name.indexOf( '[' );
+		if( bracket >= 0 && name.endsWith( "]" ) ) {
+			index = Integer.parseInt( name.substring( bracket + 1,
+					name.length() - 1 ).trim() );
+			name = name.substring( 0, bracket );
+		}
+		for( Variable u : uniforms ) {
+			if( u.name.equals( name ) && index < u.size ) {
+				return u.location + index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param type
+	 *          a gl type constant
+	 * @return the first uniform of that type, or null
+	 */
+	Variable firstUniform( int type ) {
+		for( Variable u : uniforms ) {
+			if( u.type == type ) {
+				return u;
+			}
+		}
+		return null;
+	}
+}
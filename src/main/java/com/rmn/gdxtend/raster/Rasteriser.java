@@ -0,0 +1,587 @@
+package com.rmn.gdxtend.raster;
+
+import static com.rmn.gdxtend.raster.Pipeline.BACK;
+import static com.rmn.gdxtend.raster.Pipeline.FRONT;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * Turns clip-space triangles into fragments. The framebuffer is split into
+ * square tiles, triangles are binned by the tiles their bounds touch, and the
+ * tiles are filled concurrently - no two tasks ever write to the same pixel.
+ */
+class Rasteriser {
+
+	/**
+	 * Tile edge length, in pixels
+	 */
+	static final int TILE = 64;
+
+	/**
+	 * Clip-space vertex layout: position, then the varyings
+	 */
+	static final int X = 0, Y = 1, Z = 2, W = 3, R = 4, G = 5, B = 6, A = 7,
+			S = 8, T = 9, SIZE = 10;
+
+	private static final int VARYINGS = SIZE - R;
+
+	private static final float UNIT_OFFSET = 1f / ( 1 << 24 );
+
+	private final Framebuffer fb;
+
+	private final ExecutorService pool;
+
+	Rasteriser( Framebuffer fb, ExecutorService pool ) {
+		this.fb = fb;
+		this.pool = pool;
+	}
+
+	/**
+	 * Draws triangles
+	 *
+	 * @param p
+	 *          pipeline state
+	 * @param texture
+	 *          the image to sample, or null
+	 * @param vertices
+	 *          clip-space vertices, three per triangle
+	 * @param count
+	 *          the number of vertices
+	 */
+	void draw( Pipeline p, TextureImage texture, float[][] vertices, int count ) {
+		int minX = p.viewportX, minY = p.viewportY;
+		int maxX = p.viewportX + p.viewportWidth;
+		int maxY = p.viewportY + p.viewportHeight;
+		if( p.scissorTest ) {
+			minX = Math.max( minX, p.scissorX );
+			minY = Math.max( minY, p.scissorY );
+			maxX = Math.min( maxX, p.scissorX + p.scissorWidth );
+			maxY = Math.min( maxY, p.scissorY + p.scissorHeight );
+		}
+		minX = Math.max( minX, 0 );
+		minY = Math.max( minY, 0 );
+		maxX = Math.min( maxX, fb.width );
+		maxY = Math.min( maxY, fb.height );
+		if( minX >= maxX || minY >= maxY ) {
+			return;
+		}
+
+		List<Triangle> triangles = new ArrayList<>();
+		List<float[]> polygon = new ArrayList<>();
+		for( int i = 0; i + 2 < count; i += 3 ) {
+			polygon.clear();
+			polygon.add( vertices[ i ] );
+			polygon.add( vertices[ i + 1 ] );
+			polygon.add( vertices[ i + 2 ] );
+			clip( polygon );
+			for( int j = 1; j + 1 < polygon.size(); j++ ) {
+				Triangle t = setup( p, polygon.get( 0 ), polygon.get( j ),
+						polygon.get( j + 1 ), minX, minY, maxX, maxY );
+				if( t != null ) {
+					triangles.add( t );
+				}
+			}
+		}
+		if( triangles.isEmpty() ) {
+			return;
+		}
+
+		int tilesX = ( fb.width + TILE - 1 ) / TILE;
+		int tilesY = ( fb.height + TILE - 1 ) / TILE;
+		List<List<Triangle>> bins = new ArrayList<>(
+				Collections.<List<Triangle>> nCopies( tilesX * tilesY, null ) );
+		List<Integer> touched = new ArrayList<>();
+		for( Triangle t : triangles ) {
+			for( int ty = t.minY / TILE; ty <= t.maxY / TILE; ty++ ) {
+				for( int tx = t.minX / TILE; tx <= t.maxX / TILE; tx++ ) {
+					int bin = ty * tilesX + tx;
+					if( bins.get( bin ) == null ) {
+						bins.set( bin, new ArrayList<Triangle>() );
+						touched.add( bin );
+					}
+					bins.get( bin ).add( t );
+				}
+			}
+		}
+
+		if( touched.size() == 1 || pool == null ) {
+			for( int bin : touched ) {
+				fill( p, texture, bins.get( bin ), bin % tilesX, bin / tilesX );
+			}
+			return;
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<>( touched.size() );
+		for( final int bin : touched ) {
+			final List<Triangle> tris = bins.get( bin );
+			final int tx = bin % tilesX, ty = bin / tilesX;
+			tasks.add( new Callable<Void>() {
+				@Override
+				public Void call() {
+					fill( p, texture, tris, tx, ty );
+					return null;
+				}
+			} );
+		}
+		try {
+			for( Future<Void> f : pool.invokeAll( tasks ) ) {
+				f.get();
+			}
+		}
+		catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException( "Interrupted while rasterising", e );
+		}
+		catch( ExecutionException e ) {
+			throw new IllegalStateException( "Failed to rasterise", e.getCause() );
+		}
+	}
+
+	/**
+	 * Clears the framebuffer
+	 *
+	 * @param p
+	 *          pipeline state
+	 * @param mask
+	 *          some combination of {@link GL20#GL_COLOR_BUFFER_BIT},
+	 *          {@link GL20#GL_DEPTH_BUFFER_BIT} and
+	 *          {@link GL20#GL_STENCIL_BUFFER_BIT}
+	 */
+	void clear( Pipeline p, int mask ) {
+		int minX = 0, minY = 0, maxX = fb.width, maxY = fb.height;
+		if( p.scissorTest ) {
+			minX = Math.max( minX, p.scissorX );
+			minY = Math.max( minY, p.scissorY );
+			maxX = Math.min( maxX, p.scissorX + p.scissorWidth );
+			maxY = Math.min( maxY, p.scissorY + p.scissorHeight );
+		}
+		boolean colour = ( mask & GL20.GL_COLOR_BUFFER_BIT ) != 0;
+		boolean depth = ( mask & GL20.GL_DEPTH_BUFFER_BIT ) != 0 && p.depthMask;
+		boolean stencil = ( mask & GL20.GL_STENCIL_BUFFER_BIT ) != 0;
+
+		int clearColour = pack( p.clearColour );
+		int colourMask = colourMask( p );
+		float clearDepth = Math.max( 0, Math.min( 1, p.clearDepth ) );
+		int stencilMask = p.stencilWriteMask[ FRONT ] & 0xff;
+		for( int y = minY; y < maxY; y++ ) {
+			for( int x = minX; x < maxX; x++ ) {
+				int i = y * fb.width + x;
+				if( colour ) {
+					fb.colour[ i ] =
+							fb.colour[ i ] & ~colourMask | clearColour & colourMask;
+				}
+				if( depth ) {
+					fb.depth[ i ] = clearDepth;
+				}
+				if( stencil ) {
+					fb.stencil[ i ] = (byte) ( fb.stencil[ i ] & ~stencilMask
+							| p.clearStencil & stencilMask );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sutherland-Hodgman against the near and far planes. Lateral clipping is
+	 * left to the scissor rectangle
+	 */
+	private static void clip( List<float[]> polygon ) {
+		clip( polygon, 1 );
+		if( !polygon.isEmpty() ) {
+			clip( polygon, -1 );
+		}
+	}
+
+	private static void clip( List<float[]> polygon, float sign ) {
+		boolean inside = true;
+		for( float[] v : polygon ) {
+			inside &= distance( v, sign ) >= 0;
+		}
+		if( inside ) {
+			return;
+		}
+		List<float[]> in = new ArrayList<>( polygon );
+		polygon.clear();
+		for( int i = 0; i < in.size(); i++ ) {
+			float[] a = in.get( i ), b = in.get( ( i + 1 ) % in.size() );
+			float da = distance( a, sign ), db = distance( b, sign );
+			if( da >= 0 ) {
+				polygon.add( a );
+			}
+			if( da >= 0 != db >= 0 ) {
+				float t = da / ( da - db );
+				float[] v = new float[ SIZE ];
+				for( int k = 0; k < SIZE; k++ ) {
+					v[ k ] = a[ k ] + t * ( b[ k ] - a[ k ] );
+				}
+				polygon.add( v );
+			}
+		}
+	}
+
+	/**
+	 * @param sign
+	 *          1 for the near plane, -1 for the far plane
+	 * @return positive when inside
+	 */
+	private static float distance( float[] v, float sign ) {
+		return v[ W ] + sign * v[ Z ];
+	}
+
+	private static Triangle setup( Pipeline p, float[] a, float[] b, float[] c,
+			int minX, int minY, int maxX, int maxY ) {
+		Triangle t = new Triangle();
+		window( p, a, t.x, t.y, t.z, t.w, t.v, 0 );
+		window( p, b, t.x, t.y, t.z, t.w, t.v, 1 );
+		window( p, c, t.x, t.y, t.z, t.w, t.v, 2 );
+
+		float area = ( t.x[ 1 ] - t.x[ 0 ] ) * ( t.y[ 2 ] - t.y[ 0 ] )
+				- ( t.x[ 2 ] - t.x[ 0 ] ) * ( t.y[ 1 ] - t.y[ 0 ] );
+		if( area == 0 || Float.isNaN( area ) ) {
+			return null;
+		}
+		t.front = area > 0 == ( p.frontFace == GL20.GL_CCW );
+		if( p.cullFace && ( p.cullMode == GL20.GL_FRONT_AND_BACK
+				|| p.cullMode == GL20.GL_FRONT == t.front ) ) {
+			return null;
+		}
+		if( area < 0 ) {
+			t.swap( 1, 2 );
+			area = -area;
+		}
+		t.area = area;
+
+		if( p.polygonOffsetFill ) {
+			float dx1 = t.x[ 1 ] - t.x[ 0 ], dy1 = t.y[ 1 ] - t.y[ 0 ];
+			float dx2 = t.x[ 2 ] - t.x[ 0 ], dy2 = t.y[ 2 ] - t.y[ 0 ];
+			float dz1 = t.z[ 1 ] - t.z[ 0 ], dz2 = t.z[ 2 ] - t.z[ 0 ];
+			float dzdx = ( dz1 * dy2 - dz2 * dy1 ) / area;
+			float dzdy = ( dx1 * dz2 - dx2 * dz1 ) / area;
+			float offset =
+					p.offsetFactor * Math.max( Math.abs( dzdx ), Math.abs( dzdy ) )
+							+ p.offsetUnits * UNIT_OFFSET;
+			for( int i = 0; i < 3; i++ ) {
+				t.z[ i ] += offset;
+			}
+		}
+
+		t.minX = Math.max( minX, (int) Math.floor( min( t.x ) ) );
+		t.minY = Math.max( minY, (int) Math.floor( min( t.y ) ) );
+		t.maxX = Math.min( maxX - 1, (int) Math.ceil( max( t.x ) ) );
+		t.maxY = Math.min( maxY - 1, (int) Math.ceil( max( t.y ) ) );
+		if( t.minX > t.maxX || t.minY > t.maxY ) {
+			return null;
+		}
+
+		for( int e = 0; e < 3; e++ ) {
+			int from = ( e + 1 ) % 3, to = ( e + 2 ) % 3;
+			float dx = t.x[ to ] - t.x[ from ], dy = t.y[ to ] - t.y[ from ];
+			// with anticlockwise winding, top edges run leftwards and left edges
+			// run downwards
+			t.topLeft[ e ] = dy == 0 ? dx < 0 : dy < 0;
+		}
+		return t;
+	}
+
+	/**
+	 * Perspective divide and viewport transform
+	 */
+	private static void window( Pipeline p, float[] v, float[] x, float[] y,
+			float[] z, float[] w, float[][] varyings, int i ) {
+		float iw = 1 / v[ W ];
+		x[ i ] = p.viewportX + ( v[ X ] * iw + 1 ) * p.viewportWidth / 2;
+		y[ i ] = p.viewportY + ( v[ Y ] * iw + 1 ) * p.viewportHeight / 2;
+		z[ i ] = p.depthNear
+				+ ( p.depthFar - p.depthNear ) * ( v[ Z ] * iw + 1 ) / 2;
+		w[ i ] = iw;
+		for( int k = 0; k < VARYINGS; k++ ) {
+			varyings[ i ][ k ] = v[ R + k ] * iw;
+		}
+	}
+
+	private void fill( Pipeline p, TextureImage texture, List<Triangle> tris,
+			int tx, int ty ) {
+		int x0 = tx * TILE, y0 = ty * TILE;
+		int x1 = Math.min( x0 + TILE, fb.width ) - 1;
+		int y1 = Math.min( y0 + TILE, fb.height ) - 1;
+		float[] varying = new float[ VARYINGS ];
+
+		for( Triangle t : tris ) {
+			int left = Math.max( x0, t.minX ), right = Math.min( x1, t.maxX );
+			int bottom = Math.max( y0, t.minY ), top = Math.min( y1, t.maxY );
+			for( int py = bottom; py <= top; py++ ) {
+				float cy = py + 0.5f;
+				for( int px = left; px <= right; px++ ) {
+					float cx = px + 0.5f;
+					float e0 = t.edge( 0, cx, cy );
+					float e1 = t.edge( 1, cx, cy );
+					float e2 = t.edge( 2, cx, cy );
+					if( e0 < 0 || e1 < 0 || e2 < 0
+							|| e0 == 0 && !t.topLeft[ 0 ]
+							|| e1 == 0 && !t.topLeft[ 1 ]
+							|| e2 == 0 && !t.topLeft[ 2 ] ) {
+						continue;
+					}
+					float b0 = e0 / t.area, b1 = e1 / t.area, b2 = e2 / t.area;
+					float z = b0 * t.z[ 0 ] + b1 * t.z[ 1 ] + b2 * t.z[ 2 ];
+					z = Math.max( 0, Math.min( 1, z ) );
+					float iw = b0 * t.w[ 0 ] + b1 * t.w[ 1 ] + b2 * t.w[ 2 ];
+					for( int k = 0; k < VARYINGS; k++ ) {
+						varying[ k ] = ( b0 * t.v[ 0 ][ k ] + b1 * t.v[ 1 ][ k ]
+								+ b2 * t.v[ 2 ][ k ] ) / iw;
+					}
+					fragment( p, texture, t.front, px, py, z, varying );
+				}
+			}
+		}
+	}
+
+	private void fragment( Pipeline p, TextureImage texture, boolean front,
+			int x, int y, float z, float[] varying ) {
+		int i = y * fb.width + x;
+		int face = front ? FRONT : BACK;
+
+		if( p.stencilTest ) {
+			int mask = p.stencilValueMask[ face ];
+			int ref = p.stencilRef[ face ] & mask;
+			int value = fb.stencil[ i ] & 0xff & mask;
+			if( !compare( p.stencilFunc[ face ], ref, value ) ) {
+				stencil( p, face, p.stencilFail[ face ], i );
+				return;
+			}
+		}
+		if( p.depthTest && !compare( p.depthFunc, z, fb.depth[ i ] ) ) {
+			if( p.stencilTest ) {
+				stencil( p, face, p.stencilDepthFail[ face ], i );
+			}
+			return;
+		}
+		if( p.stencilTest ) {
+			stencil( p, face, p.stencilPass[ face ], i );
+		}
+		if( p.depthTest && p.depthMask ) {
+			fb.depth[ i ] = z;
+		}
+
+		float r = varying[ R - R ], g = varying[ G - R ];
+		float b = varying[ B - R ], a = varying[ A - R ];
+		if( texture != null ) {
+			int texel = texture.sample( varying[ S - R ], varying[ T - R ] );
+			r *= ( texel >>> 24 ) / 255f;
+			g *= ( texel >>> 16 & 0xff ) / 255f;
+			b *= ( texel >>> 8 & 0xff ) / 255f;
+			a *= ( texel & 0xff ) / 255f;
+		}
+		float[] src = { clamp( r ), clamp( g ), clamp( b ), clamp( a ) };
+
+		int result;
+		if( p.blend ) {
+			float[] dst = unpack( fb.colour[ i ] );
+			float[] out = new float[ 4 ];
+			for( int c = 0; c < 3; c++ ) {
+				out[ c ] = blend( p.blendEquationRGB,
+						src[ c ] * factor( p.blendSrcRGB, c, src, dst, p.blendColour ),
+						dst[ c ] * factor( p.blendDstRGB, c, src, dst, p.blendColour ) );
+			}
+			out[ 3 ] = blend( p.blendEquationAlpha,
+					src[ 3 ] * factor( p.blendSrcAlpha, 3, src, dst, p.blendColour ),
+					dst[ 3 ] * factor( p.blendDstAlpha, 3, src, dst, p.blendColour ) );
+			result = pack( out );
+		}
+		else {
+			result = pack( src );
+		}
+
+		int mask = colourMask( p );
+		fb.colour[ i ] = fb.colour[ i ] & ~mask | result & mask;
+	}
+
+	private void stencil( Pipeline p, int face, int op, int i ) {
+		int old = fb.stencil[ i ] & 0xff;
+		int value;
+		switch( op ){
+			case GL20.GL_ZERO:
+				value = 0;
+				break;
+			case GL20.GL_REPLACE:
+				value = p.stencilRef[ face ];
+				break;
+			case GL20.GL_INCR:
+				value = Math.min( 0xff, old + 1 );
+				break;
+			case GL20.GL_DECR:
+				value = Math.max( 0, old - 1 );
+				break;
+			case GL20.GL_INVERT:
+				value = ~old;
+				break;
+			case GL20.GL_INCR_WRAP:
+				value = old + 1;
+				break;
+			case GL20.GL_DECR_WRAP:
+				value = old - 1;
+				break;
+			default: // GL_KEEP
+				return;
+		}
+		int mask = p.stencilWriteMask[ face ];
+		fb.stencil[ i ] = (byte) ( old & ~mask | value & mask );
+	}
+
+	private static boolean compare( int func, float incoming, float stored ) {
+		switch( func ){
+			case GL20.GL_NEVER:
+				return false;
+			case GL20.GL_LESS:
+				return incoming < stored;
+			case GL20.GL_EQUAL:
+				return incoming == stored;
+			case GL20.GL_LEQUAL:
+				return incoming <= stored;
+			case GL20.GL_GREATER:
+				return incoming > stored;
+			case GL20.GL_NOTEQUAL:
+				return incoming != stored;
+			case GL20.GL_GEQUAL:
+				return incoming >= stored;
+			default: // GL_ALWAYS
+				return true;
+		}
+	}
+
+	private static float factor( int factor, int c, float[] src, float[] dst,
+			float[] constant ) {
+		switch( factor ){
+			case GL20.GL_ZERO:
+				return 0;
+			case GL20.GL_ONE:
+				return 1;
+			case GL20.GL_SRC_COLOR:
+				return src[ c ];
+			case GL20.GL_ONE_MINUS_SRC_COLOR:
+				return 1 - src[ c ];
+			case GL20.GL_DST_COLOR:
+				return dst[ c ];
+			case GL20.GL_ONE_MINUS_DST_COLOR:
+				return 1 - dst[ c ];
+			case GL20.GL_SRC_ALPHA:
+				return src[ 3 ];
+			case GL20.GL_ONE_MINUS_SRC_ALPHA:
+				return 1 - src[ 3 ];
+			case GL20.GL_DST_ALPHA:
+				return dst[ 3 ];
+			case GL20.GL_ONE_MINUS_DST_ALPHA:
+				return 1 - dst[ 3 ];
+			case GL20.GL_CONSTANT_COLOR:
+				return constant[ c ];
+			case GL20.GL_ONE_MINUS_CONSTANT_COLOR:
+				return 1 - constant[ c ];
+			case GL20.GL_CONSTANT_ALPHA:
+				return constant[ 3 ];
+			case GL20.GL_ONE_MINUS_CONSTANT_ALPHA:
+				return 1 - constant[ 3 ];
+			case GL20.GL_SRC_ALPHA_SATURATE:
+				return c == 3 ? 1 : Math.min( src[ 3 ], 1 - dst[ 3 ] );
+			default:
+				throw new UnsupportedOperationException( "Blend factor " + factor );
+		}
+	}
+
+	private static float blend( int equation, float src, float dst ) {
+		switch( equation ){
+			case GL20.GL_FUNC_SUBTRACT:
+				return src - dst;
+			case GL20.GL_FUNC_REVERSE_SUBTRACT:
+				return dst - src;
+			default: // GL_FUNC_ADD
+				return src + dst;
+		}
+	}
+
+	private static int colourMask( Pipeline p ) {
+		return ( p.colourMask[ 0 ] ? 0xff000000 : 0 )
+				| ( p.colourMask[ 1 ] ? 0xff0000 : 0 )
+				| ( p.colourMask[ 2 ] ? 0xff00 : 0 )
+				| ( p.colourMask[ 3 ] ? 0xff : 0 );
+	}
+
+	private static float clamp( float f ) {
+		return f < 0 ? 0 : f > 1 ? 1 : f;
+	}
+
+	/**
+	 * @param c
+	 *          RGBA components in the range 0 to 1
+	 * @return RGBA8888
+	 */
+	static int pack( float[] c ) {
+		int bits = 0;
+		for( int i = 0; i < 4; i++ ) {
+			bits = bits << 8 | Math.round( clamp( c[ i ] ) * 255 );
+		}
+		return bits;
+	}
+
+	private static float[] unpack( int rgba ) {
+		return new float[] {
+				( rgba >>> 24 ) / 255f,
+				( rgba >>> 16 & 0xff ) / 255f,
+				( rgba >>> 8 & 0xff ) / 255f,
+				( rgba & 0xff ) / 255f };
+	}
+
+	private static float min( float[] f ) {
+		return Math.min( f[ 0 ], Math.min( f[ 1 ], f[ 2 ] ) );
+	}
+
+	private static float max( float[] f ) {
+		return Math.max( f[ 0 ], Math.max( f[ 1 ], f[ 2 ] ) );
+	}
+
+	/**
+	 * A window-space triangle, wound anticlockwise
+	 */
+	private static class Triangle {
+		final float[] x = new float[ 3 ], y = new float[ 3 ];
+		final float[] z = new float[ 3 ], w = new float[ 3 ];
+		final float[][] v = new float[ 3 ][ VARYINGS ];
+		final boolean[] topLeft = new boolean[ 3 ];
+		float area;
+		boolean front;
+		int minX, minY, maxX, maxY;
+
+		void swap( int a, int b ) {
+			swap( x, a, b );
+			swap( y, a, b );
+			swap( z, a, b );
+			swap( w, a, b );
+			float[] tv = v[ a ];
+			v[ a ] = v[ b ];
+			v[ b ] = tv;
+		}
+
+		private static void swap( float[] f, int a, int b ) {
+			float t = f[ a ];
+			f[ a ] = f[ b ];
+			f[ b ] = t;
+		}
+
+		/**
+		 * @return twice the signed area of the triangle formed by the point and
+		 *         the edge opposite vertex e. Positive inside
+		 */
+		float edge( int e, float px, float py ) {
+			int from = ( e + 1 ) % 3, to = ( e + 2 ) % 3;
+			return ( x[ to ] - x[ from ] ) * ( py - y[ from ] )
+					- ( y[ to ] - y[ from ] ) * ( px - x[ from ] );
+		}
+	}
+}
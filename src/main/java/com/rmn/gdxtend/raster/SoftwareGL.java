@@ -0,0 +1,2094 @@
+package com.rmn.gdxtend.raster;
+
+import static com.rmn.gdxtend.raster.Pipeline.BACK;
+import static com.rmn.gdxtend.raster.Pipeline.FRONT;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.Disposable;
+import com.rmn.gdxtend.raster.Program.Shader;
+import com.rmn.gdxtend.raster.Program.Variable;
+
+/**
+ * A pure-java {@link GL20} that rasterises into an in-memory
+ * {@link Framebuffer}, so that tests can check what was actually drawn
+ * without a gpu.
+ * <p>
+ * Only the subset that the renderer and facets need is implemented:
+ * <ul>
+ * <li>Triangles, strips and fans, from client arrays or buffer objects</li>
+ * <li>Scissor, stencil, depth, polygon offset, blending, culling and colour
+ * masks</li>
+ * <li>A fixed shading path in place of glsl: the position attribute (
+ * <code>a_position</code>, or the first declared) is transformed by the first
+ * <code>mat4</code> uniform, coloured by <code>a_color</code> and modulated
+ * by the texture in the first <code>sampler2D</code> uniform at
+ * <code>a_texCoord0</code></li>
+ * <li>Nearest-neighbour sampling of RGBA, RGB, alpha and luminance unsigned
+ * byte textures</li>
+ * <li>The default framebuffer only</li>
+ * </ul>
+ * Anything else throws an {@link UnsupportedOperationException}, while
+ * misuse sets the error returned by {@link #glGetError()}.
+ */
+public class SoftwareGL implements GL20, Disposable {
+
+	private static final int ATTRIBUTES = 16;
+	private static final int TEXTURE_UNITS = 8;
+	private static final int MAX_TEXTURE_SIZE = 4096;
+
+	private final Framebuffer fb;
+	private final Pipeline state;
+	private final Rasteriser raster;
+
+	/**
+	 * The pool that we created, and so must shut down
+	 */
+	private final ExecutorService owned;
+
+	private int error = GL_NO_ERROR;
+	private int nextName = 1;
+
+	private final Map<Integer, ByteBuffer> buffers = new HashMap<>();
+	private final Map<Integer, Integer> bufferUsage = new HashMap<>();
+	private final Map<Integer, TextureImage> textures = new HashMap<>();
+	private final Map<Integer, Shader> shaders = new HashMap<>();
+	private final Map<Integer, Program> programs = new HashMap<>();
+	private final Map<Integer, Boolean> framebuffers = new HashMap<>();
+	private final Map<Integer, Boolean> renderbuffers = new HashMap<>();
+
+	private int arrayBuffer = 0;
+	private int elementArrayBuffer = 0;
+	private int activeTexture = 0;
+	private final int[] boundTextures = new int[ TEXTURE_UNITS ];
+	private int currentProgram = 0;
+
+	private final Pointer[] pointers = new Pointer[ ATTRIBUTES ];
+
+	/**
+	 * Vertex attribute state
+	 */
+	private static class Pointer {
+		boolean enabled = false;
+		int size = 4;
+		int type = GL_FLOAT;
+		boolean normalized = false;
+		int stride = 0;
+		int buffer = 0;
+		Buffer data;
+		int offset;
+		final float[] generic = { 0, 0, 0, 1 };
+	}
+
+	/**
+	 * Builds a context that fills tiles on the common fork-join pool
+	 *
+	 * @param width
+	 *          framebuffer width
+	 * @param height
+	 *          framebuffer height
+	 */
+	public SoftwareGL( int width, int height ) {
+		this( width, height, ForkJoinPool.commonPool(), false );
+	}
+
+	/**
+	 * @param width
+	 *          framebuffer width
+	 * @param height
+	 *          framebuffer height
+	 * @param threads
+	 *          the number of threads to fill tiles with. If 1 or less, all
+	 *          rasterisation happens on the calling thread. The threads are
+	 *          released by {@link #dispose()}
+	 */
+	public SoftwareGL( int width, int height, int threads ) {
+		this( width, height, threads > 1 ? new ForkJoinPool( threads ) : null,
+				true );
+	}
+
+	private SoftwareGL( int width, int height, ExecutorService pool,
+			boolean owned ) {
+		this.owned = owned ? pool : null;
+		fb = new Framebuffer( width, height );
+		state = new Pipeline( width, height );
+		raster = new Rasteriser( fb, pool );
+		for( int i = 0; i < pointers.length; i++ ) {
+			pointers[ i ] = new Pointer();
+		}
+		textures.put( 0, new TextureImage() );
+	}
+
+	/**
+	 * Shuts down the threads that this context fills tiles with, if it has
+	 * threads of its own. The context can't draw triangles afterwards
+	 */
+	@Override
+	public void dispose() {
+		if( owned != null ) {
+			owned.shutdown();
+		}
+	}
+
+	/**
+	 * @return The framebuffer that is rendered into
+	 */
+	public Framebuffer framebuffer() {
+		return fb;
+	}
+
+	private void error( int code ) {
+		if( error == GL_NO_ERROR ) {
+			error = code;
+		}
+	}
+
+	private int name() {
+		return nextName++;
+	}
+
+	private static UnsupportedOperationException unsupported( String what ) {
+		return new UnsupportedOperationException( what
+				+ " is not supported by " + SoftwareGL.class.getSimpleName() );
+	}
+
+	private void enable( int cap, boolean enabled ) {
+		switch( cap ){
+			case GL_BLEND:
+				state.blend = enabled;
+				break;
+			case GL_CULL_FACE:
+				state.cullFace = enabled;
+				break;
+			case GL_DEPTH_TEST:
+				state.depthTest = enabled;
+				break;
+			case GL_POLYGON_OFFSET_FILL:
+				state.polygonOffsetFill = enabled;
+				break;
+			case GL_SCISSOR_TEST:
+				state.scissorTest = enabled;
+				break;
+			case GL_STENCIL_TEST:
+				state.stencilTest = enabled;
+				break;
+			case GL_DITHER:
+			case GL_SAMPLE_ALPHA_TO_COVERAGE:
+			case GL_SAMPLE_COVERAGE:
+				break;
+			default:
+				error( GL_INVALID_ENUM );
+		}
+	}
+
+	private TextureImage texture( int target ) {
+		if( target != GL_TEXTURE_2D ) {
+			throw unsupported( "Texture target " + target );
+		}
+		return textures.get( boundTextures[ activeTexture ] );
+	}
+
+	private ByteBuffer buffer( int target ) {
+		switch( target ){
+			case GL_ARRAY_BUFFER:
+				return buffers.get( arrayBuffer );
+			case GL_ELEMENT_ARRAY_BUFFER:
+				return buffers.get( elementArrayBuffer );
+			default:
+				error( GL_INVALID_ENUM );
+				return null;
+		}
+	}
+
+	private int bufferName( int target ) {
+		return target == GL_ARRAY_BUFFER ? arrayBuffer : elementArrayBuffer;
+	}
+
+	private static int elementSize( Buffer b ) {
+		if( b instanceof ByteBuffer ) {
+			return 1;
+		}
+		if( b instanceof ShortBuffer ) {
+			return 2;
+		}
+		return 4;
+	}
+
+	/**
+	 * Copies the remaining contents of a buffer
+	 *
+	 * @param data
+	 *          source
+	 * @param dst
+	 *          destination
+	 * @param offset
+	 *          destination byte offset
+	 * @param size
+	 *          maximum bytes to copy
+	 */
+	private static void copy( Buffer data, ByteBuffer dst, int offset,
+			int size ) {
+		ByteBuffer d = dst.duplicate().order( dst.order() );
+		d.position( offset );
+		if( data instanceof ByteBuffer ) {
+			ByteBuffer s = ( (ByteBuffer) data ).duplicate();
+			s.limit( Math.min( s.limit(), s.position() + size ) );
+			d.put( s );
+		}
+		else if( data instanceof FloatBuffer ) {
+			FloatBuffer s = ( (FloatBuffer) data ).duplicate();
+			for( int i = 0; i < size / 4 && s.hasRemaining(); i++ ) {
+				d.putFloat( s.get() );
+			}
+		}
+		else if( data instanceof ShortBuffer ) {
+			ShortBuffer s = ( (ShortBuffer) data ).duplicate();
+			for( int i = 0; i < size / 2 && s.hasRemaining(); i++ ) {
+				d.putShort( s.get() );
+			}
+		}
+		else if( data instanceof IntBuffer ) {
+			IntBuffer s = ( (IntBuffer) data ).duplicate();
+			for( int i = 0; i < size / 4 && s.hasRemaining(); i++ ) {
+				d.putInt( s.get() );
+			}
+		}
+		else if( data != null ) {
+			throw unsupported( data.getClass().getSimpleName() + " data" );
+		}
+	}
+
+	/**
+	 * Reads one vertex attribute component
+	 */
+	private static float component( Buffer b, int offset, int type,
+			boolean normalized ) {
+		switch( type ){
+			case GL_FLOAT:
+				if( b instanceof FloatBuffer ) {
+					return ( (FloatBuffer) b ).get( offset / 4 );
+				}
+				return ( (ByteBuffer) b ).getFloat( offset );
+			case GL_UNSIGNED_BYTE: {
+				int v = ( (ByteBuffer) b ).get( offset ) & 0xff;
+				return normalized ? v / 255f : v;
+			}
+			case GL_BYTE: {
+				int v = ( (ByteBuffer) b ).get( offset );
+				return normalized ? Math.max( -1, v / 127f ) : v;
+			}
+			case GL_UNSIGNED_SHORT: {
+				int v = ( b instanceof ShortBuffer
+						? ( (ShortBuffer) b ).get( offset / 2 )
+						: ( (ByteBuffer) b ).getShort( offset ) ) & 0xffff;
+				return normalized ? v / 65535f : v;
+			}
+			case GL_SHORT: {
+				int v = b instanceof ShortBuffer
+						? ( (ShortBuffer) b ).get( offset / 2 )
+						: ( (ByteBuffer) b ).getShort( offset );
+				return normalized ? Math.max( -1, v / 32767f ) : v;
+			}
+			default:
+				throw unsupported( "Vertex attribute type " + type );
+		}
+	}
+
+	private static int typeSize( int type ) {
+		switch( type ){
+			case GL_BYTE:
+			case GL_UNSIGNED_BYTE:
+				return 1;
+			case GL_SHORT:
+			case GL_UNSIGNED_SHORT:
+				return 2;
+			default:
+				return 4;
+		}
+	}
+
+	/**
+	 * Reads a vertex attribute
+	 *
+	 * @param location
+	 *          attribute location, or -1
+	 * @param vertex
+	 *          vertex index
+	 * @param out
+	 *          destination, of length 4. Missing components are filled from
+	 *          (0,0,0,1)
+	 */
+	private void attribute( int location, int vertex, float[] out ) {
+		Pointer p = pointers[ location ];
+		if( !p.enabled ) {
+			System.arraycopy( p.generic, 0, out, 0, 4 );
+			return;
+		}
+		Buffer data = p.buffer == 0 ? p.data : buffers.get( p.buffer );
+		if( data == null ) {
+			error( GL_INVALID_OPERATION );
+			System.arraycopy( p.generic, 0, out, 0, 4 );
+			return;
+		}
+		int stride = p.stride == 0 ? p.size * typeSize( p.type ) : p.stride;
+		int base = p.offset + vertex * stride;
+		out[ 0 ] = out[ 1 ] = out[ 2 ] = 0;
+		out[ 3 ] = 1;
+		for( int c = 0; c < p.size; c++ ) {
+			out[ c ] =
+					component( data, base + c * typeSize( p.type ), p.type,
+							p.normalized );
+		}
+	}
+
+	/**
+	 * The fixed shading path
+	 */
+	private class Shading {
+		final int position, colour, texCoord;
+		final float[] transform;
+		final TextureImage texture;
+		final float[] in = new float[ 4 ];
+
+		Shading( Program program ) {
+			Variable a = program.attribute( "a_position" );
+			if( a == null && !program.attributes.isEmpty() ) {
+				a = program.attributes.get( 0 );
+			}
+			position = a == null ? -1 : a.location;
+			a = program.attribute( "a_color" );
+			colour = a == null ? -1 : a.location;
+			a = program.attribute( "a_texCoord0" );
+
+			Variable u = program.firstUniform( GL_FLOAT_MAT4 );
+			transform = u == null ? null : program.values[ u.location ];
+
+			u = program.firstUniform( GL_SAMPLER_2D );
+			if( a != null && u != null ) {
+				int unit = (int) program.values[ u.location ][ 0 ];
+				texCoord = a.location;
+				texture = unit >= 0 && unit < TEXTURE_UNITS
+						? textures.get( boundTextures[ unit ] ) : null;
+			}
+			else {
+				texCoord = -1;
+				texture = null;
+			}
+		}
+
+		float[] shade( int vertex ) {
+			float[] v = new float[ Rasteriser.SIZE ];
+			attribute( position, vertex, in );
+			if( transform == null ) {
+				System.arraycopy( in, 0, v, Rasteriser.X, 4 );
+			}
+			else {
+				for( int r = 0; r < 4; r++ ) {
+					v[ Rasteriser.X + r ] = transform[ r ] * in[ 0 ]
+							+ transform[ 4 + r ] * in[ 1 ]
+							+ transform[ 8 + r ] * in[ 2 ]
+							+ transform[ 12 + r ] * in[ 3 ];
+				}
+			}
+			if( colour >= 0 ) {
+				attribute( colour, vertex, in );
+				System.arraycopy( in, 0, v, Rasteriser.R, 4 );
+			}
+			else {
+				v[ Rasteriser.R ] = v[ Rasteriser.G ] = 1;
+				v[ Rasteriser.B ] = v[ Rasteriser.A ] = 1;
+			}
+			if( texCoord >= 0 ) {
+				attribute( texCoord, vertex, in );
+				v[ Rasteriser.S ] = in[ 0 ];
+				v[ Rasteriser.T ] = in[ 1 ];
+			}
+			return v;
+		}
+	}
+
+	private void draw( int mode, int[] indices ) {
+		Program program = programs.get( currentProgram );
+		if( program == null || !program.linked ) {
+			error( GL_INVALID_OPERATION );
+			return;
+		}
+		int[] order;
+		switch( mode ){
+			case GL_TRIANGLES:
+				order = indices;
+				break;
+			case GL_TRIANGLE_STRIP:
+				order = new int[ Math.max( 0, indices.length - 2 ) * 3 ];
+				for( int i = 0; i + 2 < indices.length; i++ ) {
+					boolean even = i % 2 == 0;
+					order[ i * 3 ] = indices[ even ? i : i + 1 ];
+					order[ i * 3 + 1 ] = indices[ even ? i + 1 : i ];
+					order[ i * 3 + 2 ] = indices[ i + 2 ];
+				}
+				break;
+			case GL_TRIANGLE_FAN:
+				order = new int[ Math.max( 0, indices.length - 2 ) * 3 ];
+				for( int i = 0; i + 2 < indices.length; i++ ) {
+					order[ i * 3 ] = indices[ 0 ];
+					order[ i * 3 + 1 ] = indices[ i + 1 ];
+					order[ i * 3 + 2 ] = indices[ i + 2 ];
+				}
+				break;
+			default:
+				throw unsupported( "Primitive mode " + mode );
+		}
+
+		Shading shading = new Shading( program );
+		if( shading.position < 0 ) {
+			return;
+		}
+		Map<Integer, float[]> shaded = new HashMap<>();
+		float[][] vertices = new float[ order.length ][];
+		for( int i = 0; i < order.length; i++ ) {
+			float[] v = shaded.get( order[ i ] );
+			if( v == null ) {
+				v = shading.shade( order[ i ] );
+				shaded.put( order[ i ], v );
+			}
+			vertices[ i ] = v;
+		}
+		raster.draw( state, shading.texture, vertices, vertices.length );
+	}
+
+	private static int index( Buffer b, int i, int type ) {
+		switch( type ){
+			case GL_UNSIGNED_BYTE:
+				return ( (ByteBuffer) b ).get( i ) & 0xff;
+			case GL_UNSIGNED_SHORT:
+				return ( b instanceof ShortBuffer
+						? ( (ShortBuffer) b ).get( i / 2 )
+						: ( (ByteBuffer) b ).getShort( i ) ) & 0xffff;
+			case GL_UNSIGNED_INT:
+				return b instanceof IntBuffer
+						? ( (IntBuffer) b ).get( i / 4 )
+						: ( (ByteBuffer) b ).getInt( i );
+			default:
+				throw unsupported( "Index type " + type );
+		}
+	}
+
+	private void drawElements( int mode, int count, int type, Buffer b,
+			int offset ) {
+		int[] indices = new int[ count ];
+		int size = type == GL_UNSIGNED_BYTE ? 1
+				: type == GL_UNSIGNED_SHORT ? 2 : 4;
+		for( int i = 0; i < count; i++ ) {
+			indices[ i ] = index( b, offset + i * size, type );
+		}
+		draw( mode, indices );
+	}
+
+	private Program program( int name ) {
+		Program p = programs.get( name );
+		if( p == null ) {
+			error( GL_INVALID_VALUE );
+		}
+		return p;
+	}
+
+	private Shader shader( int name ) {
+		Shader s = shaders.get( name );
+		if( s == null ) {
+			error( GL_INVALID_VALUE );
+		}
+		return s;
+	}
+
+	/**
+	 * Sets uniform values in the current program
+	 *
+	 * @param location
+	 *          the first location
+	 * @param width
+	 *          values per location
+	 * @param values
+	 *          the values, laid out location after location
+	 */
+	private void uniform( int location, int width, float... values ) {
+		Program p = programs.get( currentProgram );
+		if( p == null ) {
+			error( GL_INVALID_OPERATION );
+			return;
+		}
+		for( int i = 0; location >= 0 && ( i + 1 ) * width <= values.length
+				&& location + i < p.values.length; i++ ) {
+			System.arraycopy( values, i * width, p.values[ location + i ], 0,
+					width );
+		}
+	}
+
+	private void uniform( int location, int count, int width, FloatBuffer v ) {
+		float[] values = new float[ count * width ];
+		for( int i = 0; i < values.length; i++ ) {
+			values[ i ] = v.get( v.position() + i );
+		}
+		uniform( location, width, values );
+	}
+
+	private void uniform( int location, int count, int width, float[] v,
+			int offset ) {
+		float[] values = new float[ count * width ];
+		System.arraycopy( v, offset, values, 0, values.length );
+		uniform( location, width, values );
+	}
+
+	private void uniform( int location, int count, int width, IntBuffer v ) {
+		float[] values = new float[ count * width ];
+		for( int i = 0; i < values.length; i++ ) {
+			values[ i ] = v.get( v.position() + i );
+		}
+		uniform( location, width, values );
+	}
+
+	private void uniform( int location, int count, int width, int[] v,
+			int offset ) {
+		float[] values = new float[ count * width ];
+		for( int i = 0; i < values.length; i++ ) {
+			values[ i ] = v[ offset + i ];
+		}
+		uniform( location, width, values );
+	}
+
+	private void matrix( int location, int count, int n, boolean transpose,
+			float[] values ) {
+		if( transpose ) {
+			for( int m = 0; m < count; m++ ) {
+				int base = m * n * n;
+				for( int r = 0; r < n; r++ ) {
+					for( int c = r + 1; c < n; c++ ) {
+						float t = values[ base + r * n + c ];
+						values[ base + r * n + c ] = values[ base + c * n + r ];
+						values[ base + c * n + r ] = t;
+					}
+				}
+			}
+		}
+		uniform( location, n * n, values );
+	}
+
+	private static float[] floats( FloatBuffer v, int count ) {
+		float[] values = new float[ count ];
+		for( int i = 0; i < count; i++ ) {
+			values[ i ] = v.get( v.position() + i );
+		}
+		return values;
+	}
+
+	private static float[] floats( float[] v, int offset, int count ) {
+		float[] values = new float[ count ];
+		System.arraycopy( v, offset, values, 0, count );
+		return values;
+	}
+
+	private void vertexAttrib( int indx, float... values ) {
+		if( indx < 0 || indx >= ATTRIBUTES ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		float[] g = pointers[ indx ].generic;
+		g[ 0 ] = g[ 1 ] = g[ 2 ] = 0;
+		g[ 3 ] = 1;
+		System.arraycopy( values, 0, g, 0, values.length );
+	}
+
+	private Pointer pointer( int indx, int size, int type, boolean normalized,
+			int stride ) {
+		if( indx < 0 || indx >= ATTRIBUTES || size < 1 || size > 4
+				|| stride < 0 ) {
+			error( GL_INVALID_VALUE );
+			return null;
+		}
+		Pointer p = pointers[ indx ];
+		p.size = size;
+		p.type = type;
+		p.normalized = normalized;
+		p.stride = stride;
+		return p;
+	}
+
+	/**
+	 * @param pname
+	 *          a state name
+	 * @return the integer values of that state, or null if unknown
+	 */
+	private int[] integers( int pname ) {
+		switch( pname ){
+			case GL_VIEWPORT:
+				return new int[] { state.viewportX, state.viewportY,
+						state.viewportWidth, state.viewportHeight };
+			case GL_SCISSOR_BOX:
+				return new int[] { state.scissorX, state.scissorY,
+						state.scissorWidth, state.scissorHeight };
+			case GL_MAX_VIEWPORT_DIMS:
+				return new int[] { MAX_TEXTURE_SIZE, MAX_TEXTURE_SIZE };
+			case GL_MAX_TEXTURE_SIZE:
+				return new int[] { MAX_TEXTURE_SIZE };
+			case GL_MAX_VERTEX_ATTRIBS:
+				return new int[] { ATTRIBUTES };
+			case GL_MAX_TEXTURE_IMAGE_UNITS:
+			case GL_MAX_COMBINED_TEXTURE_IMAGE_UNITS:
+				return new int[] { TEXTURE_UNITS };
+			case GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS:
+				return new int[] { 0 };
+			case GL_ACTIVE_TEXTURE:
+				return new int[] { GL_TEXTURE0 + activeTexture };
+			case GL_TEXTURE_BINDING_2D:
+				return new int[] { boundTextures[ activeTexture ] };
+			case GL_ARRAY_BUFFER_BINDING:
+				return new int[] { arrayBuffer };
+			case GL_ELEMENT_ARRAY_BUFFER_BINDING:
+				return new int[] { elementArrayBuffer };
+			case GL_CURRENT_PROGRAM:
+				return new int[] { currentProgram };
+			case GL_FRAMEBUFFER_BINDING:
+			case GL_RENDERBUFFER_BINDING:
+				return new int[] { 0 };
+			case GL_CULL_FACE_MODE:
+				return new int[] { state.cullMode };
+			case GL_FRONT_FACE:
+				return new int[] { state.frontFace };
+			case GL_DEPTH_FUNC:
+				return new int[] { state.depthFunc };
+			case GL_BLEND_SRC_RGB:
+				return new int[] { state.blendSrcRGB };
+			case GL_BLEND_DST_RGB:
+				return new int[] { state.blendDstRGB };
+			case GL_BLEND_SRC_ALPHA:
+				return new int[] { state.blendSrcAlpha };
+			case GL_BLEND_DST_ALPHA:
+				return new int[] { state.blendDstAlpha };
+			case GL_BLEND_EQUATION_RGB:
+				return new int[] { state.blendEquationRGB };
+			case GL_BLEND_EQUATION_ALPHA:
+				return new int[] { state.blendEquationAlpha };
+			case GL_STENCIL_FUNC:
+				return new int[] { state.stencilFunc[ FRONT ] };
+			case GL_STENCIL_REF:
+				return new int[] { state.stencilRef[ FRONT ] };
+			case GL_STENCIL_VALUE_MASK:
+				return new int[] { state.stencilValueMask[ FRONT ] };
+			case GL_STENCIL_WRITEMASK:
+				return new int[] { state.stencilWriteMask[ FRONT ] };
+			case GL_STENCIL_FAIL:
+				return new int[] { state.stencilFail[ FRONT ] };
+			case GL_STENCIL_PASS_DEPTH_FAIL:
+				return new int[] { state.stencilDepthFail[ FRONT ] };
+			case GL_STENCIL_PASS_DEPTH_PASS:
+				return new int[] { state.stencilPass[ FRONT ] };
+			case GL_STENCIL_BACK_FUNC:
+				return new int[] { state.stencilFunc[ BACK ] };
+			case GL_STENCIL_BACK_REF:
+				return new int[] { state.stencilRef[ BACK ] };
+			case GL_STENCIL_BACK_VALUE_MASK:
+				return new int[] { state.stencilValueMask[ BACK ] };
+			case GL_STENCIL_BACK_WRITEMASK:
+				return new int[] { state.stencilWriteMask[ BACK ] };
+			case GL_STENCIL_BACK_FAIL:
+				return new int[] { state.stencilFail[ BACK ] };
+			case GL_STENCIL_BACK_PASS_DEPTH_FAIL:
+				return new int[] { state.stencilDepthFail[ BACK ] };
+			case GL_STENCIL_BACK_PASS_DEPTH_PASS:
+				return new int[] { state.stencilPass[ BACK ] };
+			case GL_STENCIL_CLEAR_VALUE:
+				return new int[] { state.clearStencil };
+			case GL_RED_BITS:
+			case GL_GREEN_BITS:
+			case GL_BLUE_BITS:
+			case GL_ALPHA_BITS:
+			case GL_STENCIL_BITS:
+				return new int[] { 8 };
+			case GL_DEPTH_BITS:
+				return new int[] { 24 };
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @param pname
+	 *          a state name
+	 * @return the float values of that state, or null if unknown
+	 */
+	private float[] floats( int pname ) {
+		switch( pname ){
+			case GL_COLOR_CLEAR_VALUE:
+				return state.clearColour.clone();
+			case GL_BLEND_COLOR:
+				return state.blendColour.clone();
+			case GL_DEPTH_CLEAR_VALUE:
+				return new float[] { state.clearDepth };
+			case GL_DEPTH_RANGE:
+				return new float[] { state.depthNear, state.depthFar };
+			case GL_POLYGON_OFFSET_FACTOR:
+				return new float[] { state.offsetFactor };
+			case GL_POLYGON_OFFSET_UNITS:
+				return new float[] { state.offsetUnits };
+			case GL_LINE_WIDTH:
+				return new float[] { 1 };
+			default:
+				int[] i = integers( pname );
+				if( i == null ) {
+					return null;
+				}
+				float[] f = new float[ i.length ];
+				for( int j = 0; j < i.length; j++ ) {
+					f[ j ] = i[ j ];
+				}
+				return f;
+		}
+	}
+
+	private static void put( IntBuffer params, int... values ) {
+		for( int i = 0; i < values.length; i++ ) {
+			params.put( params.position() + i, values[ i ] );
+		}
+	}
+
+	private static void put( FloatBuffer params, float... values ) {
+		for( int i = 0; i < values.length; i++ ) {
+			params.put( params.position() + i, values[ i ] );
+		}
+	}
+
+	private static int components( int type ) {
+		switch( type ){
+			case GL_FLOAT_VEC2:
+			case GL_INT_VEC2:
+			case GL_BOOL_VEC2:
+				return 2;
+			case GL_FLOAT_VEC3:
+			case GL_INT_VEC3:
+			case GL_BOOL_VEC3:
+				return 3;
+			case GL_FLOAT_VEC4:
+			case GL_INT_VEC4:
+			case GL_BOOL_VEC4:
+			case GL_FLOAT_MAT2:
+				return 4;
+			case GL_FLOAT_MAT3:
+				return 9;
+			case GL_FLOAT_MAT4:
+				return 16;
+			default:
+				return 1;
+		}
+	}
+
+	private float[] uniformValue( int program, int location ) {
+		Program p = program( program );
+		if( p == null ) {
+			return null;
+		}
+		for( Variable u : p.uniforms ) {
+			if( location >= u.location && location < u.location + u.size ) {
+				float[] v = new float[ components( u.type ) ];
+				System.arraycopy( p.values[ location ], 0, v, 0, v.length );
+				return v;
+			}
+		}
+		error( GL_INVALID_OPERATION );
+		return null;
+	}
+
+	private static String activeVariable( Variable v, IntBuffer size,
+			Buffer type ) {
+		size.put( 0, v.size );
+		if( type instanceof IntBuffer ) {
+			( (IntBuffer) type ).put( 0, v.type );
+		}
+		else if( type instanceof ByteBuffer ) {
+			( (ByteBuffer) type ).putInt( 0, v.type );
+		}
+		return v.name;
+	}
+
+	private static int maxNameLength( Iterable<Variable> vars ) {
+		int max = 0;
+		for( Variable v : vars ) {
+			max = Math.max( max, v.name.length() + 1 );
+		}
+		return max;
+	}
+
+	@Override
+	public void glActiveTexture( int texture ) {
+		if( texture < GL_TEXTURE0 || texture >= GL_TEXTURE0 + TEXTURE_UNITS ) {
+			error( GL_INVALID_ENUM );
+			return;
+		}
+		activeTexture = texture - GL_TEXTURE0;
+	}
+
+	@Override
+	public void glBindTexture( int target, int texture ) {
+		if( target != GL_TEXTURE_2D ) {
+			throw unsupported( "Texture target " + target );
+		}
+		if( !textures.containsKey( texture ) ) {
+			textures.put( texture, new TextureImage() );
+		}
+		boundTextures[ activeTexture ] = texture;
+	}
+
+	@Override
+	public void glBlendFunc( int sfactor, int dfactor ) {
+		glBlendFuncSeparate( sfactor, dfactor, sfactor, dfactor );
+	}
+
+	@Override
+	public void glClear( int mask ) {
+		raster.clear( state, mask );
+	}
+
+	@Override
+	public void glClearColor( float red, float green, float blue, float alpha ) {
+		state.clearColour[ 0 ] = red;
+		state.clearColour[ 1 ] = green;
+		state.clearColour[ 2 ] = blue;
+		state.clearColour[ 3 ] = alpha;
+	}
+
+	@Override
+	public void glClearDepthf( float depth ) {
+		state.clearDepth = depth;
+	}
+
+	@Override
+	public void glClearStencil( int s ) {
+		state.clearStencil = s;
+	}
+
+	@Override
+	public void glColorMask( boolean red, boolean green, boolean blue,
+			boolean alpha ) {
+		state.colourMask[ 0 ] = red;
+		state.colourMask[ 1 ] = green;
+		state.colourMask[ 2 ] = blue;
+		state.colourMask[ 3 ] = alpha;
+	}
+
+	@Override
+	public void glCompressedTexImage2D( int target, int level,
+			int internalformat, int width, int height, int border, int imageSize,
+			Buffer data ) {
+		throw unsupported( "glCompressedTexImage2D" );
+	}
+
+	@Override
+	public void glCompressedTexSubImage2D( int target, int level, int xoffset,
+			int yoffset, int width, int height, int format, int imageSize,
+			Buffer data ) {
+		throw unsupported( "glCompressedTexSubImage2D" );
+	}
+
+	@Override
+	public void glCopyTexImage2D( int target, int level, int internalformat,
+			int x, int y, int width, int height, int border ) {
+		throw unsupported( "glCopyTexImage2D" );
+	}
+
+	@Override
+	public void glCopyTexSubImage2D( int target, int level, int xoffset,
+			int yoffset, int x, int y, int width, int height ) {
+		throw unsupported( "glCopyTexSubImage2D" );
+	}
+
+	@Override
+	public void glCullFace( int mode ) {
+		state.cullMode = mode;
+	}
+
+	@Override
+	public void glDeleteTextures( int n, IntBuffer textures ) {
+		for( int i = 0; i < n; i++ ) {
+			glDeleteTexture( textures.get( textures.position() + i ) );
+		}
+	}
+
+	@Override
+	public void glDeleteTexture( int texture ) {
+		if( texture == 0 ) {
+			return;
+		}
+		textures.remove( texture );
+		for( int i = 0; i < boundTextures.length; i++ ) {
+			if( boundTextures[ i ] == texture ) {
+				boundTextures[ i ] = 0;
+			}
+		}
+	}
+
+	@Override
+	public void glDepthFunc( int func ) {
+		state.depthFunc = func;
+	}
+
+	@Override
+	public void glDepthMask( boolean flag ) {
+		state.depthMask = flag;
+	}
+
+	@Override
+	public void glDepthRangef( float zNear, float zFar ) {
+		state.depthNear = Math.max( 0, Math.min( 1, zNear ) );
+		state.depthFar = Math.max( 0, Math.min( 1, zFar ) );
+	}
+
+	@Override
+	public void glDisable( int cap ) {
+		enable( cap, false );
+	}
+
+	@Override
+	public void glDrawArrays( int mode, int first, int count ) {
+		int[] indices = new int[ count ];
+		for( int i = 0; i < count; i++ ) {
+			indices[ i ] = first + i;
+		}
+		draw( mode, indices );
+	}
+
+	@Override
+	public void glDrawElements( int mode, int count, int type, Buffer indices ) {
+		if( elementArrayBuffer != 0 ) {
+			// as in libgdx's backends, a buffer's position is the offset into the
+			// bound element array
+			glDrawElements( mode, count, type,
+					indices.position() * elementSize( indices ) );
+			return;
+		}
+		drawElements( mode, count, type, indices,
+				indices.position() * elementSize( indices ) );
+	}
+
+	@Override
+	public void glEnable( int cap ) {
+		enable( cap, true );
+	}
+
+	@Override
+	public void glFinish() {
+		// rasterisation is synchronous
+	}
+
+	@Override
+	public void glFlush() {
+		// rasterisation is synchronous
+	}
+
+	@Override
+	public void glFrontFace( int mode ) {
+		state.frontFace = mode;
+	}
+
+	@Override
+	public void glGenTextures( int n, IntBuffer textures ) {
+		for( int i = 0; i < n; i++ ) {
+			textures.put( textures.position() + i, glGenTexture() );
+		}
+	}
+
+	@Override
+	public int glGenTexture() {
+		int name = name();
+		textures.put( name, new TextureImage() );
+		return name;
+	}
+
+	@Override
+	public int glGetError() {
+		int e = error;
+		error = GL_NO_ERROR;
+		return e;
+	}
+
+	@Override
+	public void glGetIntegerv( int pname, IntBuffer params ) {
+		int[] values = integers( pname );
+		if( values == null ) {
+			error( GL_INVALID_ENUM );
+			return;
+		}
+		put( params, values );
+	}
+
+	@Override
+	public String glGetString( int name ) {
+		switch( name ){
+			case GL_VENDOR:
+				return "gdxtest";
+			case GL_RENDERER:
+				return SoftwareGL.class.getSimpleName();
+			case GL_VERSION:
+				return "OpenGL ES 2.0 " + SoftwareGL.class.getSimpleName();
+			case GL_SHADING_LANGUAGE_VERSION:
+				return "OpenGL ES GLSL ES 1.00";
+			case GL_EXTENSIONS:
+				return "";
+			default:
+				error( GL_INVALID_ENUM );
+				return null;
+		}
+	}
+
+	@Override
+	public void glHint( int target, int mode ) {
+		// hints are meaningless here
+	}
+
+	@Override
+	public void glLineWidth( float width ) {
+		// lines are not rasterised
+	}
+
+	@Override
+	public void glPixelStorei( int pname, int param ) {
+		// pixel data is always tightly packed
+	}
+
+	@Override
+	public void glPolygonOffset( float factor, float units ) {
+		state.offsetFactor = factor;
+		state.offsetUnits = units;
+	}
+
+	@Override
+	public void glReadPixels( int x, int y, int width, int height, int format,
+			int type, Buffer pixels ) {
+		if( format != GL_RGBA || type != GL_UNSIGNED_BYTE
+				|| !( pixels instanceof ByteBuffer ) ) {
+			throw unsupported( "Reading pixels other than RGBA unsigned bytes" );
+		}
+		ByteBuffer out = (ByteBuffer) pixels;
+		int base = out.position();
+		for( int row = 0; row < height; row++ ) {
+			for( int col = 0; col < width; col++ ) {
+				int fx = x + col, fy = y + row;
+				if( fx < 0 || fx >= fb.width || fy < 0 || fy >= fb.height ) {
+					continue;
+				}
+				int rgba = fb.colour[ fy * fb.width + fx ];
+				int p = base + ( row * width + col ) * 4;
+				out.put( p, (byte) ( rgba >>> 24 ) );
+				out.put( p + 1, (byte) ( rgba >>> 16 ) );
+				out.put( p + 2, (byte) ( rgba >>> 8 ) );
+				out.put( p + 3, (byte) rgba );
+			}
+		}
+	}
+
+	@Override
+	public void glScissor( int x, int y, int width, int height ) {
+		if( width < 0 || height < 0 ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		state.scissorX = x;
+		state.scissorY = y;
+		state.scissorWidth = width;
+		state.scissorHeight = height;
+	}
+
+	@Override
+	public void glStencilFunc( int func, int ref, int mask ) {
+		glStencilFuncSeparate( GL_FRONT_AND_BACK, func, ref, mask );
+	}
+
+	@Override
+	public void glStencilMask( int mask ) {
+		glStencilMaskSeparate( GL_FRONT_AND_BACK, mask );
+	}
+
+	@Override
+	public void glStencilOp( int fail, int zfail, int zpass ) {
+		glStencilOpSeparate( GL_FRONT_AND_BACK, fail, zfail, zpass );
+	}
+
+	@Override
+	public void glTexImage2D( int target, int level, int internalformat,
+			int width, int height, int border, int format, int type,
+			Buffer pixels ) {
+		if( width < 0 || height < 0 || width > MAX_TEXTURE_SIZE
+				|| height > MAX_TEXTURE_SIZE || border != 0 ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		TextureImage t = texture( target );
+		if( level != 0 ) {
+			// only the base level is ever sampled
+			return;
+		}
+		t.allocate( width, height );
+		t.upload( 0, 0, width, height, format, type, pixels );
+	}
+
+	@Override
+	public void glTexParameterf( int target, int pname, float param ) {
+		texture( target ).parameter( pname, (int) param );
+	}
+
+	@Override
+	public void glTexSubImage2D( int target, int level, int xoffset,
+			int yoffset, int width, int height, int format, int type,
+			Buffer pixels ) {
+		TextureImage t = texture( target );
+		if( level != 0 ) {
+			return;
+		}
+		if( xoffset < 0 || yoffset < 0 || xoffset + width > t.width
+				|| yoffset + height > t.height ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		t.upload( xoffset, yoffset, width, height, format, type, pixels );
+	}
+
+	@Override
+	public void glViewport( int x, int y, int width, int height ) {
+		if( width < 0 || height < 0 ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		state.viewportX = x;
+		state.viewportY = y;
+		state.viewportWidth = width;
+		state.viewportHeight = height;
+	}
+
+	@Override
+	public void glAttachShader( int program, int shader ) {
+		Program p = program( program );
+		Shader s = shader( shader );
+		if( p != null && s != null ) {
+			p.shaders.add( s );
+		}
+	}
+
+	@Override
+	public void glBindAttribLocation( int program, int index, String name ) {
+		Program p = program( program );
+		if( p != null ) {
+			p.boundLocations.put( name, index );
+		}
+	}
+
+	@Override
+	public void glBindBuffer( int target, int buffer ) {
+		if( buffer != 0 && !buffers.containsKey( buffer ) ) {
+			buffers.put( buffer, ByteBuffer.allocate( 0 ) );
+		}
+		switch( target ){
+			case GL_ARRAY_BUFFER:
+				arrayBuffer = buffer;
+				break;
+			case GL_ELEMENT_ARRAY_BUFFER:
+				elementArrayBuffer = buffer;
+				break;
+			default:
+				error( GL_INVALID_ENUM );
+		}
+	}
+
+	@Override
+	public void glBindFramebuffer( int target, int framebuffer ) {
+		if( framebuffer != 0 ) {
+			throw unsupported( "Rendering to a framebuffer object" );
+		}
+	}
+
+	@Override
+	public void glBindRenderbuffer( int target, int renderbuffer ) {
+		renderbuffers.put( renderbuffer, true );
+	}
+
+	@Override
+	public void glBlendColor( float red, float green, float blue, float alpha ) {
+		state.blendColour[ 0 ] = red;
+		state.blendColour[ 1 ] = green;
+		state.blendColour[ 2 ] = blue;
+		state.blendColour[ 3 ] = alpha;
+	}
+
+	@Override
+	public void glBlendEquation( int mode ) {
+		glBlendEquationSeparate( mode, mode );
+	}
+
+	@Override
+	public void glBlendEquationSeparate( int modeRGB, int modeAlpha ) {
+		state.blendEquationRGB = modeRGB;
+		state.blendEquationAlpha = modeAlpha;
+	}
+
+	@Override
+	public void glBlendFuncSeparate( int srcRGB, int dstRGB, int srcAlpha,
+			int dstAlpha ) {
+		state.blendSrcRGB = srcRGB;
+		state.blendDstRGB = dstRGB;
+		state.blendSrcAlpha = srcAlpha;
+		state.blendDstAlpha = dstAlpha;
+	}
+
+	@Override
+	public void glBufferData( int target, int size, Buffer data, int usage ) {
+		int name = bufferName( target );
+		if( buffer( target ) == null || name == 0 ) {
+			error( GL_INVALID_OPERATION );
+			return;
+		}
+		ByteBuffer b = ByteBuffer.allocate( size ).order( ByteOrder.nativeOrder() );
+		copy( data, b, 0, size );
+		buffers.put( name, b );
+		bufferUsage.put( name, usage );
+	}
+
+	@Override
+	public void glBufferSubData( int target, int offset, int size, Buffer data ) {
+		ByteBuffer b = buffer( target );
+		if( b == null || bufferName( target ) == 0 ) {
+			error( GL_INVALID_OPERATION );
+			return;
+		}
+		if( offset < 0 || size < 0 || offset + size > b.capacity() ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		copy( data, b, offset, size );
+	}
+
+	@Override
+	public int glCheckFramebufferStatus( int target ) {
+		return GL_FRAMEBUFFER_COMPLETE;
+	}
+
+	@Override
+	public void glCompileShader( int shader ) {
+		// sources are only parsed at link time
+		shader( shader );
+	}
+
+	@Override
+	public int glCreateProgram() {
+		int name = name();
+		programs.put( name, new Program() );
+		return name;
+	}
+
+	@Override
+	public int glCreateShader( int type ) {
+		int name = name();
+		shaders.put( name, new Shader( type ) );
+		return name;
+	}
+
+	@Override
+	public void glDeleteBuffer( int buffer ) {
+		buffers.remove( buffer );
+		bufferUsage.remove( buffer );
+		if( arrayBuffer == buffer ) {
+			arrayBuffer = 0;
+		}
+		if( elementArrayBuffer == buffer ) {
+			elementArrayBuffer = 0;
+		}
+	}
+
+	@Override
+	public void glDeleteBuffers( int n, IntBuffer buffers ) {
+		for( int i = 0; i < n; i++ ) {
+			glDeleteBuffer( buffers.get( buffers.position() + i ) );
+		}
+	}
+
+	@Override
+	public void glDeleteFramebuffer( int framebuffer ) {
+		framebuffers.remove( framebuffer );
+	}
+
+	@Override
+	public void glDeleteFramebuffers( int n, IntBuffer framebuffers ) {
+		for( int i = 0; i < n; i++ ) {
+			glDeleteFramebuffer( framebuffers.get( framebuffers.position() + i ) );
+		}
+	}
+
+	@Override
+	public void glDeleteProgram( int program ) {
+		programs.remove( program );
+	}
+
+	@Override
+	public void glDeleteRenderbuffer( int renderbuffer ) {
+		renderbuffers.remove( renderbuffer );
+	}
+
+	@Override
+	public void glDeleteRenderbuffers( int n, IntBuffer renderbuffers ) {
+		for( int i = 0; i < n; i++ ) {
+			glDeleteRenderbuffer(
+					renderbuffers.get( renderbuffers.position() + i ) );
+		}
+	}
+
+	@Override
+	public void glDeleteShader( int shader ) {
+		shaders.remove( shader );
+	}
+
+	@Override
+	public void glDetachShader( int program, int shader ) {
+		Program p = program( program );
+		Shader s = shaders.get( shader );
+		if( p != null ) {
+			p.shaders.remove( s );
+		}
+	}
+
+	@Override
+	public void glDisableVertexAttribArray( int index ) {
+		if( index < 0 || index >= ATTRIBUTES ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		pointers[ index ].enabled = false;
+	}
+
+	@Override
+	public void glDrawElements( int mode, int count, int type, int indices ) {
+		ByteBuffer b = buffers.get( elementArrayBuffer );
+		if( b == null ) {
+			error( GL_INVALID_OPERATION );
+			return;
+		}
+		drawElements( mode, count, type, b, indices );
+	}
+
+	@Override
+	public void glEnableVertexAttribArray( int index ) {
+		if( index < 0 || index >= ATTRIBUTES ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		pointers[ index ].enabled = true;
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer( int target, int attachment,
+			int renderbuffertarget, int renderbuffer ) {
+		throw unsupported( "Framebuffer attachment" );
+	}
+
+	@Override
+	public void glFramebufferTexture2D( int target, int attachment,
+			int textarget, int texture, int level ) {
+		throw unsupported( "Framebuffer attachment" );
+	}
+
+	@Override
+	public int glGenBuffer() {
+		int name = name();
+		buffers.put( name, ByteBuffer.allocate( 0 ) );
+		return name;
+	}
+
+	@Override
+	public void glGenBuffers( int n, IntBuffer buffers ) {
+		for( int i = 0; i < n; i++ ) {
+			buffers.put( buffers.position() + i, glGenBuffer() );
+		}
+	}
+
+	@Override
+	public void glGenerateMipmap( int target ) {
+		// only the base level is ever sampled
+		texture( target );
+	}
+
+	@Override
+	public int glGenFramebuffer() {
+		int name = name();
+		framebuffers.put( name, true );
+		return name;
+	}
+
+	@Override
+	public void glGenFramebuffers( int n, IntBuffer framebuffers ) {
+		for( int i = 0; i < n; i++ ) {
+			framebuffers.put( framebuffers.position() + i, glGenFramebuffer() );
+		}
+	}
+
+	@Override
+	public int glGenRenderbuffer() {
+		int name = name();
+		renderbuffers.put( name, true );
+		return name;
+	}
+
+	@Override
+	public void glGenRenderbuffers( int n, IntBuffer renderbuffers ) {
+		for( int i = 0; i < n; i++ ) {
+			renderbuffers.put( renderbuffers.position() + i, glGenRenderbuffer() );
+		}
+	}
+
+	@Override
+	public String glGetActiveAttrib( int program, int index, IntBuffer size,
+			Buffer type ) {
+		Program p = program( program );
+		if( p == null || index < 0 || index >= p.attributes.size() ) {
+			error( GL_INVALID_VALUE );
+			return null;
+		}
+		return activeVariable( p.attributes.get( index ), size, type );
+	}
+
+	@Override
+	public String glGetActiveUniform( int program, int index, IntBuffer size,
+			Buffer type ) {
+		Program p = program( program );
+		if( p == null || index < 0 || index >= p.uniforms.size() ) {
+			error( GL_INVALID_VALUE );
+			return null;
+		}
+		return activeVariable( p.uniforms.get( index ), size, type );
+	}
+
+	@Override
+	public void glGetAttachedShaders( int program, int maxcount, Buffer count,
+			IntBuffer shaders ) {
+		Program p = program( program );
+		if( p == null ) {
+			return;
+		}
+		int n = 0;
+		for( Map.Entry<Integer, Shader> e : this.shaders.entrySet() ) {
+			if( n < maxcount && p.shaders.contains( e.getValue() ) ) {
+				shaders.put( shaders.position() + n++, e.getKey() );
+			}
+		}
+		if( count instanceof IntBuffer ) {
+			( (IntBuffer) count ).put( 0, n );
+		}
+	}
+
+	@Override
+	public int glGetAttribLocation( int program, String name ) {
+		Program p = program( program );
+		Variable a = p == null ? null : p.attribute( name );
+		return a == null ? -1 : a.location;
+	}
+
+	@Override
+	public void glGetBooleanv( int pname, Buffer params ) {
+		boolean[] values;
+		switch( pname ){
+			case GL_DEPTH_WRITEMASK:
+				values = new boolean[] { state.depthMask };
+				break;
+			case GL_COLOR_WRITEMASK:
+				values = state.colourMask.clone();
+				break;
+			default:
+				values = new boolean[] { glIsEnabled( pname ) };
+		}
+		for( int i = 0; i < values.length; i++ ) {
+			int v = values[ i ] ? 1 : 0;
+			if( params instanceof IntBuffer ) {
+				IntBuffer b = (IntBuffer) params;
+				b.put( b.position() + i, v );
+			}
+			else {
+				ByteBuffer b = (ByteBuffer) params;
+				b.put( b.position() + i, (byte) v );
+			}
+		}
+	}
+
+	@Override
+	public void glGetBufferParameteriv( int target, int pname,
+			IntBuffer params ) {
+		ByteBuffer b = buffer( target );
+		if( b == null ) {
+			error( GL_INVALID_OPERATION );
+			return;
+		}
+		switch( pname ){
+			case GL_BUFFER_SIZE:
+				put( params, b.capacity() );
+				break;
+			case GL_BUFFER_USAGE: {
+				Integer usage = bufferUsage.get( bufferName( target ) );
+				put( params, usage == null ? GL_STATIC_DRAW : usage );
+				break;
+			}
+			default:
+				error( GL_INVALID_ENUM );
+		}
+	}
+
+	@Override
+	public void glGetFloatv( int pname, FloatBuffer params ) {
+		float[] values = floats( pname );
+		if( values == null ) {
+			error( GL_INVALID_ENUM );
+			return;
+		}
+		put( params, values );
+	}
+
+	@Override
+	public void glGetFramebufferAttachmentParameteriv( int target,
+			int attachment, int pname, IntBuffer params ) {
+		throw unsupported( "Framebuffer attachment" );
+	}
+
+	@Override
+	public void glGetProgramiv( int program, int pname, IntBuffer params ) {
+		Program p = program( program );
+		if( p == null ) {
+			return;
+		}
+		switch( pname ){
+			case GL_DELETE_STATUS:
+				put( params, GL_FALSE );
+				break;
+			case GL_LINK_STATUS:
+			case GL_VALIDATE_STATUS:
+				put( params, p.linked ? GL_TRUE : GL_FALSE );
+				break;
+			case GL_INFO_LOG_LENGTH:
+				put( params, 0 );
+				break;
+			case GL_ATTACHED_SHADERS:
+				put( params, p.shaders.size() );
+				break;
+			case GL_ACTIVE_ATTRIBUTES:
+				put( params, p.attributes.size() );
+				break;
+			case GL_ACTIVE_ATTRIBUTE_MAX_LENGTH:
+				put( params, maxNameLength( p.attributes ) );
+				break;
+			case GL_ACTIVE_UNIFORMS:
+				put( params, p.uniforms.size() );
+				break;
+			case GL_ACTIVE_UNIFORM_MAX_LENGTH:
+				put( params, maxNameLength( p.uniforms ) );
+				break;
+			default:
+				error( GL_INVALID_ENUM );
+		}
+	}
+
+	@Override
+	public String glGetProgramInfoLog( int program ) {
+		program( program );
+		return "";
+	}
+
+	@Override
+	public void glGetRenderbufferParameteriv( int target, int pname,
+			IntBuffer params ) {
+		throw unsupported( "Renderbuffer storage" );
+	}
+
+	@Override
+	public void glGetShaderiv( int shader, int pname, IntBuffer params ) {
+		Shader s = shader( shader );
+		if( s == null ) {
+			return;
+		}
+		switch( pname ){
+			case GL_SHADER_TYPE:
+				put( params, s.type );
+				break;
+			case GL_DELETE_STATUS:
+				put( params, GL_FALSE );
+				break;
+			case GL_COMPILE_STATUS:
+				put( params, GL_TRUE );
+				break;
+			case GL_INFO_LOG_LENGTH:
+				put( params, 0 );
+				break;
+			case GL_SHADER_SOURCE_LENGTH:
+				put( params, s.source.length() + 1 );
+				break;
+			default:
+				error( GL_INVALID_ENUM );
+		}
+	}
+
+	@Override
+	public String glGetShaderInfoLog( int shader ) {
+		shader( shader );
+		return "";
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat( int shadertype, int precisiontype,
+			IntBuffer range, IntBuffer precision ) {
+		put( range, 127, 127 );
+		put( precision, 23 );
+	}
+
+	@Override
+	public void glGetTexParameterfv( int target, int pname, FloatBuffer params ) {
+		put( params, texture( target ).parameter( pname ) );
+	}
+
+	@Override
+	public void glGetTexParameteriv( int target, int pname, IntBuffer params ) {
+		put( params, texture( target ).parameter( pname ) );
+	}
+
+	@Override
+	public void glGetUniformfv( int program, int location, FloatBuffer params ) {
+		float[] v = uniformValue( program, location );
+		if( v != null ) {
+			put( params, v );
+		}
+	}
+
+	@Override
+	public void glGetUniformiv( int program, int location, IntBuffer params ) {
+		float[] v = uniformValue( program, location );
+		if( v != null ) {
+			for( int i = 0; i < v.length; i++ ) {
+				params.put( params.position() + i, (int) v[ i ] );
+			}
+		}
+	}
+
+	@Override
+	public int glGetUniformLocation( int program, String name ) {
+		Program p = program( program );
+		return p == null ? -1 : p.uniformLocation( name );
+	}
+
+	@Override
+	public void glGetVertexAttribfv( int index, int pname, FloatBuffer params ) {
+		if( pname == GL_CURRENT_VERTEX_ATTRIB ) {
+			put( params, pointers[ index ].generic );
+			return;
+		}
+		IntBuffer i = IntBuffer.allocate( 1 );
+		glGetVertexAttribiv( index, pname, i );
+		put( params, i.get( 0 ) );
+	}
+
+	@Override
+	public void glGetVertexAttribiv( int index, int pname, IntBuffer params ) {
+		Pointer p = pointers[ index ];
+		switch( pname ){
+			case GL_VERTEX_ATTRIB_ARRAY_ENABLED:
+				put( params, p.enabled ? GL_TRUE : GL_FALSE );
+				break;
+			case GL_VERTEX_ATTRIB_ARRAY_SIZE:
+				put( params, p.size );
+				break;
+			case GL_VERTEX_ATTRIB_ARRAY_STRIDE:
+				put( params, p.stride );
+				break;
+			case GL_VERTEX_ATTRIB_ARRAY_TYPE:
+				put( params, p.type );
+				break;
+			case GL_VERTEX_ATTRIB_ARRAY_NORMALIZED:
+				put( params, p.normalized ? GL_TRUE : GL_FALSE );
+				break;
+			case GL_VERTEX_ATTRIB_ARRAY_BUFFER_BINDING:
+				put( params, p.buffer );
+				break;
+			case GL_CURRENT_VERTEX_ATTRIB:
+				for( int i = 0; i < 4; i++ ) {
+					params.put( params.position() + i, (int) p.generic[ i ] );
+				}
+				break;
+			default:
+				error( GL_INVALID_ENUM );
+		}
+	}
+
+	@Override
+	public void glGetVertexAttribPointerv( int index, int pname,
+			Buffer pointer ) {
+		throw unsupported( "glGetVertexAttribPointerv" );
+	}
+
+	@Override
+	public boolean glIsBuffer( int buffer ) {
+		return buffer != 0 && buffers.containsKey( buffer );
+	}
+
+	@Override
+	public boolean glIsEnabled( int cap ) {
+		switch( cap ){
+			case GL_BLEND:
+				return state.blend;
+			case GL_CULL_FACE:
+				return state.cullFace;
+			case GL_DEPTH_TEST:
+				return state.depthTest;
+			case GL_POLYGON_OFFSET_FILL:
+				return state.polygonOffsetFill;
+			case GL_SCISSOR_TEST:
+				return state.scissorTest;
+			case GL_STENCIL_TEST:
+				return state.stencilTest;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public boolean glIsFramebuffer( int framebuffer ) {
+		return framebuffers.containsKey( framebuffer );
+	}
+
+	@Override
+	public boolean glIsProgram( int program ) {
+		return programs.containsKey( program );
+	}
+
+	@Override
+	public boolean glIsRenderbuffer( int renderbuffer ) {
+		return renderbuffers.containsKey( renderbuffer );
+	}
+
+	@Override
+	public boolean glIsShader( int shader ) {
+		return shaders.containsKey( shader );
+	}
+
+	@Override
+	public boolean glIsTexture( int texture ) {
+		return texture != 0 && textures.containsKey( texture );
+	}
+
+	@Override
+	public void glLinkProgram( int program ) {
+		Program p = program( program );
+		if( p != null ) {
+			p.link();
+		}
+	}
+
+	@Override
+	public void glReleaseShaderCompiler() {
+		// there is no compiler to release
+	}
+
+	@Override
+	public void glRenderbufferStorage( int target, int internalformat,
+			int width, int height ) {
+		throw unsupported( "Renderbuffer storage" );
+	}
+
+	@Override
+	public void glSampleCoverage( float value, boolean invert ) {
+		// there is no multisampling
+	}
+
+	@Override
+	public void glShaderBinary( int n, IntBuffer shaders, int binaryformat,
+			Buffer binary, int length ) {
+		throw unsupported( "glShaderBinary" );
+	}
+
+	@Override
+	public void glShaderSource( int shader, String string ) {
+		Shader s = shader( shader );
+		if( s != null ) {
+			s.source = string;
+		}
+	}
+
+	@Override
+	public void glStencilFuncSeparate( int face, int func, int ref, int mask ) {
+		Pipeline.setFaces( face, state.stencilFunc, func );
+		Pipeline.setFaces( face, state.stencilRef, ref & 0xff );
+		Pipeline.setFaces( face, state.stencilValueMask, mask & 0xff );
+	}
+
+	@Override
+	public void glStencilMaskSeparate( int face, int mask ) {
+		Pipeline.setFaces( face, state.stencilWriteMask, mask & 0xff );
+	}
+
+	@Override
+	public void glStencilOpSeparate( int face, int fail, int zfail, int zpass ) {
+		Pipeline.setFaces( face, state.stencilFail, fail );
+		Pipeline.setFaces( face, state.stencilDepthFail, zfail );
+		Pipeline.setFaces( face, state.stencilPass, zpass );
+	}
+
+	@Override
+	public void glTexParameterfv( int target, int pname, FloatBuffer params ) {
+		glTexParameterf( target, pname, params.get( params.position() ) );
+	}
+
+	@Override
+	public void glTexParameteri( int target, int pname, int param ) {
+		texture( target ).parameter( pname, param );
+	}
+
+	@Override
+	public void glTexParameteriv( int target, int pname, IntBuffer params ) {
+		glTexParameteri( target, pname, params.get( params.position() ) );
+	}
+
+	@Override
+	public void glUniform1f( int location, float x ) {
+		uniform( location, 1, x );
+	}
+
+	@Override
+	public void glUniform1fv( int location, int count, FloatBuffer v ) {
+		uniform( location, count, 1, v );
+	}
+
+	@Override
+	public void glUniform1fv( int location, int count, float[] v, int offset ) {
+		uniform( location, count, 1, v, offset );
+	}
+
+	@Override
+	public void glUniform1i( int location, int x ) {
+		uniform( location, 1, x );
+	}
+
+	@Override
+	public void glUniform1iv( int location, int count, IntBuffer v ) {
+		uniform( location, count, 1, v );
+	}
+
+	@Override
+	public void glUniform1iv( int location, int count, int[] v, int offset ) {
+		uniform( location, count, 1, v, offset );
+	}
+
+	@Override
+	public void glUniform2f( int location, float x, float y ) {
+		uniform( location, 2, x, y );
+	}
+
+	@Override
+	public void glUniform2fv( int location, int count, FloatBuffer v ) {
+		uniform( location, count, 2, v );
+	}
+
+	@Override
+	public void glUniform2fv( int location, int count, float[] v, int offset ) {
+		uniform( location, count, 2, v, offset );
+	}
+
+	@Override
+	public void glUniform2i( int location, int x, int y ) {
+		uniform( location, 2, x, y );
+	}
+
+	@Override
+	public void glUniform2iv( int location, int count, IntBuffer v ) {
+		uniform( location, count, 2, v );
+	}
+
+	@Override
+	public void glUniform2iv( int location, int count, int[] v, int offset ) {
+		uniform( location, count, 2, v, offset );
+	}
+
+	@Override
+	public void glUniform3f( int location, float x, float y, float z ) {
+		uniform( location, 3, x, y, z );
+	}
+
+	@Override
+	public void glUniform3fv( int location, int count, FloatBuffer v ) {
+		uniform( location, count, 3, v );
+	}
+
+	@Override
+	public void glUniform3fv( int location, int count, float[] v, int offset ) {
+		uniform( location, count, 3, v, offset );
+	}
+
+	@Override
+	public void glUniform3i( int location, int x, int y, int z ) {
+		uniform( location, 3, x, y, z );
+	}
+
+	@Override
+	public void glUniform3iv( int location, int count, IntBuffer v ) {
+		uniform( location, count, 3, v );
+	}
+
+	@Override
+	public void glUniform3iv( int location, int count, int[] v, int offset ) {
+		uniform( location, count, 3, v, offset );
+	}
+
+	@Override
+	public void glUniform4f( int location, float x, float y, float z, float w ) {
+		uniform( location, 4, x, y, z, w );
+	}
+
+	@Override
+	public void glUniform4fv( int location, int count, FloatBuffer v ) {
+		uniform( location, count, 4, v );
+	}
+
+	@Override
+	public void glUniform4fv( int location, int count, float[] v, int offset ) {
+		uniform( location, count, 4, v, offset );
+	}
+
+	@Override
+	public void glUniform4i( int location, int x, int y, int z, int w ) {
+		uniform( location, 4, x, y, z, w );
+	}
+
+	@Override
+	public void glUniform4iv( int location, int count, IntBuffer v ) {
+		uniform( location, count, 4, v );
+	}
+
+	@Override
+	public void glUniform4iv( int location, int count, int[] v, int offset ) {
+		uniform( location, count, 4, v, offset );
+	}
+
+	@Override
+	public void glUniformMatrix2fv( int location, int count, boolean transpose,
+			FloatBuffer value ) {
+		matrix( location, count, 2, transpose, floats( value, count * 4 ) );
+	}
+
+	@Override
+	public void glUniformMatrix2fv( int location, int count, boolean transpose,
+			float[] value, int offset ) {
+		matrix( location, count, 2, transpose,
+				floats( value, offset, count * 4 ) );
+	}
+
+	@Override
+	public void glUniformMatrix3fv( int location, int count, boolean transpose,
+			FloatBuffer value ) {
+		matrix( location, count, 3, transpose, floats( value, count * 9 ) );
+	}
+
+	@Override
+	public void glUniformMatrix3fv( int location, int count, boolean transpose,
+			float[] value, int offset ) {
+		matrix( location, count, 3, transpose,
+				floats( value, offset, count * 9 ) );
+	}
+
+	@Override
+	public void glUniformMatrix4fv( int location, int count, boolean transpose,
+			FloatBuffer value ) {
+		matrix( location, count, 4, transpose, floats( value, count * 16 ) );
+	}
+
+	@Override
+	public void glUniformMatrix4fv( int location, int count, boolean transpose,
+			float[] value, int offset ) {
+		matrix( location, count, 4, transpose,
+				floats( value, offset, count * 16 ) );
+	}
+
+	@Override
+	public void glUseProgram( int program ) {
+		if( program != 0 && !programs.containsKey( program ) ) {
+			error( GL_INVALID_VALUE );
+			return;
+		}
+		currentProgram = program;
+	}
+
+	@Override
+	public void glValidateProgram( int program ) {
+		program( program );
+	}
+
+	@Override
+	public void glVertexAttrib1f( int indx, float x ) {
+		vertexAttrib( indx, x );
+	}
+
+	@Override
+	public void glVertexAttrib1fv( int indx, FloatBuffer values ) {
+		vertexAttrib( indx, floats( values, 1 ) );
+	}
+
+	@Override
+	public void glVertexAttrib2f( int indx, float x, float y ) {
+		vertexAttrib( indx, x, y );
+	}
+
+	@Override
+	public void glVertexAttrib2fv( int indx, FloatBuffer values ) {
+		vertexAttrib( indx, floats( values, 2 ) );
+	}
+
+	@Override
+	public void glVertexAttrib3f( int indx, float x, float y, float z ) {
+		vertexAttrib( indx, x, y, z );
+	}
+
+	@Override
+	public void glVertexAttrib3fv( int indx, FloatBuffer values ) {
+		vertexAttrib( indx, floats( values, 3 ) );
+	}
+
+	@Override
+	public void glVertexAttrib4f( int indx, float x, float y, float z, float w ) {
+		vertexAttrib( indx, x, y, z, w );
+	}
+
+	@Override
+	public void glVertexAttrib4fv( int indx, FloatBuffer values ) {
+		vertexAttrib( indx, floats( values, 4 ) );
+	}
+
+	@Override
+	public void glVertexAttribPointer( int indx, int size, int type,
+			boolean normalized, int stride, Buffer ptr ) {
+		Pointer p = pointer( indx, size, type, normalized, stride );
+		if( p != null ) {
+			p.buffer = 0;
+			p.data = ptr;
+			p.offset = ptr.position() * elementSize( ptr );
+		}
+	}
+
+	@Override
+	public void glVertexAttribPointer( int indx, int size, int type,
+			boolean normalized, int stride, int ptr ) {
+		if( arrayBuffer == 0 ) {
+			error( GL_INVALID_OPERATION );
+			return;
+		}
+		Pointer p = pointer( indx, size, type, normalized, stride );
+		if( p != null ) {
+			p.buffer = arrayBuffer;
+			p.data = null;
+			p.offset = ptr;
+		}
+	}
+}
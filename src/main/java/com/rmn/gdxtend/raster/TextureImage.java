@@ -0,0 +1,200 @@
+package com.rmn.gdxtend.raster;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * The level-zero image of a texture, as uploaded to {@link SoftwareGL}.
+ * Sampling is always nearest-neighbour, whatever the filter parameters say.
+ */
+class TextureImage {
+
+	int width, height;
+	int[] texels = new int[ 0 ];
+
+	int wrapS = GL20.GL_REPEAT;
+	int wrapT = GL20.GL_REPEAT;
+	int minFilter = GL20.GL_NEAREST_MIPMAP_LINEAR;
+	int magFilter = GL20.GL_LINEAR;
+
+	/**
+	 * Sets a texture parameter
+	 *
+	 * @param pname
+	 *          parameter name
+	 * @param param
+	 *          parameter value
+	 */
+	void parameter( int pname, int param ) {
+		switch( pname ){
+			case GL20.GL_TEXTURE_WRAP_S:
+				wrapS = param;
+				break;
+			case GL20.GL_TEXTURE_WRAP_T:
+				wrapT = param;
+				break;
+			case GL20.GL_TEXTURE_MIN_FILTER:
+				minFilter = param;
+				break;
+			case GL20.GL_TEXTURE_MAG_FILTER:
+				magFilter = param;
+				break;
+			default:
+				throw new UnsupportedOperationException( "Texture parameter " + pname );
+		}
+	}
+
+	/**
+	 * @param pname
+	 *          parameter name
+	 * @return parameter value
+	 */
+	int parameter( int pname ) {
+		switch( pname ){
+			case GL20.GL_TEXTURE_WRAP_S:
+				return wrapS;
+			case GL20.GL_TEXTURE_WRAP_T:
+				return wrapT;
+			case GL20.GL_TEXTURE_MIN_FILTER:
+				return minFilter;
+			case GL20.GL_TEXTURE_MAG_FILTER:
+				return magFilter;
+			default:
+				throw new UnsupportedOperationException( "Texture parameter " + pname );
+		}
+	}
+
+	/**
+	 * Discards the image and allocates a new one
+	 *
+	 * @param w
+	 *          new width
+	 * @param h
+	 *          new height
+	 */
+	void allocate( int w, int h ) {
+		width = w;
+		height = h;
+		texels = new int[ w * h ];
+	}
+
+	/**
+	 * Replaces a region of the image
+	 *
+	 * @param x
+	 *          left edge of the region
+	 * @param y
+	 *          bottom edge of the region
+	 * @param w
+	 *          region width
+	 * @param h
+	 *          region height
+	 * @param format
+	 *          pixel format of the data
+	 * @param type
+	 *          component type of the data
+	 * @param pixels
+	 *          the data, or null to leave the region alone
+	 */
+	void upload( int x, int y, int w, int h, int format, int type,
+			Buffer pixels ) {
+		if( pixels == null ) {
+			return;
+		}
+		if( type != GL20.GL_UNSIGNED_BYTE || !( pixels instanceof ByteBuffer ) ) {
+			throw new UnsupportedOperationException(
+					"Only unsigned byte texture data is supported" );
+		}
+		ByteBuffer data = (ByteBuffer) pixels;
+		int stride = components( format );
+		int base = data.position();
+
+		for( int row = 0; row < h; row++ ) {
+			for( int col = 0; col < w; col++ ) {
+				int p = base + ( row * w + col ) * stride;
+				int r, g, b, a;
+				switch( format ){
+					case GL20.GL_RGBA:
+						r = data.get( p ) & 0xff;
+						g = data.get( p + 1 ) & 0xff;
+						b = data.get( p + 2 ) & 0xff;
+						a = data.get( p + 3 ) & 0xff;
+						break;
+					case GL20.GL_RGB:
+						r = data.get( p ) & 0xff;
+						g = data.get( p + 1 ) & 0xff;
+						b = data.get( p + 2 ) & 0xff;
+						a = 0xff;
+						break;
+					case GL20.GL_ALPHA:
+						r = g = b = 0;
+						a = data.get( p ) & 0xff;
+						break;
+					case GL20.GL_LUMINANCE:
+						r = g = b = data.get( p ) & 0xff;
+						a = 0xff;
+						break;
+					default: // GL_LUMINANCE_ALPHA
+						r = g = b = data.get( p ) & 0xff;
+						a = data.get( p + 1 ) & 0xff;
+				}
+				texels[ ( y + row ) * width + x + col ] =
+						r << 24 | g << 16 | b << 8 | a;
+			}
+		}
+	}
+
+	/**
+	 * Samples the texture
+	 *
+	 * @param s
+	 *          horizontal texture coordinate
+	 * @param t
+	 *          vertical texture coordinate
+	 * @return the RGBA8888 texel
+	 */
+	int sample( float s, float t ) {
+		if( width == 0 || height == 0 ) {
+			return 0x000000ff;
+		}
+		int x = wrap( wrapS, (int) Math.floor( s * width ), width );
+		int y = wrap( wrapT, (int) Math.floor( t * height ), height );
+		return texels[ y * width + x ];
+	}
+
+	private static int wrap( int mode, int i, int size ) {
+		switch( mode ){
+			case GL20.GL_CLAMP_TO_EDGE:
+				return Math.max( 0, Math.min( size - 1, i ) );
+			case GL20.GL_MIRRORED_REPEAT: {
+				int period = Math.floorMod( i, 2 * size );
+				return period < size ? period : 2 * size - 1 - period;
+			}
+			default:
+				return Math.floorMod( i, size );
+		}
+	}
+
+	/**
+	 * @param format
+	 *          a pixel format
+	 * @return bytes per pixel
+	 */
+	static int components( int format ) {
+		switch( format ){
+			case GL20.GL_RGBA:
+				return 4;
+			case GL20.GL_RGB:
+				return 3;
+			case GL20.GL_LUMINANCE_ALPHA:
+				return 2;
+			case GL20.GL_ALPHA:
+			case GL20.GL_LUMINANCE:
+				return 1;
+			default:
+				throw new UnsupportedOperationException( "Texture format " + format );
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.rmn.gdxtend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Exercises {@link FrameClock}
+ */
+public class FrameClockTest {
+
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+	/**
+	 * Unpaced frames never wait and never miss
+	 */
+	@Test
+	public void unpaced() throws Exception {
+		FrameClock fc = new FrameClock( 0 );
+		assertThat( fc.paced() ).isFalse();
+
+		long first = fc.begin();
+		Thread.sleep( 5 );
+		fc.end();
+		long second = fc.begin();
+		fc.end();
+
+		assertThat( second - first ).isLessThan( 50 * MS );
+		assertThat( fc.frames() ).isEqualTo( 2 );
+		assertThat( fc.missed() ).isZero();
+	}
+
+	/**
+	 * Paced frames start on the deadlines, and overruns are counted
+	 */
+	@Test
+	public void paced() throws Exception {
+		FrameClock fc = new FrameClock( 50 );
+		assertThat( fc.paced() ).isTrue();
+		assertThat( fc.budget() ).isEqualTo( 20 * MS );
+
+		long first = fc.begin();
+		fc.end();
+		long second = fc.begin();
+		assertThat( second - first ).isGreaterThanOrEqualTo( 20 * MS );
+
+		Thread.sleep( 25 );
+		long elapsed = fc.end();
+		assertThat( fc.overran( elapsed ) ).isTrue();
+
+		// the overrun frame pushes us to the deadline after next
+		long third = fc.begin();
+		fc.end();
+		assertThat( third - second ).isGreaterThanOrEqualTo( 40 * MS );
+
+		assertThat( fc.frames() ).isEqualTo( 3 );
+		assertThat( fc.missed() ).isEqualTo( 1 );
+	}
+
+	/**
+	 * Negative rates make no sense
+	 */
+	@Test( expected = IllegalArgumentException.class )
+	public void negative() {
+		new FrameClock( -60 );
+	}
+}
@@ -0,0 +1,68 @@
+package com.rmn.gdxtend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+/**
+ * Exercises {@link FrameHistogram}
+ */
+public class FrameHistogramTest {
+
+	/**
+	 * Nothing recorded
+	 */
+	@Test
+	public void empty() {
+		FrameHistogram h = new FrameHistogram();
+		assertThat( h.count() ).isZero();
+		assertThat( h.percentile( 50 ) ).isZero();
+		assertThat( h.max() ).isZero();
+	}
+
+	/**
+	 * Small values are held exactly
+	 */
+	@Test
+	public void exact() {
+		FrameHistogram h = new FrameHistogram();
+		for( int i = 1; i <= 10; i++ ) {
+			h.record( i );
+		}
+		assertThat( h.percentile( 50 ) ).isEqualTo( 5 );
+		assertThat( h.percentile( 90 ) ).isEqualTo( 9 );
+		assertThat( h.percentile( 100 ) ).isEqualTo( 10 );
+		assertThat( h.max() ).isEqualTo( 10 );
+	}
+
+	/**
+	 * Large values are held to within a bucket's width
+	 */
+	@Test
+	public void precision() {
+		FrameHistogram h = new FrameHistogram();
+		for( int i = 1; i <= 10000; i++ ) {
+			h.record( i * 1000L );
+		}
+		assertThat( (double) h.percentile( 50 ) )
+				.isCloseTo( 5000000, within( 5000000.0 / FrameHistogram.SUB_BUCKETS ) );
+		assertThat( (double) h.percentile( 99 ) )
+				.isCloseTo( 9900000, within( 9900000.0 / FrameHistogram.SUB_BUCKETS ) );
+		assertThat( h.percentile( 50 ) ).isGreaterThanOrEqualTo( 5000000 );
+		assertThat( h.max() ).isEqualTo( 10000000 );
+		assertThat( h.percentile( 100 ) ).isEqualTo( 10000000 );
+		assertThat( h.count() ).isEqualTo( 10000 );
+	}
+
+	/**
+	 * The summary is in milliseconds
+	 */
+	@Test
+	public void string() {
+		FrameHistogram h = new FrameHistogram();
+		h.record( 2000000 );
+		assertThat( h.toString() )
+				.isEqualTo( "1 frames: p50 2.000ms, p99 2.000ms, max 2.000ms" );
+	}
+}
@@ -0,0 +1,125 @@
+package com.rmn.gdxtend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.rmn.gdxtend.GLStats.Category;
+
+/**
+ * Exercises {@link GLStats}
+ */
+public class GLStatsTest {
+
+	private RecordingGL gl = new RecordingGL();
+
+	/**
+	 * Calls are counted by category and frame
+	 */
+	@Test
+	public void counts() {
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glBlendFunc( GL20.GL_ONE, GL20.GL_ONE );
+		gl.glDrawArrays( GL20.GL_TRIANGLES, 0, 3 );
+		gl.frame();
+		gl.glDrawArrays( GL20.GL_TRIANGLES, 0, 3 );
+		gl.glDrawArrays( GL20.GL_TRIANGLES, 3, 3 );
+
+		GLStats stats = GLStats.of( gl );
+
+		assertThat( stats.frames() ).isEqualTo( 2 );
+		assertThat( stats.calls( 0, Category.CAPABILITY ) ).isEqualTo( 1 );
+		assertThat( stats.calls( 0, Category.BLEND ) ).isEqualTo( 1 );
+		assertThat( stats.calls( 0, Category.DRAW ) ).isEqualTo( 1 );
+		assertThat( stats.calls( 1, Category.DRAW ) ).isEqualTo( 2 );
+		assertThat( stats.calls( Category.DRAW ) ).isEqualTo( 3 );
+		assertThat( stats.stateChanges( 0 ) ).isEqualTo( 2 );
+		assertThat( stats.stateChanges( 1 ) ).isZero();
+		assertThat( stats.redundant() ).isZero();
+	}
+
+	/**
+	 * Setting state to the value it already has is spotted
+	 */
+	@Test
+	public void redundant() {
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glDisable( GL20.GL_DEPTH_TEST );
+		gl.glEnable( GL20.GL_BLEND ); // redundant
+		gl.glBlendFuncSeparate( GL20.GL_ONE, GL20.GL_ZERO, GL20.GL_ONE,
+				GL20.GL_ZERO );
+		gl.glBlendFunc( GL20.GL_ONE, GL20.GL_ZERO ); // redundant
+		gl.glStencilFuncSeparate( GL20.GL_FRONT, GL20.GL_ALWAYS, 1, 0xff );
+		gl.glStencilFunc( GL20.GL_ALWAYS, 1, 0xff ); // back face changed
+		// redundant
+		gl.glStencilFuncSeparate( GL20.GL_BACK, GL20.GL_ALWAYS, 1, 0xff );
+		gl.glBlendColor( 0.5f, 0, 0, 1 );
+		gl.glBlendColor( 0.5f, 0, 0, 1 ); // redundant
+
+		GLStats stats = GLStats.of( gl );
+
+		assertThat( stats.redundant( Category.CAPABILITY ) ).isEqualTo( 1 );
+		assertThat( stats.redundant( Category.BLEND ) ).isEqualTo( 2 );
+		assertThat( stats.redundant( Category.STENCIL ) ).isEqualTo( 1 );
+		assertThat( stats.redundantCalls() ).containsExactly( 2, 4, 7, 9 );
+		assertThat( stats.stateChanges() ).isEqualTo( 10 );
+	}
+
+	/**
+	 * Texture parameters are tracked per bound texture
+	 */
+	@Test
+	public void textures() {
+		gl.glBindTexture( GL20.GL_TEXTURE_2D, 1 );
+		gl.glTexParameteri( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER,
+				GL20.GL_LINEAR );
+		gl.glBindTexture( GL20.GL_TEXTURE_2D, 2 );
+		gl.glTexParameteri( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER,
+				GL20.GL_LINEAR );
+		gl.glBindTexture( GL20.GL_TEXTURE_2D, 1 );
+		gl.glTexParameteri( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER,
+				GL20.GL_LINEAR ); // redundant
+		gl.glBindTexture( GL20.GL_TEXTURE_2D, 1 ); // redundant
+
+		GLStats stats = GLStats.of( gl );
+
+		assertThat( stats.calls( Category.TEXTURE_BIND ) ).isEqualTo( 4 );
+		assertThat( stats.redundantCalls() ).containsExactly( 5, 6 );
+	}
+
+	/**
+	 * Texture parameters and uniforms are the same state whichever variant of
+	 * the call sets them
+	 */
+	@Test
+	public void variants() {
+		gl.glBindTexture( GL20.GL_TEXTURE_2D, 1 );
+		gl.glTexParameterf( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER, 1 );
+		gl.glTexParameteri( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER, 2 );
+		gl.glTexParameterf( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER, 1 );
+		gl.glTexParameteri( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER,
+				1 ); // redundant
+		gl.glTexParameteriv( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER,
+				IntBuffer.allocate( 1 ) );
+		gl.glTexParameterf( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER, 1 );
+
+		gl.glUseProgram( 3 );
+		gl.glUniform1f( 0, 1 );
+		gl.glUniform1i( 0, 2 );
+		gl.glUniform1f( 0, 1 );
+		gl.glUniform1i( 0, 1 ); // redundant
+		gl.glUniform1fv( 0, 1, FloatBuffer.allocate( 1 ) );
+		gl.glUniform1f( 0, 1 );
+		gl.glUniform4fv( 1, 2, new float[ 8 ], 0 );
+		gl.glUniform1i( 2, 0 );
+		gl.glUniform1i( 2, 0 ); // redundant
+
+		GLStats stats = GLStats.of( gl );
+
+		assertThat( stats.redundantCalls() ).containsExactly( 4, 11, 16 );
+	}
+}
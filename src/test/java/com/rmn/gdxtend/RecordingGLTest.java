@@ -0,0 +1,116 @@
+package com.rmn.gdxtend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.FloatBuffer;
+
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * Exercises {@link RecordingGL}
+ */
+public class RecordingGLTest {
+
+	private RecordingGL gl = new RecordingGL();
+
+	/**
+	 * Calls and their arguments are recorded in order
+	 */
+	@Test
+	public void record() {
+		FloatBuffer fb = FloatBuffer.allocate( 1 );
+
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glBlendColor( 0.5f, 0.25f, 0.125f, 0.0625f );
+		gl.glDepthMask( false );
+		gl.glFlush();
+		gl.glUniform1fv( 3, 1, fb );
+
+		assertThat( gl.calls() ).isEqualTo( 5 );
+
+		assertThat( gl.op( 0 ) ).isEqualTo( GLOp.glEnable );
+		assertThat( gl.args( 0 ) ).isEqualTo( 1 );
+		assertThat( gl.intArg( 0, 0 ) ).isEqualTo( GL20.GL_BLEND );
+
+		assertThat( gl.op( 1 ) ).isEqualTo( GLOp.glBlendColor );
+		assertThat( gl.args( 1 ) ).isEqualTo( 4 );
+		assertThat( gl.floatArg( 1, 3 ) ).isEqualTo( 0.0625f );
+
+		assertThat( gl.booleanArg( 2, 0 ) ).isFalse();
+
+		assertThat( gl.op( 3 ) ).isEqualTo( GLOp.glFlush );
+		assertThat( gl.args( 3 ) ).isEqualTo( 0 );
+
+		assertThat( gl.arg( 4, 0 ) ).isEqualTo( 3 );
+		assertThat( gl.objectArg( 4, 2 ) ).isSameAs( fb );
+	}
+
+	/**
+	 * Calls can be counted by method and arguments
+	 */
+	@Test
+	public void count() {
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glEnable( GL20.GL_DEPTH_TEST );
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glPolygonOffset( 0.5f, 2 );
+
+		assertThat( gl.count( GLOp.glEnable ) ).isEqualTo( 3 );
+		assertThat( gl.count( GLOp.glEnable, GL20.GL_BLEND ) ).isEqualTo( 2 );
+		assertThat( gl.count( GLOp.glEnable, GL20.GL_STENCIL_TEST ) ).isZero();
+		assertThat( gl.count( GLOp.glDisable ) ).isZero();
+
+		assertThat( gl.count( GLOp.glPolygonOffset, 0.5f ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glPolygonOffset, 0.5f, 2 ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glPolygonOffset, 0.5f, 3 ) ).isZero();
+	}
+
+	/**
+	 * Resetting forgets everything, and the recorder grows as needed
+	 */
+	@Test
+	public void reset() {
+		for( int i = 0; i < 1000; i++ ) {
+			gl.glStencilFunc( GL20.GL_ALWAYS, i, 0xff );
+		}
+		assertThat( gl.calls() ).isEqualTo( 1000 );
+		assertThat( gl.intArg( 999, 1 ) ).isEqualTo( 999 );
+
+		gl.reset();
+		assertThat( gl.calls() ).isZero();
+		assertThat( gl.count( GLOp.glStencilFunc ) ).isZero();
+
+		gl.glClear( GL20.GL_COLOR_BUFFER_BIT );
+		assertThat( gl.calls() ).isEqualTo( 1 );
+		assertThat( gl.intArg( 0, 0 ) ).isEqualTo( GL20.GL_COLOR_BUFFER_BIT );
+	}
+
+	/**
+	 * Arguments that take gl constants are traced by name, others by value
+	 */
+	@Test
+	public void trace() {
+		gl.glEnable( GL20.GL_POLYGON_OFFSET_FILL );
+		gl.glPolygonOffset( 0.5f, 0.25f );
+		gl.glBlendFunc( GL20.GL_ONE, GL20.GL_ZERO );
+		gl.glDrawArrays( GL20.GL_LINES, 0, 1 );
+		gl.glViewport( 0, 0, GL20.GL_SRC_ALPHA, 1 );
+		gl.glTexParameterf( GL20.GL_TEXTURE_2D, GL20.GL_TEXTURE_MIN_FILTER,
+				GL20.GL_LINEAR );
+		gl.glClear( GL20.GL_STENCIL_BUFFER_BIT );
+		gl.glClear( 1 );
+		gl.glEnable( 12345 );
+
+		assertThat( gl.trace() ).isEqualTo( "glEnable GL_POLYGON_OFFSET_FILL\n"
+				+ "glPolygonOffset 0.5 0.25\n"
+				+ "glBlendFunc GL_ONE GL_ZERO\n"
+				+ "glDrawArrays GL_LINES 0 1\n"
+				+ "glViewport 0 0 770 1\n"
+				+ "glTexParameterf GL_TEXTURE_2D GL_TEXTURE_MIN_FILTER GL_LINEAR\n"
+				+ "glClear GL_STENCIL_BUFFER_BIT\n"
+				+ "glClear 1\n"
+				+ "glEnable 12345\n" );
+	}
+}
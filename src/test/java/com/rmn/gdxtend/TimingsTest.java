@@ -0,0 +1,87 @@
+package com.rmn.gdxtend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.rmn.gdxtend.Timings.Phase;
+
+/**
+ * Exercises {@link Timings}
+ */
+public class TimingsTest {
+
+	/**
+	 * Make sure we don't leave a test attached to the thread
+	 */
+	@After
+	public void end() {
+		Timings.end();
+	}
+
+	/**
+	 * Time is attributed to the test on the current thread
+	 */
+	@Test
+	public void attribution() throws Exception {
+		long start = Timings.start();
+		Timings.stop( Phase.SVG, start ); // no test, so dropped
+
+		Timings.Test t = Timings.begin( "a.Class", "attribution" );
+		start = Timings.start();
+		Thread.sleep( 2 );
+		Timings.stop( Phase.SVG, start );
+		start = Timings.start();
+		Thread.sleep( 2 );
+		Timings.stop( Phase.SVG, start );
+		Timings.end();
+
+		start = Timings.start();
+		Timings.stop( Phase.SVG, start ); // test ended, so dropped
+
+		assertThat( t.nanos( Phase.SVG ) ).isGreaterThanOrEqualTo( 4000000 );
+		assertThat( t.nanos( Phase.SVG ) ).isLessThan( 1000000000 );
+		assertThat( t.nanos( Phase.EXPECT_IO ) ).isZero();
+		assertThat( Timings.tests() ).contains( t );
+	}
+
+	/**
+	 * Harness code outside the runner doesn't take over a test that's already
+	 * being recorded
+	 */
+	@Test
+	public void attach() {
+		Timings.Test t = Timings.begin( "a.Class", "attach" );
+		assertThat( Timings.attach( "a.Class", "attach" ) ).isNull();
+		Timings.detach( null );
+
+		long start = Timings.start();
+		Timings.stop( Phase.SVG, start );
+		assertThat( t.nanos( Phase.SVG ) ).isPositive();
+	}
+
+	/**
+	 * The report lists each test's phases and the totals
+	 */
+	@Test
+	public void report() throws IOException {
+		Timings.Test t = Timings.begin( "a.Class", "say \"cheese\"" );
+		t.add( Phase.RUN, 42 );
+
+		StringBuilder sb = new StringBuilder();
+		Timings.write( sb );
+		String json = sb.toString();
+
+		assertThat( json )
+				.startsWith( "{\n  \"unit\": \"ns\",\n  \"tests\": [\n" )
+				.contains( "    { \"class\": \"a.Class\", "
+						+ "\"method\": \"say \\\"cheese\\\"\", "
+						+ "\"queued\": 0, \"run\": 42, \"expectIo\": 0, "
+						+ "\"expectCompare\": 0, \"svg\": 0 }" )
+				.contains( "\"totals\": { \"tests\": " )
+				.endsWith( "}\n}\n" );
+	}
+}
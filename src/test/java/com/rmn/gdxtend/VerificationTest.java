@@ -0,0 +1,61 @@
+package com.rmn.gdxtend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Exercises {@link Verification}
+ */
+public class VerificationTest {
+
+	private static final Callable<Void> PASS = new Callable<Void>() {
+		@Override
+		public Void call() {
+			return null;
+		}
+	};
+
+	/**
+	 * Make sure we don't leave verdicts attached to the thread
+	 */
+	@After
+	public void end() {
+		Verification.end();
+	}
+
+	/**
+	 * Verdicts are only taken while a test is running on this thread
+	 */
+	@Test
+	public void defer() {
+		assertThat( Verification.defer( PASS ) ).isFalse();
+
+		Verification.begin();
+		assertThat( Verification.defer( PASS ) ).isTrue();
+		assertThat( Verification.defer( PASS ) ).isTrue();
+		List<Callable<?>> l = Verification.end();
+		assertThat( l ).containsExactly( PASS, PASS );
+
+		assertThat( Verification.defer( PASS ) ).isFalse();
+		assertThat( Verification.end() ).isEmpty();
+	}
+
+	/**
+	 * Checks run on the pool
+	 */
+	@Test
+	public void submit() throws Exception {
+		String name = Verification.submit( new Callable<String>() {
+			@Override
+			public String call() {
+				return Thread.currentThread().getName();
+			}
+		} ).get();
+		assertThat( name ).startsWith( "gdxtest-verifier-" );
+	}
+}
@@ -0,0 +1,77 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Exercises {@link ActualTree}
+ */
+public class ActualTreeTest {
+
+	/**
+	 * Somewhere to put results
+	 */
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	/**
+	 * Only leftovers from before the first clean are deleted
+	 */
+	@Test
+	public void clean() throws IOException {
+		File root = tmp.newFolder( "actual" );
+		File dir = new File( root, "a/b" );
+		dir.mkdirs();
+		File one = touch( dir, "one.svg" );
+		File oneNamed = touch( dir, "one_named.svg" );
+		File two = touch( dir, "two.svg" );
+
+		ActualTree at = new ActualTree( root );
+		assertThat( at.clean( "a/b", "one" ) ).isEqualTo( 2 );
+		assertThat( one ).doesNotExist();
+		assertThat( oneNamed ).doesNotExist();
+		assertThat( two ).exists();
+
+		// written during this run
+		one = touch( dir, "one.svg" );
+		assertThat( at.clean( "a/b", "one" ) ).isZero();
+		assertThat( at.clean( "a/b", "o" ) ).isZero();
+		assertThat( one ).exists();
+
+		assertThat( at.clean( "a/b", "two" ) ).isEqualTo( 1 );
+		assertThat( at.clean( "nothing/here", "two" ) ).isZero();
+	}
+
+	/**
+	 * Empty directories are pruned, the others are left alone
+	 */
+	@Test
+	public void prune() throws IOException {
+		File root = tmp.newFolder( "actual" );
+		new File( root, "a/b/c" ).mkdirs();
+		new File( root, "d/e" ).mkdirs();
+		File kept = touch( new File( root, "d" ), "kept.svg" );
+
+		new ActualTree( root ).prune();
+
+		assertThat( new File( root, "a" ) ).doesNotExist();
+		assertThat( new File( root, "d/e" ) ).doesNotExist();
+		assertThat( kept ).exists();
+
+		kept.delete();
+		new ActualTree( root ).prune();
+		assertThat( root ).doesNotExist();
+	}
+
+	private static File touch( File dir, String name ) throws IOException {
+		File f = new File( dir, name );
+		f.createNewFile();
+		return f;
+	}
+}
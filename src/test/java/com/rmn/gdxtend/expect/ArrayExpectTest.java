@@ -0,0 +1,109 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Exercises {@link ArrayExpect}
+ */
+public class ArrayExpectTest {
+
+	/**
+	 * Test rule
+	 */
+	@Rule
+	public ArrayExpect expect = new ArrayExpect();
+
+	/**
+	 * Floats are checked exactly, unless told otherwise
+	 */
+	@Test
+	public void floats() {
+		expect.check( sine( 1000 ) );
+	}
+
+	/**
+	 * The tolerance applies to the next check. The expected result is the same
+	 * as {@link #floats()}
+	 */
+	@Test
+	public void tolerance() {
+		float[] f = sine( 1000 );
+		f[ 7 ] = Math.nextUp( f[ 7 ] );
+		f[ 8 ] += 0.001f;
+		expect.ulps( 1 ).within( 0.002 ).check( f );
+	}
+
+	/**
+	 * Shorts and bytes, under other names
+	 */
+	@Test
+	public void integers() {
+		expect.named( "indices" ).check( new short[] { 0, 1, 2, 2, 1, 3, -1 } );
+
+		ByteBuffer bb = ByteBuffer.wrap( new byte[] { 9, 1, 2, (byte) 255, 9 } );
+		bb.position( 1 ).limit( 4 );
+		expect.named( "bytes" ).check( bb );
+		assertThat( bb.position() ).isEqualTo( 1 );
+	}
+
+	/**
+	 * Differences beyond the tolerance are listed
+	 */
+	@Test
+	public void differences() {
+		ArrayExpect ae = new ArrayExpect();
+		ByteBuffer golden = ByteBuffer.wrap(
+				ArrayExpect.Elements.of( new float[] { 1, 2, 3, Float.NaN } )
+						.encode() );
+
+		assertThat( ae.differences( ArrayExpect.Elements.of(
+				new float[] { 1, 2, 3, Float.NaN } ), golden ) ).isNull();
+
+		String diff = ae.differences( ArrayExpect.Elements.of(
+				new float[] { 1, Math.nextUp( 2f ), 3.5f, 0 } ), golden );
+		assertThat( diff ).isEqualTo( "# index\texpected\tactual\tdifference\n"
+				+ "1\t2.0\t2.0000002\t2.384185791015625E-7 (1 ulps)\n"
+				+ "2\t3.0\t3.5\t0.5 (2097152 ulps)\n"
+				+ "3\tNaN\t0.0\tNaN\n"
+				+ "# 3 of 4 elements differ by more than 0 ulps and 0.0, "
+				+ "by up to 0.5\n" );
+
+		ae.ulps( 1 ).within( 0.5 );
+		assertThat( ae.differences( ArrayExpect.Elements.of(
+				new float[] { 1, Math.nextUp( 2f ), 3.5f, 0 } ), golden ) )
+				.contains( "# 1 of 4 elements" );
+
+		assertThat( ae.differences( ArrayExpect.Elements.of( new short[] { 1 } ),
+				golden ) ).startsWith( "# expected 4 float, actual 1 short\n" );
+		assertThat( ae.differences( ArrayExpect.Elements.of( new float[] { 1 } ),
+				golden ) ).startsWith( "# expected 4 float, actual 1 float\n" );
+		assertThat( ae.differences( ArrayExpect.Elements.of( new float[] { 1 } ),
+				ByteBuffer.wrap( "nonsense".getBytes() ) ) )
+				.isEqualTo( "# expected result is not an array\n" );
+	}
+
+	private static float[] sine( int n ) {
+		float[] f = new float[ n ];
+		for( int i = 0; i < f.length; i++ ) {
+			f[ i ] = (float) Math.sin( i / 10.0 );
+		}
+		return f;
+	}
+
+	/**
+	 * Distance in representable floats
+	 */
+	@Test
+	public void ulps() {
+		assertThat( ArrayExpect.ulps( 1, 1 ) ).isZero();
+		assertThat( ArrayExpect.ulps( 1, Math.nextUp( 1f ) ) ).isEqualTo( 1 );
+		assertThat( ArrayExpect.ulps( 0f, -0f ) ).isZero();
+		assertThat( ArrayExpect.ulps( Float.MIN_VALUE, -Float.MIN_VALUE ) )
+				.isEqualTo( 2 );
+	}
+}
@@ -0,0 +1,161 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Exercises {@link ComparingWriter}
+ */
+public class ComparingWriterTest {
+
+	/**
+	 * Identical output matches, however it is split up
+	 */
+	@Test
+	public void match() throws IOException {
+		ComparingWriter cw = new ComparingWriter( expect( "hello world\n" ) );
+		cw.append( "hel" ).append( new StringBuilder( "lo " ) );
+		cw.write( "world\n".toCharArray() );
+		cw.close();
+
+		assertThat( cw.matched() ).isTrue();
+		assertThat( cw.mismatch() ).isEqualTo( -1 );
+		assertThat( new String( cw.actual() ) ).isEqualTo( "hello world\n" );
+	}
+
+	/**
+	 * The first difference is found and the actual result rebuilt
+	 */
+	@Test
+	public void differ() throws IOException {
+		ComparingWriter cw = new ComparingWriter( expect( "hello world" ) );
+		cw.append( "hello" );
+		assertThat( cw.matched() ).isTrue();
+		cw.append( " there, world" );
+		assertThat( cw.matched() ).isFalse();
+		cw.close();
+
+		assertThat( cw.mismatch() ).isEqualTo( 6 );
+		assertThat( new String( cw.actual() ) )
+				.isEqualTo( "hello there, world" );
+	}
+
+	/**
+	 * Running out early, or going on too long, is a mismatch
+	 */
+	@Test
+	public void length() throws IOException {
+		ComparingWriter cw = new ComparingWriter( expect( "abc" ) );
+		cw.append( "ab" );
+		cw.close();
+		assertThat( cw.matched() ).isFalse();
+		assertThat( cw.mismatch() ).isEqualTo( 2 );
+		assertThat( new String( cw.actual() ) ).isEqualTo( "ab" );
+
+		cw = new ComparingWriter( expect( "abc" ) );
+		cw.append( "abcd" );
+		cw.close();
+		assertThat( cw.matched() ).isFalse();
+		assertThat( cw.mismatch() ).isEqualTo( 3 );
+		assertThat( new String( cw.actual() ) ).isEqualTo( "abcd" );
+	}
+
+	/**
+	 * With no expectation everything is a mismatch
+	 */
+	@Test
+	public void missing() throws IOException {
+		ComparingWriter cw = new ComparingWriter( (ByteBuffer) null );
+		cw.append( "abc" );
+		cw.close();
+		assertThat( cw.matched() ).isFalse();
+		assertThat( new String( cw.actual() ) ).isEqualTo( "abc" );
+	}
+
+	/**
+	 * Surrogate pairs split across writes are encoded properly
+	 */
+	@Test
+	public void surrogates() throws IOException {
+		String s = "a😀b";
+		ComparingWriter cw = new ComparingWriter( expect( s ) );
+		cw.append( s, 0, 2 );
+		cw.append( s, 2, 4 );
+		cw.close();
+		assertThat( cw.matched() ).isTrue();
+	}
+
+	/**
+	 * Output larger than the internal buffer
+	 */
+	@Test
+	public void large() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < 10000; i++ ) {
+			sb.append( i ).append( '\n' );
+		}
+		String s = sb.toString();
+
+		ComparingWriter cw = new ComparingWriter( expect( s ) );
+		cw.append( s );
+		cw.close();
+		assertThat( cw.matched() ).isTrue();
+
+		cw = new ComparingWriter( expect( s ) );
+		cw.append( s.replace( "9999", "xxxx" ) );
+		cw.close();
+		assertThat( cw.matched() ).isFalse();
+		assertThat( new String( cw.actual() ) ).isEqualTo(
+				s.replace( "9999", "xxxx" ) );
+	}
+
+	/**
+	 * Expectations can be streamed, and are read again to rebuild the actual
+	 * result
+	 */
+	@Test
+	public void stream() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < 10000; i++ ) {
+			sb.append( i ).append( '\n' );
+		}
+		final String s = sb.toString();
+		final int[] opened = { 0 };
+		ComparingWriter.Source source = new ComparingWriter.Source() {
+			@Override
+			public InputStream open() {
+				opened[ 0 ]++;
+				return new ByteArrayInputStream( s.getBytes() );
+			}
+		};
+
+		ComparingWriter cw = new ComparingWriter( source );
+		cw.append( s );
+		cw.close();
+		assertThat( cw.matched() ).isTrue();
+		assertThat( opened[ 0 ] ).isEqualTo( 1 );
+
+		cw = new ComparingWriter( source );
+		cw.append( s.replace( "9999", "xxxx" ) );
+		cw.close();
+		assertThat( cw.matched() ).isFalse();
+		assertThat( new String( cw.actual() ) ).isEqualTo(
+				s.replace( "9999", "xxxx" ) );
+		assertThat( opened[ 0 ] ).isEqualTo( 3 );
+
+		cw = new ComparingWriter( source );
+		cw.append( s + "more" );
+		cw.close();
+		assertThat( cw.mismatch() ).isEqualTo( s.length() );
+	}
+
+	private static ByteBuffer expect( String s ) {
+		return ByteBuffer.wrap( s.getBytes() ).asReadOnlyBuffer();
+	}
+}
@@ -0,0 +1,202 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Exercises the {@link CompiledMask} class
+ */
+public class CompiledMaskTest {
+
+	/**
+	 * Later changes to the mask don't affect what was compiled
+	 */
+	@Test
+	public void immutable() {
+		Mask m = new Mask().mask( "a" ).with( "b" );
+		CompiledMask c = m.compile();
+		assertThat( m.compile() ).isSameAs( c );
+
+		m.mask( "b" ).with( "c" );
+		assertThat( c.apply( "ab" ) ).isEqualTo( "bb" );
+		assertThat( m.compile().apply( "ab" ) ).isEqualTo( "cc" );
+	}
+
+	/**
+	 * Captures are masked in the input they came from, and no other
+	 */
+	@Test
+	public void captures() {
+		CompiledMask c = new Mask()
+				.maskCaptures( "<tag>(.*?)</tag>" )
+				.with( "foo" )
+				.compile();
+
+		assertThat( c.apply( "123 <tag>123</tag> 456" ) )
+				.isEqualTo( "foo_1 <tag>foo_1</tag> 456" );
+		assertThat( c.apply( "123 456" ) ).isEqualTo( "123 456" );
+	}
+
+	/**
+	 * One mask can be used from many threads at once
+	 */
+	@Test
+	public void concurrent() throws Exception {
+		final CompiledMask c = new Mask()
+				.maskCaptures( "<clipPath id=\"(.*?)\">" )
+				.with( "clip_path" )
+				.mask( "\\d+\\.\\d+" ).with( "n" )
+				.compile();
+
+		ExecutorService pool = Executors.newFixedThreadPool( 8 );
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for( int i = 0; i < 200; i++ ) {
+				final int id = i;
+				results.add( pool.submit( new Callable<String>() {
+					@Override
+					public String call() {
+						return c.apply( "<clipPath id=\"clip" + id + "\"> 1.5 url(#clip"
+								+ id + ") clip" + ( id + 1 ) );
+					}
+				} ) );
+			}
+
+			for( int i = 0; i < results.size(); i++ ) {
+				assertThat( results.get( i ).get() ).isEqualTo(
+						"<clipPath id=\"clip_path_1\"> n url(#clip_path_1) clip"
+								+ ( i + 1 ) );
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Masking a chunk at a time gives the same result as masking the whole
+	 * text, wherever the chunks happen to end
+	 */
+	@Test
+	public void streamed() throws IOException {
+		CompiledMask c = new Mask()
+				.maskCaptures( "<clipPath id=\"(.*?)\">" ).with( "clip_path" )
+				.mask( "\\d+\\.\\d+" ).with( "n" )
+				.mask( "(?s)<desc>.*?</desc>" ).with( "<desc/>" )
+				.mask( "\\bid\\b" ).with( "ID" )
+				.mask( "(?<=x)y" ).with( "z" )
+				.mask( "(a)\\1" ).with( "$1" )
+				.compile();
+
+		Random rng = new Random( 5 );
+		for( int i = 0; i < 4; i++ ) {
+			String in = text( rng, 4 * CompiledMask.CHUNK );
+			String expected = c.apply( in );
+
+			StringBuilder sb = new StringBuilder();
+			c.apply( (CharSequence) in, sb );
+			assertThat( sb.toString() ).isEqualTo( expected );
+
+			sb.setLength( 0 );
+			c.apply( new Trickle( in, rng ), sb );
+			assertThat( sb.toString() ).isEqualTo( expected );
+
+			sb.setLength( 0 );
+			try( Writer w = c.writer( sb ) ) {
+				for( int at = 0; at < in.length(); ) {
+					int end = Math.min( in.length(), at + 1 + rng.nextInt( 5000 ) );
+					w.append( in, at, end );
+					at = end;
+				}
+			}
+			assertThat( sb.toString() ).isEqualTo( expected );
+		}
+
+		StringBuilder sb = new StringBuilder();
+		c.apply( "", sb );
+		assertThat( sb.toString() ).isEmpty();
+		new Mask().compile().apply( "abc", sb );
+		assertThat( sb.toString() ).isEqualTo( "abc" );
+	}
+
+	/**
+	 * @return svg-ish text, in which captured ids are only used after they're
+	 *         captured
+	 */
+	private static String text( Random rng, int length ) {
+		StringBuilder sb = new StringBuilder();
+		int ids = 0;
+		while( sb.length() < length ) {
+			switch( rng.nextInt( 10 ) ) {
+				case 0:
+					sb.append( "<clipPath id=\"c" ).append( ids++ ).append( "\">" );
+					break;
+				case 1:
+					if( ids > 0 ) {
+						sb.append( "url(#c" ).append( rng.nextInt( ids ) ).append( ")" );
+					}
+					break;
+				case 2:
+					sb.append( rng.nextInt( 1000 ) ).append( '.' )
+							.append( rng.nextInt( 1000 ) );
+					break;
+				case 3:
+					sb.append( "<desc>" );
+					int n = rng.nextInt( 3 ) == 0 ? rng.nextInt( 100000 ) : 10;
+					for( int i = 0; i < n; i++ ) {
+						sb.append( (char) ( 'a' + rng.nextInt( 26 ) ) );
+					}
+					sb.append( "</desc>" );
+					break;
+				case 4:
+					sb.append( rng.nextBoolean() ? " id " : "idx" );
+					break;
+				case 5:
+					sb.append( rng.nextBoolean() ? "xy" : "aaa" );
+					break;
+				case 6:
+					sb.append( '\n' );
+					break;
+				default:
+					sb.append( (char) ( 'a' + rng.nextInt( 26 ) ) );
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads a few characters at a time
+	 */
+	private static class Trickle extends Reader {
+		private final Reader in;
+		private final Random rng;
+
+		Trickle( String s, Random rng ) {
+			in = new StringReader( s );
+			this.rng = rng;
+		}
+
+		@Override
+		public int read( char[] cbuf, int off, int len ) throws IOException {
+			return in.read( cbuf, off, Math.min( len, 1 + rng.nextInt( 5000 ) ) );
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
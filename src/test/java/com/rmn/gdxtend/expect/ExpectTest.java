@@ -0,0 +1,34 @@
+package com.rmn.gdxtend.expect;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Exercises {@link Expect}
+ */
+public class ExpectTest {
+
+	private static final CompiledMask IDS = new Mask()
+			.maskCaptures( "<clipPath id=\"(.*?)\">" )
+			.with( "clip_path" )
+			.mask( "time=\\d+" ).with( "time=0" )
+			.compile();
+
+	/**
+	 * Rule under test
+	 */
+	@Rule
+	public Expect expect = new Expect();
+
+	/**
+	 * Parts of the result that change with every run are masked as they're
+	 * compared against an expectation that holds the masked text
+	 */
+	@Test
+	public void masked() {
+		String id = "clip" + System.nanoTime();
+		expect.check( "<clipPath id=\"" + id + "\">\n"
+				+ "<path clip-path=\"url(#" + id + ")\"/>\n"
+				+ "<!-- time=" + System.currentTimeMillis() + " -->\n", IDS );
+	}
+}
@@ -0,0 +1,42 @@
+package com.rmn.gdxtend.expect;
+
+import java.nio.ShortBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.rmn.gdxtend.RecordingGL;
+
+/**
+ * Exercises {@link GLTraceExpect}
+ */
+public class GLTraceExpectTest {
+
+	/**
+	 * Rule under test
+	 */
+	@Rule
+	public GLTraceExpect trace = new GLTraceExpect();
+
+	private RecordingGL gl = new RecordingGL();
+
+	/**
+	 * A typical frame
+	 */
+	@Test
+	public void frame() {
+		gl.glClearColor( 0, 0, 0, 1 );
+		gl.glClear( GL20.GL_COLOR_BUFFER_BIT | GL20.GL_DEPTH_BUFFER_BIT );
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glBlendFunc( GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA );
+		gl.glDepthMask( false );
+		gl.glUseProgram( 3 );
+		gl.glUniform1i( 0, 0 );
+		gl.glDrawElements( GL20.GL_TRIANGLES, 6, GL20.GL_UNSIGNED_SHORT,
+				ShortBuffer.allocate( 6 ) );
+		gl.glDisable( GL20.GL_BLEND );
+
+		trace.check( gl );
+	}
+}
@@ -0,0 +1,305 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Exercises {@link GoldenStore}
+ */
+public class GoldenStoreTest {
+
+	/**
+	 * Somewhere to put results
+	 */
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	/**
+	 * Loose results are found, listed once and cached
+	 */
+	@Test
+	public void loose() throws IOException {
+		File root = tmp.newFolder( "expect" );
+		put( root, "a/b/one.expect", "one" );
+
+		GoldenStore gs = new GoldenStore( root, null, 1024 );
+		assertThat( gs.exists( "a/b", "one.expect" ) ).isTrue();
+		assertThat( gs.exists( "a/b", "two.expect" ) ).isFalse();
+		assertThat( gs.read( "a/b", "two.expect" ) ).isNull();
+		assertThat( new String( gs.read( "a/b", "one.expect" ) ) )
+				.isEqualTo( "one" );
+		assertThat( gs.cachedBytes() ).isEqualTo( 3 );
+
+		// the listing and contents are not looked at again
+		put( root, "a/b/two.expect", "two" );
+		put( root, "a/b/one.expect", "changed" );
+		assertThat( gs.exists( "a/b", "two.expect" ) ).isFalse();
+		assertThat( new String( gs.read( "a/b", "one.expect" ) ) )
+				.isEqualTo( "one" );
+	}
+
+	/**
+	 * Written results are visible straight away
+	 */
+	@Test
+	public void write() throws Exception {
+		File root = tmp.newFolder( "expect" );
+		GoldenStore gs = new GoldenStore( root, null, 1024 );
+		assertThat( gs.exists( "c", "new.expect" ) ).isFalse();
+
+		Future<?> written = gs.write( "c", "new.expect", "new".getBytes(),
+				false );
+
+		assertThat( gs.exists( "c", "new.expect" ) ).isTrue();
+		assertThat( new String( gs.read( "c", "new.expect" ) ) ).isEqualTo( "new" );
+
+		written.get();
+		assertThat( new String(
+				Files.readAllBytes( new File( root, "c/new.expect" ).toPath() ) ) )
+				.isEqualTo( "new" );
+	}
+
+	/**
+	 * The least recently used results are evicted to keep within capacity
+	 */
+	@Test
+	public void eviction() throws IOException {
+		File root = tmp.newFolder( "expect" );
+		put( root, "d/a", "aaaa" );
+		put( root, "d/b", "bbbb" );
+		put( root, "d/c", "cccc" );
+		put( root, "d/big", "0123456789" );
+
+		GoldenStore gs = new GoldenStore( root, null, 8 );
+		gs.read( "d", "a" );
+		gs.read( "d", "b" );
+		gs.read( "d", "a" );
+		gs.read( "d", "c" ); // evicts b
+		assertThat( gs.cachedBytes() ).isEqualTo( 8 );
+
+		// a is still cached, b is read afresh
+		put( root, "d/a", "AAAA" );
+		put( root, "d/b", "BBBB" );
+		assertThat( new String( gs.read( "d", "a" ) ) ).isEqualTo( "aaaa" );
+		assertThat( new String( gs.read( "d", "b" ) ) ).isEqualTo( "BBBB" );
+
+		// too big to cache at all
+		assertThat( new String( gs.read( "d", "big" ) ) ).isEqualTo( "0123456789" );
+		assertThat( gs.cachedBytes() ).isLessThanOrEqualTo( 8 );
+	}
+
+	/**
+	 * Packed results are read from the archive, but loose files win
+	 */
+	@Test
+	public void packed() throws IOException {
+		File packing = tmp.newFolder( "packing" );
+		put( packing, "e/f/one.svg", "packed one" );
+		put( packing, "e/f/two.svg", "packed two" );
+		put( packing, "top.expect", "" );
+
+		File archive = tmp.newFile( "expect.pack" );
+		try( OutputStream out = new FileOutputStream( archive ) ) {
+			assertThat( GoldenStore.pack( packing, out ) ).isEqualTo( 3 );
+		}
+
+		File root = tmp.newFolder( "expect" );
+		put( root, "e/f/two.svg", "loose two" );
+
+		GoldenStore gs = new GoldenStore( root, archive, 1024 );
+		assertThat( gs.packedCount() ).isEqualTo( 3 );
+		assertThat( new String( gs.read( "e/f", "one.svg" ) ) )
+				.isEqualTo( "packed one" );
+		assertThat( new String( gs.read( "e/f", "two.svg" ) ) )
+				.isEqualTo( "loose two" );
+		assertThat( gs.read( "", "top.expect" ) ).isEmpty();
+		assertThat( gs.exists( "e/f", "three.svg" ) ).isFalse();
+	}
+
+	/**
+	 * Written results are added to the manifest, which is distrusted where
+	 * results have been changed behind its back
+	 */
+	@Test
+	public void manifest() throws Exception {
+		File root = tmp.newFolder( "expect" );
+		GoldenStore gs = new GoldenStore( root, null, 1024 );
+		assertThat( gs.manifest( "g" ).size() ).isZero();
+
+		Future<?> wroteOne = gs.write( "g", "one.expect", "one".getBytes(),
+				false );
+		Future<?> wroteTwo = gs.write( "g", "two.expect", "two".getBytes(),
+				false );
+		wroteOne.get();
+		wroteTwo.get();
+		assertThat( new File( root, "g/" + Manifest.NAME ) ).exists();
+		assertThat( new File( root, "g" ).list() ).hasSize( 3 );
+
+		HashingWriter hw = new HashingWriter();
+		hw.append( "o" ).append( "ne" );
+		hw.close();
+		Manifest m = new GoldenStore( root, null, 1024 ).manifest( "g" );
+		assertThat( m.size() ).isEqualTo( 2 );
+		assertThat( m.get( "one.expect" ).length ).isEqualTo( 3 );
+		assertThat( m.get( "one.expect" ).matches( hw ) ).isTrue();
+		assertThat( m.get( "two.expect" ).matches( hw ) ).isFalse();
+
+		// edited by hand
+		File two = new File( root, "g/two.expect" );
+		two.setLastModified(
+				new File( root, "g/" + Manifest.NAME ).lastModified() + 2000 );
+		m = new GoldenStore( root, null, 1024 ).manifest( "g" );
+		assertThat( m.get( "one.expect" ) ).isNotNull();
+		assertThat( m.get( "two.expect" ) ).isNull();
+
+		// checked out, so older than the manifest
+		File one = new File( root, "g/one.expect" );
+		put( root, "g/one.expect", "changed" );
+		one.setLastModified(
+				new File( root, "g/" + Manifest.NAME ).lastModified() - 2000 );
+		m = new GoldenStore( root, null, 1024 ).manifest( "g" );
+		assertThat( m.get( "one.expect" ) ).isNull();
+	}
+
+	/**
+	 * Results found to match are added to the manifest, which is written once
+	 * for however many are added
+	 */
+	@Test
+	public void remember() throws Exception {
+		File root = tmp.newFolder( "expect" );
+		put( root, "r/one.expect", "one" );
+		put( root, "r/two.expect", "two" );
+		File manifest = new File( root, "r/" + Manifest.NAME );
+		// results are older than the manifest that we'll write
+		new File( root, "r/one.expect" ).setLastModified(
+				System.currentTimeMillis() - 10000 );
+		new File( root, "r/two.expect" ).setLastModified(
+				System.currentTimeMillis() - 10000 );
+
+		GoldenStore gs = new GoldenStore( root, null, 1024 );
+		Future<?> one = gs.remember( "r", "one.expect",
+				Manifest.Entry.of( "one".getBytes() ) );
+		Future<?> two = gs.remember( "r", "two.expect",
+				Manifest.Entry.of( ByteBuffer.wrap( "two".getBytes() ) ) );
+		assertThat( gs.remember( "r", "three.expect",
+				Manifest.Entry.of( "3".getBytes() ) ) ).isNull();
+		assertThat( gs.manifest( "r" ).size() ).isEqualTo( 2 );
+		one.get();
+		two.get();
+		assertThat( manifest ).exists();
+
+		HashingWriter hw = new HashingWriter();
+		hw.append( "two" );
+		hw.close();
+		Manifest m = new GoldenStore( root, null, 1024 ).manifest( "r" );
+		assertThat( m.size() ).isEqualTo( 2 );
+		assertThat( m.get( "two.expect" ).matches( hw ) ).isTrue();
+	}
+
+	/**
+	 * Compressed results are found in preference to uncompressed ones, read
+	 * decompressed, and replace them when written
+	 */
+	@Test
+	public void compressed() throws Exception {
+		File root = tmp.newFolder( "expect" );
+		put( root, "h/one.svg", "plain" );
+		GoldenStore gs = new GoldenStore( root, null, 1024 );
+		assertThat( gs.stored( "h", "one.svg" ) ).isEqualTo( "one.svg" );
+		assertThat( gs.stored( "h", "two.svg" ) ).isNull();
+
+		gs.write( "h", "one.svg", "squashed".getBytes(), true ).get();
+		assertThat( new File( root, "h" ).list() )
+				.containsOnly( "one.svg.gz", Manifest.NAME );
+
+		gs = new GoldenStore( root, null, 1024 );
+		assertThat( gs.stored( "h", "one.svg" ) ).isEqualTo( "one.svg.gz" );
+		assertThat( text( gs.content( "h", "one.svg.gz" ) ) )
+				.isEqualTo( "squashed" );
+		try( InputStream in = gs.open( "h", "one.svg.gz" ) ) {
+			assertThat( in.read() ).isEqualTo( 's' );
+		}
+
+		// the manifest describes what was compressed
+		HashingWriter hw = new HashingWriter();
+		hw.append( "squashed" );
+		hw.close();
+		assertThat( gs.manifest( "h" ).get( "one.svg.gz" ).matches( hw ) )
+				.isTrue();
+		File gz = new File( root, "h/one.svg.gz" );
+		long written = new File( root, "h/" + Manifest.NAME ).lastModified();
+		Files.write( gz.toPath(), gzip( "squashed!" ) );
+		gz.setLastModified( written - 2000 );
+		assertThat( new GoldenStore( root, null, 1024 ).manifest( "h" )
+				.get( "one.svg.gz" ) ).isNull();
+
+		gs.write( "h", "one.svg", "plain again".getBytes(), false ).get();
+		assertThat( new File( root, "h" ).list() )
+				.containsOnly( "one.svg", Manifest.NAME );
+		assertThat( gs.stored( "h", "one.svg" ) ).isEqualTo( "one.svg" );
+		assertThat( gs.manifest( "h" ).get( "one.svg.gz" ) ).isNull();
+	}
+
+	/**
+	 * Manifests survive a round trip through their file format
+	 */
+	@Test
+	public void manifestFormat() {
+		Manifest m = new Manifest();
+		m.put( "a b.svg", Manifest.Entry.of( "content".getBytes() ) );
+		m.put( "c.expect", Manifest.Entry.of( new byte[ 0 ] ) );
+
+		Manifest p = Manifest.parse( m.format() );
+		assertThat( p.size() ).isEqualTo( 2 );
+		assertThat( p.get( "a b.svg" ).digest ).isEqualTo(
+				"ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73" );
+		assertThat( p.get( "c.expect" ).length ).isZero();
+		assertThat( Manifest.parse( "junk\n".getBytes() ).size() ).isZero();
+	}
+
+	/**
+	 * Something that isn't an archive is refused
+	 */
+	@Test( expected = IOException.class )
+	public void notAnArchive() throws IOException {
+		File archive = tmp.newFile( "expect.pack" );
+		Files.write( archive.toPath(), "not an archive".getBytes() );
+		new GoldenStore( tmp.getRoot(), archive, 1024 );
+	}
+
+	private static String text( ByteBuffer bb ) {
+		byte[] b = new byte[ bb.remaining() ];
+		bb.duplicate().get( b );
+		return new String( b );
+	}
+
+	private static void put( File root, String path, String content )
+			throws IOException {
+		File f = new File( root, path );
+		f.getParentFile().mkdirs();
+		Files.write( f.toPath(), content.getBytes() );
+	}
+
+	private static byte[] gzip( String content ) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try( GZIPOutputStream gz = new GZIPOutputStream( out ) ) {
+			gz.write( content.getBytes() );
+		}
+		return out.toByteArray();
+	}
+}
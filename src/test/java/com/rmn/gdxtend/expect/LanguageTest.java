@@ -0,0 +1,93 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Exercises {@link Language}
+ */
+public class LanguageTest {
+
+	/**
+	 * Patterns that share text in some input overlap, wherever the one starts
+	 * in the other
+	 */
+	@Test
+	public void overlaps() {
+		assertOverlap( "abcd", "bc", true );
+		assertOverlap( "abc", "cde", true );
+		assertOverlap( "ab", "abc", true );
+		assertOverlap( "x\\d", "\\d+", true );
+		assertOverlap( "id=\"(\\w+)\"", "[a-c]", true );
+		assertOverlap( "a.*?b", "é", true );
+		assertOverlap( "(?:ab){2,3}", "ba", true );
+		assertOverlap( "foo", "FOO", false );
+		assertOverlap( "foo", "O", false );
+		assertOverlap( "foo", "O", Pattern.CASE_INSENSITIVE, true );
+
+		assertOverlap( "id=\"(r1_\\d+)\"", "id=\"(r10_\\d+)\"", false );
+		assertOverlap( "[0-9]+\\.[0-9]+", "id=\"a\\d+\"", false );
+		assertOverlap( "a|b", "[^ab]", false );
+		assertOverlap( "ab", "ba", true );
+		assertOverlap( "ab", "ca", true );
+		assertOverlap( "ab", "cd", false );
+	}
+
+	/**
+	 * What a replacement writes can be matched
+	 */
+	@Test
+	public void replacement() {
+		Language foo = Language.replacement( Arrays.<Object> asList( "bar" ),
+				null );
+		assertThat( of( "bar" ).overlaps( foo ) ).isTrue();
+		assertThat( of( "ba" ).overlaps( foo ) ).isTrue();
+		assertThat( of( "bx" ).overlaps( foo ) ).isFalse();
+
+		Language px = Language.replacement(
+				Arrays.<Object> asList( 1, " pixels" ), of( "(\\d+)px" ) );
+		assertThat( of( "id=\\w+" ).overlaps( px ) ).isTrue();
+		assertThat( of( "X" ).overlaps( px ) ).isFalse();
+		assertThat( px.empty() ).isFalse();
+		assertThat( Language.replacement( Arrays.<Object> asList( 1 ),
+				of( "(\\d+)px" ) ).empty() ).isTrue();
+		assertThat( Language.replacement( Arrays.<Object> asList( 1 ), null ) )
+				.isNull();
+	}
+
+	/**
+	 * Patterns whose matches depend on more than the text they match, or that
+	 * can match nothing, aren't understood
+	 */
+	@Test
+	public void unknown() {
+		for( String p : new String[] { "^a", "a$", "\\bid", "(?<=x)y", "(a)\\1",
+				"a*", "(?i)a", "a++", "\\p{L}", "[a&&b]", "(?:a|)" } ) {
+			assertThat( of( p ) ).as( p ).isNull();
+		}
+		assertThat( Language.of( Pattern.compile( "a", Pattern.COMMENTS ) ) )
+				.isNull();
+		assertThat( Language.of( Pattern.compile( "a.b", Pattern.LITERAL ) ) )
+				.isNotNull();
+	}
+
+	private static Language of( String p ) {
+		return Language.of( Pattern.compile( p ) );
+	}
+
+	private static void assertOverlap( String a, String b, boolean expected ) {
+		assertOverlap( a, b, 0, expected );
+	}
+
+	private static void assertOverlap( String a, String b, int flags,
+			boolean expected ) {
+		Language x = Language.of( Pattern.compile( a, flags ) );
+		Language y = Language.of( Pattern.compile( b, flags ) );
+		assertThat( x.overlaps( y ) ).as( a + " over " + b ).isEqualTo( expected );
+		assertThat( y.overlaps( x ) ).as( b + " over " + a ).isEqualTo( expected );
+	}
+}
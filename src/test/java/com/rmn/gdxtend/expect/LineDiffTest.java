@@ -0,0 +1,198 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Exercises {@link LineDiff}
+ */
+public class LineDiffTest {
+
+	/**
+	 * Identical results have no differences
+	 */
+	@Test
+	public void same() {
+		assertThat( diff( "a\nb\n", "a\nb\n" ) ).isNull();
+		assertThat( diff( "", "" ) ).isNull();
+	}
+
+	/**
+	 * A changed line is shown with context
+	 */
+	@Test
+	public void changed() {
+		assertThat( diff( "1\n2\n3\n4\n5\n6\n7\n8\n9\n",
+				"1\n2\n3\n4\nfive\n6\n7\n8\n9\n" ) ).isEqualTo(
+						"@@ -2,7 +2,7 @@\n"
+								+ " 2\n 3\n 4\n-5\n+five\n 6\n 7\n 8\n" );
+	}
+
+	/**
+	 * Lines added at the start, and a missing trailing newline
+	 */
+	@Test
+	public void ends() {
+		assertThat( diff( "b\n", "a\nb\n" ) ).isEqualTo(
+				"@@ -1 +1,2 @@\n+a\n b\n" );
+		assertThat( diff( "a\nb\n", "a\nb" ) ).isEqualTo(
+				"@@ -1,2 +1,2 @@\n a\n-b\n+b\n\\ No newline at end of file\n" );
+	}
+
+	/**
+	 * Nearby changes share a hunk, distant ones don't
+	 */
+	@Test
+	public void hunks() {
+		String e = lines( 0, 30 );
+		String a = e.replace( "\n3\n", "\nthree\n" ).replace( "\n8\n", "\neight\n" )
+				.replace( "\n25\n", "\n" );
+		String d = diff( e, a );
+		assertThat( d.split( "@@ -" ) ).hasSize( 3 );
+		assertThat( d ).startsWith( "@@ -1,12 +1,12 @@\n" )
+				.contains( "@@ -23,7 +23,6 @@\n" );
+	}
+
+	/**
+	 * Applying the diff to the expectation gives the actual result, whatever
+	 * the edits were
+	 */
+	@Test
+	public void patch() {
+		Random rng = new Random( 42 );
+		for( int i = 0; i < 500; i++ ) {
+			List<String> e = new ArrayList<>();
+			for( int j = rng.nextInt( 40 ); j > 0; j-- ) {
+				e.add( String.valueOf( rng.nextInt( 8 ) ) );
+			}
+			List<String> a = new ArrayList<>( e );
+			for( int j = rng.nextInt( 6 ); j > 0; j-- ) {
+				int at = a.isEmpty() ? 0 : rng.nextInt( a.size() );
+				switch( rng.nextInt( 3 ) ) {
+					case 0:
+						a.add( at, "new" + j );
+						break;
+					case 1:
+						if( !a.isEmpty() ) {
+							a.remove( at );
+						}
+						break;
+					default:
+						if( !a.isEmpty() ) {
+							a.set( at, "changed" + j );
+						}
+				}
+			}
+
+			String d = diff( join( e ), join( a ) );
+			if( e.equals( a ) ) {
+				assertThat( d ).isNull();
+			}
+			else {
+				assertThat( apply( e, d ) ).as( d ).isEqualTo( a );
+			}
+		}
+	}
+
+	/**
+	 * Long runs, long lines and many changes are cut short
+	 */
+	@Test
+	public void trimmed() {
+		String e = lines( 0, 100 );
+		String a = lines( 1000, 1100 );
+		assertThat( diff( e, a ) ).contains( "-19\n... 80 more lines\n" )
+				.contains( "+1019\n... 80 more lines\n" );
+
+		char[] c = new char[ 1000 ];
+		Arrays.fill( c, 'x' );
+		String d = diff( "a\n", new String( c ) + "\n" );
+		assertThat( d.split( "\n" )[ 2 ] ).hasSize( 1 + LineDiff.MAX_LINE_LENGTH
+				+ 3 );
+
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < 10000; i += 10 ) {
+			sb.append( lines( i, i + 9 ) ).append( "changed\n" );
+		}
+		d = diff( lines( 0, 10000 ), sb.toString() );
+		assertThat( d.split( "\n" ).length ).isLessThan(
+				LineDiff.MAX_LINES + LineDiff.MAX_RUN * 2 + LineDiff.CONTEXT * 2 );
+		assertThat( d ).endsWith( " more changes\n" );
+	}
+
+	/**
+	 * Large, very different results don't take forever
+	 */
+	@Test( timeout = 10000 )
+	public void expensive() {
+		StringBuilder e = new StringBuilder(), a = new StringBuilder();
+		Random rng = new Random( 7 );
+		for( int i = 0; i < 200000; i++ ) {
+			e.append( rng.nextInt( 100 ) ).append( '\n' );
+			a.append( rng.nextInt( 100 ) ).append( '\n' );
+		}
+		assertThat( diff( e.toString(), a.toString() ) ).startsWith( "@@ -" );
+	}
+
+	private static String diff( String expected, String actual ) {
+		return LineDiff.unified( ByteBuffer.wrap( expected.getBytes() ),
+				ByteBuffer.wrap( actual.getBytes() ) );
+	}
+
+	private static String lines( int from, int to ) {
+		StringBuilder sb = new StringBuilder();
+		for( int i = from; i < to; i++ ) {
+			sb.append( i ).append( '\n' );
+		}
+		return sb.toString();
+	}
+
+	private static String join( List<String> lines ) {
+		StringBuilder sb = new StringBuilder();
+		for( String l : lines ) {
+			sb.append( l ).append( '\n' );
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Applies an untrimmed unified diff
+	 */
+	private static List<String> apply( List<String> expected, String diff ) {
+		List<String> out = new ArrayList<>();
+		int e = 0;
+		for( String line : diff.split( "\n" ) ) {
+			if( line.startsWith( "@@ -" ) ) {
+				String[] range = line.substring( 4, line.indexOf( ' ', 4 ) )
+						.split( "," );
+				int start = Integer.parseInt( range[ 0 ] );
+				int length = range.length > 1 ? Integer.parseInt( range[ 1 ] ) : 1;
+				int from = length == 0 ? start : start - 1;
+				while( e < from ) {
+					out.add( expected.get( e++ ) );
+				}
+			}
+			else if( line.startsWith( " " ) ) {
+				assertThat( expected.get( e++ ) ).isEqualTo( line.substring( 1 ) );
+				out.add( line.substring( 1 ) );
+			}
+			else if( line.startsWith( "-" ) ) {
+				assertThat( expected.get( e++ ) ).isEqualTo( line.substring( 1 ) );
+			}
+			else if( line.startsWith( "+" ) ) {
+				out.add( line.substring( 1 ) );
+			}
+		}
+		while( e < expected.size() ) {
+			out.add( expected.get( e++ ) );
+		}
+		return out;
+	}
+}
@@ -0,0 +1,104 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Exercises {@link Literals}
+ */
+public class LiteralsTest {
+
+	/**
+	 * The leftmost string is found, and the longest of those that start there
+	 */
+	@Test
+	public void leftmost() {
+		Literals l = new Literals();
+		l.put( "bc", "1" );
+		l.put( "abcd", "2" );
+		l.put( "ab", "3" );
+		l.put( "c", "4" );
+		Literals.Scanner s = l.scanner( "xabcdc" );
+
+		assertThat( s.find( 0 ) ).isTrue();
+		assertThat( s.key() ).isEqualTo( "abcd" );
+		assertThat( s.replacement() ).isEqualTo( "2" );
+		assertThat( s.start() ).isEqualTo( 1 );
+		assertThat( s.end() ).isEqualTo( 5 );
+
+		assertThat( s.find( 2 ) ).isTrue();
+		assertThat( s.key() ).isEqualTo( "bc" );
+
+		assertThat( s.find( 5 ) ).isTrue();
+		assertThat( s.key() ).isEqualTo( "c" );
+		assertThat( s.find( 6 ) ).isFalse();
+
+		l.remove( "abcd" );
+		l.remove( "abcd" );
+		l.remove( "b" );
+		assertThat( l.size() ).isEqualTo( 3 );
+		assertThat( s.find( 0 ) ).isTrue();
+		assertThat( s.key() ).isEqualTo( "ab" );
+	}
+
+	/**
+	 * Agrees with looking for every string at every position, as strings come
+	 * and go
+	 */
+	@Test
+	public void naive() {
+		Random rng = new Random( 3 );
+		Map<String, String> m = new HashMap<>();
+		Literals l = new Literals();
+		for( int i = 0; i < 200; i++ ) {
+			for( int j = rng.nextInt( 10 ); j >= 0; j-- ) {
+				String k = random( rng, 1 + rng.nextInt( 4 ) );
+				if( rng.nextBoolean() ) {
+					m.put( k, String.valueOf( j ) );
+					l.put( k, String.valueOf( j ) );
+				}
+				else {
+					m.remove( k );
+					l.remove( k );
+				}
+			}
+			assertThat( l.size() ).isEqualTo( m.size() );
+			String in = random( rng, 50 );
+
+			for( int from = 0; from <= in.length(); from++ ) {
+				Literals.Scanner s = l.scanner( in );
+				String expected = null;
+				int at = from;
+				for( ; at < in.length() && expected == null; at++ ) {
+					for( String k : m.keySet() ) {
+						if( in.startsWith( k, at )
+								&& ( expected == null || k.length() > expected.length() ) ) {
+							expected = k;
+						}
+					}
+				}
+
+				assertThat( s.find( from ) ).isEqualTo( expected != null );
+				if( expected != null ) {
+					assertThat( s.key() ).isEqualTo( expected );
+					assertThat( s.replacement() ).isEqualTo( m.get( expected ) );
+					assertThat( s.start() ).isEqualTo( at - 1 );
+					assertThat( s.end() ).isEqualTo( at - 1 + expected.length() );
+				}
+			}
+		}
+	}
+
+	private static String random( Random rng, int length ) {
+		char[] c = new char[ length ];
+		for( int i = 0; i < length; i++ ) {
+			c[ i ] = (char) ( 'a' + rng.nextInt( 3 ) );
+		}
+		return new String( c );
+	}
+}
@@ -0,0 +1,81 @@
+package com.rmn.gdxtend.expect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Times {@link Mask} against applying each mask in a pass of its own, over
+ * svg-like inputs of increasing size with increasing numbers of masks. Run it
+ * as a plain Java program, it isn't a test.
+ */
+public class MaskBenchmark {
+
+	private static final int[] RULES = { 1, 4, 16, 64 };
+	private static final int[] KILOBYTES = { 64, 1024, 8192 };
+	private static final int RUNS = 5;
+
+	/**
+	 * @param args
+	 *          ignored
+	 */
+	public static void main( String[] args ) {
+		System.out.println( "rules\tkB\tsequential ms\tcombined ms" );
+		for( int kb : KILOBYTES ) {
+			String input = svg( kb * 1024 );
+			for( int rules : RULES ) {
+				List<String> patterns = new ArrayList<>();
+				for( int i = 0; i < rules; i++ ) {
+					patterns.add( "id=\"(r" + i + "_\\d+)\"" );
+				}
+
+				long sequential = Long.MAX_VALUE, combined = Long.MAX_VALUE;
+				String expected = null, actual = null;
+				for( int run = 0; run < RUNS; run++ ) {
+					long start = System.nanoTime();
+					expected = sequential( patterns, input );
+					sequential = Math.min( sequential, System.nanoTime() - start );
+
+					Mask m = new Mask();
+					for( String p : patterns ) {
+						m.mask( p ).with( "id=\"masked\"" );
+					}
+					start = System.nanoTime();
+					actual = m.apply( input );
+					combined = Math.min( combined, System.nanoTime() - start );
+				}
+				if( !expected.equals( actual ) ) {
+					throw new IllegalStateException( "Results differ" );
+				}
+
+				System.out.println( String.format( "%d\t%d\t%.3f\t%.3f", rules, kb,
+						sequential / 1e6, combined / 1e6 ) );
+			}
+		}
+	}
+
+	private static String sequential( List<String> patterns, String input ) {
+		String masked = input;
+		for( String p : patterns ) {
+			masked = Pattern.compile( p ).matcher( masked )
+					.replaceAll( "id=\"masked\"" );
+		}
+		return masked;
+	}
+
+	private static String svg( int size ) {
+		Random rng = new Random( 1 );
+		StringBuilder sb = new StringBuilder( size + 100 );
+		sb.append( "<svg>\n" );
+		while( sb.length() < size ) {
+			sb.append( "  <path id=\"r" ).append( rng.nextInt( 64 ) ).append( '_' )
+					.append( rng.nextInt( 1000 ) ).append( "\" d=\"M " )
+					.append( rng.nextInt( 500 ) ).append( ' ' )
+					.append( rng.nextInt( 500 ) ).append( " L " )
+					.append( rng.nextInt( 500 ) ).append( ' ' )
+					.append( rng.nextInt( 500 ) ).append( "\"/>\n" );
+		}
+		return sb.append( "</svg>\n" ).toString();
+	}
+}
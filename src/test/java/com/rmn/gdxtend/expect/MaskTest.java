@@ -2,6 +2,9 @@ package com.rmn.gdxtend.expect;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.regex.Pattern;
 
 import org.junit.Test;
@@ -73,4 +76,168 @@ public class MaskTest {
 		assertThat( masked )
 				.isEqualTo( "foo_1 <tag attr='bar_1'>foo_1</tag> bar_1" );
 	}
+
+	/**
+	 * Masks are applied together, each with its own groups
+	 */
+	@Test
+	public void combined() {
+		Mask m = new Mask()
+				.mask( "(\\d+)px" ).with( "$1 pixels" )
+				.mask( "id=(\\w+)" ).with( "id=[$1]" )
+				.mask( "X" ).match( Pattern.CASE_INSENSITIVE ).with( "\\$" );
+
+		assertThat( m.apply( "10px id=abc x 20px id=3px" ) )
+				.isEqualTo( "10 pi$els id=[abc] $ 20 pi$els id=[3] pi$els" );
+
+		m = new Mask()
+				.mask( "id=\"(a\\d+)\"" ).with( "id=\"$1\"" )
+				.mask( "id=\"(b\\d+)\"" ).with( "id=\"masked\"" )
+				.mask( "[0-9]+\\.[0-9]+" ).with( "n" );
+		assertThat( m.compile().passes() ).isEqualTo( 1 );
+		assertThat( m.apply( "id=\"a1\" id=\"b2\" 1.5" ) )
+				.isEqualTo( "id=\"a1\" id=\"masked\" n" );
+	}
+
+	/**
+	 * What one mask writes is masked by those after it
+	 */
+	@Test
+	public void chained() {
+		Mask m = new Mask()
+				.mask( "foo" ).with( "bar" )
+				.mask( "bar" ).with( "baz" );
+		assertThat( m.apply( "foo bar" ) ).isEqualTo( "baz baz" );
+
+		m = new Mask()
+				.mask( "a" ).with( "" )
+				.mask( "bc" ).with( "X" );
+		assertThat( m.apply( "bac" ) ).isEqualTo( "X" );
+
+		m = new Mask()
+				.maskCaptures( "<n>(\\d+)</n>" ).with( "n" )
+				.mask( "_\\d" ).with( "_N" );
+		assertThat( m.apply( "<n>12</n> 12" ) ).isEqualTo( "<n>n_N</n> n_N" );
+	}
+
+	/**
+	 * Where masks would match overlapping text, the one added first masks it
+	 */
+	@Test
+	public void overlapping() {
+		Mask m = new Mask()
+				.mask( "bc" ).with( "X" )
+				.mask( "abcd" ).with( "Y" );
+		assertThat( m.apply( "abcd" ) ).isEqualTo( "aXd" );
+
+		m = new Mask()
+				.mask( "\\d+" ).with( "N" )
+				.mask( "x\\d" ).with( "Y" );
+		assertThat( m.apply( "x1 2x" ) ).isEqualTo( "xN Nx" );
+
+		m = new Mask()
+				.mask( "abc" ).with( "1" )
+				.mask( "ab" ).with( "2" );
+		assertThat( m.apply( "abc ab" ) ).isEqualTo( "1 2" );
+	}
+
+	/**
+	 * Whichever masks are combined, the result is the same as applying each in
+	 * turn
+	 */
+	@Test
+	public void sequential() {
+		String[][] masks = { { "ab", "X" }, { "b+c", "a" }, { "[ab]x", "$0$0" },
+				{ "\\d+", "N" }, { "x\\d", "" }, { "a|bc", "1" }, { "(a)b", "$1" },
+				{ "c(x)?", "<$1>" }, { "\\bx", "y" }, { "2", "b" }, { "ca*", "2" } };
+		Random rng = new Random( 7 );
+		for( int i = 0; i < 2000; i++ ) {
+			Mask m = new Mask();
+			List<String[]> used = new ArrayList<>();
+			for( int j = 1 + rng.nextInt( 5 ); j > 0; j-- ) {
+				String[] mask = masks[ rng.nextInt( masks.length ) ];
+				used.add( mask );
+				m.mask( mask[ 0 ] ).with( mask[ 1 ] );
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for( int j = 0; j < 30; j++ ) {
+				sb.append( "abcx12 ".charAt( rng.nextInt( 7 ) ) );
+			}
+			String expected = sb.toString();
+			for( String[] mask : used ) {
+				expected = expected.replaceAll( mask[ 0 ], mask[ 1 ] );
+			}
+			assertThat( m.apply( sb.toString() ) ).as( sb.toString() )
+					.isEqualTo( expected );
+		}
+	}
+
+	/**
+	 * Masks that can't be combined are applied in turn
+	 */
+	@Test
+	public void uncombined() {
+		Mask m = new Mask()
+				.mask( "(a)\\1" ).with( "<$1>" )
+				.mask( "(?<n>b)" ).with( "${n}${n}" )
+				.mask( "c" ).with( "d" );
+
+		assertThat( m.apply( "aa b c" ) ).isEqualTo( "<a> bb d" );
+	}
+
+	/**
+	 * Matches aren't missed when looking only where a mask could start
+	 */
+	@Test
+	public void starts() {
+		Mask m = new Mask()
+				.mask( "\\.5" ).with( "half" )
+				.mask( "q" ).match( Pattern.CASE_INSENSITIVE ).with( "k" )
+				.mask( "w+" ).with( "v" );
+		assertThat( m.apply( "1.5 Q ww" ) ).isEqualTo( "1half k v" );
+
+		m.mask( "y|z" ).with( "x" );
+		assertThat( m.apply( "1.5 Q ww z" ) ).isEqualTo( "1half k v x" );
+
+		m = new Mask()
+				.mask( "a?b" ).with( "c" )
+				.mask( "d" ).with( "e" );
+		assertThat( m.apply( "b ab d" ) ).isEqualTo( "c c e" );
+	}
+
+	/**
+	 * Captures are numbered by the match they were found in, and masked as
+	 * literal strings
+	 */
+	@Test
+	public void numbering() {
+		Mask m = new Mask()
+				.maskCaptures( "<n>(.*?)</n>" )
+				.with( "n" );
+
+		assertThat( m.apply( "<n>1.5</n><n>1.5</n><n>2</n><n></n> 105" ) )
+				.isEqualTo( "<n>n_1</n><n>n_1</n><n>n_3</n><n></n> 105" );
+	}
+
+	/**
+	 * Only the most recently seen captures are masked in later inputs
+	 */
+	@Test
+	public void remembered() {
+		Mask m = new Mask()
+				.maskCaptures( "<n>(.*?)</n>" )
+				.with( "n" )
+				.remember( 2 );
+
+		assertThat( m.apply( "<n>a</n><n>b</n><n>c</n> a b c" ) )
+				.as( "all masked while they're being captured" )
+				.isEqualTo( "<n>n_1</n><n>n_2</n><n>n_3</n> n_1 n_2 n_3" );
+		assertThat( m.apply( "a b c" ) ).isEqualTo( "a n_2 n_3" );
+		assertThat( m.apply( "b" ) ).isEqualTo( "n_2" );
+		assertThat( m.apply( "c <n>d</n> b" ) ).isEqualTo( "n_3 <n>n_1</n> n_2" );
+		assertThat( m.apply( "b c d" ) ).isEqualTo( "n_2 c n_1" );
+
+		assertThat( m.remember( 0 ).apply( "b d" ) ).isEqualTo( "b d" );
+	}
 }
@@ -0,0 +1,127 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import com.rmn.gdxtend.expect.AbstractExpect.Regenerate;
+
+/**
+ * Exercises the lookup of {@link Regenerate} annotations
+ */
+public class RegenerateTest {
+
+	/**
+	 * Annotations that the runner tells us about are used
+	 */
+	@Test
+	public void described() throws Exception {
+		assertThat( AbstractExpect.regenerate( Description.createTestDescription(
+				Plain.class, "b", Plain.class.getMethod( "b" ).getAnnotations() ) ) )
+				.isTrue();
+		assertThat( AbstractExpect.regenerate( Description.createTestDescription(
+				Plain.class, "a", Plain.class.getMethod( "a" ).getAnnotations() ) ) )
+				.isFalse();
+	}
+
+	/**
+	 * Otherwise the methods are looked up by name: the one without parameters,
+	 * or else the only one with that name
+	 */
+	@Test
+	public void byName() {
+		assertThat( regenerate( Plain.class, "a" ) ).isFalse();
+		assertThat( regenerate( Plain.class, "b" ) ).isTrue();
+		assertThat( regenerate( Plain.class, "c[0]" ) ).isTrue();
+		assertThat( regenerate( Plain.class, "c[1: x]" ) ).isTrue();
+		assertThat( regenerate( Plain.class, "d" ) ).isFalse();
+		assertThat( regenerate( Sub.class, "b" ) ).isTrue();
+	}
+
+	/**
+	 * Annotations don't leak from one overload to another, and we don't guess
+	 * between overloads
+	 */
+	@Test
+	public void overloaded() {
+		assertThat( regenerate( Plain.class, "e" ) ).isFalse();
+		assertThat( regenerate( Plain.class, "f[0]" ) ).isFalse();
+		assertThat( regenerate( Overriding.class, "b" ) ).isFalse();
+		assertThat( regenerate( Overriding.class, "c[0]" ) ).isFalse();
+	}
+
+	/**
+	 * Annotating the class regenerates everything in it
+	 */
+	@Test
+	public void type() {
+		assertThat( regenerate( Whole.class, "a" ) ).isTrue();
+		assertThat( regenerate( Whole.class, "anything" ) ).isTrue();
+	}
+
+	private static boolean regenerate( Class<?> c, String method ) {
+		return AbstractExpect.regenerate(
+				Description.createTestDescription( c, method ) );
+	}
+
+	/**
+	 * Some methods are annotated
+	 */
+	public static class Plain {
+		public void a() {
+		}
+
+		@Regenerate
+		public void b() {
+		}
+
+		public void b( int i ) {
+		}
+
+		@Regenerate
+		public void c( String param ) {
+		}
+
+		public void e() {
+		}
+
+		@Regenerate
+		public void e( int i ) {
+		}
+
+		@Regenerate
+		public void f( int i ) {
+		}
+
+		public void f( String s ) {
+		}
+	}
+
+	/**
+	 * Inherits annotated methods
+	 */
+	public static class Sub extends Plain {
+	}
+
+	/**
+	 * Overrides and overloads annotated methods
+	 */
+	public static class Overriding extends Plain {
+		@Override
+		public void b() {
+		}
+
+		public void c( int param ) {
+		}
+	}
+
+	/**
+	 * Everything is annotated
+	 */
+	@Regenerate
+	public static class Whole {
+		public void a() {
+		}
+	}
+}
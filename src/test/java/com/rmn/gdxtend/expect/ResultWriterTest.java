@@ -0,0 +1,68 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Exercises {@link ResultWriter}
+ */
+public class ResultWriterTest {
+
+	/**
+	 * Somewhere to put results
+	 */
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	/**
+	 * Files are written, directories are created and nothing is left behind
+	 */
+	@Test
+	public void write() throws IOException {
+		File dir = new File( tmp.getRoot(), "a/b" );
+		List<Future<?>> pending = new ArrayList<>();
+		for( int i = 0; i < 100; i++ ) {
+			pending.add( ResultWriter.shared().write( new File( dir, i + ".svg" ),
+					String.valueOf( i ).getBytes() ) );
+		}
+		ResultWriter.await( pending );
+
+		assertThat( pending ).isEmpty();
+		assertThat( dir.list() ).hasSize( 100 );
+		assertThat( new String(
+				Files.readAllBytes( new File( dir, "42.svg" ).toPath() ) ) )
+				.isEqualTo( "42" );
+	}
+
+	/**
+	 * Failures are reported when we wait
+	 */
+	@Test
+	public void failure() throws IOException {
+		File notADir = tmp.newFile( "file" );
+		List<Future<?>> pending = new ArrayList<>();
+		pending.add( ResultWriter.shared()
+				.write( new File( notADir, "x.svg" ), new byte[ 1 ] ) );
+		pending.add( ResultWriter.shared()
+				.write( new File( notADir, "y.svg" ), new byte[ 1 ] ) );
+
+		try {
+			ResultWriter.await( pending );
+			throw new AssertionError( "Expected failure" );
+		}
+		catch( IOException ioe ) {
+			assertThat( ioe.getSuppressed() ).hasSize( 1 );
+		}
+		assertThat( pending ).isEmpty();
+	}
+}
@@ -0,0 +1,77 @@
+package com.rmn.gdxtend.expect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.rmn.gdxtend.expect.AbstractExpect.Content;
+
+/**
+ * Exercises {@link Snapshot}
+ */
+public class SnapshotTest {
+
+	/**
+	 * Small results are kept in memory and replayed as written
+	 */
+	@Test
+	public void memory() throws IOException {
+		Snapshot s = Snapshot.of( content( "hello world\n", 1 ) );
+		assertThat( s.spilled() ).isFalse();
+		assertThat( s.size() ).isEqualTo( 12 );
+		assertThat( replay( s ) ).isEqualTo( "hello world\n" );
+
+		ComparingWriter cw = new ComparingWriter(
+				ByteBuffer.wrap( "hello world\n".getBytes() ) );
+		s.write( cw );
+		cw.close();
+		assertThat( cw.matched() ).isTrue();
+		s.dispose();
+	}
+
+	/**
+	 * Large results are spilled to disk, and can still be replayed until they're
+	 * disposed of
+	 */
+	@Test
+	public void spill() throws IOException {
+		String line = "0123456789abcdef\n";
+		int times = Snapshot.SPILL / line.length() + 1;
+		Snapshot s = Snapshot.of( content( line, times ) );
+		assertThat( s.spilled() ).isTrue();
+		assertThat( s.size() ).isEqualTo( (long) line.length() * times );
+
+		HashingWriter expected = new HashingWriter();
+		content( line, times ).write( expected );
+		expected.close();
+		HashingWriter replayed = new HashingWriter();
+		s.write( replayed );
+		replayed.close();
+		assertThat( replayed.digest() ).isEqualTo( expected.digest() );
+
+		assertThat( replay( s ) ).hasSize( line.length() * times );
+		assertThat( s.spillFile() ).exists();
+		s.dispose();
+		assertThat( s.spillFile() ).doesNotExist();
+	}
+
+	private static Content content( final String s, final int times ) {
+		return new Content() {
+			@Override
+			public void write( Appendable out ) throws IOException {
+				for( int i = 0; i < times; i++ ) {
+					out.append( s );
+				}
+			}
+		};
+	}
+
+	private static String replay( Snapshot s ) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		s.write( sb );
+		return sb.toString();
+	}
+}
@@ -1,15 +1,11 @@
 package com.rmn.gdxtend.gl.facets;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyFloat;
-import static org.mockito.Matchers.anyInt;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
+import com.rmn.gdxtend.GLOp;
 import com.rmn.gdxtend.gl.enums.BlendEquation;
 import com.rmn.gdxtend.gl.enums.DestinationFactor;
 import com.rmn.gdxtend.gl.enums.SourceFactor;
@@ -123,12 +119,11 @@ public class BlendTest extends FacetTest {
 	public void noopTransition() {
 		blend.transition( control );
 
-		verify( Gdx.gl, never() ).glEnable( anyInt() );
-		verify( Gdx.gl, never() ).glDisable( anyInt() );
-		verify( Gdx.gl, never() ).glBlendFunc( anyInt(), anyInt() );
-		verify( Gdx.gl, never() ).glBlendEquation( anyInt() );
-		verify( Gdx.gl, never() ).glBlendColor( anyFloat(), anyFloat(),
-				anyFloat(), anyFloat() );
+		assertThat( gl.count( GLOp.glEnable ) ).isZero();
+		assertThat( gl.count( GLOp.glDisable ) ).isZero();
+		assertThat( gl.count( GLOp.glBlendFunc ) ).isZero();
+		assertThat( gl.count( GLOp.glBlendEquation ) ).isZero();
+		assertThat( gl.count( GLOp.glBlendColor ) ).isZero();
 	}
 
 	/**
@@ -143,13 +138,16 @@ public class BlendTest extends FacetTest {
 
 		blend.transition( control );
 
-		verify( Gdx.gl ).glEnable( GL20.GL_BLEND );
-		verify( Gdx.gl ).glBlendFunc( GL20.GL_CONSTANT_COLOR, GL20.GL_DST_COLOR );
-		verify( Gdx.gl ).glBlendEquation( GL20.GL_FUNC_SUBTRACT );
-		verify( Gdx.gl ).glBlendColor( 0.5f, 0.25f, 0.125f, 0.0625f );
+		assertThat( gl.count( GLOp.glEnable, GL20.GL_BLEND ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glBlendFunc,
+				GL20.GL_CONSTANT_COLOR, GL20.GL_DST_COLOR ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glBlendEquation, GL20.GL_FUNC_SUBTRACT ) )
+				.isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glBlendColor, 0.5f, 0.25f, 0.125f, 0.0625f ) )
+				.isEqualTo( 1 );
 
 		control.transition( blend );
 
-		verify( Gdx.gl ).glDisable( GL20.GL_BLEND );
+		assertThat( gl.count( GLOp.glDisable, GL20.GL_BLEND ) ).isEqualTo( 1 );
 	}
 }
@@ -1,14 +1,10 @@
 package com.rmn.gdxtend.gl.facets;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyFloat;
-import static org.mockito.Matchers.anyInt;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
 
-import com.badlogic.gdx.Gdx;
+import com.rmn.gdxtend.GLOp;
 
 /**
  * Test for {@link Clear}
@@ -96,10 +92,9 @@ public class ClearTest extends FacetTest {
 	public void noopTransition() {
 		clear.transition( control );
 
-		verify( Gdx.gl, never() ).glClearColor(
-				anyFloat(), anyFloat(), anyFloat(), anyFloat() );
-		verify( Gdx.gl, never() ).glClearDepthf( anyFloat() );
-		verify( Gdx.gl, never() ).glClearStencil( anyInt() );
+		assertThat( gl.count( GLOp.glClearColor ) ).isZero();
+		assertThat( gl.count( GLOp.glClearDepthf ) ).isZero();
+		assertThat( gl.count( GLOp.glClearStencil ) ).isZero();
 	}
 
 	/**
@@ -111,8 +106,9 @@ public class ClearTest extends FacetTest {
 
 		clear.transition( control );
 
-		verify( Gdx.gl ).glClearColor( 0.5f, 0.25f, 0.125f, 0.0625f );
-		verify( Gdx.gl ).glClearDepthf( 2 );
-		verify( Gdx.gl ).glClearStencil( 3 );
+		assertThat( gl.count( GLOp.glClearColor, 0.5f, 0.25f, 0.125f, 0.0625f ) )
+				.isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glClearDepthf, 2 ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glClearStencil, 3 ) ).isEqualTo( 1 );
 	}
 }
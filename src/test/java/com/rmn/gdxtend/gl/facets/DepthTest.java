@@ -1,16 +1,11 @@
 package com.rmn.gdxtend.gl.facets;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyBoolean;
-import static org.mockito.Matchers.anyFloat;
-import static org.mockito.Matchers.anyInt;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
+import com.rmn.gdxtend.GLOp;
 import com.rmn.gdxtend.gl.enums.ComparisonFunction;
 
 /**
@@ -114,11 +109,11 @@ public class DepthTest extends FacetTest {
 	public void noopTransition() {
 		depth.transition( control );
 
-		verify( Gdx.gl, never() ).glEnable( anyInt() );
-		verify( Gdx.gl, never() ).glDisable( anyInt() );
-		verify( Gdx.gl, never() ).glDepthFunc( anyInt() );
-		verify( Gdx.gl, never() ).glDepthMask( anyBoolean() );
-		verify( Gdx.gl, never() ).glDepthRangef( anyFloat(), anyFloat() );
+		assertThat( gl.count( GLOp.glEnable ) ).isZero();
+		assertThat( gl.count( GLOp.glDisable ) ).isZero();
+		assertThat( gl.count( GLOp.glDepthFunc ) ).isZero();
+		assertThat( gl.count( GLOp.glDepthMask ) ).isZero();
+		assertThat( gl.count( GLOp.glDepthRangef ) ).isZero();
 	}
 
 	/**
@@ -134,13 +129,13 @@ public class DepthTest extends FacetTest {
 
 		depth.transition( control );
 
-		verify( Gdx.gl ).glEnable( GL20.GL_DEPTH_TEST );
-		verify( Gdx.gl ).glDepthFunc( GL20.GL_ALWAYS );
-		verify( Gdx.gl ).glDepthMask( false );
-		verify( Gdx.gl ).glDepthRangef( 0.5f, 0.25f );
+		assertThat( gl.count( GLOp.glEnable, GL20.GL_DEPTH_TEST ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glDepthFunc, GL20.GL_ALWAYS ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glDepthMask, false ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glDepthRangef, 0.5f, 0.25f ) ).isEqualTo( 1 );
 
 		control.transition( depth );
 
-		verify( Gdx.gl ).glDisable( GL20.GL_DEPTH_TEST );
+		assertThat( gl.count( GLOp.glDisable, GL20.GL_DEPTH_TEST ) ).isEqualTo( 1 );
 	}
 }
@@ -5,7 +5,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import org.junit.Assert;
 
 import com.rmn.gdxtend.GdxTest;
+import com.rmn.gdxtend.GdxTestRunner.Parallel;
 
+/**
+ * Facet tests only touch the mock gl context, so they can be run in parallel
+ */
+@Parallel
 abstract class FacetTest extends GdxTest {
 
 	/**
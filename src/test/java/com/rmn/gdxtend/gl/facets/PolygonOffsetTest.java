@@ -1,21 +1,25 @@
 package com.rmn.gdxtend.gl.facets;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyFloat;
-import static org.mockito.Matchers.anyInt;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
 
+import org.junit.Rule;
 import org.junit.Test;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
+import com.rmn.gdxtend.GLOp;
+import com.rmn.gdxtend.expect.GLTraceExpect;
 
 /**
  * Tests for {@link PolygonOffset}
  */
 public class PolygonOffsetTest extends FacetTest {
 
+	/**
+	 * Checks the complete gl call stream
+	 */
+	@Rule
+	public GLTraceExpect trace = new GLTraceExpect();
+
 	PolygonOffset polyOffset = new PolygonOffset();
 	PolygonOffset control = new PolygonOffset();
 
@@ -86,9 +90,9 @@ public class PolygonOffsetTest extends FacetTest {
 	public void noopTransition() {
 		polyOffset.transition( control );
 
-		verify( Gdx.gl, never() ).glEnable( anyInt() );
-		verify( Gdx.gl, never() ).glDisable( anyInt() );
-		verify( Gdx.gl, never() ).glPolygonOffset( anyFloat(), anyFloat() );
+		assertThat( gl.count( GLOp.glEnable ) ).isZero();
+		assertThat( gl.count( GLOp.glDisable ) ).isZero();
+		assertThat( gl.count( GLOp.glPolygonOffset ) ).isZero();
 	}
 
 	/**
@@ -100,7 +104,20 @@ public class PolygonOffsetTest extends FacetTest {
 
 		polyOffset.transition( control );
 
-		verify( Gdx.gl ).glEnable( GL20.GL_POLYGON_OFFSET_FILL );
-		verify( Gdx.gl ).glPolygonOffset( 0.5f, 0.25f );
+		assertThat( gl.count( GLOp.glEnable, GL20.GL_POLYGON_OFFSET_FILL ) )
+				.isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glPolygonOffset, 0.5f, 0.25f ) ).isEqualTo( 1 );
+	}
+
+	/**
+	 * Transition makes no calls beyond those it needs, in order
+	 */
+	@Test
+	public void transitionTrace() {
+		polyOffset.enabled( true ).factor( 0.5f ).units( 0.25f );
+
+		polyOffset.transition( control );
+
+		trace.check( gl );
 	}
 }
@@ -1,14 +1,11 @@
 package com.rmn.gdxtend.gl.facets;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyInt;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
 
 import org.junit.Test;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
+import com.rmn.gdxtend.GLOp;
 import com.rmn.gdxtend.gl.enums.ComparisonFunction;
 import com.rmn.gdxtend.gl.enums.StencilOperation;
 
@@ -146,11 +143,11 @@ public class StencilTest extends FacetTest {
 	public void noopTransition() {
 		stencil.transition( control );
 
-		verify( Gdx.gl, never() ).glEnable( anyInt() );
-		verify( Gdx.gl, never() ).glDisable( anyInt() );
-		verify( Gdx.gl, never() ).glStencilFunc( anyInt(), anyInt(), anyInt() );
-		verify( Gdx.gl, never() ).glStencilMask( anyInt() );
-		verify( Gdx.gl, never() ).glStencilMask( anyInt() );
+		assertThat( gl.count( GLOp.glEnable ) ).isZero();
+		assertThat( gl.count( GLOp.glDisable ) ).isZero();
+		assertThat( gl.count( GLOp.glStencilFunc ) ).isZero();
+		assertThat( gl.count( GLOp.glStencilMask ) ).isZero();
+		assertThat( gl.count( GLOp.glStencilMask ) ).isZero();
 	}
 
 	/**
@@ -170,14 +167,17 @@ public class StencilTest extends FacetTest {
 
 		stencil.transition( control );
 
-		verify( Gdx.gl ).glEnable( GL20.GL_STENCIL_TEST );
-		verify( Gdx.gl ).glStencilFunc( GL20.GL_GEQUAL, 1, 2 );
-		verify( Gdx.gl ).glStencilMask( 3 );
-		verify( Gdx.gl ).glStencilOp( GL20.GL_DECR, GL20.GL_DECR_WRAP,
-				GL20.GL_INCR );
+		assertThat( gl.count( GLOp.glEnable, GL20.GL_STENCIL_TEST ) )
+				.isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glStencilFunc, GL20.GL_GEQUAL, 1, 2 ) )
+				.isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glStencilMask, 3 ) ).isEqualTo( 1 );
+		assertThat( gl.count( GLOp.glStencilOp,
+				GL20.GL_DECR, GL20.GL_DECR_WRAP, GL20.GL_INCR ) ).isEqualTo( 1 );
 
 		control.transition( stencil );
 
-		verify( Gdx.gl ).glDisable( GL20.GL_STENCIL_TEST );
+		assertThat( gl.count( GLOp.glDisable, GL20.GL_STENCIL_TEST ) )
+				.isEqualTo( 1 );
 	}
 }
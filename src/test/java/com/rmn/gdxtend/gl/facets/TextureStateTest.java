@@ -1,20 +1,20 @@
 package com.rmn.gdxtend.gl.facets;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.anyFloat;
-import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.rmn.gdxtend.GLOp;
 import com.rmn.gdxtend.gl.enums.MagFilter;
 import com.rmn.gdxtend.gl.enums.MinFilter;
 
@@ -32,6 +32,14 @@ public class TextureStateTest extends FacetTest {
 	@Mock
 	private Texture imageB;
 
+	/**
+	 * Initialises the texture mocks
+	 */
+	@Before
+	public void mocks() {
+		MockitoAnnotations.initMocks( this );
+	}
+
 	/**
 	 * Fields are set correctly
 	 */
@@ -121,9 +129,9 @@ public class TextureStateTest extends FacetTest {
 	public void noopTransition() {
 		tex.transition( control );
 
-		verify( Gdx.gl, never() ).glEnable( anyInt() );
-		verify( Gdx.gl, never() ).glDisable( anyInt() );
-		verify( Gdx.gl, never() ).glTexParameterf( anyInt(), anyInt(), anyFloat() );
+		assertThat( gl.count( GLOp.glEnable ) ).isZero();
+		assertThat( gl.count( GLOp.glDisable ) ).isZero();
+		assertThat( gl.count( GLOp.glTexParameterf ) ).isZero();
 	}
 
 	/**
@@ -181,8 +189,8 @@ public class TextureStateTest extends FacetTest {
 
 		control.transition( tex );
 
-		verify( Gdx.gl )
-				.glBindTexture( GL20.GL_TEXTURE_2D, 0 );
+		assertThat( gl.count( GLOp.glBindTexture, GL20.GL_TEXTURE_2D, 0 ) )
+				.isEqualTo( 1 );
 		verify( imageA, never() )
 				.unsafeSetFilter( isA( TextureFilter.class ), isA( TextureFilter.class ) );
 		verify( imageA, never() )
@@ -0,0 +1,366 @@
+package com.rmn.gdxtend.raster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * Exercises {@link SoftwareGL}
+ */
+public class SoftwareGLTest {
+
+	private static final String VERTEX = "attribute vec4 a_position;\n"
+			+ "attribute vec4 a_color;\n"
+			+ "uniform mat4 u_projTrans;\n"
+			+ "varying vec4 v_color;\n"
+			+ "void main() {\n"
+			+ "  v_color = a_color;\n"
+			+ "  gl_Position = u_projTrans * a_position;\n"
+			+ "}";
+
+	private static final String FRAGMENT = "varying vec4 v_color;\n"
+			+ "void main() {\n"
+			+ "  gl_FragColor = v_color;\n"
+			+ "}";
+
+	private static final float[] IDENTITY = {
+			1, 0, 0, 0,
+			0, 1, 0, 0,
+			0, 0, 1, 0,
+			0, 0, 0, 1 };
+
+	private SoftwareGL gl = new SoftwareGL( 8, 8 );
+
+	private int program;
+
+	/**
+	 * Builds the program used by all tests
+	 */
+	@Before
+	public void program() {
+		program = program( gl, VERTEX, FRAGMENT );
+	}
+
+	/**
+	 * Two triangles sharing a diagonal cover each pixel exactly once
+	 */
+	@Test
+	public void coverage() {
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glBlendFunc( GL20.GL_ONE, GL20.GL_ONE );
+		quad( -1, -1, 1, 1, 0, 0, 0.25f, 0, 0 );
+
+		for( int y = 0; y < 8; y++ ) {
+			for( int x = 0; x < 8; x++ ) {
+				assertThat( gl.framebuffer().colour( x, y ) )
+						.as( x + "," + y ).isEqualTo( 0x00400000 );
+			}
+		}
+	}
+
+	/**
+	 * A triangle over half the viewport fills the pixels whose centres it holds
+	 */
+	@Test
+	public void triangle() {
+		draw( GL20.GL_TRIANGLES, new float[] {
+				-1, -1, 0, 1, -1, 0, -1, 1, 0 }, 1, 1, 1, 1 );
+
+		int covered = 0;
+		for( int y = 0; y < 8; y++ ) {
+			for( int x = 0; x < 8; x++ ) {
+				// centres on the hypotenuse are excluded by the fill rule
+				assertThat( gl.framebuffer().colour( x, y ) != 0 )
+						.as( x + "," + y ).isEqualTo( x + y < 7 );
+				covered += gl.framebuffer().colour( x, y ) != 0 ? 1 : 0;
+			}
+		}
+		assertThat( covered ).isEqualTo( 28 );
+	}
+
+	/**
+	 * Back faces are culled
+	 */
+	@Test
+	public void cull() {
+		gl.glEnable( GL20.GL_CULL_FACE );
+		draw( GL20.GL_TRIANGLES, new float[] {
+				-1, -1, 0, -1, 1, 0, 1, -1, 0 }, 1, 1, 1, 1 );
+		assertThat( gl.framebuffer().colour( 0, 0 ) ).isZero();
+
+		gl.glCullFace( GL20.GL_FRONT );
+		draw( GL20.GL_TRIANGLES, new float[] {
+				-1, -1, 0, -1, 1, 0, 1, -1, 0 }, 1, 1, 1, 1 );
+		assertThat( gl.framebuffer().colour( 0, 0 ) ).isEqualTo( 0xffffffff );
+	}
+
+	/**
+	 * Clearing honours the scissor rectangle and colour mask
+	 */
+	@Test
+	public void clear() {
+		gl.glClearColor( 1, 0, 0, 1 );
+		gl.glClear( GL20.GL_COLOR_BUFFER_BIT );
+		gl.glEnable( GL20.GL_SCISSOR_TEST );
+		gl.glScissor( 2, 2, 2, 2 );
+		gl.glColorMask( false, true, true, true );
+		gl.glClearColor( 0, 0, 1, 1 );
+		gl.glClear( GL20.GL_COLOR_BUFFER_BIT );
+
+		assertThat( gl.framebuffer().colour( 0, 0 ) ).isEqualTo( 0xff0000ff );
+		assertThat( gl.framebuffer().colour( 2, 3 ) ).isEqualTo( 0xff00ffff );
+		assertThat( gl.framebuffer().colour( 4, 4 ) ).isEqualTo( 0xff0000ff );
+	}
+
+	/**
+	 * Blend factors and equations
+	 */
+	@Test
+	public void blend() {
+		gl.glClearColor( 0, 0, 1, 1 );
+		gl.glClear( GL20.GL_COLOR_BUFFER_BIT );
+		gl.glEnable( GL20.GL_BLEND );
+		gl.glBlendFunc( GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA );
+		quad( -1, -1, 1, 1, 0, 1, 0, 0, 0.5f );
+		assertThat( gl.framebuffer().colour( 4, 4 ) ).isEqualTo( 0x800080bf );
+
+		gl.glBlendEquation( GL20.GL_FUNC_REVERSE_SUBTRACT );
+		gl.glBlendFunc( GL20.GL_ONE, GL20.GL_ONE );
+		quad( -1, -1, 1, 1, 0, 0.75f, 0, 0.25f, 0 );
+		assertThat( gl.framebuffer().colour( 4, 4 ) ).isEqualTo( 0x000040bf );
+	}
+
+	/**
+	 * The nearer surface wins, whatever the drawing order
+	 */
+	@Test
+	public void depth() {
+		gl.glEnable( GL20.GL_DEPTH_TEST );
+		gl.glClear( GL20.GL_DEPTH_BUFFER_BIT );
+		quad( -1, -1, 1, 1, -0.5f, 1, 0, 0, 1 );
+		quad( -1, -1, 1, 1, 0.5f, 0, 0, 1, 1 );
+		quad( -1, -1, 0, 0, -0.75f, 0, 1, 0, 1 );
+
+		assertThat( gl.framebuffer().colour( 6, 6 ) ).isEqualTo( 0xff0000ff );
+		assertThat( gl.framebuffer().colour( 1, 1 ) ).isEqualTo( 0x00ff00ff );
+		assertThat( gl.framebuffer().depth( 6, 6 ) ).isEqualTo( 0.25f );
+		assertThat( gl.framebuffer().depth( 1, 1 ) ).isEqualTo( 0.125f );
+
+		gl.glDepthMask( false );
+		quad( -1, -1, 1, 1, -1, 1, 1, 1, 1 );
+		assertThat( gl.framebuffer().colour( 6, 6 ) ).isEqualTo( 0xffffffff );
+		assertThat( gl.framebuffer().depth( 6, 6 ) ).isEqualTo( 0.25f );
+	}
+
+	/**
+	 * Polygon offset lets coplanar geometry win the depth test
+	 */
+	@Test
+	public void polygonOffset() {
+		gl.glEnable( GL20.GL_DEPTH_TEST );
+		quad( -1, -1, 1, 1, 0, 1, 0, 0, 1 );
+		quad( -1, -1, 1, 1, 0, 0, 1, 0, 1 );
+		assertThat( gl.framebuffer().colour( 4, 4 ) ).isEqualTo( 0xff0000ff );
+
+		gl.glEnable( GL20.GL_POLYGON_OFFSET_FILL );
+		gl.glPolygonOffset( 0, -1 );
+		quad( -1, -1, 1, 1, 0, 0, 1, 0, 1 );
+		assertThat( gl.framebuffer().colour( 4, 4 ) ).isEqualTo( 0x00ff00ff );
+	}
+
+	/**
+	 * Stencilling a region then drawing through it
+	 */
+	@Test
+	public void stencil() {
+		gl.glEnable( GL20.GL_STENCIL_TEST );
+		gl.glStencilFunc( GL20.GL_ALWAYS, 1, 0xff );
+		gl.glStencilOp( GL20.GL_KEEP, GL20.GL_KEEP, GL20.GL_REPLACE );
+		gl.glColorMask( false, false, false, false );
+		quad( -1, -1, 0, 0, 0, 1, 1, 1, 1 );
+
+		assertThat( gl.framebuffer().stencil( 1, 1 ) ).isEqualTo( 1 );
+		assertThat( gl.framebuffer().stencil( 6, 6 ) ).isZero();
+		assertThat( gl.framebuffer().colour( 1, 1 ) ).isZero();
+
+		gl.glColorMask( true, true, true, true );
+		gl.glStencilFunc( GL20.GL_EQUAL, 1, 0xff );
+		gl.glStencilOp( GL20.GL_KEEP, GL20.GL_KEEP, GL20.GL_INCR );
+		quad( -1, -1, 1, 1, 0, 1, 1, 1, 1 );
+
+		assertThat( gl.framebuffer().colour( 1, 1 ) ).isEqualTo( 0xffffffff );
+		assertThat( gl.framebuffer().colour( 6, 6 ) ).isZero();
+		assertThat( gl.framebuffer().stencil( 1, 1 ) ).isEqualTo( 2 );
+	}
+
+	/**
+	 * Pixels read back bottom row first
+	 */
+	@Test
+	public void readPixels() {
+		quad( -1, -1, 1, 0, 0, 1, 0, 0, 1 );
+		ByteBuffer pixels = ByteBuffer.allocate( 2 * 8 * 4 );
+		gl.glReadPixels( 0, 3, 2, 2, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE,
+				pixels );
+
+		assertThat( pixels.get( 0 ) ).isEqualTo( (byte) 0xff );
+		assertThat( pixels.get( 3 ) ).isEqualTo( (byte) 0xff );
+		assertThat( pixels.get( 8 ) ).isZero();
+		assertThat( pixels.get( 11 ) ).isZero();
+	}
+
+	/**
+	 * Vertex data from buffer objects and unsigned byte colours
+	 */
+	@Test
+	public void bufferObjects() {
+		ByteBuffer data = ByteBuffer.allocateDirect( 4 * 16 )
+				.order( ByteOrder.nativeOrder() );
+		float[][] corners = { { -1, -1 }, { 1, -1 }, { 1, 1 }, { -1, 1 } };
+		for( float[] c : corners ) {
+			data.putFloat( c[ 0 ] ).putFloat( c[ 1 ] ).putFloat( 0 );
+			data.put( (byte) 0 ).put( (byte) 0xff ).put( (byte) 0 )
+					.put( (byte) 0xff );
+		}
+		data.flip();
+		ShortBuffer indices = ShortBuffer.wrap( new short[] { 0, 1, 2, 2, 3, 0 } );
+
+		int vbo = gl.glGenBuffer();
+		gl.glBindBuffer( GL20.GL_ARRAY_BUFFER, vbo );
+		gl.glBufferData( GL20.GL_ARRAY_BUFFER, data.remaining(), data,
+				GL20.GL_STATIC_DRAW );
+		int ibo = gl.glGenBuffer();
+		gl.glBindBuffer( GL20.GL_ELEMENT_ARRAY_BUFFER, ibo );
+		gl.glBufferData( GL20.GL_ELEMENT_ARRAY_BUFFER, 12, indices,
+				GL20.GL_STATIC_DRAW );
+
+		int position = gl.glGetAttribLocation( program, "a_position" );
+		int colour = gl.glGetAttribLocation( program, "a_color" );
+		gl.glEnableVertexAttribArray( position );
+		gl.glEnableVertexAttribArray( colour );
+		gl.glVertexAttribPointer( position, 3, GL20.GL_FLOAT, false, 16, 0 );
+		gl.glVertexAttribPointer( colour, 4, GL20.GL_UNSIGNED_BYTE, true, 16, 12 );
+		gl.glDrawElements( GL20.GL_TRIANGLES, 6, GL20.GL_UNSIGNED_SHORT, 0 );
+
+		assertThat( gl.framebuffer().colour( 0, 0 ) ).isEqualTo( 0x00ff00ff );
+		assertThat( gl.framebuffer().colour( 7, 7 ) ).isEqualTo( 0x00ff00ff );
+		assertThat( gl.glGetError() ).isEqualTo( GL20.GL_NO_ERROR );
+	}
+
+	/**
+	 * Textures are sampled at the interpolated coordinates
+	 */
+	@Test
+	public void texture() {
+		String vertex = "attribute vec4 a_position;\n"
+				+ "attribute vec2 a_texCoord0;\n"
+				+ "uniform mat4 u_projTrans;\n"
+				+ "uniform sampler2D u_texture;\n";
+		int textured = program( gl, vertex, "" );
+		gl.glUniform1i( gl.glGetUniformLocation( textured, "u_texture" ), 0 );
+
+		int texture = gl.glGenTexture();
+		gl.glBindTexture( GL20.GL_TEXTURE_2D, texture );
+		gl.glTexImage2D( GL20.GL_TEXTURE_2D, 0, GL20.GL_LUMINANCE, 2, 1, 0,
+				GL20.GL_LUMINANCE, GL20.GL_UNSIGNED_BYTE,
+				ByteBuffer.wrap( new byte[] { 0, (byte) 0xff } ) );
+
+		int position = gl.glGetAttribLocation( textured, "a_position" );
+		int texCoord = gl.glGetAttribLocation( textured, "a_texCoord0" );
+		gl.glEnableVertexAttribArray( position );
+		gl.glEnableVertexAttribArray( texCoord );
+		gl.glVertexAttribPointer( position, 2, GL20.GL_FLOAT, false, 0,
+				FloatBuffer.wrap( new float[] { -1, -1, 1, -1, 1, 1, -1, 1 } ) );
+		gl.glVertexAttribPointer( texCoord, 2, GL20.GL_FLOAT, false, 0,
+				FloatBuffer.wrap( new float[] { 0, 0, 1, 0, 1, 1, 0, 1 } ) );
+		gl.glDrawArrays( GL20.GL_TRIANGLE_FAN, 0, 4 );
+
+		assertThat( gl.framebuffer().colour( 1, 4 ) ).isEqualTo( 0x000000ff );
+		assertThat( gl.framebuffer().colour( 6, 4 ) ).isEqualTo( 0xffffffff );
+	}
+
+	/**
+	 * Filling tiles concurrently gives the same image as filling them serially
+	 */
+	@Test
+	public void tiles() {
+		SoftwareGL serial = new SoftwareGL( 200, 150, 1 );
+		SoftwareGL parallel = new SoftwareGL( 200, 150, 4 );
+		Random rng = new Random( 7 );
+		float[] triangles = new float[ 3 * 3 * 50 ];
+		for( int i = 0; i < triangles.length; i++ ) {
+			triangles[ i ] = rng.nextFloat() * 2.4f - 1.2f;
+		}
+
+		try {
+			for( SoftwareGL s : new SoftwareGL[] { serial, parallel } ) {
+				gl = s;
+				program = program( s, VERTEX, FRAGMENT );
+				gl.glEnable( GL20.GL_BLEND );
+				gl.glBlendFunc( GL20.GL_ONE, GL20.GL_ONE );
+				draw( GL20.GL_TRIANGLES, triangles, 0.0625f, 0.125f, 0.25f, 0 );
+			}
+		}
+		finally {
+			serial.dispose();
+			parallel.dispose();
+		}
+
+		for( int y = 0; y < 150; y++ ) {
+			for( int x = 0; x < 200; x++ ) {
+				assertThat( parallel.framebuffer().colour( x, y ) ).as( x + "," + y )
+						.isEqualTo( serial.framebuffer().colour( x, y ) );
+			}
+		}
+	}
+
+	private static int program( GL20 gl, String vertex, String fragment ) {
+		int vs = gl.glCreateShader( GL20.GL_VERTEX_SHADER );
+		gl.glShaderSource( vs, vertex );
+		gl.glCompileShader( vs );
+		int fs = gl.glCreateShader( GL20.GL_FRAGMENT_SHADER );
+		gl.glShaderSource( fs, fragment );
+		gl.glCompileShader( fs );
+		int p = gl.glCreateProgram();
+		gl.glAttachShader( p, vs );
+		gl.glAttachShader( p, fs );
+		gl.glLinkProgram( p );
+		gl.glUseProgram( p );
+		gl.glUniformMatrix4fv( gl.glGetUniformLocation( p, "u_projTrans" ), 1,
+				false, IDENTITY, 0 );
+		return p;
+	}
+
+	private void quad( float x0, float y0, float x1, float y1, float z,
+			float r, float g, float b, float a ) {
+		int position = gl.glGetAttribLocation( program, "a_position" );
+		gl.glEnableVertexAttribArray( position );
+		gl.glVertexAttribPointer( position, 3, GL20.GL_FLOAT, false, 0,
+				FloatBuffer.wrap( new float[] {
+						x0, y0, z, x1, y0, z, x1, y1, z, x0, y1, z } ) );
+		gl.glVertexAttrib4f( gl.glGetAttribLocation( program, "a_color" ),
+				r, g, b, a );
+		gl.glDrawElements( GL20.GL_TRIANGLES, 6, GL20.GL_UNSIGNED_SHORT,
+				ShortBuffer.wrap( new short[] { 0, 1, 2, 2, 3, 0 } ) );
+	}
+
+	private void draw( int mode, float[] positions, float r, float g, float b,
+			float a ) {
+		int position = gl.glGetAttribLocation( program, "a_position" );
+		gl.glEnableVertexAttribArray( position );
+		gl.glVertexAttribPointer( position, 3, GL20.GL_FLOAT, false, 0,
+				FloatBuffer.wrap( positions ) );
+		gl.glVertexAttrib4f( gl.glGetAttribLocation( program, "a_color" ),
+				r, g, b, a );
+		gl.glDrawArrays( mode, 0, positions.length / 3 );
+	}
+}